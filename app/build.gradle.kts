@@ -24,11 +24,21 @@ android {
                 "proguard-rules.pro"
             )
         }
+        // Release-like build that the :macrobenchmark module can profile
+        create("benchmark") {
+            initWith(getByName("release"))
+            signingConfig = signingConfigs.getByName("debug")
+            matchingFallbacks += listOf("release")
+        }
     }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        // Local tests run classes that touch SystemClock and friends
+        unitTests.isReturnDefaultValues = true
+    }
     
     packaging {
         resources {
@@ -0,0 +1,162 @@
+package dinhnguyen.filza.file.manager.manager;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dinhnguyen.filza.file.manager.model.OperationPlan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copies a synthetic tree of 10k small files serially through
+ * {@link TransferEngine} and concurrently through {@link CopyScheduler}, and
+ * logs both timings under the "CopySchedulerBenchmark" tag.
+ * Run with {@code ./gradlew :app:connectedAndroidTest
+ * -Pandroid.testInstrumentationRunnerArguments.class=dinhnguyen.filza.file.manager.manager.CopySchedulerBenchmark}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CopySchedulerBenchmark {
+
+    private static final String TAG = "CopySchedulerBenchmark";
+    private static final int DIRECTORY_COUNT = 100;
+    private static final int FILES_PER_DIRECTORY = 100;
+    private static final int FILE_SIZE = 4 * 1024;
+    private static final int ROUNDS = 2;
+
+    private File workDirectory;
+    private File sourceTree;
+
+    @Before
+    public void createTree() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        workDirectory = new File(context.getFilesDir(), "copy_benchmark");
+        deleteRecursively(workDirectory);
+        sourceTree = new File(workDirectory, "source");
+
+        Random random = new Random(42);
+        byte[] data = new byte[FILE_SIZE];
+        for (int d = 0; d < DIRECTORY_COUNT; d++) {
+            File directory = new File(sourceTree, "album_" + d);
+            assertTrue(directory.mkdirs());
+            for (int f = 0; f < FILES_PER_DIRECTORY; f++) {
+                random.nextBytes(data);
+                try (FileOutputStream out = new FileOutputStream(new File(directory, "IMG_" + f + ".jpg"))) {
+                    out.write(data);
+                }
+            }
+        }
+    }
+
+    @After
+    public void deleteTree() {
+        deleteRecursively(workDirectory);
+    }
+
+    @Test
+    public void serialVersusConcurrentCopy() throws IOException {
+        CopyScheduler scheduler = new CopyScheduler(CopyScheduler.DEFAULT_THREAD_COUNT,
+                CopyScheduler.DEFAULT_PER_VOLUME_LIMIT);
+        long bestSerialMs = Long.MAX_VALUE;
+        long bestConcurrentMs = Long.MAX_VALUE;
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                File serialTarget = new File(workDirectory, "serial");
+                long start = SystemClock.elapsedRealtime();
+                TransferEngine serialEngine = new TransferEngine(TransferEngine.ConflictPolicy.FAIL, true);
+                serialEngine.copy(sourceTree, serialTarget);
+                serialEngine.syncDirectories();
+                bestSerialMs = Math.min(bestSerialMs, SystemClock.elapsedRealtime() - start);
+                assertEquals(DIRECTORY_COUNT * FILES_PER_DIRECTORY, countFiles(serialTarget));
+                deleteRecursively(serialTarget);
+
+                File concurrentFolder = new File(workDirectory, "concurrent");
+                assertTrue(concurrentFolder.mkdirs());
+                AtomicInteger copiedFiles = new AtomicInteger();
+                CountingListener listener = new CountingListener(copiedFiles);
+                start = SystemClock.elapsedRealtime();
+                OperationPlan plan = OperationPlanner.planCopy(Collections.singletonList(sourceTree),
+                        concurrentFolder, TransferEngine.ConflictPolicy.FAIL);
+                CopyScheduler.Result result = scheduler.copy(plan, true, null, listener);
+                bestConcurrentMs = Math.min(bestConcurrentMs, SystemClock.elapsedRealtime() - start);
+                assertTrue(result.getErrors().toString(), result.getErrors().isEmpty());
+                assertEquals(DIRECTORY_COUNT * FILES_PER_DIRECTORY, plan.getTransferFileCount());
+                assertTrue("Progress arrived out of order", listener.inOrder);
+                assertEquals(DIRECTORY_COUNT * FILES_PER_DIRECTORY, copiedFiles.get());
+                assertEquals(DIRECTORY_COUNT * FILES_PER_DIRECTORY, countFiles(concurrentFolder));
+                deleteRecursively(concurrentFolder);
+            }
+        } finally {
+            scheduler.shutdown();
+        }
+
+        Log.i(TAG, "Copied " + DIRECTORY_COUNT * FILES_PER_DIRECTORY + " files of " + FILE_SIZE
+                + " bytes: serial " + bestSerialMs + " ms, concurrent " + bestConcurrentMs + " ms ("
+                + String.format("%.2fx", (double) bestSerialMs / Math.max(1, bestConcurrentMs)) + ")");
+    }
+
+    /** Runs on the copy threads, so it records what it saw for the test thread to assert */
+    private static class CountingListener implements CopyScheduler.CopyListener {
+        private final AtomicInteger copiedFiles;
+        private volatile boolean inOrder = true;
+        private int lastFilesDone;
+
+        CountingListener(AtomicInteger copiedFiles) {
+            this.copiedFiles = copiedFiles;
+        }
+
+        @Override
+        public void onFileCopied(int filesDone, int filesTotal, File source) {
+            if (filesDone != lastFilesDone + 1) {
+                inOrder = false;
+            }
+            lastFilesDone = filesDone;
+            copiedFiles.incrementAndGet();
+        }
+
+        @Override
+        public void onBytesTransferred(long bytes) {
+        }
+
+        @Override
+        public void onEntryCreated(File destination) {
+        }
+    }
+
+    private static int countFiles(File directory) {
+        int count = 0;
+        File[] children = directory.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                count += child.isDirectory() ? countFiles(child) : 1;
+            }
+        }
+        return count;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
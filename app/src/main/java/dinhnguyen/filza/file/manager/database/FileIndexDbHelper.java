@@ -0,0 +1,114 @@
+package dinhnguyen.filza.file.manager.database;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+/**
+ * SQLite schema for the storage-wide file index.
+ * {@code files} holds one row per indexed entry; {@code dirs} records each
+ * directory's mtime at its last scan and whether it is still waiting to be
+ * scanned, which doubles as the indexer's persistent work queue.
+ * {@code name_trigrams} maps every trigram of a normalized name to the
+ * file's rowid for substring search; a trigger keeps it in step with deletes.
+ * {@code file_hashes} caches content hashes for duplicate detection, valid
+ * only while a file's size and mtime still match.
+ */
+public class FileIndexDbHelper extends SQLiteOpenHelper {
+
+    private static final String DATABASE_NAME = "file_index.db";
+    private static final int DATABASE_VERSION = 3;
+
+    public static final String TABLE_FILES = "files";
+    public static final String TABLE_DIRS = "dirs";
+    public static final String TABLE_NAME_TRIGRAMS = "name_trigrams";
+    public static final String TABLE_FILE_HASHES = "file_hashes";
+
+    public static final String COLUMN_PATH = "path";
+    public static final String COLUMN_PARENT = "parent";
+    public static final String COLUMN_NAME = "name";
+    public static final String COLUMN_NAME_NORM = "name_norm";
+    public static final String COLUMN_SIZE = "size";
+    public static final String COLUMN_MTIME = "mtime";
+    public static final String COLUMN_TYPE = "type";
+    public static final String COLUMN_IS_DIR = "is_dir";
+    public static final String COLUMN_PENDING = "pending";
+    public static final String COLUMN_TRIGRAM = "trigram";
+    public static final String COLUMN_FILE_ID = "file_id";
+    public static final String COLUMN_PARTIAL_HASH = "partial_hash";
+    public static final String COLUMN_FULL_HASH = "full_hash";
+
+    private static volatile FileIndexDbHelper instance;
+
+    private FileIndexDbHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // Searches keep reading while the indexer writes
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    public static FileIndexDbHelper getInstance(Context context) {
+        if (instance == null) {
+            synchronized (FileIndexDbHelper.class) {
+                if (instance == null) {
+                    instance = new FileIndexDbHelper(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        // Lets rows replaced by INSERT OR REPLACE fire the trigram cleanup trigger
+        db.execSQL("PRAGMA recursive_triggers = ON");
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_FILES + " ("
+                + COLUMN_PATH + " TEXT PRIMARY KEY, "
+                + COLUMN_PARENT + " TEXT NOT NULL, "
+                + COLUMN_NAME + " TEXT NOT NULL, "
+                + COLUMN_NAME_NORM + " TEXT NOT NULL, "
+                + COLUMN_SIZE + " INTEGER NOT NULL, "
+                + COLUMN_MTIME + " INTEGER NOT NULL, "
+                + COLUMN_TYPE + " TEXT NOT NULL, "
+                + COLUMN_IS_DIR + " INTEGER NOT NULL)");
+        // Name prefix searches are range scans on this index
+        db.execSQL("CREATE INDEX idx_files_name_norm ON " + TABLE_FILES + " (" + COLUMN_NAME_NORM + ")");
+        db.execSQL("CREATE INDEX idx_files_parent ON " + TABLE_FILES + " (" + COLUMN_PARENT + ")");
+
+        db.execSQL("CREATE TABLE " + TABLE_DIRS + " ("
+                + COLUMN_PATH + " TEXT PRIMARY KEY, "
+                + COLUMN_MTIME + " INTEGER NOT NULL, "
+                + COLUMN_PENDING + " INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX idx_dirs_pending ON " + TABLE_DIRS + " (" + COLUMN_PENDING + ") WHERE "
+                + COLUMN_PENDING + " = 1");
+
+        db.execSQL("CREATE TABLE " + TABLE_NAME_TRIGRAMS + " ("
+                + COLUMN_TRIGRAM + " INTEGER NOT NULL, "
+                + COLUMN_FILE_ID + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + COLUMN_TRIGRAM + ", " + COLUMN_FILE_ID + ")) WITHOUT ROWID");
+        db.execSQL("CREATE INDEX idx_name_trigrams_file_id ON " + TABLE_NAME_TRIGRAMS
+                + " (" + COLUMN_FILE_ID + ")");
+        db.execSQL("CREATE TRIGGER files_delete_trigrams AFTER DELETE ON " + TABLE_FILES + " BEGIN "
+                + "DELETE FROM " + TABLE_NAME_TRIGRAMS + " WHERE " + COLUMN_FILE_ID + " = old.rowid; END");
+
+        db.execSQL("CREATE TABLE " + TABLE_FILE_HASHES + " ("
+                + COLUMN_PATH + " TEXT PRIMARY KEY, "
+                + COLUMN_SIZE + " INTEGER NOT NULL, "
+                + COLUMN_MTIME + " INTEGER NOT NULL, "
+                + COLUMN_PARTIAL_HASH + " BLOB, "
+                + COLUMN_FULL_HASH + " BLOB)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // The index is a cache of the file system, so rebuilding is always safe
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_FILES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_DIRS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME_TRIGRAMS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_FILE_HASHES);
+        onCreate(db);
+    }
+}
@@ -0,0 +1,104 @@
+package dinhnguyen.filza.file.manager.database;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+/**
+ * SQLite schema for the journal of copy and move jobs.
+ * {@code journal_jobs} holds one row per job that has started but not
+ * ended; {@code journal_items} its selected items with their resolved
+ * targets; {@code journal_files} every folder and file it transfers, in
+ * plan order, with a flag set once the file is known to be complete.
+ * Rows exist only while a job runs, so any left at launch belong to a job
+ * the process died in.
+ */
+public class TransferJournalDbHelper extends SQLiteOpenHelper {
+
+    private static final String DATABASE_NAME = "transfer_journal.db";
+    private static final int DATABASE_VERSION = 1;
+
+    public static final String TABLE_JOBS = "journal_jobs";
+    public static final String TABLE_ITEMS = "journal_items";
+    public static final String TABLE_FILES = "journal_files";
+
+    public static final String COLUMN_ID = "id";
+    public static final String COLUMN_TYPE = "type";
+    public static final String COLUMN_TITLE = "title";
+    public static final String COLUMN_DESTINATION = "destination";
+    public static final String COLUMN_OVERWRITE = "overwrite";
+    public static final String COLUMN_STARTED = "started";
+    public static final String COLUMN_JOB_ID = "job_id";
+    public static final String COLUMN_ITEM = "item";
+    public static final String COLUMN_SOURCE = "source";
+    public static final String COLUMN_TARGET = "target";
+    public static final String COLUMN_IS_DIR = "is_dir";
+    public static final String COLUMN_RENAME = "can_rename";
+    public static final String COLUMN_FILE_COUNT = "file_count";
+    public static final String COLUMN_BYTES = "bytes";
+    public static final String COLUMN_SIZE = "size";
+    public static final String COLUMN_DONE = "done";
+
+    private static volatile TransferJournalDbHelper instance;
+
+    private TransferJournalDbHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // Completion marks are small, frequent commits
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    public static TransferJournalDbHelper getInstance(Context context) {
+        if (instance == null) {
+            synchronized (TransferJournalDbHelper.class) {
+                if (instance == null) {
+                    instance = new TransferJournalDbHelper(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_JOBS + " ("
+                + COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + COLUMN_TYPE + " TEXT NOT NULL, "
+                + COLUMN_TITLE + " TEXT NOT NULL, "
+                + COLUMN_DESTINATION + " TEXT NOT NULL, "
+                + COLUMN_OVERWRITE + " INTEGER NOT NULL, "
+                + COLUMN_STARTED + " INTEGER NOT NULL)");
+
+        db.execSQL("CREATE TABLE " + TABLE_ITEMS + " ("
+                + COLUMN_JOB_ID + " INTEGER NOT NULL, "
+                + COLUMN_ITEM + " INTEGER NOT NULL, "
+                + COLUMN_SOURCE + " TEXT NOT NULL, "
+                + COLUMN_TARGET + " TEXT NOT NULL, "
+                + COLUMN_IS_DIR + " INTEGER NOT NULL, "
+                + COLUMN_RENAME + " INTEGER NOT NULL, "
+                + COLUMN_FILE_COUNT + " INTEGER NOT NULL, "
+                + COLUMN_BYTES + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + COLUMN_JOB_ID + ", " + COLUMN_ITEM + "))");
+
+        // Folders have no source; they are created, never transferred
+        db.execSQL("CREATE TABLE " + TABLE_FILES + " ("
+                + COLUMN_JOB_ID + " INTEGER NOT NULL, "
+                + COLUMN_ITEM + " INTEGER NOT NULL, "
+                + COLUMN_SOURCE + " TEXT, "
+                + COLUMN_TARGET + " TEXT NOT NULL, "
+                + COLUMN_IS_DIR + " INTEGER NOT NULL, "
+                + COLUMN_SIZE + " INTEGER NOT NULL, "
+                + COLUMN_DONE + " INTEGER NOT NULL)");
+        // Completion is marked by target path
+        db.execSQL("CREATE INDEX idx_journal_files_target ON " + TABLE_FILES
+                + " (" + COLUMN_JOB_ID + ", " + COLUMN_TARGET + ")");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Only interrupted jobs live here; losing them just means they are not offered for resuming
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_JOBS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_ITEMS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_FILES);
+        onCreate(db);
+    }
+}
@@ -7,12 +7,18 @@ import android.view.View;
 import android.widget.EditText;
 import android.widget.Toast;
 import androidx.appcompat.app.AlertDialog;
+import androidx.lifecycle.LifecycleOwner;
 import java.io.File;
+import java.util.Collections;
 import dinhnguyen.filza.file.manager.R;
+import dinhnguyen.filza.file.manager.manager.JobHandle;
+import dinhnguyen.filza.file.manager.manager.JobManager;
+import dinhnguyen.filza.file.manager.utils.FileUtils;
 
 public class FileOperationHandler implements FileActionListener {
 
     private final Context context;
+    private final LifecycleOwner lifecycleOwner;
     private final Refreshable reloader;
 
     public interface Refreshable {
@@ -32,8 +38,9 @@ public class FileOperationHandler implements FileActionListener {
         this.folderPicker = picker;
     }
 
-    public FileOperationHandler(Context context, Refreshable reloader) {
+    public FileOperationHandler(Context context, LifecycleOwner lifecycleOwner, Refreshable reloader) {
         this.context = context;
+        this.lifecycleOwner = lifecycleOwner;
         this.reloader = reloader;
     }
 
@@ -84,26 +91,7 @@ public class FileOperationHandler implements FileActionListener {
                 Toast.makeText(context, "A file with this name already exists in destination", Toast.LENGTH_SHORT).show();
                 return;
             }
-            boolean success = file.renameTo(destFile);
-            if (!success) {
-                // Fallback: copy then delete
-                try {
-                    if (file.isDirectory()) {
-                        copyDirectory(file, destFile);
-                        deleteRecursively(file);
-                    } else {
-                        copyFile(file, destFile);
-                        file.delete();
-                    }
-                    Toast.makeText(context, "Moved (copied+deleted)", Toast.LENGTH_SHORT).show();
-                    reloader.refresh();
-                } catch (Exception e) {
-                    Toast.makeText(context, "Failed to move: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                }
-            } else {
-                Toast.makeText(context, "Moved successfully", Toast.LENGTH_SHORT).show();
-                reloader.refresh();
-            }
+            reportWhenFinished(FileUtils.moveFiles(context, Collections.singletonList(file), destDir, null));
         });
     }
 
@@ -120,17 +108,7 @@ public class FileOperationHandler implements FileActionListener {
                 Toast.makeText(context, "A file with this name already exists in destination", Toast.LENGTH_SHORT).show();
                 return;
             }
-            try {
-                if (file.isDirectory()) {
-                    copyDirectory(file, destFile);
-                } else {
-                    copyFile(file, destFile);
-                }
-                Toast.makeText(context, "Copied successfully", Toast.LENGTH_SHORT).show();
-                reloader.refresh();
-            } catch (Exception e) {
-                Toast.makeText(context, "Failed to copy: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-            }
+            reportWhenFinished(FileUtils.copyFiles(context, Collections.singletonList(file), destDir, null));
         });
     }
 
@@ -204,48 +182,24 @@ public class FileOperationHandler implements FileActionListener {
             counter++;
         } while (destFile.exists());
 
-        try {
-            if (file.isDirectory()) {
-                copyDirectory(file, destFile);
-            } else {
-                copyFile(file, destFile);
-            }
-            Toast.makeText(context, "Duplicated", Toast.LENGTH_SHORT).show();
-            reloader.refresh();
-        } catch (Exception e) {
-            Toast.makeText(context, "Failed to duplicate: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-        }
+        reportWhenFinished(FileUtils.copyTo(context, file, destFile, null));
     }
 
 // --- Utility methods ---
 
-    private void copyFile(File source, File dest) throws java.io.IOException {
-        try (java.io.FileInputStream fis = new java.io.FileInputStream(source);
-             java.io.FileOutputStream fos = new java.io.FileOutputStream(dest)) {
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = fis.read(buffer)) > 0) {
-                fos.write(buffer, 0, length);
-            }
-            fos.getFD().sync();
-        }
-    }
-
-    private void copyDirectory(File source, File dest) throws java.io.IOException {
-        if (!dest.exists()) {
-            dest.mkdir();
-        }
-        File[] files = source.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                File destFile = new File(dest, file.getName());
-                if (file.isDirectory()) {
-                    copyDirectory(file, destFile);
-                } else {
-                    copyFile(file, destFile);
-                }
+    /**
+     * Reports the outcome of a background copy or move and reloads the listing.
+     * Follows the job through the owner's lifecycle, so a job that outlives
+     * the screen does not keep it alive.
+     */
+    private void reportWhenFinished(JobHandle job) {
+        JobManager.getInstance(context).observeFinish(lifecycleOwner, job, finished -> {
+            String summary = finished.getSummary();
+            if (!summary.isEmpty()) {
+                Toast.makeText(context, summary, Toast.LENGTH_SHORT).show();
             }
-        }
+            reloader.refresh();
+        });
     }
 
     private void zipDirectory(File directory, String basePath, java.util.zip.ZipOutputStream zos) throws java.io.IOException {
@@ -0,0 +1,17 @@
+package dinhnguyen.filza.file.manager.listener;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Receives changes the app itself makes to the file system
+ */
+public interface FileChangeListener {
+
+    /**
+     * Called from a background thread after files were created, written or deleted.
+     * @param includeContents true if the files are directory trees whose contents
+     *                        were not reported individually, e.g. after a rename
+     */
+    void onFilesChanged(List<File> files, boolean includeContents);
+}
@@ -1,14 +1,21 @@
 package dinhnguyen.filza.file.manager.manager;
 
+import android.Manifest;
 import android.app.AlertDialog;
 import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
 import androidx.fragment.app.FragmentActivity;
 
 import com.google.android.material.textfield.TextInputEditText;
@@ -17,7 +24,10 @@ import java.io.File;
 import java.util.List;
 
 import dinhnguyen.filza.file.manager.R;
+import dinhnguyen.filza.file.manager.model.OperationPlan;
+import dinhnguyen.filza.file.manager.model.OperationProgress;
 import dinhnguyen.filza.file.manager.ui.dialog.FolderPickerDialog;
+import dinhnguyen.filza.file.manager.utils.FileDisplayFormatter;
 import dinhnguyen.filza.file.manager.utils.FileUtils;
 import dinhnguyen.filza.file.manager.utils.StorageUtils;
 
@@ -27,18 +37,34 @@ import dinhnguyen.filza.file.manager.utils.StorageUtils;
  */
 public class BulkOperationsManager {
     
+    private static final int PROGRESS_MAX = 1000;
+    private static final String KEY_JOB_ID = "bulk_operation_job_id";
+    private static final String KEY_DIALOG_HIDDEN = "bulk_operation_dialog_hidden";
+    
     private final Context context;
     private final FragmentActivity activity;
+    private final JobManager jobManager;
+    private final ActivityResultLauncher<String> notificationPermissionLauncher;
+    private boolean notificationPermissionRequested;
     private AlertDialog progressDialog;
+    private JobHandle currentJob;
     private TextView textViewTitle;
     private TextView textViewCurrentFile;
     private ProgressBar progressBar;
     private TextView textViewProgress;
     private TextView textViewPercentage;
     
+    /**
+     * Must be created while the Activity is being created, as it registers
+     * for a permission result and observes the jobs with the Activity's lifecycle
+     */
     public BulkOperationsManager(Context context, FragmentActivity activity) {
         this.context = context;
         this.activity = activity;
+        this.jobManager = JobManager.getInstance(context);
+        this.notificationPermissionLauncher = activity.registerForActivityResult(
+            new ActivityResultContracts.RequestPermission(), granted -> { });
+        jobManager.getJobs().observe(activity, jobs -> onJobsChanged());
     }
     
     /**
@@ -83,11 +109,7 @@ public class BulkOperationsManager {
             destinationFolder -> {
                 if (destinationFolder != null) {
                     if (StorageUtils.isDirectoryWritable(destinationFolder)) {
-                        if (FileUtils.hasEnoughSpace(selectedFiles, destinationFolder)) {
-                            performCopyOperation(selectedFiles, destinationFolder);
-                        } else {
-                            Toast.makeText(context, "Not enough space available", Toast.LENGTH_LONG).show();
-                        }
+                        performCopyOperation(selectedFiles, destinationFolder);
                     } else {
                         Toast.makeText(context, "Selected folder is not writable", Toast.LENGTH_SHORT).show();
                     }
@@ -107,11 +129,7 @@ public class BulkOperationsManager {
             destinationFolder -> {
                 if (destinationFolder != null) {
                     if (StorageUtils.isDirectoryWritable(destinationFolder)) {
-                        if (FileUtils.hasEnoughSpace(selectedFiles, destinationFolder)) {
-                            performMoveOperation(selectedFiles, destinationFolder);
-                        } else {
-                            Toast.makeText(context, "Not enough space available", Toast.LENGTH_LONG).show();
-                        }
+                        performMoveOperation(selectedFiles, destinationFolder);
                     } else {
                         Toast.makeText(context, "Selected folder is not writable", Toast.LENGTH_SHORT).show();
                     }
@@ -196,131 +214,149 @@ public class BulkOperationsManager {
      * Perform copy operation with progress dialog
      */
     private void performCopyOperation(List<File> files, File destinationFolder) {
-        showProgressDialog("Copying Files");
-        
-        FileUtils.copyFiles(context, files, destinationFolder, new FileUtils.OperationCallback() {
-            @Override
-            public void onProgress(int current, int total, String currentFile) {
-                updateProgress(current, total, currentFile);
-            }
-            
-            @Override
-            public void onSuccess(String message) {
-                hideProgressDialog();
-                Toast.makeText(context, message, Toast.LENGTH_LONG).show();
-            }
-            
-            @Override
-            public void onError(String error) {
-                hideProgressDialog();
-                Toast.makeText(context, error, Toast.LENGTH_LONG).show();
-            }
-            
-            @Override
-            public void onComplete() {
-                // Operation completed
-            }
-        });
+        attach(FileUtils.copyFiles(context, files, destinationFolder, null));
     }
     
     /**
      * Perform move operation with progress dialog
      */
     private void performMoveOperation(List<File> files, File destinationFolder) {
-        showProgressDialog("Moving Files");
-        
-        FileUtils.moveFiles(context, files, destinationFolder, new FileUtils.OperationCallback() {
-            @Override
-            public void onProgress(int current, int total, String currentFile) {
-                updateProgress(current, total, currentFile);
-            }
-            
-            @Override
-            public void onSuccess(String message) {
-                hideProgressDialog();
-                Toast.makeText(context, message, Toast.LENGTH_LONG).show();
-            }
-            
-            @Override
-            public void onError(String error) {
-                hideProgressDialog();
-                Toast.makeText(context, error, Toast.LENGTH_LONG).show();
-            }
-            
-            @Override
-            public void onComplete() {
-                // Operation completed
-            }
-        });
+        attach(FileUtils.moveFiles(context, files, destinationFolder, null));
     }
     
     /**
      * Perform compress operation with progress dialog
      */
     private void performCompressOperation(List<File> files, File destinationFolder, String zipFileName) {
-        showProgressDialog("Creating ZIP File");
-        
-        FileUtils.createZipFile(context, files, destinationFolder, zipFileName, new FileUtils.ZipCallback() {
-            @Override
-            public void onProgress(int current, int total, String currentFile) {
-                updateProgress(current, total, currentFile);
-            }
-            
-            @Override
-            public void onSuccess(File zipFile) {
-                hideProgressDialog();
-                String message = "ZIP file created successfully: " + zipFile.getName();
-                Toast.makeText(context, message, Toast.LENGTH_LONG).show();
-            }
-            
-            @Override
-            public void onError(String error) {
-                hideProgressDialog();
-                Toast.makeText(context, error, Toast.LENGTH_LONG).show();
-            }
-            
-            @Override
-            public void onComplete() {
-                // Operation completed
-            }
-        });
+        attach(FileUtils.createZipFile(context, files, destinationFolder, zipFileName, null));
     }
     
     /**
      * Perform delete operation with progress dialog
      */
     private void performDeleteOperation(List<File> files) {
-        showProgressDialog("Deleting Files");
+        attach(FileUtils.deleteFiles(context, files, null));
+    }
+    
+    /**
+     * Offer to resume copies and moves the app died in the middle of, one at
+     * a time; after one is resumed the rest are offered on the next launch
+     */
+    public void offerInterruptedTransfers() {
+        TransferJournal.getInstance(context).loadInterrupted(entries -> showResumeDialog(entries, 0));
+    }
+    
+    private void showResumeDialog(List<TransferJournal.Entry> entries, int index) {
+        if (index >= entries.size() || activity.isFinishing() || activity.isDestroyed()) {
+            return;
+        }
+        TransferJournal.Entry entry = entries.get(index);
+        StringBuilder message = new StringBuilder(entry.getTitle()).append(" was interrupted");
+        if (entry.getFileCount() > 0) {
+            message.append(" after ").append(entry.getFilesDone())
+                .append(" of ").append(entry.getFileCount()).append(" files");
+        }
+        message.append(".\n\nResuming skips the files that were already completed.");
         
-        FileUtils.deleteFiles(context, files, new FileUtils.OperationCallback() {
-            @Override
-            public void onProgress(int current, int total, String currentFile) {
-                updateProgress(current, total, currentFile);
-            }
-            
-            @Override
-            public void onSuccess(String message) {
-                hideProgressDialog();
-                Toast.makeText(context, message, Toast.LENGTH_LONG).show();
-            }
-            
-            @Override
-            public void onError(String error) {
-                hideProgressDialog();
-                Toast.makeText(context, error, Toast.LENGTH_LONG).show();
-            }
-            
-            @Override
-            public void onComplete() {
-                // Operation completed
+        new AlertDialog.Builder(context)
+            .setTitle("Resume Interrupted Operation?")
+            .setMessage(message)
+            .setPositiveButton("Resume", (dialog, which) -> {
+                attach(FileUtils.resumeTransfer(context, entry, null));
+            })
+            .setNegativeButton("Discard", (dialog, which) -> {
+                TransferJournal.getInstance(context).discard(entry.getId());
+                showResumeDialog(entries, index + 1);
+            })
+            .setNeutralButton("Later", (dialog, which) -> showResumeDialog(entries, index + 1))
+            .setCancelable(false)
+            .show();
+    }
+    
+    /**
+     * Save the job being followed, so the recreated Activity can pick it up again
+     */
+    public void saveState(Bundle outState) {
+        if (currentJob != null) {
+            outState.putInt(KEY_JOB_ID, currentJob.getId());
+            outState.putBoolean(KEY_DIALOG_HIDDEN, progressDialog == null);
+        }
+    }
+    
+    /**
+     * Reattach to the job saved by {@link #saveState}; it kept running
+     * in the background while the Activity was gone
+     */
+    public void restoreState(Bundle savedState) {
+        if (savedState == null || !savedState.containsKey(KEY_JOB_ID)) {
+            return;
+        }
+        JobHandle job = jobManager.getJob(savedState.getInt(KEY_JOB_ID));
+        if (job == null) {
+            return;
+        }
+        currentJob = job;
+        if (!job.isFinished() && !savedState.getBoolean(KEY_DIALOG_HIDDEN)) {
+            showProgressDialog(job);
+        }
+        onJobsChanged();
+    }
+    
+    /**
+     * Drop the dialog with the Activity; the job goes on and is followed
+     * again after {@link #restoreState}
+     */
+    public void release() {
+        if (progressDialog != null) {
+            progressDialog.dismiss();
+            progressDialog = null;
+        }
+    }
+    
+    /**
+     * Follow a newly started job in the progress dialog
+     */
+    private void attach(JobHandle job) {
+        requestNotificationPermission();
+        currentJob = job;
+        showProgressDialog(job);
+    }
+    
+    /**
+     * Called on the main thread whenever any job changes, at most once per frame
+     */
+    private void onJobsChanged() {
+        if (currentJob == null) {
+            return;
+        }
+        if (currentJob.isFinished()) {
+            String summary = currentJob.getSummary();
+            hideProgressDialog();
+            if (!summary.isEmpty()) {
+                Toast.makeText(context, summary, Toast.LENGTH_LONG).show();
             }
-        });
+        } else if (currentJob.getProgress() != null) {
+            updateProgress(currentJob.getProgress());
+        }
+    }
+    
+    /**
+     * The notification shows job progress outside the app; ask once on
+     * Android 13+, where posting it needs the user's permission
+     */
+    private void requestNotificationPermission() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU && !notificationPermissionRequested
+                && ContextCompat.checkSelfPermission(context, Manifest.permission.POST_NOTIFICATIONS)
+                        != PackageManager.PERMISSION_GRANTED) {
+            notificationPermissionRequested = true;
+            notificationPermissionLauncher.launch(Manifest.permission.POST_NOTIFICATIONS);
+        }
     }
     
     /**
      * Show progress dialog
      */
-    private void showProgressDialog(String title) {
+    private void showProgressDialog(JobHandle job) {
         View dialogView = LayoutInflater.from(context).inflate(R.layout.dialog_progress, null);
         
         textViewTitle = dialogView.findViewById(R.id.textViewTitle);
@@ -329,30 +365,53 @@ public class BulkOperationsManager {
         textViewProgress = dialogView.findViewById(R.id.textViewProgress);
         textViewPercentage = dialogView.findViewById(R.id.textViewPercentage);
         
-        textViewTitle.setText(title);
+        textViewTitle.setText(getProgressTitle(job.getType()));
         
+        // Hiding keeps following the job for its final message; it also stays on the jobs screen
         progressDialog = new AlertDialog.Builder(context)
             .setView(dialogView)
             .setCancelable(false)
+            .setNegativeButton("Cancel", (dialog, which) -> {
+                progressDialog = null;
+                job.cancel();
+            })
+            .setNeutralButton("Hide", (dialog, which) -> progressDialog = null)
             .create();
         
         progressDialog.show();
+        if (job.getProgress() != null) {
+            updateProgress(job.getProgress());
+        }
+    }
+    
+    private String getProgressTitle(OperationPlan.Type type) {
+        switch (type) {
+            case COPY:
+                return "Copying Files";
+            case MOVE:
+                return "Moving Files";
+            case ZIP:
+                return "Creating ZIP File";
+            case DELETE:
+                return "Deleting Files";
+            default:
+                return "Working";
+        }
     }
     
     /**
      * Update progress dialog
      */
-    private void updateProgress(int current, int total, String currentFile) {
+    private void updateProgress(OperationProgress progress) {
         if (progressDialog != null && progressDialog.isShowing()) {
-            activity.runOnUiThread(() -> {
-                textViewCurrentFile.setText(currentFile);
-                progressBar.setMax(total);
-                progressBar.setProgress(current);
-                textViewProgress.setText(current + "/" + total);
-                
-                int percentage = total > 0 ? (current * 100) / total : 0;
-                textViewPercentage.setText(percentage + "%");
-            });
+            if (progress.getCurrentFile() != null) {
+                textViewCurrentFile.setText(progress.getCurrentFile());
+            }
+            progressBar.setMax(PROGRESS_MAX);
+            progressBar.setProgress(Math.round(progress.getFraction() * PROGRESS_MAX));
+            
+            textViewProgress.setText(FileDisplayFormatter.formatProgressCounts(progress));
+            textViewPercentage.setText(FileDisplayFormatter.formatProgressDetails(progress));
         }
     }
     
@@ -362,8 +421,9 @@ public class BulkOperationsManager {
     private void hideProgressDialog() {
         if (progressDialog != null && progressDialog.isShowing()) {
             progressDialog.dismiss();
-            progressDialog = null;
         }
+        progressDialog = null;
+        currentJob = null;
     }
     
     /**
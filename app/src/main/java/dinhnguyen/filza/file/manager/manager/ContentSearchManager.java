@@ -0,0 +1,532 @@
+package dinhnguyen.filza.file.manager.manager;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import dinhnguyen.filza.file.manager.model.ContentMatch;
+import dinhnguyen.filza.file.manager.utils.FileTypeRegistry;
+
+/**
+ * Searches the contents of every text file under a directory.
+ * One thread walks the tree and hands text files to a fixed pool of workers.
+ * Each worker streams its file through a reused fixed-size buffer, so no file
+ * is ever loaded whole. Literal patterns are matched on the raw UTF-8 bytes
+ * with Boyer-Moore-Horspool; regular expressions are opt-in and run per line.
+ * Matches are delivered to the main thread in batches as files finish.
+ */
+public class ContentSearchManager {
+
+    public interface SearchCallback {
+        void onMatches(List<ContentMatch> matches);
+        void onProgress(int filesScanned, long bytesScanned, double megabytesPerSecond);
+        void onComplete(Summary summary);
+    }
+
+    public static final class Options {
+        private final boolean regex;
+        private final boolean caseSensitive;
+        private final int maxHits;
+
+        public Options(boolean regex, boolean caseSensitive, int maxHits) {
+            this.regex = regex;
+            this.caseSensitive = caseSensitive;
+            this.maxHits = maxHits;
+        }
+    }
+
+    /**
+     * Totals for a finished, cancelled or truncated search
+     */
+    public static final class Summary {
+        private final int filesScanned;
+        private final long bytesScanned;
+        private final long elapsedMs;
+        private final int hitCount;
+        private final boolean truncated;
+        private final boolean cancelled;
+
+        Summary(int filesScanned, long bytesScanned, long elapsedMs, int hitCount,
+                boolean truncated, boolean cancelled) {
+            this.filesScanned = filesScanned;
+            this.bytesScanned = bytesScanned;
+            this.elapsedMs = elapsedMs;
+            this.hitCount = hitCount;
+            this.truncated = truncated;
+            this.cancelled = cancelled;
+        }
+
+        public int getFilesScanned() {
+            return filesScanned;
+        }
+
+        public long getBytesScanned() {
+            return bytesScanned;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        public int getHitCount() {
+            return hitCount;
+        }
+
+        /** True if the search stopped at the hit limit. */
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public double getMegabytesPerSecond() {
+            return megabytesPerSecond(bytesScanned, elapsedMs);
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int BINARY_CHECK_BYTES = 1024;
+    private static final int MAX_PREVIEW_LENGTH = 200;
+    private static final int MATCH_BATCH_SIZE = 64;
+    private static final long PROGRESS_INTERVAL_MS = 250;
+    private static final int WORKER_COUNT = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    // One buffer per worker thread, reused for every file it scans
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private final ExecutorService walker = Executors.newSingleThreadExecutor();
+    private final ExecutorService workers = Executors.newFixedThreadPool(WORKER_COUNT);
+    private final Executor callbackExecutor;
+
+    public ContentSearchManager() {
+        this(new Handler(Looper.getMainLooper())::post);
+    }
+
+    /** Callbacks run on {@code callbackExecutor} instead of the main thread */
+    ContentSearchManager(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Start searching the text files under {@code root}. Callbacks run on the main thread.
+     * @throws java.util.regex.PatternSyntaxException if a regular expression is invalid
+     */
+    public SearchHandle search(File root, String pattern, Options options, SearchCallback callback) {
+        SearchHandle handle = new SearchHandle(compile(pattern, options), options.maxHits, callback);
+        walker.execute(() -> walk(root, handle));
+        return handle;
+    }
+
+    /** Stop every running search; a walker still listing files sees the rejection and ends */
+    public void shutdown() {
+        walker.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private static PatternMatcher compile(String pattern, Options options) {
+        boolean ascii = pattern.chars().allMatch(c -> c < 0x80);
+        if (!options.regex && (options.caseSensitive || ascii)) {
+            return new LiteralMatcher(pattern, !options.caseSensitive);
+        }
+        // Regex, or a literal that needs Unicode case folding
+        int flags = options.caseSensitive ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        String regex = options.regex ? pattern : Pattern.quote(pattern);
+        return new RegexMatcher(Pattern.compile(regex, flags));
+    }
+
+    private void walk(File root, SearchHandle handle) {
+        Deque<File> directories = new ArrayDeque<>();
+        directories.push(root);
+        try {
+            while (!directories.isEmpty() && !handle.isStopped()) {
+                File[] children = directories.pop().listFiles();
+                if (children == null) continue;
+                for (File child : children) {
+                    if (handle.isStopped()) break;
+                    if (child.isDirectory()) {
+                        if (!Files.isSymbolicLink(child.toPath())) {
+                            directories.push(child);
+                        }
+                    } else if (FileTypeRegistry.isText(child.getName())) {
+                        submit(child, handle);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            handle.taskFinished();
+        }
+    }
+
+    private void submit(File file, SearchHandle handle) throws InterruptedException {
+        // Keep the walker only a few files ahead of the workers
+        handle.inFlight.acquire();
+        handle.pendingTasks.incrementAndGet();
+        try {
+            workers.execute(() -> {
+                try {
+                    if (!handle.isStopped()) {
+                        scanFile(file, handle);
+                    }
+                } finally {
+                    handle.inFlight.release();
+                    handle.taskFinished();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shut down while walking; nothing more can be scanned
+            handle.cancel();
+            handle.inFlight.release();
+            handle.taskFinished();
+        }
+    }
+
+    private void scanFile(File file, SearchHandle handle) {
+        byte[] buffer = BUFFER.get();
+        PatternMatcher matcher = handle.matcher;
+        LineScanner scanner = new LineScanner(file, handle);
+
+        try (FileInputStream in = new FileInputStream(file)) {
+            int filled = 0;
+            boolean firstBuffer = true;
+            boolean eof = false;
+            while (!eof && !handle.isStopped()) {
+                int read = in.read(buffer, filled, buffer.length - filled);
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    filled += read;
+                    handle.addBytes(read);
+                    if (filled < buffer.length) continue;
+                }
+                if (filled == 0) break;
+
+                if (firstBuffer) {
+                    firstBuffer = false;
+                    if (looksBinary(buffer, Math.min(filled, BINARY_CHECK_BYTES))) break;
+                }
+
+                // Only complete lines are scanned; the rest moves to the front of the buffer
+                int end;
+                int lastNewline = lastIndexOf(buffer, filled);
+                if (eof) {
+                    end = filled;
+                } else if (lastNewline >= 0) {
+                    end = lastNewline + 1;
+                } else {
+                    // A line longer than the buffer: keep enough of a tail to catch
+                    // a literal match that straddles the two chunks
+                    end = Math.max(1, filled - matcher.getOverlap());
+                }
+
+                scanner.scan(buffer, end, filled);
+                System.arraycopy(buffer, end, buffer, 0, filled - end);
+                filled -= end;
+            }
+        } catch (IOException | SecurityException e) {
+            // Unreadable files are skipped
+        }
+
+        handle.filesScanned.incrementAndGet();
+        scanner.flush();
+    }
+
+    private static boolean looksBinary(byte[] buffer, int length) {
+        for (int i = 0; i < length; i++) {
+            if (buffer[i] == 0) return true;
+        }
+        return false;
+    }
+
+    private static int lastIndexOf(byte[] buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Number of UTF-8 characters in a byte range: every byte except continuation bytes
+     */
+    private static int charCount(byte[] buffer, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if ((buffer[i] & 0xC0) != 0x80) count++;
+        }
+        return count;
+    }
+
+    private static double megabytesPerSecond(long bytes, long elapsedMs) {
+        if (elapsedMs <= 0) return 0;
+        return (bytes / (1024.0 * 1024.0)) / (elapsedMs / 1000.0);
+    }
+
+    /**
+     * Tracks line numbers and columns across buffer refills for one file
+     */
+    private class LineScanner {
+        private final File file;
+        private final SearchHandle handle;
+        private List<ContentMatch> matches = new ArrayList<>();
+        private int lineNumber = 1;
+        // Characters of the current line that were in earlier chunks
+        private int columnBase = 0;
+
+        LineScanner(File file, SearchHandle handle) {
+            this.file = file;
+            this.handle = handle;
+        }
+
+        /**
+         * Scan the lines in buffer[0, end). Literal matches may run on into buffer[end, filled).
+         */
+        void scan(byte[] buffer, int end, int filled) {
+            int lineStart = 0;
+            while (lineStart < end && !handle.isStopped()) {
+                int newline = indexOf(buffer, lineStart, end);
+                int start = lineStart;
+                int lineEnd = newline >= 0 ? newline : end;
+                int searchLimit = newline >= 0 ? lineEnd : filled;
+
+                handle.matcher.findAll(buffer, start, lineEnd, searchLimit,
+                        position -> addMatch(buffer, start, lineEnd, position));
+
+                if (newline >= 0) {
+                    lineNumber++;
+                    columnBase = 0;
+                    lineStart = newline + 1;
+                } else {
+                    columnBase += charCount(buffer, lineStart, end);
+                    lineStart = end;
+                }
+            }
+        }
+
+        /**
+         * @return false to stop reporting matches for this line
+         */
+        private boolean addMatch(byte[] buffer, int lineStart, int lineEnd, int position) {
+            if (!handle.claimHit()) return false;
+
+            int column = columnBase + charCount(buffer, lineStart, position) + 1;
+            int previewEnd = lineEnd;
+            if (previewEnd > lineStart && buffer[previewEnd - 1] == '\r') previewEnd--;
+            String line = new String(buffer, lineStart, previewEnd - lineStart, StandardCharsets.UTF_8).trim();
+            if (line.length() > MAX_PREVIEW_LENGTH) {
+                line = line.substring(0, MAX_PREVIEW_LENGTH);
+            }
+            matches.add(new ContentMatch(file, lineNumber, column, line));
+            if (matches.size() >= MATCH_BATCH_SIZE) {
+                flush();
+            }
+            return true;
+        }
+
+        void flush() {
+            if (matches.isEmpty()) return;
+            handle.postMatches(matches);
+            matches = new ArrayList<>();
+        }
+    }
+
+    private interface MatchConsumer {
+        /** @return false to stop looking for more matches in this range */
+        boolean onMatch(int position);
+    }
+
+    private interface PatternMatcher {
+        /**
+         * Report matches that start in [from, to) and end by {@code limit}
+         */
+        void findAll(byte[] text, int from, int to, int limit, MatchConsumer consumer);
+
+        /** Bytes a match can extend past the end of a chunk. */
+        int getOverlap();
+    }
+
+    /**
+     * Boyer-Moore-Horspool over UTF-8 bytes, with optional ASCII case folding
+     */
+    private static class LiteralMatcher implements PatternMatcher {
+        private final byte[] pattern;
+        private final int[] shift = new int[256];
+        private final boolean ignoreCase;
+
+        LiteralMatcher(String literal, boolean ignoreCase) {
+            this.ignoreCase = ignoreCase;
+            this.pattern = (ignoreCase ? literal.toLowerCase(Locale.ROOT) : literal)
+                    .getBytes(StandardCharsets.UTF_8);
+            int last = pattern.length - 1;
+            Arrays.fill(shift, pattern.length);
+            for (int i = 0; i < last; i++) {
+                shift[pattern[i] & 0xFF] = last - i;
+            }
+        }
+
+        @Override
+        public void findAll(byte[] text, int from, int to, int limit, MatchConsumer consumer) {
+            int length = pattern.length;
+            if (length == 0) return;
+            int last = length - 1;
+            int i = from;
+            while (i < to && i + length <= limit) {
+                int j = last;
+                while (j >= 0 && fold(text[i + j]) == pattern[j]) j--;
+                if (j < 0) {
+                    if (!consumer.onMatch(i)) return;
+                    i += length;
+                } else {
+                    i += shift[fold(text[i + last]) & 0xFF];
+                }
+            }
+        }
+
+        @Override
+        public int getOverlap() {
+            return Math.max(0, pattern.length - 1);
+        }
+
+        private byte fold(byte b) {
+            return ignoreCase && b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+        }
+    }
+
+    /**
+     * Regular expression matched line by line. Matches spanning the chunks of a
+     * line longer than the buffer are not found.
+     */
+    private static class RegexMatcher implements PatternMatcher {
+        private final Pattern pattern;
+
+        RegexMatcher(Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        @Override
+        public void findAll(byte[] text, int from, int to, int limit, MatchConsumer consumer) {
+            String line = new String(text, from, to - from, StandardCharsets.UTF_8);
+            Matcher matcher = pattern.matcher(line);
+            while (matcher.find()) {
+                // Report the byte position so columns are computed like literal matches
+                int position = from + line.substring(0, matcher.start()).getBytes(StandardCharsets.UTF_8).length;
+                if (!consumer.onMatch(position)) return;
+            }
+        }
+
+        @Override
+        public int getOverlap() {
+            return 0;
+        }
+    }
+
+    /**
+     * A running search. Cancelling stops the walker and the workers after
+     * their current buffer; no further matches are delivered.
+     */
+    public final class SearchHandle {
+        private final PatternMatcher matcher;
+        private final int maxHits;
+        private final SearchCallback callback;
+        private final long startTime = SystemClock.uptimeMillis();
+        private final Semaphore inFlight = new Semaphore(WORKER_COUNT * 2);
+        // Starts at one for the walker itself; whoever brings it to zero finishes the search
+        private final AtomicInteger pendingTasks = new AtomicInteger(1);
+        private final AtomicInteger hits = new AtomicInteger();
+        private final AtomicInteger filesScanned = new AtomicInteger();
+        private final AtomicLong bytesScanned = new AtomicLong();
+        private final AtomicLong lastProgressTime = new AtomicLong(SystemClock.uptimeMillis());
+        private volatile boolean cancelled;
+        private volatile boolean truncated;
+
+        private SearchHandle(PatternMatcher matcher, int maxHits, SearchCallback callback) {
+            this.matcher = matcher;
+            this.maxHits = maxHits;
+            this.callback = callback;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        boolean isStopped() {
+            return cancelled || truncated;
+        }
+
+        /**
+         * Reserve one of the remaining hits; the last one stops the search
+         */
+        boolean claimHit() {
+            int count = hits.incrementAndGet();
+            if (count > maxHits) {
+                truncated = true;
+                return false;
+            }
+            if (count == maxHits) {
+                truncated = true;
+            }
+            return true;
+        }
+
+        void addBytes(int count) {
+            long total = bytesScanned.addAndGet(count);
+            long now = SystemClock.uptimeMillis();
+            long last = lastProgressTime.get();
+            if (now - last >= PROGRESS_INTERVAL_MS && lastProgressTime.compareAndSet(last, now)) {
+                int files = filesScanned.get();
+                double speed = megabytesPerSecond(total, now - startTime);
+                callbackExecutor.execute(() -> {
+                    if (!cancelled) callback.onProgress(files, total, speed);
+                });
+            }
+        }
+
+        void postMatches(List<ContentMatch> matches) {
+            callbackExecutor.execute(() -> {
+                if (!cancelled) callback.onMatches(matches);
+            });
+        }
+
+        void taskFinished() {
+            if (pendingTasks.decrementAndGet() != 0) return;
+            long elapsed = SystemClock.uptimeMillis() - startTime;
+            Summary summary = new Summary(filesScanned.get(), bytesScanned.get(), elapsed,
+                    Math.min(hits.get(), maxHits), truncated, cancelled);
+            callbackExecutor.execute(() -> callback.onComplete(summary));
+        }
+    }
+}
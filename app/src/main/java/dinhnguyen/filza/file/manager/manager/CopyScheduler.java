@@ -0,0 +1,230 @@
+package dinhnguyen.filza.file.manager.manager;
+
+import android.os.OperationCanceledException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import dinhnguyen.filza.file.manager.model.OperationPlan;
+
+/**
+ * Copies a selection as many file copies running side by side. Copying lots
+ * of small files is dominated by per-file open, sync and close latency rather
+ * than bandwidth, so overlapping files pays off.
+ *
+ * Copies run from an {@link OperationPlan}, which already lists every
+ * target folder and file. All folders are created parents first before any
+ * file starts, so file tasks never depend on each other. A task then holds
+ * one permit for its source volume and one for its destination volume,
+ * which caps how many copies hit a single device at a time.
+ * Progress is reported one file at a time, with counts that only grow.
+ */
+public class CopyScheduler {
+
+    public static final int DEFAULT_THREAD_COUNT = 8;
+    public static final int DEFAULT_PER_VOLUME_LIMIT = 4;
+
+    /**
+     * Transfer callbacks arrive on any copy thread. {@link #onFileCopied} is
+     * never called concurrently and its count grows by one each call.
+     */
+    public interface CopyListener extends TransferEngine.TransferListener {
+        void onFileCopied(int filesDone, int filesTotal, File source);
+    }
+
+    public static final class Result {
+        private final int copiedCount;
+        private final List<String> errors;
+        private final boolean cancelled;
+
+        Result(int copiedCount, List<String> errors, boolean cancelled) {
+            this.copiedCount = copiedCount;
+            this.errors = Collections.unmodifiableList(errors);
+            this.cancelled = cancelled;
+        }
+
+        /** Top-level items copied without any error */
+        public int getCopiedCount() {
+            return copiedCount;
+        }
+
+        /** At most one message per failed top-level item */
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static final class FileTask {
+        final int item;
+        final File source;
+        final File target;
+
+        FileTask(int item, File source, File target) {
+            this.item = item;
+            this.source = source;
+            this.target = target;
+        }
+    }
+
+    private final ExecutorService executor;
+    private final int perVolumeLimit;
+    private final Map<Long, Semaphore> volumePermits = new ConcurrentHashMap<>();
+
+    public CopyScheduler(int threadCount, int perVolumeLimit) {
+        this.perVolumeLimit = perVolumeLimit;
+        this.executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "CopyScheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Carry out a copy plan and block until every file is done, failed or
+     * cancelled. Items the plan could not place are reported as errors.
+     * A paused job holds its queued files until it is resumed.
+     */
+    public Result copy(OperationPlan plan, boolean syncFiles, JobControl control, CopyListener listener) {
+        List<OperationPlan.Item> items = plan.getItems();
+        String[] itemErrors = new String[items.size()];
+        List<File> directories = new ArrayList<>();
+        List<Integer> directoryItems = new ArrayList<>();
+        List<FileTask> tasks = new ArrayList<>();
+
+        for (int item = 0; item < items.size(); item++) {
+            OperationPlan.Item planned = items.get(item);
+            if (planned.getError() != null) {
+                itemErrors[item] = "Failed to copy " + planned.getSource().getName() + ": " + planned.getError();
+                continue;
+            }
+            for (File directory : planned.getDirectories()) {
+                directories.add(directory);
+                directoryItems.add(item);
+            }
+            for (OperationPlan.PlannedFile file : planned.getFiles()) {
+                tasks.add(new FileTask(item, file.getSource(), file.getTarget()));
+            }
+        }
+
+        // Parents were planned before their children
+        for (int i = 0; i < directories.size(); i++) {
+            int item = directoryItems.get(i);
+            File directory = directories.get(i);
+            if (itemErrors[item] != null) continue;
+            if (directory.isDirectory() || directory.mkdir()) {
+                listener.onEntryCreated(directory);
+            } else {
+                itemErrors[item] = "Failed to copy " + items.get(item).getSource().getName()
+                        + ": cannot create folder " + directory.getName();
+            }
+        }
+
+        TransferEngine engine = new TransferEngine(plan.isOverwrite()
+                ? TransferEngine.ConflictPolicy.OVERWRITE : TransferEngine.ConflictPolicy.FAIL, syncFiles)
+                .setJobControl(control)
+                .setTransferListener(listener);
+        long destinationVolume = plan.getDestinationVolume();
+        CountDownLatch remaining = new CountDownLatch(tasks.size());
+        int[] filesDone = {0};
+        for (FileTask task : tasks) {
+            executor.execute(() -> {
+                try {
+                    if (control != null) control.checkpoint();
+                    if (hasError(itemErrors, task.item)) return;
+                    runWithPermits(items.get(task.item).getSourceVolume(), destinationVolume,
+                            () -> engine.copy(task.source, task.target));
+                    synchronized (filesDone) {
+                        filesDone[0]++;
+                        listener.onFileCopied(filesDone[0], tasks.size(), task.source);
+                    }
+                } catch (IOException e) {
+                    synchronized (itemErrors) {
+                        if (itemErrors[task.item] == null) {
+                            itemErrors[task.item] = "Failed to copy " + task.source.getName() + ": " + e.getMessage();
+                        }
+                    }
+                } catch (OperationCanceledException | InterruptedException e) {
+                    // Remaining tasks see the cancel and return
+                } finally {
+                    remaining.countDown();
+                }
+            });
+        }
+
+        try {
+            remaining.await();
+        } catch (InterruptedException e) {
+            if (control != null) control.cancel();
+            Thread.currentThread().interrupt();
+        }
+        // One sync per destination folder, however many files landed in it
+        engine.syncDirectories();
+
+        int copied = 0;
+        List<String> errors = new ArrayList<>();
+        synchronized (itemErrors) {
+            for (int item = 0; item < itemErrors.length; item++) {
+                if (itemErrors[item] != null) {
+                    errors.add(itemErrors[item]);
+                } else {
+                    copied++;
+                }
+            }
+        }
+        boolean cancelled = control != null && control.isCanceled();
+        return new Result(cancelled ? 0 : copied, errors, cancelled);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private interface CopyAction {
+        void run() throws IOException;
+    }
+
+    /**
+     * Take permits in volume id order so two tasks can never each hold the
+     * permit the other is waiting for
+     */
+    private void runWithPermits(long sourceVolume, long destinationVolume, CopyAction action)
+            throws IOException, InterruptedException {
+        Semaphore first = permitsFor(Math.min(sourceVolume, destinationVolume));
+        Semaphore second = sourceVolume != destinationVolume
+                ? permitsFor(Math.max(sourceVolume, destinationVolume)) : null;
+        first.acquire();
+        try {
+            if (second != null) second.acquire();
+            try {
+                action.run();
+            } finally {
+                if (second != null) second.release();
+            }
+        } finally {
+            first.release();
+        }
+    }
+
+    private Semaphore permitsFor(long volume) {
+        return volumePermits.computeIfAbsent(volume, v -> new Semaphore(perVolumeLimit));
+    }
+
+    private static boolean hasError(String[] itemErrors, int item) {
+        synchronized (itemErrors) {
+            return itemErrors[item] != null;
+        }
+    }
+}
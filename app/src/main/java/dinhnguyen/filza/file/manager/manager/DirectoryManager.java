@@ -1,37 +1,236 @@
 package dinhnguyen.filza.file.manager.manager;
 
 import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.FileObserver;
 import android.widget.Toast;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import dinhnguyen.filza.file.manager.constants.FileConstants;
+import dinhnguyen.filza.file.manager.model.FileEntry;
+import dinhnguyen.filza.file.manager.utils.DirectoryEnumerator;
 
 public class DirectoryManager {
     
+    /**
+     * Maximum number of directory listings kept in memory, enough to cover
+     * a typical back/forward navigation trail.
+     */
+    public static final int LISTING_CACHE_SIZE = 16;
+    
+    private static final int WATCH_MASK = FileObserver.CREATE | FileObserver.DELETE
+            | FileObserver.MOVED_FROM | FileObserver.MOVED_TO | FileObserver.MODIFY
+            | FileObserver.CLOSE_WRITE | FileObserver.ATTRIB
+            | FileObserver.DELETE_SELF | FileObserver.MOVE_SELF;
+    
     private final Context context;
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    
+    // Access-ordered so the least recently visited directory is evicted first
+    private final LinkedHashMap<String, CachedListing> listingCache =
+            new LinkedHashMap<String, CachedListing>(LISTING_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedListing> eldest) {
+                    if (size() > LISTING_CACHE_SIZE) {
+                        eldest.getValue().observer.stopWatching();
+                        return true;
+                    }
+                    return false;
+                }
+            };
     
     public DirectoryManager(Context context) {
         this.context = context;
     }
     
-    public List<File> getFilesInDirectory(File directory) {
-        File[] files = directory.listFiles();
-        List<File> fileList = new ArrayList<>();
+    /**
+     * Number of entries delivered in the first snapshot of a streamed load,
+     * roughly one screenful of rows.
+     */
+    public static final int FIRST_CHUNK_SIZE = 64;
+    
+    /**
+     * Receives progressively larger, sorted snapshots of a directory listing.
+     * Each snapshot is a new list owned by the receiver. A partial snapshot
+     * holds the entries read so far, not the first ones in sorted order, so
+     * later snapshots can insert rows anywhere, including above those
+     * already shown; receivers should keep the user's scroll position.
+     */
+    public interface DirectoryLoadListener {
+        void onEntriesLoaded(List<FileEntry> snapshot, boolean complete);
+    }
+    
+    public List<FileEntry> getFilesInDirectory(File directory) {
+        List<FileEntry> result = new ArrayList<>();
+        loadFilesInDirectory(directory, null, (snapshot, complete) -> {
+            if (complete) {
+                result.addAll(snapshot);
+            }
+        }, Integer.MAX_VALUE);
+        return result;
+    }
+    
+    /**
+     * Lists a directory off the main thread, stat-ing every entry once into a {@link FileEntry}.
+     * The listener first receives a sorted snapshot of the first
+     * {@link #FIRST_CHUNK_SIZE} entries the file system returns, then
+     * snapshots of doubling size, and finally the complete listing. Finding
+     * the first rows in sorted order would mean reading the whole directory,
+     * which is what the early snapshots are there to avoid.
+     * Stops early without a final callback once {@code signal} is cancelled.
+     * A cached listing whose directory is unchanged is delivered at once as
+     * the complete result.
+     */
+    public void loadFilesInDirectory(File directory, CancellationSignal signal, DirectoryLoadListener listener) {
+        loadFilesInDirectory(directory, signal, listener, FIRST_CHUNK_SIZE);
+    }
+    
+    private void loadFilesInDirectory(File directory, CancellationSignal signal,
+                                      DirectoryLoadListener listener, int firstChunkSize) {
+        String key = cacheKey(directory);
+        long directoryMtime = directory.lastModified();
+        List<FileEntry> cached = getCachedListing(key, directoryMtime);
+        if (cached != null) {
+            cacheHits.incrementAndGet();
+            if (!isCanceled(signal)) {
+                listener.onEntriesLoaded(new ArrayList<>(cached), true);
+            }
+            return;
+        }
+        cacheMisses.incrementAndGet();
+        
+        List<FileEntry> listed = new ArrayList<>();
+        int[] nextSnapshotAt = {firstChunkSize};
+        boolean readable = new DirectoryEnumerator(directory)
+                .setBatchSize(Math.min(firstChunkSize, DirectoryEnumerator.DEFAULT_BATCH_SIZE))
+                .enumerate(batch -> {
+                    for (DirectoryEnumerator.Entry entry : batch) {
+                        if (isCanceled(signal)) {
+                            return false;
+                        }
+                        listed.add(FileEntry.from(entry));
+                    }
+                    if (listed.size() >= nextSnapshotAt[0]) {
+                        listener.onEntriesLoaded(sortedSnapshot(listed), false);
+                        nextSnapshotAt[0] = listed.size() * 2;
+                    }
+                    return true;
+                });
         
-        if (files != null) {
-            Arrays.sort(files, (f1, f2) -> {
-                if (f1.isDirectory() && !f2.isDirectory()) return -1;
-                if (!f1.isDirectory() && f2.isDirectory()) return 1;
-                return f1.getName().compareToIgnoreCase(f2.getName());
-            });
-            fileList.addAll(Arrays.asList(files));
+        if (!isCanceled(signal)) {
+            List<FileEntry> complete = sortedSnapshot(listed);
+            if (readable) {
+                putCachedListing(key, directory, directoryMtime, complete);
+            }
+            listener.onEntriesLoaded(new ArrayList<>(complete), true);
+        }
+    }
+    
+    private static List<FileEntry> sortedSnapshot(List<FileEntry> listed) {
+        List<FileEntry> sorted = new ArrayList<>(listed);
+        Collections.sort(sorted, FileEntry.BY_NAME);
+        return sorted;
+    }
+    
+    private static boolean isCanceled(CancellationSignal signal) {
+        return signal != null && signal.isCanceled();
+    }
+    
+    /**
+     * Drop the cached listing for a directory so the next load re-reads it.
+     */
+    public void invalidate(File directory) {
+        invalidate(cacheKey(directory));
+    }
+    
+    /**
+     * Drop all cached listings and stop watching their directories.
+     */
+    public void clearCache() {
+        synchronized (listingCache) {
+            for (CachedListing listing : listingCache.values()) {
+                listing.observer.stopWatching();
+            }
+            listingCache.clear();
+        }
+    }
+    
+    public long getCacheHitCount() {
+        return cacheHits.get();
+    }
+    
+    public long getCacheMissCount() {
+        return cacheMisses.get();
+    }
+    
+    private void invalidate(String key) {
+        synchronized (listingCache) {
+            CachedListing removed = listingCache.remove(key);
+            if (removed != null) {
+                removed.observer.stopWatching();
+            }
+        }
+    }
+    
+    private List<FileEntry> getCachedListing(String key, long directoryMtime) {
+        synchronized (listingCache) {
+            CachedListing listing = listingCache.get(key);
+            if (listing == null) {
+                return null;
+            }
+            if (listing.directoryMtime != directoryMtime) {
+                listingCache.remove(key);
+                listing.observer.stopWatching();
+                return null;
+            }
+            return listing.entries;
+        }
+    }
+    
+    private void putCachedListing(String key, File directory, long directoryMtime, List<FileEntry> entries) {
+        FileObserver observer = new FileObserver(directory, WATCH_MASK) {
+            @Override
+            public void onEvent(int event, String path) {
+                invalidate(key);
+            }
+        };
+        CachedListing listing = new CachedListing(Collections.unmodifiableList(entries), directoryMtime, observer);
+        synchronized (listingCache) {
+            CachedListing previous = listingCache.put(key, listing);
+            if (previous != null) {
+                previous.observer.stopWatching();
+            }
+            observer.startWatching();
+        }
+    }
+    
+    private static String cacheKey(File directory) {
+        try {
+            return directory.getCanonicalPath();
+        } catch (IOException e) {
+            return directory.getAbsolutePath();
         }
+    }
+    
+    private static class CachedListing {
+        final List<FileEntry> entries;
+        final long directoryMtime;
+        final FileObserver observer;
         
-        return fileList;
+        CachedListing(List<FileEntry> entries, long directoryMtime, FileObserver observer) {
+            this.entries = entries;
+            this.directoryMtime = directoryMtime;
+            this.observer = observer;
+        }
     }
     
     public boolean createFolder(File parentDirectory, String folderName) {
@@ -0,0 +1,467 @@
+package dinhnguyen.filza.file.manager.manager;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import dinhnguyen.filza.file.manager.database.FileIndexDbHelper;
+import dinhnguyen.filza.file.manager.model.DuplicateGroup;
+import dinhnguyen.filza.file.manager.utils.DirectoryEnumerator;
+
+/**
+ * Finds files with identical contents under a set of directories.
+ * Candidates are narrowed in three stages: files are grouped by size, same-size
+ * files by a hash of their first and last 64 KB, and only files that still
+ * collide are hashed in full. Hashing runs on a small fixed pool, which bounds
+ * how many files are read at once. Hashes are cached by (path, size, mtime),
+ * so a repeated scan reads only files that changed. Each confirmed group is
+ * delivered to the main thread as soon as its size class is resolved.
+ */
+public class DuplicateFinder {
+
+    public interface DuplicateCallback {
+        void onGroupFound(DuplicateGroup group);
+        void onProgress(int filesHashed, int filesToHash);
+        void onComplete(Summary summary);
+    }
+
+    /**
+     * Totals for a finished or cancelled scan
+     */
+    public static final class Summary {
+        private final int filesScanned;
+        private final int groupCount;
+        private final long wastedBytes;
+        private final long bytesRead;
+        private final long elapsedMs;
+        private final boolean cancelled;
+
+        Summary(int filesScanned, int groupCount, long wastedBytes, long bytesRead,
+                long elapsedMs, boolean cancelled) {
+            this.filesScanned = filesScanned;
+            this.groupCount = groupCount;
+            this.wastedBytes = wastedBytes;
+            this.bytesRead = bytesRead;
+            this.elapsedMs = elapsedMs;
+            this.cancelled = cancelled;
+        }
+
+        public int getFilesScanned() {
+            return filesScanned;
+        }
+
+        public int getGroupCount() {
+            return groupCount;
+        }
+
+        /** Bytes that deleting every copy but one would free. */
+        public long getWastedBytes() {
+            return wastedBytes;
+        }
+
+        /** Bytes actually read for hashing; cached hashes cost nothing. */
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static final int EDGE_SIZE = 64 * 1024;
+    private static final int IO_CONCURRENCY = 3;
+    private static final long PROGRESS_INTERVAL_MS = 250;
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[EDGE_SIZE]);
+
+    private final FileIndexDbHelper dbHelper;
+    private final ExecutorService walker = Executors.newSingleThreadExecutor();
+    private final ExecutorService hashers = Executors.newFixedThreadPool(IO_CONCURRENCY);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public DuplicateFinder(Context context) {
+        this.dbHelper = FileIndexDbHelper.getInstance(context);
+    }
+
+    /**
+     * Start scanning {@code roots} for duplicates of at least {@code minSize}
+     * bytes. Callbacks run on the main thread.
+     */
+    public FinderHandle find(List<File> roots, long minSize, DuplicateCallback callback) {
+        FinderHandle handle = new FinderHandle(callback);
+        walker.execute(() -> {
+            try {
+                List<List<Candidate>> sizeClasses = collectSizeClasses(roots, Math.max(1, minSize), handle);
+                for (List<Candidate> sizeClass : sizeClasses) {
+                    if (handle.cancelled) break;
+                    hashEdges(sizeClass, handle);
+                }
+            } finally {
+                handle.taskFinished();
+            }
+        });
+        return handle;
+    }
+
+    public void shutdown() {
+        walker.shutdownNow();
+        hashers.shutdownNow();
+    }
+
+    /**
+     * Stage one: walk the roots and keep only sizes shared by two or more
+     * files, largest first so the biggest savings show up early.
+     */
+    private List<List<Candidate>> collectSizeClasses(List<File> roots, long minSize, FinderHandle handle) {
+        Map<Long, List<Candidate>> bySize = new HashMap<>();
+        // Hard links and overlapping roots must not count as copies of themselves
+        Set<Object> seenFiles = new HashSet<>();
+        Deque<File> directories = new ArrayDeque<>(roots);
+        while (!directories.isEmpty() && !handle.cancelled) {
+            new DirectoryEnumerator(directories.pop()).setNoFollowLinks(true).enumerate(batch -> {
+                for (DirectoryEnumerator.Entry entry : batch) {
+                    BasicFileAttributes attrs = entry.getAttributes();
+                    if (attrs == null) continue;
+                    if (attrs.isDirectory()) {
+                        directories.push(entry.getFile());
+                    } else if (attrs.isRegularFile() && attrs.size() >= minSize) {
+                        Object key = attrs.fileKey() != null ? attrs.fileKey() : entry.getPath();
+                        if (!seenFiles.add(key)) continue;
+                        handle.filesScanned++;
+                        bySize.computeIfAbsent(attrs.size(), size -> new ArrayList<>(2))
+                                .add(new Candidate(entry.getFile(), attrs.size(), entry.getLastModified()));
+                    }
+                }
+                return !handle.cancelled;
+            });
+        }
+
+        List<List<Candidate>> sizeClasses = new ArrayList<>();
+        for (List<Candidate> sameSize : bySize.values()) {
+            if (sameSize.size() > 1) {
+                sizeClasses.add(sameSize);
+            }
+        }
+        Collections.sort(sizeClasses, (a, b) -> Long.compare(b.get(0).size, a.get(0).size));
+        return sizeClasses;
+    }
+
+    /**
+     * Stage two: hash the first and last 64 KB of every file in a size class.
+     * For files up to 128 KB that already covers the whole content.
+     */
+    private void hashEdges(List<Candidate> sizeClass, FinderHandle handle) {
+        AtomicInteger remaining = new AtomicInteger(sizeClass.size());
+        handle.addFilesToHash(sizeClass.size());
+        for (Candidate candidate : sizeClass) {
+            submit(handle, () -> {
+                hash(candidate, false, handle);
+                if (remaining.decrementAndGet() == 0) {
+                    long size = sizeClass.get(0).size;
+                    for (List<Candidate> group : groupByHash(sizeClass, false)) {
+                        if (size <= 2L * EDGE_SIZE) {
+                            publish(group, false, handle);
+                        } else {
+                            hashFully(group, handle);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Stage three: hash whole files whose edges collided.
+     */
+    private void hashFully(List<Candidate> group, FinderHandle handle) {
+        AtomicInteger remaining = new AtomicInteger(group.size());
+        handle.addFilesToHash(group.size());
+        for (Candidate candidate : group) {
+            submit(handle, () -> {
+                hash(candidate, true, handle);
+                if (remaining.decrementAndGet() == 0) {
+                    for (List<Candidate> duplicates : groupByHash(group, true)) {
+                        publish(duplicates, true, handle);
+                    }
+                }
+            });
+        }
+    }
+
+    private void submit(FinderHandle handle, Runnable task) {
+        handle.pendingTasks.incrementAndGet();
+        hashers.execute(() -> {
+            try {
+                if (!handle.cancelled) {
+                    task.run();
+                }
+            } finally {
+                handle.taskFinished();
+            }
+        });
+    }
+
+    private static List<List<Candidate>> groupByHash(List<Candidate> candidates, boolean full) {
+        Map<ByteBuffer, List<Candidate>> byHash = new HashMap<>();
+        for (Candidate candidate : candidates) {
+            byte[] hash = full ? candidate.fullHash : candidate.partialHash;
+            if (hash != null) {
+                byHash.computeIfAbsent(ByteBuffer.wrap(hash), key -> new ArrayList<>(2)).add(candidate);
+            }
+        }
+        List<List<Candidate>> groups = new ArrayList<>();
+        for (List<Candidate> group : byHash.values()) {
+            if (group.size() > 1) {
+                groups.add(group);
+            }
+        }
+        return groups;
+    }
+
+    private void publish(List<Candidate> candidates, boolean full, FinderHandle handle) {
+        Collections.sort(candidates, (a, b) -> Long.compare(a.mtime, b.mtime));
+        List<File> files = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            files.add(candidate.file);
+        }
+        Candidate first = candidates.get(0);
+        DuplicateGroup group = new DuplicateGroup(first.size, toHex(full ? first.fullHash : first.partialHash), files);
+        handle.groupCount.incrementAndGet();
+        handle.wastedBytes.addAndGet(group.getWastedBytes());
+        mainHandler.post(() -> {
+            if (!handle.cancelled) handle.callback.onGroupFound(group);
+        });
+    }
+
+    /**
+     * Fill in the edge or full hash, from the cache when size and mtime still match
+     */
+    private void hash(Candidate candidate, boolean full, FinderHandle handle) {
+        if (!candidate.cacheChecked) {
+            candidate.cacheChecked = true;
+            loadCachedHashes(candidate);
+        }
+        if ((full ? candidate.fullHash : candidate.partialHash) == null) {
+            try {
+                byte[] hash = full ? readFullHash(candidate, handle) : readEdgeHash(candidate, handle);
+                if (hash == null) return;
+                if (full) {
+                    candidate.fullHash = hash;
+                } else {
+                    candidate.partialHash = hash;
+                }
+                handle.dirty.add(candidate);
+            } catch (IOException | SecurityException e) {
+                // Unreadable files cannot be confirmed as duplicates
+                return;
+            }
+        }
+        handle.fileHashed();
+    }
+
+    private byte[] readEdgeHash(Candidate candidate, FinderHandle handle) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = BUFFER.get();
+        try (RandomAccessFile file = new RandomAccessFile(candidate.file, "r")) {
+            int head = (int) Math.min(EDGE_SIZE, candidate.size);
+            file.readFully(buffer, 0, head);
+            digest.update(buffer, 0, head);
+            long tailStart = Math.max(EDGE_SIZE, candidate.size - EDGE_SIZE);
+            int tail = (int) (candidate.size - tailStart);
+            if (tail > 0) {
+                file.seek(tailStart);
+                file.readFully(buffer, 0, tail);
+                digest.update(buffer, 0, tail);
+            }
+            handle.bytesRead.addAndGet(head + Math.max(tail, 0));
+        }
+        return digest.digest();
+    }
+
+    private byte[] readFullHash(Candidate candidate, FinderHandle handle) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = BUFFER.get();
+        try (RandomAccessFile file = new RandomAccessFile(candidate.file, "r")) {
+            int read;
+            while ((read = file.read(buffer)) > 0) {
+                if (handle.cancelled) return null;
+                digest.update(buffer, 0, read);
+                handle.bytesRead.addAndGet(read);
+            }
+        }
+        return digest.digest();
+    }
+
+    private void loadCachedHashes(Candidate candidate) {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        try (Cursor cursor = db.rawQuery("SELECT " + FileIndexDbHelper.COLUMN_PARTIAL_HASH + ", "
+                        + FileIndexDbHelper.COLUMN_FULL_HASH + " FROM " + FileIndexDbHelper.TABLE_FILE_HASHES
+                        + " WHERE " + FileIndexDbHelper.COLUMN_PATH + " = ? AND " + FileIndexDbHelper.COLUMN_SIZE
+                        + " = ? AND " + FileIndexDbHelper.COLUMN_MTIME + " = ?",
+                new String[]{candidate.file.getPath(), String.valueOf(candidate.size), String.valueOf(candidate.mtime)})) {
+            if (cursor.moveToFirst()) {
+                candidate.partialHash = cursor.isNull(0) ? null : cursor.getBlob(0);
+                candidate.fullHash = cursor.isNull(1) ? null : cursor.getBlob(1);
+            }
+        }
+    }
+
+    private void storeHashes(FinderHandle handle) {
+        if (handle.dirty.isEmpty()) return;
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteStatement insert = db.compileStatement("INSERT OR REPLACE INTO " + FileIndexDbHelper.TABLE_FILE_HASHES
+                + " (" + FileIndexDbHelper.COLUMN_PATH + ", " + FileIndexDbHelper.COLUMN_SIZE + ", "
+                + FileIndexDbHelper.COLUMN_MTIME + ", " + FileIndexDbHelper.COLUMN_PARTIAL_HASH + ", "
+                + FileIndexDbHelper.COLUMN_FULL_HASH + ") VALUES (?, ?, ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            Set<Candidate> written = new HashSet<>();
+            Candidate candidate;
+            while ((candidate = handle.dirty.poll()) != null) {
+                if (!written.add(candidate)) continue;
+                insert.bindString(1, candidate.file.getPath());
+                insert.bindLong(2, candidate.size);
+                insert.bindLong(3, candidate.mtime);
+                bindBlobOrNull(insert, 4, candidate.partialHash);
+                bindBlobOrNull(insert, 5, candidate.fullHash);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    private static void bindBlobOrNull(SQLiteStatement statement, int index, byte[] value) {
+        if (value != null) {
+            statement.bindBlob(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static final class Candidate {
+        final File file;
+        final long size;
+        final long mtime;
+        // Written by one hasher task at a time; stages hand over through the remaining counters
+        volatile boolean cacheChecked;
+        volatile byte[] partialHash;
+        volatile byte[] fullHash;
+
+        Candidate(File file, long size, long mtime) {
+            this.file = file;
+            this.size = size;
+            this.mtime = mtime;
+        }
+    }
+
+    public final class FinderHandle {
+        private final DuplicateCallback callback;
+        private final long startTime = SystemClock.uptimeMillis();
+        // Starts at one for the walker itself; whoever brings it to zero finishes the scan
+        private final AtomicInteger pendingTasks = new AtomicInteger(1);
+        private final AtomicInteger filesHashed = new AtomicInteger();
+        private final AtomicInteger filesToHash = new AtomicInteger();
+        private final AtomicInteger groupCount = new AtomicInteger();
+        private final AtomicLong wastedBytes = new AtomicLong();
+        private final AtomicLong bytesRead = new AtomicLong();
+        private final AtomicLong lastProgressTime = new AtomicLong();
+        private final ConcurrentLinkedQueue<Candidate> dirty = new ConcurrentLinkedQueue<>();
+        // Only touched by the walker before any hashing starts
+        private int filesScanned;
+        private volatile boolean cancelled;
+
+        private FinderHandle(DuplicateCallback callback) {
+            this.callback = callback;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        void addFilesToHash(int count) {
+            filesToHash.addAndGet(count);
+        }
+
+        void fileHashed() {
+            int hashed = filesHashed.incrementAndGet();
+            long now = SystemClock.uptimeMillis();
+            long last = lastProgressTime.get();
+            if (now - last >= PROGRESS_INTERVAL_MS && lastProgressTime.compareAndSet(last, now)) {
+                int total = filesToHash.get();
+                mainHandler.post(() -> {
+                    if (!cancelled) callback.onProgress(hashed, total);
+                });
+            }
+        }
+
+        void taskFinished() {
+            if (pendingTasks.decrementAndGet() != 0) return;
+            try {
+                // Cancelled scans still keep whatever they hashed
+                storeHashes(this);
+            } catch (SQLiteException e) {
+                // The cache is an optimisation; the results are still valid
+            }
+            long elapsed = SystemClock.uptimeMillis() - startTime;
+            Summary summary = new Summary(filesScanned, groupCount.get(), wastedBytes.get(),
+                    bytesRead.get(), elapsed, cancelled);
+            mainHandler.post(() -> callback.onComplete(summary));
+        }
+    }
+}
@@ -0,0 +1,524 @@
+package dinhnguyen.filza.file.manager.manager;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Process;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import dinhnguyen.filza.file.manager.database.FileIndexDbHelper;
+import dinhnguyen.filza.file.manager.model.IndexedFile;
+import dinhnguyen.filza.file.manager.utils.FileTypeRegistry;
+import dinhnguyen.filza.file.manager.utils.StorageUtils;
+
+/**
+ * Builds and queries the persistent file index.
+ * The indexer walks every available storage in the background. Directories
+ * waiting to be scanned are flagged in the database in the same transaction
+ * that records their parent, so an interrupted pass resumes where it stopped.
+ * A directory whose mtime matches its last scan is not listed again; only its
+ * subdirectories are rechecked.
+ */
+public class FileIndexManager {
+
+    public interface IndexListener {
+        /** Called on the indexer thread when a pass has walked every pending directory. */
+        void onIndexPassFinished();
+    }
+
+    private static final int DIRECTORY_BATCH_SIZE = 64;
+
+    private static volatile FileIndexManager instance;
+
+    private final Context context;
+    private final FileIndexDbHelper dbHelper;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "FileIndexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean indexing = new AtomicBoolean();
+    private final List<IndexListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean stopRequested;
+
+    private FileIndexManager(Context context) {
+        this.context = context;
+        this.dbHelper = FileIndexDbHelper.getInstance(context);
+    }
+
+    public static FileIndexManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (FileIndexManager.class) {
+                if (instance == null) {
+                    instance = new FileIndexManager(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Start an indexing pass in the background, or resume an interrupted one.
+     * Does nothing if a pass is already running.
+     */
+    public void startIndexing() {
+        if (!indexing.compareAndSet(false, true)) return;
+        stopRequested = false;
+        executor.execute(() -> {
+            boolean finished;
+            try {
+                finished = runIndexPass();
+            } finally {
+                indexing.set(false);
+            }
+            if (finished) {
+                for (IndexListener listener : listeners) {
+                    listener.onIndexPassFinished();
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop the running pass after its current batch. The next start resumes it.
+     */
+    public void stopIndexing() {
+        stopRequested = true;
+    }
+
+    public boolean isIndexing() {
+        return indexing.get();
+    }
+
+    public void addIndexListener(IndexListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeIndexListener(IndexListener listener) {
+        listeners.remove(listener);
+    }
+
+    public long getIndexedFileCount() {
+        return DatabaseUtils.queryNumEntries(dbHelper.getReadableDatabase(), FileIndexDbHelper.TABLE_FILES);
+    }
+
+    /**
+     * Find indexed files whose normalized name starts with the query.
+     * Answered by a range scan on the name index, so call it off the main thread
+     * but expect it to return in milliseconds.
+     */
+    public List<IndexedFile> search(String query, int limit) {
+        List<IndexedFile> results = new ArrayList<>();
+        String prefix = normalize(query.trim());
+        if (prefix.isEmpty()) return results;
+
+        // Every string starting with the prefix sorts below the prefix with its last char bumped
+        String upperBound = prefix.substring(0, prefix.length() - 1)
+                + (char) (prefix.charAt(prefix.length() - 1) + 1);
+        try (Cursor cursor = dbHelper.getReadableDatabase().query(FileIndexDbHelper.TABLE_FILES,
+                new String[]{FileIndexDbHelper.COLUMN_PATH, FileIndexDbHelper.COLUMN_NAME,
+                        FileIndexDbHelper.COLUMN_SIZE, FileIndexDbHelper.COLUMN_MTIME,
+                        FileIndexDbHelper.COLUMN_IS_DIR, FileIndexDbHelper.COLUMN_TYPE},
+                FileIndexDbHelper.COLUMN_NAME_NORM + " >= ? AND " + FileIndexDbHelper.COLUMN_NAME_NORM + " < ?",
+                new String[]{prefix, upperBound},
+                null, null, FileIndexDbHelper.COLUMN_NAME_NORM, String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                results.add(new IndexedFile(
+                        cursor.getString(0),
+                        cursor.getString(1),
+                        cursor.getLong(2),
+                        cursor.getLong(3),
+                        cursor.getInt(4) != 0,
+                        FileTypeRegistry.Category.valueOf(cursor.getString(5))));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Get up to {@code limit} scanned directories, shallowest first
+     */
+    public List<String> getIndexedDirectories(int limit) {
+        List<String> paths = new ArrayList<>();
+        try (Cursor cursor = dbHelper.getReadableDatabase().query(FileIndexDbHelper.TABLE_DIRS,
+                new String[]{FileIndexDbHelper.COLUMN_PATH},
+                FileIndexDbHelper.COLUMN_PENDING + " = 0", null, null, null,
+                "length(" + FileIndexDbHelper.COLUMN_PATH + ")", String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                paths.add(cursor.getString(0));
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Apply known changes to the index without relisting their parent directories.
+     * Each file is re-read and upserted, or removed with its subtree if it no longer
+     * exists. Changed directories are walked only if {@code scanContents} is set;
+     * otherwise their contents are expected to be reported as well.
+     * Changes outside the indexed directories are ignored.
+     */
+    public void applyChanges(Collection<File> changed, boolean scanContents) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        Set<String> parents = new HashSet<>();
+        boolean needsScan = false;
+
+        db.beginTransaction();
+        try (IndexWriter writer = new IndexWriter(db)) {
+            for (File file : changed) {
+                File parentFile = file.getParentFile();
+                if (parentFile == null) continue;
+                String parent = parentFile.getAbsolutePath();
+                if (DatabaseUtils.queryNumEntries(db, FileIndexDbHelper.TABLE_DIRS,
+                        FileIndexDbHelper.COLUMN_PATH + " = ?", new String[]{parent}) == 0) {
+                    continue;
+                }
+
+                String path = file.getAbsolutePath();
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException | SecurityException e) {
+                    attrs = null;
+                }
+
+                if (attrs == null) {
+                    db.delete(FileIndexDbHelper.TABLE_FILES, FileIndexDbHelper.COLUMN_PATH + " = ?",
+                            new String[]{path});
+                    removeTree(db, path);
+                } else {
+                    writer.insertFile(path, parent, file.getName(), attrs);
+                    if (attrs.isDirectory()) {
+                        if (scanContents) {
+                            writer.markPending(path);
+                            needsScan = true;
+                        } else {
+                            writer.touchDirectory(path, attrs.lastModifiedTime().toMillis());
+                        }
+                    }
+                }
+                parents.add(parent);
+            }
+
+            // The parents now match the disk, so the next pass need not relist them
+            for (String parent : parents) {
+                writer.touchDirectory(parent, new File(parent).lastModified());
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        if (needsScan) {
+            startIndexing();
+        }
+    }
+
+    /**
+     * Get the distinct trigrams of a normalized name, each packed into a long
+     */
+    public static long[] trigrams(String normalized) {
+        int count = normalized.length() - 2;
+        if (count <= 0) return new long[0];
+        Set<Long> unique = new HashSet<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            unique.add(((long) normalized.charAt(i) << 32)
+                    | ((long) normalized.charAt(i + 1) << 16)
+                    | normalized.charAt(i + 2));
+        }
+        long[] trigrams = new long[unique.size()];
+        int i = 0;
+        for (long trigram : unique) {
+            trigrams[i++] = trigram;
+        }
+        return trigrams;
+    }
+
+    /**
+     * Normalize a file name for matching: lowercase, without diacritics
+     */
+    public static String normalize(String name) {
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            // Vietnamese đ has no decomposition
+            if (c == 'đ' || c == 'Đ') c = 'd';
+            normalized.append(c);
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Walk pending directories until none are left or a stop is requested
+     * @return true if the pass finished
+     */
+    private boolean runIndexPass() {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        try (IndexWriter writer = new IndexWriter(db)) {
+            if (DatabaseUtils.queryNumEntries(db, FileIndexDbHelper.TABLE_DIRS,
+                    FileIndexDbHelper.COLUMN_PENDING + " = 1") == 0) {
+                // New pass: recheck every storage root
+                db.beginTransaction();
+                try {
+                    for (String root : getIndexRoots()) {
+                        writer.markPending(root);
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+
+            while (!stopRequested) {
+                List<String> batch = nextPendingDirectories(db);
+                if (batch.isEmpty()) return true;
+
+                db.beginTransaction();
+                try {
+                    for (String path : batch) {
+                        scanDirectory(db, writer, path);
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Storage roots to walk, skipping any root that contains another one
+     * so no subtree is reached through two parents
+     */
+    private List<String> getIndexRoots() {
+        List<File> storages = StorageUtils.getAvailableStorages(context);
+        List<String> roots = new ArrayList<>();
+        for (File storage : storages) {
+            String path = storage.getAbsolutePath();
+            boolean containsOther = false;
+            for (File other : storages) {
+                if (other.getAbsolutePath().startsWith(path + "/")) {
+                    containsOther = true;
+                    break;
+                }
+            }
+            if (!containsOther) {
+                roots.add(path);
+            }
+        }
+        return roots;
+    }
+
+    private List<String> nextPendingDirectories(SQLiteDatabase db) {
+        List<String> paths = new ArrayList<>(DIRECTORY_BATCH_SIZE);
+        try (Cursor cursor = db.query(FileIndexDbHelper.TABLE_DIRS, new String[]{FileIndexDbHelper.COLUMN_PATH},
+                FileIndexDbHelper.COLUMN_PENDING + " = 1", null,
+                null, null, null, String.valueOf(DIRECTORY_BATCH_SIZE))) {
+            while (cursor.moveToNext()) {
+                paths.add(cursor.getString(0));
+            }
+        }
+        return paths;
+    }
+
+    private void scanDirectory(SQLiteDatabase db, IndexWriter writer, String path) {
+        File directory = new File(path);
+        if (!directory.isDirectory()) {
+            removeTree(db, path);
+            db.delete(FileIndexDbHelper.TABLE_FILES, FileIndexDbHelper.COLUMN_PATH + " = ?", new String[]{path});
+            return;
+        }
+
+        long mtime = directory.lastModified();
+        List<String> childDirectories = mtime == getScannedMtime(db, path)
+                ? queryChildDirectories(db, path)
+                : relistDirectory(db, writer, directory, path);
+
+        for (String child : childDirectories) {
+            writer.markPending(child);
+        }
+        writer.markScanned(path, mtime);
+    }
+
+    /**
+     * Replace a directory's rows with its current entries and drop removed subtrees
+     */
+    private List<String> relistDirectory(SQLiteDatabase db, IndexWriter writer, File directory, String path) {
+        Set<String> removedDirectories = new HashSet<>(queryChildDirectories(db, path));
+        db.delete(FileIndexDbHelper.TABLE_FILES, FileIndexDbHelper.COLUMN_PARENT + " = ?", new String[]{path});
+
+        List<String> childDirectories = new ArrayList<>();
+        File[] children = directory.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                BasicFileAttributes attrs;
+                try {
+                    // Symlinks are indexed but not followed
+                    attrs = Files.readAttributes(child.toPath(), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException | SecurityException e) {
+                    continue;
+                }
+                String childPath = child.getAbsolutePath();
+                writer.insertFile(childPath, path, child.getName(), attrs);
+                if (attrs.isDirectory()) {
+                    childDirectories.add(childPath);
+                    removedDirectories.remove(childPath);
+                }
+            }
+        }
+
+        for (String removed : removedDirectories) {
+            removeTree(db, removed);
+        }
+        return childDirectories;
+    }
+
+    private long getScannedMtime(SQLiteDatabase db, String path) {
+        try (Cursor cursor = db.query(FileIndexDbHelper.TABLE_DIRS, new String[]{FileIndexDbHelper.COLUMN_MTIME},
+                FileIndexDbHelper.COLUMN_PATH + " = ?", new String[]{path}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        }
+    }
+
+    private List<String> queryChildDirectories(SQLiteDatabase db, String path) {
+        List<String> paths = new ArrayList<>();
+        try (Cursor cursor = db.query(FileIndexDbHelper.TABLE_FILES, new String[]{FileIndexDbHelper.COLUMN_PATH},
+                FileIndexDbHelper.COLUMN_PARENT + " = ? AND " + FileIndexDbHelper.COLUMN_IS_DIR + " = 1",
+                new String[]{path}, null, null, null)) {
+            while (cursor.moveToNext()) {
+                paths.add(cursor.getString(0));
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Delete everything indexed below a directory, using a range scan on the path key
+     */
+    private void removeTree(SQLiteDatabase db, String path) {
+        // '0' is the character after '/', so this range is exactly the subtree
+        String[] range = {path + "/", path + "0"};
+        String inRange = FileIndexDbHelper.COLUMN_PATH + " >= ? AND " + FileIndexDbHelper.COLUMN_PATH + " < ?";
+        db.delete(FileIndexDbHelper.TABLE_FILES, inRange, range);
+        db.delete(FileIndexDbHelper.TABLE_DIRS, inRange, range);
+        db.delete(FileIndexDbHelper.TABLE_DIRS, FileIndexDbHelper.COLUMN_PATH + " = ?", new String[]{path});
+    }
+
+    /**
+     * Precompiled statements for the indexer's hot path; close it when done
+     */
+    private static class IndexWriter implements AutoCloseable {
+        private final SQLiteStatement insertFile;
+        private final SQLiteStatement markPending;
+        private final SQLiteStatement markScanned;
+        private final SQLiteStatement touchDirectory;
+        private final SQLiteStatement insertTrigram;
+
+        IndexWriter(SQLiteDatabase db) {
+            insertFile = db.compileStatement("INSERT OR REPLACE INTO " + FileIndexDbHelper.TABLE_FILES + " ("
+                    + FileIndexDbHelper.COLUMN_PATH + ", "
+                    + FileIndexDbHelper.COLUMN_PARENT + ", "
+                    + FileIndexDbHelper.COLUMN_NAME + ", "
+                    + FileIndexDbHelper.COLUMN_NAME_NORM + ", "
+                    + FileIndexDbHelper.COLUMN_SIZE + ", "
+                    + FileIndexDbHelper.COLUMN_MTIME + ", "
+                    + FileIndexDbHelper.COLUMN_TYPE + ", "
+                    + FileIndexDbHelper.COLUMN_IS_DIR + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+            markPending = db.compileStatement("INSERT INTO " + FileIndexDbHelper.TABLE_DIRS + " ("
+                    + FileIndexDbHelper.COLUMN_PATH + ", "
+                    + FileIndexDbHelper.COLUMN_MTIME + ", "
+                    + FileIndexDbHelper.COLUMN_PENDING + ") VALUES (?, -1, 1)"
+                    + " ON CONFLICT(" + FileIndexDbHelper.COLUMN_PATH + ")"
+                    + " DO UPDATE SET " + FileIndexDbHelper.COLUMN_PENDING + " = 1");
+            markScanned = db.compileStatement("INSERT OR REPLACE INTO " + FileIndexDbHelper.TABLE_DIRS + " ("
+                    + FileIndexDbHelper.COLUMN_PATH + ", "
+                    + FileIndexDbHelper.COLUMN_MTIME + ", "
+                    + FileIndexDbHelper.COLUMN_PENDING + ") VALUES (?, ?, 0)");
+            insertTrigram = db.compileStatement("INSERT OR IGNORE INTO " + FileIndexDbHelper.TABLE_NAME_TRIGRAMS
+                    + " (" + FileIndexDbHelper.COLUMN_TRIGRAM + ", " + FileIndexDbHelper.COLUMN_FILE_ID
+                    + ") VALUES (?, ?)");
+            // Records a new mtime unless the directory is still waiting to be scanned
+            touchDirectory = db.compileStatement("INSERT INTO " + FileIndexDbHelper.TABLE_DIRS + " ("
+                    + FileIndexDbHelper.COLUMN_PATH + ", "
+                    + FileIndexDbHelper.COLUMN_MTIME + ", "
+                    + FileIndexDbHelper.COLUMN_PENDING + ") VALUES (?, ?, 0)"
+                    + " ON CONFLICT(" + FileIndexDbHelper.COLUMN_PATH + ")"
+                    + " DO UPDATE SET " + FileIndexDbHelper.COLUMN_MTIME
+                    + " = excluded." + FileIndexDbHelper.COLUMN_MTIME
+                    + " WHERE " + FileIndexDbHelper.COLUMN_PENDING + " = 0");
+        }
+
+        void insertFile(String path, String parent, String name, BasicFileAttributes attrs) {
+            boolean isDirectory = attrs.isDirectory();
+            FileTypeRegistry.Category category = isDirectory
+                    ? FileTypeRegistry.Category.OTHER
+                    : FileTypeRegistry.getCategory(name);
+            String normalized = normalize(name);
+            insertFile.bindString(1, path);
+            insertFile.bindString(2, parent);
+            insertFile.bindString(3, name);
+            insertFile.bindString(4, normalized);
+            insertFile.bindLong(5, isDirectory ? 0 : attrs.size());
+            insertFile.bindLong(6, attrs.lastModifiedTime().toMillis());
+            insertFile.bindString(7, category.name());
+            insertFile.bindLong(8, isDirectory ? 1 : 0);
+            long fileId = insertFile.executeInsert();
+
+            insertTrigram.bindLong(2, fileId);
+            for (long trigram : trigrams(normalized)) {
+                insertTrigram.bindLong(1, trigram);
+                insertTrigram.executeInsert();
+            }
+        }
+
+        void markPending(String path) {
+            markPending.bindString(1, path);
+            markPending.executeInsert();
+        }
+
+        void touchDirectory(String path, long mtime) {
+            touchDirectory.bindString(1, path);
+            touchDirectory.bindLong(2, mtime);
+            touchDirectory.executeInsert();
+        }
+
+        void markScanned(String path, long mtime) {
+            markScanned.bindString(1, path);
+            markScanned.bindLong(2, mtime);
+            markScanned.executeInsert();
+        }
+
+        @Override
+        public void close() {
+            insertFile.close();
+            markPending.close();
+            markScanned.close();
+            touchDirectory.close();
+            insertTrigram.close();
+        }
+    }
+}
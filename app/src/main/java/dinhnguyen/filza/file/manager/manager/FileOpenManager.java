@@ -13,7 +13,8 @@ import dinhnguyen.filza.file.manager.ui.MusicPlayerActivity;
 import dinhnguyen.filza.file.manager.ui.PdfViewerActivity;
 import dinhnguyen.filza.file.manager.ui.TxtViewerActivity;
 import dinhnguyen.filza.file.manager.ui.VideoPlayerActivity;
-import dinhnguyen.filza.file.manager.utils.FileTypeDetector;
+import dinhnguyen.filza.file.manager.utils.FileSignatureDetector;
+import dinhnguyen.filza.file.manager.utils.FileTypeRegistry;
 
 public class FileOpenManager {
     
@@ -35,22 +36,29 @@ public class FileOpenManager {
             return;
         }
         
-        String fileName = file.getName().toLowerCase();
-        
-        if (FileTypeDetector.isImageFile(fileName)) {
-            openImageFile(file);
-        } else if (FileTypeDetector.isAudioFile(fileName)) {
-            openAudioFile(file);
-        } else if (FileTypeDetector.isPdfFile(fileName)) {
-            openPdfFile(file);
-        } else if (FileTypeDetector.isTextFile(fileName)) {
-            openTextFile(file);
-        } else if (FileTypeDetector.isVideoFile(fileName)) {
-            openVideoFile(file);
-        } else if (FileTypeDetector.isZipFile(fileName)) {
-            openZipFile(file);
-        } else {
-            openWithSystemApp(file);
+        FileTypeRegistry.FileType type = FileSignatureDetector.resolveType(file);
+        switch (type.getCategory()) {
+            case IMAGE:
+                openImageFile(file);
+                break;
+            case AUDIO:
+                openAudioFile(file);
+                break;
+            case PDF:
+                openPdfFile(file);
+                break;
+            case TEXT:
+                openTextFile(file);
+                break;
+            case VIDEO:
+                openVideoFile(file);
+                break;
+            case ARCHIVE:
+                openZipFile(file);
+                break;
+            default:
+                openWithSystemApp(file, type.getMimeType());
+                break;
         }
     }
     
@@ -89,7 +97,7 @@ public class FileOpenManager {
         try {
             // Create destination directory with the same name as the zip file (without extension)
             String fileName = file.getName();
-            String baseName = fileName.substring(0, fileName.lastIndexOf('.'));
+            String baseName = FileTypeRegistry.getNameWithoutExtension(fileName);
             File destDir = new File(file.getParent(), baseName);
             
             // If destination already exists, add a number suffix
@@ -145,11 +153,10 @@ public class FileOpenManager {
         }
     }
     
-    private void openWithSystemApp(File file) {
+    private void openWithSystemApp(File file, String mimeType) {
         try {
             Uri uri = Uri.fromFile(file);
             Intent intent = new Intent(Intent.ACTION_VIEW);
-            String mimeType = FileTypeDetector.getMimeType(file.getName());
             intent.setDataAndType(uri, mimeType);
             intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
             
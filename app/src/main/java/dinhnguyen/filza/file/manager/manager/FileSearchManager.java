@@ -0,0 +1,181 @@
+package dinhnguyen.filza.file.manager.manager;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.CancellationSignal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import dinhnguyen.filza.file.manager.database.FileIndexDbHelper;
+import dinhnguyen.filza.file.manager.model.IndexedFile;
+import dinhnguyen.filza.file.manager.utils.FileTypeRegistry;
+import dinhnguyen.filza.file.manager.utils.FuzzyMatcher;
+
+/**
+ * Substring and fuzzy file name search over the file index.
+ * Candidates are looked up through the trigram table, so only names sharing
+ * most trigrams with the query are read. Each candidate is then scored with
+ * {@link FuzzyMatcher} against every query term, and the best results are
+ * kept in a bounded heap.
+ */
+public class FileSearchManager {
+
+    /** Upper bound on rows read per query, to cap the cost of very common trigrams. */
+    private static final int CANDIDATE_LIMIT = 20000;
+    private static final int CANCEL_CHECK_INTERVAL = 256;
+
+    private static final Comparator<ScoredFile> WORST_FIRST = (a, b) -> {
+        if (a.score != b.score) return Integer.compare(a.score, b.score);
+        // Between equal scores, shorter names rank higher
+        return Integer.compare(b.file.getName().length(), a.file.getName().length());
+    };
+
+    private static volatile FileSearchManager instance;
+
+    private final FileIndexDbHelper dbHelper;
+
+    private FileSearchManager(Context context) {
+        this.dbHelper = FileIndexDbHelper.getInstance(context);
+    }
+
+    public static FileSearchManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (FileSearchManager.class) {
+                if (instance == null) {
+                    instance = new FileSearchManager(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Find the best matches for a query, best first. Blocks, so call it off
+     * the main thread.
+     * @throws android.os.OperationCanceledException if the signal is cancelled
+     */
+    public List<IndexedFile> search(String query, int limit, CancellationSignal signal) {
+        List<String> terms = new ArrayList<>();
+        for (String term : FileIndexManager.normalize(query).trim().split("\\s+")) {
+            if (!term.isEmpty()) terms.add(term);
+        }
+        if (terms.isEmpty() || limit <= 0) return Collections.emptyList();
+
+        PriorityQueue<ScoredFile> best = new PriorityQueue<>(limit, WORST_FIRST);
+        try (Cursor cursor = queryCandidates(terms, signal)) {
+            int row = 0;
+            while (cursor.moveToNext()) {
+                if (++row % CANCEL_CHECK_INTERVAL == 0) {
+                    signal.throwIfCanceled();
+                }
+
+                int score = scoreName(terms, cursor.getString(2), cursor.getString(1));
+                if (score == FuzzyMatcher.NO_MATCH) continue;
+                if (best.size() == limit && score < best.peek().score) continue;
+
+                ScoredFile candidate = new ScoredFile(readFile(cursor), score);
+                if (best.size() < limit) {
+                    best.add(candidate);
+                } else if (WORST_FIRST.compare(candidate, best.peek()) > 0) {
+                    best.poll();
+                    best.add(candidate);
+                }
+            }
+        }
+
+        List<IndexedFile> results = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            results.add(best.poll().file);
+        }
+        Collections.reverse(results);
+        return results;
+    }
+
+    private Cursor queryCandidates(List<String> terms, CancellationSignal signal) {
+        String columns = "f." + FileIndexDbHelper.COLUMN_PATH
+                + ", f." + FileIndexDbHelper.COLUMN_NAME
+                + ", f." + FileIndexDbHelper.COLUMN_NAME_NORM
+                + ", f." + FileIndexDbHelper.COLUMN_SIZE
+                + ", f." + FileIndexDbHelper.COLUMN_MTIME
+                + ", f." + FileIndexDbHelper.COLUMN_IS_DIR
+                + ", f." + FileIndexDbHelper.COLUMN_TYPE;
+
+        Set<Long> trigrams = new HashSet<>();
+        for (String term : terms) {
+            for (long trigram : FileIndexManager.trigrams(term)) {
+                trigrams.add(trigram);
+            }
+        }
+
+        if (trigrams.isEmpty()) {
+            // Too short for trigrams: fall back to a name prefix range scan
+            String prefix = terms.get(0);
+            String upperBound = prefix.substring(0, prefix.length() - 1)
+                    + (char) (prefix.charAt(prefix.length() - 1) + 1);
+            return dbHelper.getReadableDatabase().rawQuery("SELECT " + columns
+                            + " FROM " + FileIndexDbHelper.TABLE_FILES + " f"
+                            + " WHERE f." + FileIndexDbHelper.COLUMN_NAME_NORM + " >= ?"
+                            + " AND f." + FileIndexDbHelper.COLUMN_NAME_NORM + " < ?"
+                            + " LIMIT " + CANDIDATE_LIMIT,
+                    new String[]{prefix, upperBound}, signal);
+        }
+
+        StringBuilder trigramList = new StringBuilder();
+        for (long trigram : trigrams) {
+            if (trigramList.length() > 0) trigramList.append(',');
+            trigramList.append(trigram);
+        }
+        // Requiring two thirds of the trigrams keeps near misses for the fuzzy scorer
+        int minShared = Math.max(1, (trigrams.size() * 2 + 2) / 3);
+
+        return dbHelper.getReadableDatabase().rawQuery("SELECT " + columns
+                        + " FROM " + FileIndexDbHelper.TABLE_FILES + " f JOIN ("
+                        + "SELECT " + FileIndexDbHelper.COLUMN_FILE_ID
+                        + " FROM " + FileIndexDbHelper.TABLE_NAME_TRIGRAMS
+                        + " WHERE " + FileIndexDbHelper.COLUMN_TRIGRAM + " IN (" + trigramList + ")"
+                        + " GROUP BY " + FileIndexDbHelper.COLUMN_FILE_ID
+                        + " HAVING COUNT(*) >= " + minShared
+                        + ") m ON f.rowid = m." + FileIndexDbHelper.COLUMN_FILE_ID
+                        + " LIMIT " + CANDIDATE_LIMIT,
+                null, signal);
+    }
+
+    /**
+     * Sum of the term scores, or NO_MATCH if any term does not match
+     */
+    private static int scoreName(List<String> terms, String normalizedName, String name) {
+        int total = 0;
+        for (String term : terms) {
+            int score = FuzzyMatcher.score(term, normalizedName, name);
+            if (score == FuzzyMatcher.NO_MATCH) return FuzzyMatcher.NO_MATCH;
+            total += score;
+        }
+        return total;
+    }
+
+    private static IndexedFile readFile(Cursor cursor) {
+        return new IndexedFile(
+                cursor.getString(0),
+                cursor.getString(1),
+                cursor.getLong(3),
+                cursor.getLong(4),
+                cursor.getInt(5) != 0,
+                FileTypeRegistry.Category.valueOf(cursor.getString(6)));
+    }
+
+    private static class ScoredFile {
+        final IndexedFile file;
+        final int score;
+
+        ScoredFile(IndexedFile file, int score) {
+            this.file = file;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package dinhnguyen.filza.file.manager.manager;
+
+import android.content.Context;
+import android.os.FileObserver;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import dinhnguyen.filza.file.manager.listener.FileChangeListener;
+import dinhnguyen.filza.file.manager.service.DirectorySizeService;
+
+/**
+ * Keeps the file index current between indexing passes.
+ * Up to a configurable budget of indexed directories are watched with
+ * {@link FileObserver}s, shallowest first. Events are coalesced on a
+ * background thread and applied to the index in debounced batches.
+ * Changes the app makes itself arrive through {@link FileChangeListener};
+ * they are applied directly and the matching watch events are dropped.
+ */
+public class FileWatchManager implements FileChangeListener, FileIndexManager.IndexListener {
+
+    public static final int DEFAULT_WATCH_BUDGET = 256;
+
+    private static final long DEBOUNCE_MS = 500;
+    private static final long MAX_BATCH_DELAY_MS = 2000;
+    private static final long OWN_CHANGE_WINDOW_MS = 5000;
+    private static final int WATCH_MASK = FileObserver.CREATE | FileObserver.DELETE
+            | FileObserver.MOVED_FROM | FileObserver.MOVED_TO | FileObserver.CLOSE_WRITE
+            | FileObserver.DELETE_SELF | FileObserver.MOVE_SELF;
+
+    private static volatile FileWatchManager instance;
+
+    private final FileIndexManager indexManager;
+    private final Handler handler;
+    private final Runnable flushRunnable = this::flush;
+
+    // Everything below is only touched on the handler thread
+    private final Map<String, FileObserver> observers = new HashMap<>();
+    private final Set<File> observedChanges = new HashSet<>();
+    private final Set<File> reportedChanges = new HashSet<>();
+    private final Set<File> reportedTrees = new HashSet<>();
+    private final Map<String, Long> recentOwnChanges = new HashMap<>();
+    private int watchBudget = DEFAULT_WATCH_BUDGET;
+    private long batchStartTime;
+    private boolean started;
+
+    private FileWatchManager(Context context) {
+        indexManager = FileIndexManager.getInstance(context);
+        HandlerThread thread = new HandlerThread("FileWatcher", Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    public static FileWatchManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (FileWatchManager.class) {
+                if (instance == null) {
+                    instance = new FileWatchManager(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Start watching indexed directories. Watches are refreshed after every indexing pass.
+     */
+    public void start() {
+        handler.post(() -> {
+            if (started) return;
+            started = true;
+            indexManager.addIndexListener(this);
+            refreshWatches();
+        });
+    }
+
+    /**
+     * Set the maximum number of directories watched at once
+     */
+    public void setWatchBudget(int budget) {
+        handler.post(() -> {
+            watchBudget = Math.max(0, budget);
+            if (started) refreshWatches();
+        });
+    }
+
+    @Override
+    public void onIndexPassFinished() {
+        handler.post(this::refreshWatches);
+    }
+
+    @Override
+    public void onFilesChanged(List<File> files, boolean includeContents) {
+        List<File> copy = new ArrayList<>(files);
+        handler.post(() -> {
+            long now = SystemClock.uptimeMillis();
+            for (File file : copy) {
+                recentOwnChanges.put(file.getAbsolutePath(), now);
+            }
+            (includeContents ? reportedTrees : reportedChanges).addAll(copy);
+            scheduleFlush();
+        });
+    }
+
+    private void refreshWatches() {
+        Set<String> wanted = new HashSet<>(indexManager.getIndexedDirectories(watchBudget));
+
+        Iterator<Map.Entry<String, FileObserver>> iterator = observers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, FileObserver> entry = iterator.next();
+            if (!wanted.remove(entry.getKey())) {
+                entry.getValue().stopWatching();
+                iterator.remove();
+            }
+        }
+        for (String path : wanted) {
+            File directory = new File(path);
+            FileObserver observer = new FileObserver(directory, WATCH_MASK) {
+                @Override
+                public void onEvent(int event, String name) {
+                    // Called on the FileObserver thread
+                    if (name != null && TransferEngine.isPartFile(name)) {
+                        // Copies write every chunk there; the finished file is reported by its real name
+                        return;
+                    }
+                    File changed = name == null || (event & (DELETE_SELF | MOVE_SELF)) != 0
+                            ? directory
+                            : new File(directory, name);
+                    handler.post(() -> onWatchEvent(changed));
+                }
+            };
+            observer.startWatching();
+            observers.put(path, observer);
+        }
+    }
+
+    private void onWatchEvent(File changed) {
+        observedChanges.add(changed);
+        scheduleFlush();
+    }
+
+    /**
+     * Flush after a quiet period, but never hold a batch longer than the maximum delay
+     */
+    private void scheduleFlush() {
+        long now = SystemClock.uptimeMillis();
+        if (!handler.hasCallbacks(flushRunnable)) {
+            batchStartTime = now;
+        }
+        handler.removeCallbacks(flushRunnable);
+        long delay = Math.min(DEBOUNCE_MS, batchStartTime + MAX_BATCH_DELAY_MS - now);
+        handler.postDelayed(flushRunnable, Math.max(0, delay));
+    }
+
+    private void flush() {
+        long now = SystemClock.uptimeMillis();
+        recentOwnChanges.values().removeIf(time -> now - time > OWN_CHANGE_WINDOW_MS);
+
+        List<File> external = new ArrayList<>();
+        for (File file : observedChanges) {
+            if (!isOwnChange(file)) {
+                external.add(file);
+            }
+        }
+
+        if (!reportedChanges.isEmpty()) {
+            indexManager.applyChanges(reportedChanges, false);
+        }
+        if (!reportedTrees.isEmpty()) {
+            indexManager.applyChanges(reportedTrees, true);
+        }
+        if (!external.isEmpty()) {
+            // Unknown directories may have arrived with contents, so walk them
+            indexManager.applyChanges(external, true);
+            // A file written in place leaves its folder's mtime, and so its cached size, alone
+            DirectorySizeService sizeService = DirectorySizeService.getInstance();
+            for (File file : external) {
+                File parent = file.getParentFile();
+                if (parent != null) sizeService.invalidate(parent);
+                sizeService.invalidate(file);
+            }
+        }
+
+        stopWatchesForRemoved(observedChanges);
+        stopWatchesForRemoved(reportedChanges);
+        stopWatchesForRemoved(reportedTrees);
+
+        observedChanges.clear();
+        reportedChanges.clear();
+        reportedTrees.clear();
+    }
+
+    /**
+     * Check whether the app itself recently changed this file or one of its ancestors
+     */
+    private boolean isOwnChange(File file) {
+        for (File current = file; current != null; current = current.getParentFile()) {
+            if (recentOwnChanges.containsKey(current.getAbsolutePath())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void stopWatchesForRemoved(Set<File> changes) {
+        for (File file : changes) {
+            if (file.exists()) continue;
+            String path = file.getAbsolutePath();
+            Iterator<Map.Entry<String, FileObserver>> iterator = observers.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, FileObserver> entry = iterator.next();
+                String watched = entry.getKey();
+                if (watched.equals(path) || watched.startsWith(path + "/")) {
+                    entry.getValue().stopWatching();
+                    iterator.remove();
+                }
+            }
+        }
+    }
+}
@@ -6,13 +6,10 @@ import android.widget.Toast;
 import androidx.fragment.app.FragmentActivity;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.nio.channels.FileChannel;
 import java.util.List;
 
 import dinhnguyen.filza.file.manager.ui.dialog.FolderPickerDialog;
+import dinhnguyen.filza.file.manager.utils.FileUtils;
 import dinhnguyen.filza.file.manager.utils.StorageUtils;
 
 /**
@@ -96,116 +93,14 @@ public class FolderPickerManager {
      * Copy files to the selected destination
      */
     private void copyFilesToDestination(List<File> files, File destinationFolder) {
-        // Check available space
-        long totalSize = calculateTotalSize(files);
-        long availableSpace = StorageUtils.getAvailableSpace(destinationFolder);
-        
-        if (totalSize > availableSpace) {
-            Toast.makeText(context, "Not enough space available", Toast.LENGTH_LONG).show();
-            return;
-        }
-        
-        // Perform copy operation
-        int successCount = 0;
-        int totalCount = files.size();
-        
-        for (File sourceFile : files) {
-            try {
-                File destFile = new File(destinationFolder, sourceFile.getName());
-                
-                // Handle duplicate names
-                int counter = 1;
-                while (destFile.exists()) {
-                    String name = sourceFile.getName();
-                    String baseName = name;
-                    String extension = "";
-                    
-                    int dotIndex = name.lastIndexOf('.');
-                    if (dotIndex > 0) {
-                        baseName = name.substring(0, dotIndex);
-                        extension = name.substring(dotIndex);
-                    }
-                    
-                    destFile = new File(destinationFolder, baseName + " (" + counter + ")" + extension);
-                    counter++;
-                }
-                
-                if (sourceFile.isDirectory()) {
-                    copyDirectory(sourceFile, destFile);
-                } else {
-                    copyFile(sourceFile, destFile);
-                }
-                successCount++;
-                
-            } catch (IOException e) {
-                Toast.makeText(context, "Failed to copy " + sourceFile.getName() + ": " + e.getMessage(), Toast.LENGTH_SHORT).show();
-            }
-        }
-        
-        String message = "Copied " + successCount + " of " + totalCount + " files successfully";
-        Toast.makeText(context, message, Toast.LENGTH_SHORT).show();
+        toastWhenFinished(FileUtils.copyFiles(context, files, destinationFolder, null));
     }
     
     /**
      * Move files to the selected destination
      */
     private void moveFilesToDestination(List<File> files, File destinationFolder) {
-        // Check available space
-        long totalSize = calculateTotalSize(files);
-        long availableSpace = StorageUtils.getAvailableSpace(destinationFolder);
-        
-        if (totalSize > availableSpace) {
-            Toast.makeText(context, "Not enough space available", Toast.LENGTH_LONG).show();
-            return;
-        }
-        
-        // Perform move operation
-        int successCount = 0;
-        int totalCount = files.size();
-        
-        for (File sourceFile : files) {
-            try {
-                File destFile = new File(destinationFolder, sourceFile.getName());
-                
-                // Handle duplicate names
-                int counter = 1;
-                while (destFile.exists()) {
-                    String name = sourceFile.getName();
-                    String baseName = name;
-                    String extension = "";
-                    
-                    int dotIndex = name.lastIndexOf('.');
-                    if (dotIndex > 0) {
-                        baseName = name.substring(0, dotIndex);
-                        extension = name.substring(dotIndex);
-                    }
-                    
-                    destFile = new File(destinationFolder, baseName + " (" + counter + ")" + extension);
-                    counter++;
-                }
-                
-                // Try to move first, fallback to copy+delete
-                if (sourceFile.renameTo(destFile)) {
-                    successCount++;
-                } else {
-                    // Fallback: copy then delete
-                    if (sourceFile.isDirectory()) {
-                        copyDirectory(sourceFile, destFile);
-                        deleteRecursively(sourceFile);
-                    } else {
-                        copyFile(sourceFile, destFile);
-                        sourceFile.delete();
-                    }
-                    successCount++;
-                }
-                
-            } catch (IOException e) {
-                Toast.makeText(context, "Failed to move " + sourceFile.getName() + ": " + e.getMessage(), Toast.LENGTH_SHORT).show();
-            }
-        }
-        
-        String message = "Moved " + successCount + " of " + totalCount + " files successfully";
-        Toast.makeText(context, message, Toast.LENGTH_SHORT).show();
+        toastWhenFinished(FileUtils.moveFiles(context, files, destinationFolder, null));
     }
     
     /**
@@ -232,88 +127,16 @@ public class FolderPickerManager {
     }
     
     /**
-     * Calculate total size of files
+     * Shows the final summary of a background copy or move, for as long as
+     * the Activity is around to show it
      */
-    private long calculateTotalSize(List<File> files) {
-        long totalSize = 0;
-        for (File file : files) {
-            if (file.exists()) {
-                if (file.isDirectory()) {
-                    totalSize += calculateDirectorySize(file);
-                } else {
-                    totalSize += file.length();
-                }
+    private void toastWhenFinished(JobHandle job) {
+        JobManager.getInstance(context).observeFinish(activity, job, finished -> {
+            String summary = finished.getSummary();
+            if (!summary.isEmpty()) {
+                Toast.makeText(context, summary, Toast.LENGTH_SHORT).show();
             }
-        }
-        return totalSize;
-    }
-    
-    /**
-     * Calculate directory size recursively
-     */
-    private long calculateDirectorySize(File directory) {
-        long size = 0;
-        File[] files = directory.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    size += calculateDirectorySize(file);
-                } else {
-                    size += file.length();
-                }
-            }
-        }
-        return size;
-    }
-    
-    /**
-     * Copy a single file
-     */
-    private void copyFile(File source, File dest) throws IOException {
-        if (!dest.exists()) {
-            dest.createNewFile();
-        }
-        
-        try (FileChannel sourceChannel = new FileInputStream(source).getChannel();
-             FileChannel destChannel = new FileOutputStream(dest).getChannel()) {
-            destChannel.transferFrom(sourceChannel, 0, sourceChannel.size());
-        }
-    }
-    
-    /**
-     * Copy a directory recursively
-     */
-    private void copyDirectory(File source, File dest) throws IOException {
-        if (!dest.exists()) {
-            dest.mkdirs();
-        }
-        
-        File[] files = source.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                File destFile = new File(dest, file.getName());
-                if (file.isDirectory()) {
-                    copyDirectory(file, destFile);
-                } else {
-                    copyFile(file, destFile);
-                }
-            }
-        }
-    }
-    
-    /**
-     * Delete a file or directory recursively
-     */
-    private boolean deleteRecursively(File fileOrDirectory) {
-        if (fileOrDirectory.isDirectory()) {
-            File[] files = fileOrDirectory.listFiles();
-            if (files != null) {
-                for (File file : files) {
-                    deleteRecursively(file);
-                }
-            }
-        }
-        return fileOrDirectory.delete();
+        });
     }
     
     /**
@@ -0,0 +1,66 @@
+package dinhnguyen.filza.file.manager.manager;
+
+import android.os.OperationCanceledException;
+
+/**
+ * Cancel, pause and resume for a running job, from any thread. Workers call
+ * {@link #checkpoint()} between units of work, down to the chunks of a single
+ * file copy: it returns at once while the job runs, blocks while it is
+ * paused and throws once it is cancelled. The running case only reads two
+ * volatile fields, so checking often is cheap.
+ */
+public class JobControl {
+
+    private volatile boolean canceled;
+    private volatile boolean paused;
+
+    public void cancel() {
+        synchronized (this) {
+            canceled = true;
+            notifyAll();
+        }
+    }
+
+    public void pause() {
+        synchronized (this) {
+            if (!canceled) paused = true;
+        }
+    }
+
+    public void resume() {
+        synchronized (this) {
+            paused = false;
+            notifyAll();
+        }
+    }
+
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    public boolean isPaused() {
+        return paused && !canceled;
+    }
+
+    /**
+     * Wait out a pause, then throw {@link OperationCanceledException} if the
+     * job was cancelled. An interrupted wait counts as a cancel.
+     */
+    public void checkpoint() {
+        if (paused) {
+            synchronized (this) {
+                while (paused && !canceled) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        canceled = true;
+                    }
+                }
+            }
+        }
+        if (canceled) {
+            throw new OperationCanceledException();
+        }
+    }
+}
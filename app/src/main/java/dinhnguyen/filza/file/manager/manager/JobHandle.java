@@ -0,0 +1,152 @@
+package dinhnguyen.filza.file.manager.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import dinhnguyen.filza.file.manager.model.OperationPlan;
+import dinhnguyen.filza.file.manager.model.OperationProgress;
+import dinhnguyen.filza.file.manager.utils.ProgressTracker;
+
+/**
+ * One job submitted to {@link JobManager}. The UI reads its state and
+ * progress and can cancel, pause or resume it; the job itself uses
+ * {@link #getControl()} and {@link #getTracker()} while it runs and reports
+ * its outcome with {@link #addError} and {@link #setMessage}.
+ */
+public class JobHandle {
+
+    public enum State {
+        QUEUED, RUNNING, PAUSED, COMPLETED, FAILED, CANCELLED
+    }
+
+    private final int id;
+    private final OperationPlan.Type type;
+    private final String title;
+    private final JobControl control = new JobControl();
+    private final List<String> errors = new ArrayList<>();
+    private final JobManager manager;
+    private ProgressTracker tracker;
+    private volatile State state = State.QUEUED;
+    private volatile OperationProgress progress;
+    private volatile String message;
+
+    JobHandle(int id, OperationPlan.Type type, String title, JobManager manager) {
+        this.id = id;
+        this.type = type;
+        this.title = title;
+        this.manager = manager;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public OperationPlan.Type getType() {
+        return type;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public State getState() {
+        State current = state;
+        if (current == State.RUNNING && control.isPaused()) {
+            return State.PAUSED;
+        }
+        return current;
+    }
+
+    public boolean isFinished() {
+        State current = state;
+        return current == State.COMPLETED || current == State.FAILED || current == State.CANCELLED;
+    }
+
+    /** Latest progress, or null before the job has reported any. */
+    public OperationProgress getProgress() {
+        return progress;
+    }
+
+    /** Summary the job finished with, or null. */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * One line on how the job ended: its message and first error, the
+     * latter with a count of any further ones.
+     */
+    public String getSummary() {
+        List<String> errors = getErrors();
+        String summary = message != null ? message : "";
+        if (errors.isEmpty()) return summary;
+        String firstError = errors.get(0) + (errors.size() > 1 ? " (+" + (errors.size() - 1) + " more)" : "");
+        return summary.isEmpty() ? firstError : summary + "\n" + firstError;
+    }
+
+    public List<String> getErrors() {
+        synchronized (errors) {
+            return Collections.unmodifiableList(new ArrayList<>(errors));
+        }
+    }
+
+    public void cancel() {
+        if (isFinished()) return;
+        control.cancel();
+        manager.onJobChanged(this);
+    }
+
+    public void pause() {
+        if (isFinished()) return;
+        control.pause();
+        manager.onJobChanged(this);
+    }
+
+    public void resume() {
+        control.resume();
+        manager.onJobChanged(this);
+    }
+
+    public boolean isCanceled() {
+        return control.isCanceled();
+    }
+
+    /** Hand this to the engines doing the work. */
+    public JobControl getControl() {
+        return control;
+    }
+
+    /** Progress for this job; its updates reach both the job list and the job's own listener. */
+    public ProgressTracker getTracker() {
+        return tracker;
+    }
+
+    public void addError(String error) {
+        synchronized (errors) {
+            errors.add(error);
+        }
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    void setTracker(ProgressTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+
+    void setProgress(OperationProgress progress) {
+        this.progress = progress;
+    }
+
+    boolean hasErrors() {
+        synchronized (errors) {
+            return !errors.isEmpty();
+        }
+    }
+}
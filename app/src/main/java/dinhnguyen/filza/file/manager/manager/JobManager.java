@@ -0,0 +1,214 @@
+package dinhnguyen.filza.file.manager.manager;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import dinhnguyen.filza.file.manager.model.OperationPlan;
+import dinhnguyen.filza.file.manager.service.FileOperationService;
+import dinhnguyen.filza.file.manager.utils.ProgressTracker;
+
+/**
+ * Runs file operations as jobs that can be listed, cancelled, paused and
+ * resumed. At most {@link #MAX_CONCURRENT_JOBS} run at once and the rest
+ * wait their turn; job threads exit after a while without work, so an idle
+ * app holds none. Finished jobs stay listed until cleared, up to
+ * {@link #MAX_FINISHED_JOBS}.
+ *
+ * Jobs belong to this singleton, not to the screen that started them, and
+ * {@link FileOperationService} keeps the process in the foreground while any
+ * are unfinished, so they carry on after the Activity is gone.
+ */
+public class JobManager {
+
+    private static final String TAG = "JobManager";
+    public static final int MAX_CONCURRENT_JOBS = 2;
+    private static final int MAX_FINISHED_JOBS = 20;
+    private static final long IDLE_TIMEOUT_SECONDS = 30;
+
+    /** The work of one job, run on a job thread. */
+    public interface Job {
+        void run(JobHandle handle) throws Exception;
+    }
+
+    /** Called on the main thread */
+    public interface FinishListener {
+        void onFinished(JobHandle job);
+    }
+
+    private static volatile JobManager instance;
+
+    private final Context context;
+    private final ThreadPoolExecutor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<JobHandle> jobs = new ArrayList<>();
+    private final MutableLiveData<List<JobHandle>> jobsLiveData = new MutableLiveData<>(Collections.emptyList());
+    private int nextId = 1;
+
+    private JobManager(Context context) {
+        this.context = context.getApplicationContext();
+        executor = new ThreadPoolExecutor(MAX_CONCURRENT_JOBS, MAX_CONCURRENT_JOBS,
+                IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "FileJob");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static JobManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (JobManager.class) {
+                if (instance == null) {
+                    instance = new JobManager(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Queue a job. {@code progressListener} (may be null) gets the job's
+     * progress on the main thread, at most once per frame.
+     */
+    public JobHandle submit(OperationPlan.Type type, String title, ProgressTracker.Listener progressListener,
+                            Job job) {
+        JobHandle handle;
+        synchronized (jobs) {
+            handle = new JobHandle(nextId++, type, title, this);
+            jobs.add(handle);
+        }
+        handle.setTracker(new ProgressTracker(mainHandler, progress -> {
+            handle.setProgress(progress);
+            onJobChanged(handle);
+            if (progressListener != null) {
+                progressListener.onProgress(progress);
+            }
+        }));
+        onJobChanged(handle);
+        executor.execute(() -> run(handle, job));
+        startService();
+        return handle;
+    }
+
+    /** The listed job with this id, or null once it has been cleared. */
+    public JobHandle getJob(int id) {
+        synchronized (jobs) {
+            for (JobHandle job : jobs) {
+                if (job.getId() == id) return job;
+            }
+        }
+        return null;
+    }
+
+    /** Every listed job, oldest first; a new list is posted on each change. */
+    public LiveData<List<JobHandle>> getJobs() {
+        return jobsLiveData;
+    }
+
+    /** Jobs queued or running right now, oldest first. */
+    public List<JobHandle> getActiveJobs() {
+        List<JobHandle> active = new ArrayList<>();
+        synchronized (jobs) {
+            for (JobHandle job : jobs) {
+                if (!job.isFinished()) active.add(job);
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Call {@code listener} once {@code job} has ended, while {@code owner}
+     * is started. The listener is dropped when the owner is destroyed, so
+     * it may hold on to an Activity without outliving it.
+     */
+    public void observeFinish(LifecycleOwner owner, JobHandle job, FinishListener listener) {
+        jobsLiveData.observe(owner, new Observer<List<JobHandle>>() {
+            @Override
+            public void onChanged(List<JobHandle> jobs) {
+                if (job.isFinished()) {
+                    jobsLiveData.removeObserver(this);
+                    listener.onFinished(job);
+                }
+            }
+        });
+    }
+
+    public void clearFinished() {
+        synchronized (jobs) {
+            jobs.removeIf(JobHandle::isFinished);
+        }
+        publish();
+    }
+
+    void onJobChanged(JobHandle handle) {
+        publish();
+    }
+
+    private void run(JobHandle handle, Job job) {
+        handle.setState(JobHandle.State.RUNNING);
+        onJobChanged(handle);
+        // Anything that escapes, even an Error, must not leave the job running
+        JobHandle.State finalState = JobHandle.State.FAILED;
+        try {
+            handle.getControl().checkpoint();
+            job.run(handle);
+            finalState = handle.isCanceled() ? JobHandle.State.CANCELLED
+                    : handle.hasErrors() ? JobHandle.State.FAILED : JobHandle.State.COMPLETED;
+        } catch (OperationCanceledException e) {
+            finalState = JobHandle.State.CANCELLED;
+        } catch (Throwable e) {
+            Log.e(TAG, "Job " + handle.getTitle() + " failed", e);
+            handle.addError(e.getMessage() != null ? e.getMessage() : e.toString());
+        } finally {
+            handle.setState(finalState);
+            trimFinished();
+            onJobChanged(handle);
+        }
+    }
+
+    private void startService() {
+        try {
+            FileOperationService.start(context);
+        } catch (IllegalStateException e) {
+            // Not allowed from the background; the job still runs while the process lives
+            Log.w(TAG, "Cannot start the file operation service", e);
+        }
+    }
+
+    private void trimFinished() {
+        synchronized (jobs) {
+            int finished = 0;
+            for (JobHandle job : jobs) {
+                if (job.isFinished()) finished++;
+            }
+            for (Iterator<JobHandle> it = jobs.iterator(); it.hasNext() && finished > MAX_FINISHED_JOBS; ) {
+                if (it.next().isFinished()) {
+                    it.remove();
+                    finished--;
+                }
+            }
+        }
+    }
+
+    private void publish() {
+        synchronized (jobs) {
+            jobsLiveData.postValue(new ArrayList<>(jobs));
+        }
+    }
+}
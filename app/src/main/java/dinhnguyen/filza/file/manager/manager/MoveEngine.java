@@ -0,0 +1,197 @@
+package dinhnguyen.filza.file.manager.manager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import dinhnguyen.filza.file.manager.model.OperationPlan;
+import dinhnguyen.filza.file.manager.utils.DirectoryEnumerator;
+
+/**
+ * Moves the items of an {@link OperationPlan}. An item the plan found on the
+ * destination's volume is moved with one atomic rename, however large it is.
+ * Anything else is streamed: each file is copied through
+ * {@link TransferEngine} and checked against its source. A folder's sources
+ * are deleted once all of its files are copied and one sync has made their
+ * new names durable, so at most one folder's files exist twice at any time
+ * and a failed move leaves every file in exactly one complete place.
+ *
+ * Folders are walked without following symbolic links; a link is recreated
+ * at the target pointing where it pointed before, and then removed, so a
+ * link to a large folder never turns a move into a copy of that folder.
+ */
+public class MoveEngine {
+
+    /** Called on the moving thread */
+    public interface MoveListener extends TransferEngine.TransferListener {
+        /** The whole item was renamed into place; no transfer callbacks follow for it */
+        void onRenamed(OperationPlan.Item item);
+    }
+
+    private final TransferEngine transferEngine;
+    private JobControl jobControl;
+    private MoveListener moveListener;
+
+    /**
+     * @param syncFiles make each copied file durable before its source is
+     *                  deleted, so a crash mid-move cannot lose it
+     */
+    public MoveEngine(boolean syncFiles) {
+        this.transferEngine = new TransferEngine(TransferEngine.ConflictPolicy.FAIL, syncFiles);
+    }
+
+    public MoveEngine setJobControl(JobControl jobControl) {
+        this.jobControl = jobControl;
+        transferEngine.setJobControl(jobControl);
+        return this;
+    }
+
+    public MoveEngine setMoveListener(MoveListener moveListener) {
+        this.moveListener = moveListener;
+        transferEngine.setTransferListener(moveListener);
+        return this;
+    }
+
+    /** Move one planned item to its target, which must not exist yet. */
+    public void move(OperationPlan.Item item) throws IOException {
+        if (item.getError() != null) {
+            throw new IOException(item.getError());
+        }
+        File source = item.getSource();
+        File target = item.getTarget();
+        if (target.exists()) {
+            throw new IOException(target.getName() + " already exists");
+        }
+
+        if (item.canRename()) {
+            checkpoint();
+            try {
+                Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                if (moveListener != null) {
+                    moveListener.onRenamed(item);
+                }
+                return;
+            } catch (AtomicMoveNotSupportedException e) {
+                // Same device but a different mount, e.g. a bind mount; stream it instead
+            }
+        }
+
+        if (Files.isSymbolicLink(source.toPath())) {
+            moveLink(source, target);
+        } else if (source.isDirectory()) {
+            moveDirectory(source, target);
+        } else {
+            copyFile(source, target);
+            transferEngine.syncDirectories();
+            deleteSource(source);
+        }
+    }
+
+    /**
+     * Finish an item from a recovered plan. A streamed folder may already
+     * exist at its target with part of its files, which are gone from the
+     * source; the rest is moved into it.
+     */
+    public void resume(OperationPlan.Item item) throws IOException {
+        File source = item.getSource();
+        if (item.canRename() || !item.isDirectory() || Files.isSymbolicLink(source.toPath())
+                || !item.getTarget().isDirectory()) {
+            move(item);
+            return;
+        }
+        moveDirectory(source, item.getTarget());
+    }
+
+    private void moveDirectory(File source, File target) throws IOException {
+        checkpoint();
+        if (!target.isDirectory() && !target.mkdir()) {
+            throw new IOException("Cannot create folder " + target.getName());
+        }
+        if (moveListener != null) {
+            moveListener.onEntryCreated(target);
+        }
+
+        List<DirectoryEnumerator.Entry> entries = new DirectoryEnumerator(source).setNoFollowLinks(true).list();
+        if (entries == null) {
+            throw new IOException("Cannot read folder " + source.getName());
+        }
+        // Files first, so this folder is synced once before any subfolder is entered
+        List<File> copied = new ArrayList<>();
+        try {
+            for (DirectoryEnumerator.Entry entry : entries) {
+                File childTarget = new File(target, entry.getName());
+                if (entry.isSymbolicLink()) {
+                    moveLink(entry.getFile(), childTarget);
+                } else if (!entry.isDirectory()) {
+                    copyFile(entry.getFile(), childTarget);
+                    copied.add(entry.getFile());
+                }
+            }
+        } finally {
+            // Also when a later file fails, so no file is left in two places
+            transferEngine.syncDirectories();
+            for (File file : copied) {
+                deleteSource(file);
+            }
+        }
+        for (DirectoryEnumerator.Entry entry : entries) {
+            if (entry.isDirectory() && !entry.isSymbolicLink()) {
+                moveDirectory(entry.getFile(), new File(target, entry.getName()));
+            }
+        }
+        if (!source.delete()) {
+            throw new IOException("Cannot remove folder " + source.getName());
+        }
+    }
+
+    /** Copy a file for a move; its source stays until {@link #deleteSource} */
+    private void copyFile(File source, File target) throws IOException {
+        long size = source.length();
+        long lastModified = source.lastModified();
+        transferEngine.copy(source, target);
+
+        if (target.isFile()
+                && (target.length() != size || source.length() != size || source.lastModified() != lastModified)) {
+            target.delete();
+            throw new IOException(source.getName() + " changed while it was being moved");
+        }
+    }
+
+    private static void deleteSource(File source) throws IOException {
+        if (!source.delete()) {
+            throw new IOException("Cannot remove " + source.getName() + " after copying it");
+        }
+    }
+
+    private void moveLink(File source, File target) throws IOException {
+        checkpoint();
+        Path link = Files.readSymbolicLink(source.toPath());
+        Path targetPath = target.toPath();
+        // A resumed move may have recreated the link before the app died
+        boolean recreated = Files.isSymbolicLink(targetPath) && Files.readSymbolicLink(targetPath).equals(link);
+        if (!recreated) {
+            try {
+                Files.createSymbolicLink(targetPath, link);
+            } catch (UnsupportedOperationException e) {
+                throw new IOException("Cannot create a link on the destination for " + source.getName());
+            }
+        }
+        if (moveListener != null) {
+            moveListener.onEntryCreated(target);
+        }
+        if (!source.delete()) {
+            throw new IOException("Cannot remove " + source.getName() + " after linking it");
+        }
+    }
+
+    private void checkpoint() {
+        if (jobControl != null) {
+            jobControl.checkpoint();
+        }
+    }
+}
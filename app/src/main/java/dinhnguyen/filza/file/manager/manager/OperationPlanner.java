@@ -0,0 +1,237 @@
+package dinhnguyen.filza.file.manager.manager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import dinhnguyen.filza.file.manager.model.OperationPlan;
+import dinhnguyen.filza.file.manager.utils.DirectoryEnumerator;
+import dinhnguyen.filza.file.manager.utils.StorageUtils;
+
+/**
+ * Builds {@link OperationPlan}s. Each selected item is walked once, and that
+ * walk yields its counts, its bytes and, for copies and streamed moves,
+ * every folder and file to create, so the space check, the progress totals,
+ * the executor and the transfer journal all work from the same numbers.
+ *
+ * Copies and zips follow symbolic links, like the copy itself does. Deletes
+ * and moves that are a plain rename never follow them, since only the link
+ * itself is touched.
+ */
+public class OperationPlanner {
+
+    private static final class Walk {
+        final boolean collect;
+        final boolean noFollowLinks;
+        final List<File> directories = new ArrayList<>();
+        final List<OperationPlan.PlannedFile> files = new ArrayList<>();
+        // Canonical paths of the folders being walked, to catch links back to one of them
+        final Set<String> ancestors = new HashSet<>();
+        int fileCount;
+        int directoryCount;
+        long bytes;
+
+        Walk(boolean collect, boolean noFollowLinks) {
+            this.collect = collect;
+            this.noFollowLinks = noFollowLinks;
+        }
+    }
+
+    /**
+     * Plan copying {@code sources} into {@code destinationFolder}. The
+     * conflict policy applies to the top-level items; selected items sharing
+     * a name never get the same target.
+     */
+    public static OperationPlan planCopy(List<File> sources, File destinationFolder,
+                                         TransferEngine.ConflictPolicy conflictPolicy) {
+        return plan(OperationPlan.Type.COPY, sources, destinationFolder, conflictPolicy, null);
+    }
+
+    /** Plan copying {@code source} to exactly {@code target}, which must not exist yet. */
+    public static OperationPlan planCopyTo(File source, File target) {
+        return plan(OperationPlan.Type.COPY, Collections.singletonList(source), target.getParentFile(),
+                TransferEngine.ConflictPolicy.FAIL, target);
+    }
+
+    /** Plan moving {@code sources} into {@code destinationFolder}, renaming on conflicts. */
+    public static OperationPlan planMove(List<File> sources, File destinationFolder) {
+        return plan(OperationPlan.Type.MOVE, sources, destinationFolder, TransferEngine.ConflictPolicy.RENAME, null);
+    }
+
+    public static OperationPlan planDelete(List<File> sources) {
+        return plan(OperationPlan.Type.DELETE, sources, null, null, null);
+    }
+
+    /**
+     * Plan zipping {@code sources}; the archive itself is named by the caller.
+     * Targets are the relative entry paths inside the archive, and the space
+     * needed is the uncompressed size, which the archive will not exceed by
+     * more than its headers.
+     */
+    public static OperationPlan planZip(List<File> sources, File destinationFolder) {
+        return plan(OperationPlan.Type.ZIP, sources, destinationFolder, null, null);
+    }
+
+    private static OperationPlan plan(OperationPlan.Type type, List<File> sources, File destination,
+                                      TransferEngine.ConflictPolicy conflictPolicy, File exactTarget) {
+        boolean placed = type == OperationPlan.Type.COPY || type == OperationPlan.Type.MOVE;
+        long destinationVolume = destination != null ? StorageUtils.getVolumeId(destination) : -1;
+        List<OperationPlan.Item> items = new ArrayList<>();
+        List<File> conflicts = new ArrayList<>();
+        Set<File> reserved = new HashSet<>();
+        long bytesToWrite = 0;
+
+        for (File source : sources) {
+            boolean directory = source.isDirectory();
+            long sourceVolume = StorageUtils.getVolumeId(source);
+            if (!source.exists() && !isSymbolicLink(source)) {
+                items.add(failed(source, null, directory, false, sourceVolume, "no longer exists"));
+                continue;
+            }
+
+            File target = null;
+            boolean conflict = false;
+            if (placed) {
+                File wanted = exactTarget != null ? exactTarget : new File(destination, source.getName());
+                conflict = wanted.exists() || reserved.contains(wanted);
+                if (conflict) {
+                    conflicts.add(wanted);
+                    if (conflictPolicy == TransferEngine.ConflictPolicy.SKIP) continue;
+                }
+                String error = null;
+                try {
+                    target = resolveTarget(source, wanted, conflict, conflictPolicy, reserved);
+                    if (directory && TransferEngine.isSameOrInside(target, source)) {
+                        error = "Cannot " + (type == OperationPlan.Type.COPY ? "copy" : "move")
+                                + " a folder into itself";
+                    }
+                } catch (IOException e) {
+                    error = e.getMessage();
+                }
+                if (target != null) reserved.add(target);
+                if (error != null) {
+                    items.add(failed(source, target, directory, conflict, sourceVolume, error));
+                    continue;
+                }
+            }
+
+            boolean rename = type == OperationPlan.Type.MOVE && sourceVolume != -1
+                    && sourceVolume == destinationVolume;
+            boolean transfer = type == OperationPlan.Type.COPY || (type == OperationPlan.Type.MOVE && !rename);
+            // A move takes links along as links, never what they point to
+            boolean noFollowLinks = type == OperationPlan.Type.DELETE || type == OperationPlan.Type.MOVE;
+            boolean zip = type == OperationPlan.Type.ZIP;
+            if (zip) target = new File(source.getName());
+            Walk walk = new Walk(transfer || zip, noFollowLinks);
+            String error = null;
+            if (rename) {
+                // One rename whatever the item holds, so its tree is not worth a walk
+                walk.fileCount = 1;
+            } else if (directory && !(noFollowLinks && isSymbolicLink(source))) {
+                error = walkDirectory(source, target, walk);
+            } else {
+                walk.fileCount = 1;
+                walk.bytes = source.length();
+                if (walk.collect) walk.files.add(new OperationPlan.PlannedFile(source, target, walk.bytes));
+            }
+            if (error != null && transfer) {
+                items.add(failed(source, target, directory, conflict, sourceVolume, error));
+                continue;
+            }
+            if (transfer || zip) bytesToWrite += walk.bytes;
+            items.add(new OperationPlan.Item(source, target, directory, conflict, rename, sourceVolume,
+                    walk.fileCount, walk.directoryCount, walk.bytes, walk.directories, walk.files, null));
+        }
+
+        List<OperationPlan.VolumeNeed> volumeNeeds = new ArrayList<>();
+        if (bytesToWrite > 0) {
+            volumeNeeds.add(new OperationPlan.VolumeNeed(destinationVolume, destination, bytesToWrite,
+                    StorageUtils.getAvailableSpace(destination)));
+        }
+        return new OperationPlan(type, destination, destinationVolume, items, volumeNeeds, conflicts,
+                conflictPolicy == TransferEngine.ConflictPolicy.OVERWRITE);
+    }
+
+    private static File resolveTarget(File source, File wanted, boolean conflict,
+                                      TransferEngine.ConflictPolicy conflictPolicy, Set<File> reserved)
+            throws IOException {
+        if (!conflict) {
+            return wanted;
+        }
+        switch (conflictPolicy) {
+            case RENAME:
+                return TransferEngine.uniqueFile(wanted, reserved);
+            case OVERWRITE:
+                if (reserved.contains(wanted)) {
+                    throw new IOException("another selected item is also named " + wanted.getName());
+                }
+                if (source.getCanonicalPath().equals(wanted.getCanonicalPath())) {
+                    throw new IOException("cannot copy onto itself");
+                }
+                if (source.isDirectory() != wanted.isDirectory()) {
+                    throw new IOException("cannot replace " + wanted.getName());
+                }
+                return wanted;
+            default:
+                throw new IOException(wanted.getName() + " already exists");
+        }
+    }
+
+    /**
+     * Count {@code directory}'s tree and, for transfers, collect what to
+     * create under {@code target}, folders before their contents. Returns
+     * why a folder could not be read, or null.
+     */
+    private static String walkDirectory(File directory, File target, Walk walk) {
+        String canonicalPath = null;
+        if (!walk.noFollowLinks) {
+            try {
+                canonicalPath = directory.getCanonicalPath();
+            } catch (IOException e) {
+                return "cannot read folder " + directory.getName();
+            }
+            if (!walk.ancestors.add(canonicalPath)) {
+                return directory.getName() + " links back to a folder that contains it";
+            }
+        }
+        walk.directoryCount++;
+        if (walk.collect) walk.directories.add(target);
+        List<DirectoryEnumerator.Entry> entries = new DirectoryEnumerator(directory)
+                .setNoFollowLinks(walk.noFollowLinks)
+                .list();
+        if (entries == null) {
+            return "cannot read folder " + directory.getName();
+        }
+        String error = null;
+        for (DirectoryEnumerator.Entry entry : entries) {
+            File childTarget = walk.collect ? new File(target, entry.getName()) : null;
+            if (entry.isDirectory()) {
+                String childError = walkDirectory(entry.getFile(), childTarget, walk);
+                if (error == null) error = childError;
+            } else {
+                walk.fileCount++;
+                walk.bytes += entry.getSize();
+                if (walk.collect) {
+                    walk.files.add(new OperationPlan.PlannedFile(entry.getFile(), childTarget, entry.getSize()));
+                }
+            }
+        }
+        if (canonicalPath != null) walk.ancestors.remove(canonicalPath);
+        return error;
+    }
+
+    private static OperationPlan.Item failed(File source, File target, boolean directory, boolean conflict,
+                                             long sourceVolume, String error) {
+        return new OperationPlan.Item(source, target, directory, conflict, false, sourceVolume, 0, 0, 0,
+                Collections.emptyList(), Collections.emptyList(), error);
+    }
+
+    private static boolean isSymbolicLink(File file) {
+        return Files.isSymbolicLink(file.toPath());
+    }
+}
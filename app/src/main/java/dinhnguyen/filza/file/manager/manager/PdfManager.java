@@ -11,7 +11,8 @@ import java.util.List;
 
 import dinhnguyen.filza.file.manager.constants.PdfConstants;
 import dinhnguyen.filza.file.manager.ui.model.PdfPage;
-import dinhnguyen.filza.file.manager.utils.FileTypeUtils;
+import dinhnguyen.filza.file.manager.utils.FileSignatureDetector;
+import dinhnguyen.filza.file.manager.utils.FileTypeRegistry;
 
 public class PdfManager {
     
@@ -43,7 +44,7 @@ public class PdfManager {
             return false;
         }
 
-        if (!FileTypeUtils.isPdfFile(pdfFile)) {
+        if (!FileSignatureDetector.hasCategory(pdfFile, FileTypeRegistry.Category.PDF)) {
             notifyError(PdfConstants.ERROR_INVALID_PDF_FILE);
             return false;
         }
@@ -0,0 +1,350 @@
+package dinhnguyen.filza.file.manager.manager;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import dinhnguyen.filza.file.manager.utils.DirectoryEnumerator;
+
+/**
+ * Copies files and directory trees for every file operation in the app, so
+ * they all share one copy loop and one policy for name conflicts, durability
+ * and cancellation.
+ *
+ * File data is moved with {@link FileChannel#transferTo} in bounded chunks,
+ * since a single call may transfer less than asked. When the kernel makes no
+ * progress between the two files (e.g. across some filesystems), the rest is
+ * copied through large direct buffers that are pooled between copies.
+ * Each file is written under a temporary name next to its target and
+ * renamed once complete, so a file at its final name is always whole, even
+ * after a crash. A cancelled or failed copy never leaves a partial file
+ * behind.
+ */
+public class TransferEngine {
+
+    /** What to do when the target name is already taken */
+    public enum ConflictPolicy {
+        /** Pick a free name: "name (1).ext", "name (2).ext", ... */
+        RENAME,
+        /** Replace files and merge into existing directories */
+        OVERWRITE,
+        /** Leave the existing entry alone and copy nothing */
+        SKIP,
+        /** Fail with an IOException */
+        FAIL
+    }
+
+    /** Called on the copying thread */
+    public interface TransferListener {
+        /** Bytes written since the previous call */
+        void onBytesTransferred(long bytes);
+
+        /** A file was fully written, or a directory created */
+        void onEntryCreated(File destination);
+    }
+
+    private static final long CHUNK_SIZE = 8L * 1024 * 1024;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int POOLED_BUFFERS = 4;
+    private static final String PART_SUFFIX = ".part";
+    private static final int MAX_PART_BASE_LENGTH = 200;
+    private static final BlockingQueue<ByteBuffer> bufferPool = new ArrayBlockingQueue<>(POOLED_BUFFERS);
+
+    private final ConflictPolicy conflictPolicy;
+    private final boolean syncFiles;
+    // Folders holding renames that are not yet durable
+    private final Set<File> unsyncedDirectories = ConcurrentHashMap.newKeySet();
+    private JobControl jobControl;
+    private TransferListener transferListener;
+
+    /**
+     * @param syncFiles flush each file's data to storage before it gets its
+     *                  final name; {@link #syncDirectories} then makes the
+     *                  names themselves survive a crash
+     */
+    public TransferEngine(ConflictPolicy conflictPolicy, boolean syncFiles) {
+        this.conflictPolicy = conflictPolicy;
+        this.syncFiles = syncFiles;
+    }
+
+    /**
+     * Checked between files and between chunks, so a pause takes effect and
+     * a cancel throws {@link android.os.OperationCanceledException} even in
+     * the middle of a large file.
+     */
+    public TransferEngine setJobControl(JobControl jobControl) {
+        this.jobControl = jobControl;
+        return this;
+    }
+
+    public TransferEngine setTransferListener(TransferListener transferListener) {
+        this.transferListener = transferListener;
+        return this;
+    }
+
+    /**
+     * Copy {@code source} into {@code destinationFolder} under its own name.
+     * Returns where it was copied to, or null if it was skipped.
+     */
+    public File copyInto(File source, File destinationFolder) throws IOException {
+        return copy(source, new File(destinationFolder, source.getName()));
+    }
+
+    /**
+     * Copy a file or directory tree to {@code target}, applying the conflict
+     * policy if the name is taken. Returns the actual target, or null if it
+     * was skipped.
+     */
+    public File copy(File source, File target) throws IOException {
+        if (!source.exists()) {
+            throw new IOException(source.getName() + " no longer exists");
+        }
+        if (target.exists()) {
+            switch (conflictPolicy) {
+                case RENAME:
+                    target = uniqueFile(target);
+                    break;
+                case SKIP:
+                    return null;
+                case FAIL:
+                    throw new IOException(target.getName() + " already exists");
+                case OVERWRITE:
+                    if (source.getCanonicalPath().equals(target.getCanonicalPath())) {
+                        throw new IOException("Cannot copy " + source.getName() + " onto itself");
+                    }
+                    if (source.isDirectory() != target.isDirectory()) {
+                        throw new IOException("Cannot replace " + target.getName() + " with a "
+                                + (source.isDirectory() ? "folder" : "file"));
+                    }
+                    break;
+            }
+        }
+
+        if (source.isDirectory()) {
+            if (isSameOrInside(target, source)) {
+                throw new IOException("Cannot copy a folder into itself");
+            }
+            copyDirectory(source, target, new HashSet<>());
+        } else {
+            copyFile(source, target);
+        }
+        return target;
+    }
+
+    /**
+     * {@code target} if it is free, otherwise the first free
+     * "name (n).ext" next to it
+     */
+    public static File uniqueFile(File target) {
+        return uniqueFile(target, Collections.emptySet());
+    }
+
+    /**
+     * Like {@link #uniqueFile(File)}, also treating the names in
+     * {@code taken} as used, e.g. targets already handed out by a plan
+     */
+    public static File uniqueFile(File target, Set<File> taken) {
+        if (!target.exists() && !taken.contains(target)) {
+            return target;
+        }
+        File parent = target.getParentFile();
+        String name = target.getName();
+        String baseName = name;
+        String extension = "";
+
+        int dotIndex = name.lastIndexOf('.');
+        if (dotIndex > 0) {
+            baseName = name.substring(0, dotIndex);
+            extension = name.substring(dotIndex);
+        }
+
+        File candidate = target;
+        int counter = 1;
+        while (candidate.exists() || taken.contains(candidate)) {
+            candidate = new File(parent, baseName + " (" + counter + ")" + extension);
+            counter++;
+        }
+        return candidate;
+    }
+
+    /**
+     * Links are followed, so {@code ancestors} holds the canonical paths of
+     * the folders being copied to stop a link back to one of them
+     */
+    private void copyDirectory(File source, File target, Set<String> ancestors) throws IOException {
+        checkpoint();
+        String canonicalPath = source.getCanonicalPath();
+        if (!ancestors.add(canonicalPath)) {
+            throw new IOException(source.getName() + " links back to a folder that contains it");
+        }
+        if (!target.isDirectory() && !target.mkdirs()) {
+            throw new IOException("Cannot create folder " + target.getName());
+        }
+        notifyEntryCreated(target);
+
+        List<DirectoryEnumerator.Entry> entries = new DirectoryEnumerator(source).list();
+        if (entries == null) {
+            throw new IOException("Cannot read folder " + source.getName());
+        }
+        for (DirectoryEnumerator.Entry entry : entries) {
+            File childTarget = new File(target, entry.getName());
+            if (entry.isDirectory()) {
+                copyDirectory(entry.getFile(), childTarget, ancestors);
+            } else {
+                copyFile(entry.getFile(), childTarget);
+            }
+        }
+        ancestors.remove(canonicalPath);
+    }
+
+    private void copyFile(File source, File target) throws IOException {
+        checkpoint();
+        File part = partFile(target);
+        boolean complete = false;
+        try {
+            try (FileInputStream in = new FileInputStream(source);
+                 FileOutputStream out = new FileOutputStream(part)) {
+                FileChannel inChannel = in.getChannel();
+                FileChannel outChannel = out.getChannel();
+                long size = inChannel.size();
+                long position = 0;
+                while (position < size) {
+                    checkpoint();
+                    long transferred = inChannel.transferTo(position, Math.min(CHUNK_SIZE, size - position), outChannel);
+                    if (transferred <= 0) {
+                        // No progress through the kernel; finish (including any growth) with buffers
+                        copyBuffered(inChannel, outChannel, position);
+                        break;
+                    }
+                    position += transferred;
+                    notifyBytesTransferred(transferred);
+                }
+                if (syncFiles) {
+                    outChannel.force(false);
+                }
+            }
+            // Replaces the target in one step when overwriting
+            Files.move(part.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            if (syncFiles) {
+                unsyncedDirectories.add(target.getParentFile());
+            }
+            complete = true;
+        } finally {
+            if (!complete) {
+                part.delete();
+            }
+        }
+        notifyEntryCreated(target);
+    }
+
+    /**
+     * Where a file is written before it is renamed to {@code target}: a
+     * hidden name in the same folder, so the rename never crosses volumes
+     */
+    public static File partFile(File target) {
+        String name = target.getName();
+        if (name.length() > MAX_PART_BASE_LENGTH) {
+            // Keep within the file system's name limit
+            name = Integer.toHexString(name.hashCode());
+        }
+        return new File(target.getParentFile(), "." + name + PART_SUFFIX);
+    }
+
+    /** Whether {@code name} has the form of a {@link #partFile(File)} name */
+    public static boolean isPartFile(String name) {
+        return name.startsWith(".") && name.endsWith(PART_SUFFIX);
+    }
+
+    /**
+     * Make the renames done so far durable with one sync per folder they
+     * were done in, rather than one per file. Call this before anything
+     * relies on a copied file surviving a crash, such as deleting its
+     * source. Safe to call from any thread.
+     */
+    public void syncDirectories() {
+        for (File directory : unsyncedDirectories) {
+            // Removed first, so a rename that lands after this sync is synced later
+            if (unsyncedDirectories.remove(directory)) {
+                syncDirectory(directory);
+            }
+        }
+    }
+
+    /** Make the entries created and renamed in {@code directory} durable */
+    static void syncDirectory(File directory) {
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Some file systems cannot sync a folder; the data itself is already on storage
+        }
+    }
+
+    private void copyBuffered(FileChannel inChannel, FileChannel outChannel, long position) throws IOException {
+        ByteBuffer buffer = acquireBuffer();
+        try {
+            int read;
+            while ((read = inChannel.read(buffer, position)) >= 0) {
+                checkpoint();
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    outChannel.write(buffer);
+                }
+                buffer.clear();
+                position += read;
+                notifyBytesTransferred(read);
+            }
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+
+    private static ByteBuffer acquireBuffer() {
+        ByteBuffer buffer = bufferPool.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    private static void releaseBuffer(ByteBuffer buffer) {
+        bufferPool.offer(buffer);
+    }
+
+    static boolean isSameOrInside(File file, File directory) throws IOException {
+        String path = file.getCanonicalPath();
+        String directoryPath = directory.getCanonicalPath();
+        return path.equals(directoryPath) || path.startsWith(directoryPath + File.separator);
+    }
+
+    private void checkpoint() {
+        if (jobControl != null) {
+            jobControl.checkpoint();
+        }
+    }
+
+    private void notifyBytesTransferred(long bytes) {
+        if (transferListener != null) {
+            transferListener.onBytesTransferred(bytes);
+        }
+    }
+
+    private void notifyEntryCreated(File destination) {
+        if (transferListener != null) {
+            transferListener.onEntryCreated(destination);
+        }
+    }
+}
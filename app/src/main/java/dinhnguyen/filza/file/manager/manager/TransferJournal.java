@@ -0,0 +1,479 @@
+package dinhnguyen.filza.file.manager.manager;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import dinhnguyen.filza.file.manager.database.TransferJournalDbHelper;
+import dinhnguyen.filza.file.manager.model.OperationPlan;
+import dinhnguyen.filza.file.manager.utils.StorageUtils;
+
+/**
+ * Write-ahead journal for copy and move jobs. Before a job writes anything,
+ * its plan, down to every folder and file with its resolved target, is
+ * stored in one transaction. Files are marked done as they complete, and
+ * the job's rows are deleted when it ends, however it ends. A job whose
+ * process was killed therefore leaves its journal behind, and
+ * {@link #recover} turns that into a plan for the work that is left.
+ *
+ * Marks are written in batches, so a crash can lose the last few. Recovery
+ * does not depend on them: {@link TransferEngine} only gives a file its final
+ * name once it is complete, so a target with the journaled size is taken as
+ * done. Only an overwriting job, whose targets may predate it, needs the
+ * mark as well.
+ */
+public class TransferJournal {
+
+    /** Called on the main thread */
+    public interface InterruptedCallback {
+        void onLoaded(List<Entry> entries);
+    }
+
+    /** A journaled job that is not running in this process */
+    public static final class Entry {
+        private final long id;
+        private final OperationPlan.Type type;
+        private final String title;
+        private final File destination;
+        private final long started;
+        private final int fileCount;
+        private final int filesDone;
+
+        Entry(long id, OperationPlan.Type type, String title, File destination, long started,
+              int fileCount, int filesDone) {
+            this.id = id;
+            this.type = type;
+            this.title = title;
+            this.destination = destination;
+            this.started = started;
+            this.fileCount = fileCount;
+            this.filesDone = filesDone;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public OperationPlan.Type getType() {
+            return type;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public File getDestination() {
+            return destination;
+        }
+
+        /** When the job started, in milliseconds since the epoch */
+        public long getStarted() {
+            return started;
+        }
+
+        /** Files the job transfers; renamed items are not counted */
+        public int getFileCount() {
+            return fileCount;
+        }
+
+        /** Files marked done; a few more may turn out complete on recovery */
+        public int getFilesDone() {
+            return filesDone;
+        }
+    }
+
+    /** The journal of one running job. Marks may come from any thread. */
+    public final class Session {
+        private final long id;
+        private final List<String> pending = new ArrayList<>();
+        private long lastFlush = SystemClock.elapsedRealtime();
+
+        private Session(long id) {
+            this.id = id;
+            openJobs.add(id);
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        /** {@code target} is complete at its final name */
+        public void markDone(File target) {
+            synchronized (pending) {
+                pending.add(target.getPath());
+                if (pending.size() >= FLUSH_BATCH_SIZE
+                        || SystemClock.elapsedRealtime() - lastFlush >= FLUSH_INTERVAL_MS) {
+                    flush();
+                }
+            }
+        }
+
+        /** The job ended, whether finished, failed or cancelled; nothing is left to resume */
+        public void finish() {
+            synchronized (pending) {
+                pending.clear();
+            }
+            delete(id);
+            openJobs.remove(id);
+        }
+
+        /** Stop without ending the job, which stays interrupted and can be resumed later */
+        public void close() {
+            synchronized (pending) {
+                flush();
+            }
+            openJobs.remove(id);
+        }
+
+        private void flush() {
+            syncParents(pending);
+            markTargetsDone(id, pending);
+            pending.clear();
+            lastFlush = SystemClock.elapsedRealtime();
+        }
+    }
+
+    private static final class RecoveredItem {
+        final File source;
+        final File target;
+        final boolean directory;
+        final boolean rename;
+        final int fileCount;
+        final long bytes;
+        final List<File> directories = new ArrayList<>();
+        final List<OperationPlan.PlannedFile> files = new ArrayList<>();
+        long bytesLeft;
+
+        RecoveredItem(File source, File target, boolean directory, boolean rename, int fileCount, long bytes) {
+            this.source = source;
+            this.target = target;
+            this.directory = directory;
+            this.rename = rename;
+            this.fileCount = fileCount;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final int FLUSH_BATCH_SIZE = 256;
+    private static final long FLUSH_INTERVAL_MS = 1000;
+
+    private static volatile TransferJournal instance;
+
+    private final TransferJournalDbHelper dbHelper;
+    private final Set<Long> openJobs = Collections.synchronizedSet(new HashSet<>());
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TransferJournal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private TransferJournal(Context context) {
+        this.dbHelper = TransferJournalDbHelper.getInstance(context);
+    }
+
+    public static TransferJournal getInstance(Context context) {
+        if (instance == null) {
+            synchronized (TransferJournal.class) {
+                if (instance == null) {
+                    instance = new TransferJournal(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Journal a copy or move plan; call on the job thread before any of it
+     * is carried out. Items the plan could not place are left out.
+     */
+    public Session begin(OperationPlan plan, String title) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        long id;
+        db.beginTransaction();
+        try (SQLiteStatement insertJob = db.compileStatement("INSERT INTO " + TransferJournalDbHelper.TABLE_JOBS + " ("
+                + TransferJournalDbHelper.COLUMN_TYPE + ", " + TransferJournalDbHelper.COLUMN_TITLE + ", "
+                + TransferJournalDbHelper.COLUMN_DESTINATION + ", " + TransferJournalDbHelper.COLUMN_OVERWRITE + ", "
+                + TransferJournalDbHelper.COLUMN_STARTED + ") VALUES (?, ?, ?, ?, ?)");
+             SQLiteStatement insertItem = db.compileStatement("INSERT INTO " + TransferJournalDbHelper.TABLE_ITEMS + " ("
+                + TransferJournalDbHelper.COLUMN_JOB_ID + ", " + TransferJournalDbHelper.COLUMN_ITEM + ", "
+                + TransferJournalDbHelper.COLUMN_SOURCE + ", " + TransferJournalDbHelper.COLUMN_TARGET + ", "
+                + TransferJournalDbHelper.COLUMN_IS_DIR + ", " + TransferJournalDbHelper.COLUMN_RENAME + ", "
+                + TransferJournalDbHelper.COLUMN_FILE_COUNT + ", " + TransferJournalDbHelper.COLUMN_BYTES
+                + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+             SQLiteStatement insertFile = db.compileStatement("INSERT INTO " + TransferJournalDbHelper.TABLE_FILES + " ("
+                + TransferJournalDbHelper.COLUMN_JOB_ID + ", " + TransferJournalDbHelper.COLUMN_ITEM + ", "
+                + TransferJournalDbHelper.COLUMN_SOURCE + ", " + TransferJournalDbHelper.COLUMN_TARGET + ", "
+                + TransferJournalDbHelper.COLUMN_IS_DIR + ", " + TransferJournalDbHelper.COLUMN_SIZE + ", "
+                + TransferJournalDbHelper.COLUMN_DONE + ") VALUES (?, ?, ?, ?, ?, ?, 0)")) {
+            insertJob.bindString(1, plan.getType().name());
+            insertJob.bindString(2, title);
+            insertJob.bindString(3, plan.getDestination().getPath());
+            insertJob.bindLong(4, plan.isOverwrite() ? 1 : 0);
+            insertJob.bindLong(5, System.currentTimeMillis());
+            id = insertJob.executeInsert();
+
+            List<OperationPlan.Item> items = plan.getItems();
+            for (int index = 0; index < items.size(); index++) {
+                OperationPlan.Item item = items.get(index);
+                if (item.getError() != null) continue;
+                insertItem.bindLong(1, id);
+                insertItem.bindLong(2, index);
+                insertItem.bindString(3, item.getSource().getPath());
+                insertItem.bindString(4, item.getTarget().getPath());
+                insertItem.bindLong(5, item.isDirectory() ? 1 : 0);
+                insertItem.bindLong(6, item.canRename() ? 1 : 0);
+                insertItem.bindLong(7, item.getFileCount());
+                insertItem.bindLong(8, item.getBytes());
+                insertItem.executeInsert();
+
+                for (File directory : item.getDirectories()) {
+                    insertFile.bindLong(1, id);
+                    insertFile.bindLong(2, index);
+                    insertFile.bindNull(3);
+                    insertFile.bindString(4, directory.getPath());
+                    insertFile.bindLong(5, 1);
+                    insertFile.bindLong(6, 0);
+                    insertFile.executeInsert();
+                }
+                for (OperationPlan.PlannedFile file : item.getFiles()) {
+                    insertFile.bindLong(1, id);
+                    insertFile.bindLong(2, index);
+                    insertFile.bindString(3, file.getSource().getPath());
+                    insertFile.bindString(4, file.getTarget().getPath());
+                    insertFile.bindLong(5, 0);
+                    insertFile.bindLong(6, file.getSize());
+                    insertFile.executeInsert();
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return new Session(id);
+    }
+
+    /** Take over an interrupted job's journal for the job resuming it */
+    public Session reopen(long id) {
+        return new Session(id);
+    }
+
+    /** Find interrupted jobs off the main thread */
+    public void loadInterrupted(InterruptedCallback callback) {
+        executor.execute(() -> {
+            List<Entry> entries = findInterrupted();
+            mainHandler.post(() -> callback.onLoaded(entries));
+        });
+    }
+
+    /** Journaled jobs not running in this process, oldest first */
+    public List<Entry> findInterrupted() {
+        List<Entry> entries = new ArrayList<>();
+        String sql = "SELECT j." + TransferJournalDbHelper.COLUMN_ID
+                + ", j." + TransferJournalDbHelper.COLUMN_TYPE
+                + ", j." + TransferJournalDbHelper.COLUMN_TITLE
+                + ", j." + TransferJournalDbHelper.COLUMN_DESTINATION
+                + ", j." + TransferJournalDbHelper.COLUMN_STARTED
+                + ", COUNT(f." + TransferJournalDbHelper.COLUMN_DONE + ")"
+                + ", IFNULL(SUM(f." + TransferJournalDbHelper.COLUMN_DONE + "), 0)"
+                + " FROM " + TransferJournalDbHelper.TABLE_JOBS + " j LEFT JOIN " + TransferJournalDbHelper.TABLE_FILES
+                + " f ON f." + TransferJournalDbHelper.COLUMN_JOB_ID + " = j." + TransferJournalDbHelper.COLUMN_ID
+                + " AND f." + TransferJournalDbHelper.COLUMN_IS_DIR + " = 0"
+                + " GROUP BY j." + TransferJournalDbHelper.COLUMN_ID
+                + " ORDER BY j." + TransferJournalDbHelper.COLUMN_ID;
+        try (Cursor cursor = dbHelper.getReadableDatabase().rawQuery(sql, null)) {
+            while (cursor.moveToNext()) {
+                long id = cursor.getLong(0);
+                if (openJobs.contains(id)) continue;
+                entries.add(new Entry(id, OperationPlan.Type.valueOf(cursor.getString(1)), cursor.getString(2),
+                        new File(cursor.getString(3)), cursor.getLong(4), cursor.getInt(5), cursor.getInt(6)));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Plan what is left of an interrupted job; call on the job thread, after
+     * {@link #reopen}. Targets found complete are marked done and skipped,
+     * leftover partial files are removed, and for a move the sources of
+     * files already copied are deleted. Fully moved items drop out of the
+     * plan. Returns null if the journal is gone.
+     */
+    public OperationPlan recover(long id) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        String[] args = {String.valueOf(id)};
+        OperationPlan.Type type;
+        File destination;
+        boolean overwrite;
+        try (Cursor cursor = db.query(TransferJournalDbHelper.TABLE_JOBS, new String[]{
+                        TransferJournalDbHelper.COLUMN_TYPE, TransferJournalDbHelper.COLUMN_DESTINATION,
+                        TransferJournalDbHelper.COLUMN_OVERWRITE},
+                TransferJournalDbHelper.COLUMN_ID + " = ?", args, null, null, null)) {
+            if (!cursor.moveToFirst()) return null;
+            type = OperationPlan.Type.valueOf(cursor.getString(0));
+            destination = new File(cursor.getString(1));
+            overwrite = cursor.getInt(2) != 0;
+        }
+
+        Map<Integer, RecoveredItem> recovered = new LinkedHashMap<>();
+        try (Cursor cursor = db.query(TransferJournalDbHelper.TABLE_ITEMS, new String[]{
+                        TransferJournalDbHelper.COLUMN_ITEM, TransferJournalDbHelper.COLUMN_SOURCE,
+                        TransferJournalDbHelper.COLUMN_TARGET, TransferJournalDbHelper.COLUMN_IS_DIR,
+                        TransferJournalDbHelper.COLUMN_RENAME, TransferJournalDbHelper.COLUMN_FILE_COUNT,
+                        TransferJournalDbHelper.COLUMN_BYTES},
+                TransferJournalDbHelper.COLUMN_JOB_ID + " = ?", args, null, null,
+                TransferJournalDbHelper.COLUMN_ITEM)) {
+            while (cursor.moveToNext()) {
+                recovered.put(cursor.getInt(0), new RecoveredItem(new File(cursor.getString(1)),
+                        new File(cursor.getString(2)), cursor.getInt(3) != 0, cursor.getInt(4) != 0,
+                        cursor.getInt(5), cursor.getLong(6)));
+            }
+        }
+
+        List<String> verified = new ArrayList<>();
+        // Plan order, which puts folders before their contents
+        try (Cursor cursor = db.query(TransferJournalDbHelper.TABLE_FILES, new String[]{
+                        TransferJournalDbHelper.COLUMN_ITEM, TransferJournalDbHelper.COLUMN_SOURCE,
+                        TransferJournalDbHelper.COLUMN_TARGET, TransferJournalDbHelper.COLUMN_IS_DIR,
+                        TransferJournalDbHelper.COLUMN_SIZE, TransferJournalDbHelper.COLUMN_DONE},
+                TransferJournalDbHelper.COLUMN_JOB_ID + " = ?", args, null, null, "rowid")) {
+            while (cursor.moveToNext()) {
+                RecoveredItem item = recovered.get(cursor.getInt(0));
+                if (item == null) continue;
+                File target = new File(cursor.getString(2));
+                if (cursor.getInt(3) != 0) {
+                    item.directories.add(target);
+                    continue;
+                }
+                File source = new File(cursor.getString(1));
+                long size = cursor.getLong(4);
+                boolean done = cursor.getInt(5) != 0;
+                boolean complete = (done || !overwrite) && target.isFile() && target.length() == size;
+                if (complete) {
+                    if (!done) verified.add(target.getPath());
+                    if (type == OperationPlan.Type.MOVE && source.isFile() && source.length() == size) {
+                        // Copied and checked before the crash; only deleting the source was left
+                        source.delete();
+                    }
+                } else {
+                    TransferEngine.partFile(target).delete();
+                    item.files.add(new OperationPlan.PlannedFile(source, target, size));
+                    item.bytesLeft += size;
+                }
+            }
+        }
+        markTargetsDone(id, verified);
+
+        List<OperationPlan.Item> items = new ArrayList<>();
+        long bytesToWrite = 0;
+        for (RecoveredItem item : recovered.values()) {
+            boolean sourceLeft = item.source.exists() || Files.isSymbolicLink(item.source.toPath());
+            long sourceVolume = StorageUtils.getVolumeId(item.source);
+            if (type == OperationPlan.Type.MOVE && !sourceLeft) {
+                // Renamed, or streamed down to its last file
+                continue;
+            }
+            if (item.rename) {
+                items.add(new OperationPlan.Item(item.source, item.target, item.directory, false, true,
+                        sourceVolume, item.fileCount, 0, item.bytes,
+                        Collections.emptyList(), Collections.emptyList(), null));
+            } else {
+                bytesToWrite += item.bytesLeft;
+                items.add(new OperationPlan.Item(item.source, item.target, item.directory, false, false,
+                        sourceVolume, item.files.size(), item.directories.size(), item.bytesLeft,
+                        item.directories, item.files, null));
+            }
+        }
+
+        List<OperationPlan.VolumeNeed> volumeNeeds = new ArrayList<>();
+        long destinationVolume = StorageUtils.getVolumeId(destination);
+        if (bytesToWrite > 0) {
+            volumeNeeds.add(new OperationPlan.VolumeNeed(destinationVolume, destination, bytesToWrite,
+                    StorageUtils.getAvailableSpace(destination)));
+        }
+        return new OperationPlan(type, destination, destinationVolume, items, volumeNeeds,
+                Collections.emptyList(), overwrite);
+    }
+
+    /**
+     * Give up on an interrupted job: its partial files are removed and it is
+     * no longer offered. Whatever it already copied or moved stays where it is.
+     */
+    public void discard(long id) {
+        executor.execute(() -> {
+            try (Cursor cursor = dbHelper.getReadableDatabase().query(TransferJournalDbHelper.TABLE_FILES,
+                    new String[]{TransferJournalDbHelper.COLUMN_TARGET},
+                    TransferJournalDbHelper.COLUMN_JOB_ID + " = ? AND " + TransferJournalDbHelper.COLUMN_IS_DIR
+                            + " = 0 AND " + TransferJournalDbHelper.COLUMN_DONE + " = 0",
+                    new String[]{String.valueOf(id)}, null, null, null)) {
+                while (cursor.moveToNext()) {
+                    TransferEngine.partFile(new File(cursor.getString(0))).delete();
+                }
+            }
+            delete(id);
+        });
+    }
+
+    /**
+     * A mark must not outlive a crash that loses the rename it records:
+     * recovery could not tell an overwritten target from the old one
+     */
+    private static void syncParents(List<String> targets) {
+        Set<File> parents = new HashSet<>();
+        for (String target : targets) {
+            File parent = new File(target).getParentFile();
+            if (parent != null && parents.add(parent)) {
+                TransferEngine.syncDirectory(parent);
+            }
+        }
+    }
+
+    private void markTargetsDone(long id, List<String> targets) {
+        if (targets.isEmpty()) return;
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try (SQLiteStatement markDone = db.compileStatement("UPDATE " + TransferJournalDbHelper.TABLE_FILES
+                + " SET " + TransferJournalDbHelper.COLUMN_DONE + " = 1 WHERE "
+                + TransferJournalDbHelper.COLUMN_JOB_ID + " = ? AND "
+                + TransferJournalDbHelper.COLUMN_TARGET + " = ?")) {
+            for (String target : targets) {
+                markDone.bindLong(1, id);
+                markDone.bindString(2, target);
+                markDone.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private void delete(long id) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        String[] args = {String.valueOf(id)};
+        db.beginTransaction();
+        try {
+            db.delete(TransferJournalDbHelper.TABLE_FILES, TransferJournalDbHelper.COLUMN_JOB_ID + " = ?", args);
+            db.delete(TransferJournalDbHelper.TABLE_ITEMS, TransferJournalDbHelper.COLUMN_JOB_ID + " = ?", args);
+            db.delete(TransferJournalDbHelper.TABLE_JOBS, TransferJournalDbHelper.COLUMN_ID + " = ?", args);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+}
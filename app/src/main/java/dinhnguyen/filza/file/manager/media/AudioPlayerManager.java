@@ -7,7 +7,8 @@ import android.widget.Toast;
 import java.io.File;
 
 import dinhnguyen.filza.file.manager.constants.AudioConstants;
-import dinhnguyen.filza.file.manager.utils.AudioFileValidator;
+import dinhnguyen.filza.file.manager.utils.FileSignatureDetector;
+import dinhnguyen.filza.file.manager.utils.FileTypeRegistry;
 
 public class AudioPlayerManager {
     
@@ -43,7 +44,7 @@ public class AudioPlayerManager {
             return false;
         }
 
-        if (!AudioFileValidator.isValidAudioFile(audioFile)) {
+        if (!FileSignatureDetector.hasCategory(audioFile, FileTypeRegistry.Category.AUDIO)) {
             notifyError(AudioConstants.ERROR_INVALID_AUDIO_FILE);
             return false;
         }
@@ -0,0 +1,351 @@
+package dinhnguyen.filza.file.manager.media;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.pdf.PdfRenderer;
+import android.media.ThumbnailUtils;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.os.Process;
+import android.util.LruCache;
+import android.util.Size;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import dinhnguyen.filza.file.manager.model.FileEntry;
+import dinhnguyen.filza.file.manager.utils.FileTypeRegistry;
+
+/**
+ * Asynchronous thumbnail engine for images, videos and PDFs.
+ * Thumbnails are kept in a byte-bounded memory LRU and persisted to a disk
+ * LRU keyed by path, size and mtime, so revisiting a folder decodes nothing.
+ * The newest request runs first, which favours rows that just became visible,
+ * and requests for recycled rows can be cancelled before or during decoding.
+ */
+public class ThumbnailLoader {
+
+    public interface Callback {
+        void onThumbnailLoaded(Bitmap bitmap);
+    }
+
+    private static final String DISK_CACHE_DIR = "thumbnails";
+    private static final long DISK_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+    private static final int DISK_TRIM_INTERVAL = 64;
+    private static final int THREAD_COUNT = 2;
+
+    private static volatile ThumbnailLoader instance;
+
+    private final File diskCacheDir;
+    private final LruCache<Key, Bitmap> memoryCache;
+    // Reused for main-thread lookups only; a get never stores its key
+    private final Key lookupKey = new Key();
+    private final ThreadPoolExecutor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicLong requestSequence = new AtomicLong();
+    private final AtomicInteger diskWrites = new AtomicInteger();
+
+    private ThumbnailLoader(Context context) {
+        diskCacheDir = new File(context.getCacheDir(), DISK_CACHE_DIR);
+        diskCacheDir.mkdirs();
+
+        int maxBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 8, Integer.MAX_VALUE);
+        memoryCache = new LruCache<Key, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Key key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+        };
+
+        // Newest request first: rows bound last are the ones on screen
+        executor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(64, Comparator.comparingLong(r -> -((Request) r).sequence)),
+                runnable -> {
+                    Thread thread = new Thread(() -> {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }, "ThumbnailLoader");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public static ThumbnailLoader getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ThumbnailLoader.class) {
+                if (instance == null) {
+                    instance = new ThumbnailLoader(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Check whether a thumbnail can be produced for this entry
+     */
+    public static boolean supports(FileEntry entry) {
+        if (entry.isDirectory()) return false;
+        FileTypeRegistry.Category category = entry.getType().getCategory();
+        return category == FileTypeRegistry.Category.IMAGE
+                || category == FileTypeRegistry.Category.VIDEO
+                || category == FileTypeRegistry.Category.PDF;
+    }
+
+    /**
+     * Get a thumbnail from the memory cache without blocking, or null.
+     * Called on the main thread for every bind, so it allocates nothing.
+     */
+    public Bitmap getCached(FileEntry entry, int sizePx) {
+        return memoryCache.get(lookupKey.set(entry, sizePx));
+    }
+
+    /**
+     * Load a thumbnail in the background. The callback runs on the main thread
+     * and is never invoked once the returned request has been cancelled.
+     */
+    public Request load(FileEntry entry, int sizePx, Callback callback) {
+        Request request = new Request(entry, sizePx, callback, requestSequence.incrementAndGet());
+        executor.execute(request);
+        return request;
+    }
+
+    private Bitmap loadThumbnail(Request request) {
+        Key key = new Key().set(request.entry, request.sizePx);
+        Bitmap bitmap = memoryCache.get(key);
+        if (bitmap != null) {
+            return bitmap;
+        }
+
+        File diskFile = new File(diskCacheDir, diskFileName(key));
+        bitmap = BitmapFactory.decodeFile(diskFile.getPath());
+        if (bitmap != null) {
+            // Trimming drops the least recently used thumbnails first
+            diskFile.setLastModified(System.currentTimeMillis());
+        } else if (!request.signal.isCanceled()) {
+            bitmap = createThumbnail(request);
+            if (bitmap != null) {
+                writeToDisk(diskFile, bitmap);
+            }
+        }
+
+        if (bitmap != null) {
+            memoryCache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    private Bitmap createThumbnail(Request request) {
+        File file = request.entry.getFile();
+        try {
+            switch (request.entry.getType().getCategory()) {
+                case IMAGE:
+                    return decodeSampledImage(file, request.sizePx);
+                case VIDEO:
+                    return ThumbnailUtils.createVideoThumbnail(file,
+                            new Size(request.sizePx, request.sizePx), request.signal);
+                case PDF:
+                    return renderFirstPdfPage(file, request.sizePx);
+                default:
+                    return null;
+            }
+        } catch (IOException | RuntimeException e) {
+            // Unreadable or corrupt files keep their generic icon
+            return null;
+        }
+    }
+
+    private Bitmap decodeSampledImage(File file, int sizePx) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        // Largest power of two that keeps both sides at or above the target size
+        int inSampleSize = 1;
+        while (options.outWidth / (inSampleSize * 2) >= sizePx
+                && options.outHeight / (inSampleSize * 2) >= sizePx) {
+            inSampleSize *= 2;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = inSampleSize;
+        Bitmap decoded = BitmapFactory.decodeFile(file.getPath(), options);
+        if (decoded == null) {
+            return null;
+        }
+        Bitmap thumbnail = ThumbnailUtils.extractThumbnail(decoded, sizePx, sizePx);
+        if (thumbnail != decoded) {
+            decoded.recycle();
+        }
+        return thumbnail;
+    }
+
+    private Bitmap renderFirstPdfPage(File file, int sizePx) throws IOException {
+        try (ParcelFileDescriptor descriptor = ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+             PdfRenderer renderer = new PdfRenderer(descriptor)) {
+            if (renderer.getPageCount() == 0) {
+                return null;
+            }
+            try (PdfRenderer.Page page = renderer.openPage(0)) {
+                float scale = (float) sizePx / Math.max(page.getWidth(), page.getHeight());
+                int width = Math.max(1, Math.round(page.getWidth() * scale));
+                int height = Math.max(1, Math.round(page.getHeight() * scale));
+
+                Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                bitmap.eraseColor(Color.WHITE);
+                Matrix matrix = new Matrix();
+                matrix.setScale(scale, scale);
+                page.render(bitmap, null, matrix, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+                return bitmap;
+            }
+        }
+    }
+
+    private void writeToDisk(File diskFile, Bitmap bitmap) {
+        File tempFile = new File(diskCacheDir, diskFile.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            bitmap.compress(Bitmap.CompressFormat.WEBP_LOSSY, 80, out);
+        } catch (IOException e) {
+            tempFile.delete();
+            return;
+        }
+        if (!tempFile.renameTo(diskFile)) {
+            tempFile.delete();
+        }
+        if (diskWrites.incrementAndGet() % DISK_TRIM_INTERVAL == 0) {
+            trimDiskCache();
+        }
+    }
+
+    /**
+     * Delete the least recently used thumbnails until the disk cache fits its
+     * budget. Disk hits refresh a file's mtime, so it orders by last use.
+     */
+    private void trimDiskCache() {
+        File[] files = diskCacheDir.listFiles();
+        if (files == null) return;
+
+        // Stat each file once, not on every comparison
+        long[][] stats = new long[files.length][];
+        long total = 0;
+        for (int i = 0; i < files.length; i++) {
+            long length = files[i].length();
+            stats[i] = new long[]{files[i].lastModified(), length, i};
+            total += length;
+        }
+        if (total <= DISK_CACHE_MAX_BYTES) return;
+
+        Arrays.sort(stats, Comparator.comparingLong(stat -> stat[0]));
+        for (long[] stat : stats) {
+            if (total <= DISK_CACHE_MAX_BYTES) break;
+            if (files[(int) stat[2]].delete()) {
+                total -= stat[1];
+            }
+        }
+    }
+
+    /** Hashed on the worker; only the disk cache needs a file-system safe name. */
+    private static String diskFileName(Key key) {
+        String source = key.path + '|' + key.size + '|' + key.lastModified + '|' + key.sizePx;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(source.hashCode()) + '_' + source.length();
+        }
+    }
+
+    /**
+     * Memory cache key: the file's version and the thumbnail size
+     */
+    private static final class Key {
+        String path;
+        long size;
+        long lastModified;
+        int sizePx;
+
+        Key set(FileEntry entry, int sizePx) {
+            this.path = entry.getPath();
+            this.size = entry.getSize();
+            this.lastModified = entry.getLastModified();
+            this.sizePx = sizePx;
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return size == other.size && lastModified == other.lastModified && sizePx == other.sizePx
+                    && path.equals(other.path);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = path.hashCode();
+            result = 31 * result + Long.hashCode(size);
+            result = 31 * result + Long.hashCode(lastModified);
+            return 31 * result + sizePx;
+        }
+    }
+
+    /**
+     * A pending thumbnail load. Cancelling drops it from the queue, stops video
+     * frame extraction in progress and suppresses the callback.
+     */
+    public final class Request implements Runnable {
+        private final FileEntry entry;
+        private final int sizePx;
+        private final Callback callback;
+        private final long sequence;
+        private final CancellationSignal signal = new CancellationSignal();
+
+        private Request(FileEntry entry, int sizePx, Callback callback, long sequence) {
+            this.entry = entry;
+            this.sizePx = sizePx;
+            this.callback = callback;
+            this.sequence = sequence;
+        }
+
+        public void cancel() {
+            signal.cancel();
+            executor.remove(this);
+        }
+
+        @Override
+        public void run() {
+            if (signal.isCanceled()) return;
+            Bitmap bitmap = loadThumbnail(this);
+            if (bitmap == null || signal.isCanceled()) return;
+            mainHandler.post(() -> {
+                if (!signal.isCanceled()) {
+                    callback.onThumbnailLoaded(bitmap);
+                }
+            });
+        }
+    }
+}
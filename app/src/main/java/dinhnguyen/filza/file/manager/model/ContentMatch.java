@@ -0,0 +1,40 @@
+package dinhnguyen.filza.file.manager.model;
+
+import java.io.File;
+
+/**
+ * One occurrence of a search pattern inside a file
+ */
+public final class ContentMatch {
+
+    private final File file;
+    private final int lineNumber;
+    private final int column;
+    private final String lineText;
+
+    public ContentMatch(File file, int lineNumber, int column, String lineText) {
+        this.file = file;
+        this.lineNumber = lineNumber;
+        this.column = column;
+        this.lineText = lineText;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /** 1-based line number. */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /** 1-based column, in characters. */
+    public int getColumn() {
+        return column;
+    }
+
+    /** The matching line, trimmed to a preview length. */
+    public String getLineText() {
+        return lineText;
+    }
+}
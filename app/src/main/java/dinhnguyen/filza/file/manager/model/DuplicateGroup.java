@@ -0,0 +1,40 @@
+package dinhnguyen.filza.file.manager.model;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Files whose contents are byte-for-byte identical, oldest first
+ */
+public final class DuplicateGroup {
+
+    private final long size;
+    private final String hash;
+    private final List<File> files;
+
+    public DuplicateGroup(long size, String hash, List<File> files) {
+        this.size = size;
+        this.hash = hash;
+        this.files = Collections.unmodifiableList(files);
+    }
+
+    /** Size of each copy in bytes. */
+    public long getSize() {
+        return size;
+    }
+
+    /** Hex content hash shared by every file in the group. */
+    public String getHash() {
+        return hash;
+    }
+
+    public List<File> getFiles() {
+        return files;
+    }
+
+    /** Bytes freed by keeping a single copy. */
+    public long getWastedBytes() {
+        return size * (files.size() - 1);
+    }
+}
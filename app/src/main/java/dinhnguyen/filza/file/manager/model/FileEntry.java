@@ -0,0 +1,209 @@
+package dinhnguyen.filza.file.manager.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.Locale;
+
+import dinhnguyen.filza.file.manager.utils.DirectoryEnumerator;
+import dinhnguyen.filza.file.manager.utils.FileDisplayFormatter;
+import dinhnguyen.filza.file.manager.utils.FileIconManager;
+import dinhnguyen.filza.file.manager.utils.FileSignatureDetector;
+import dinhnguyen.filza.file.manager.utils.FileTypeRegistry;
+
+/**
+ * Immutable snapshot of a file's metadata, captured with a single stat call.
+ * Browser code sorts and binds against these values instead of querying
+ * {@link File} repeatedly. Display strings and the icon resource are computed
+ * once at load time, off the main thread, so binding a row allocates nothing.
+ * Listing never opens a file: a type with an unknown extension comes from an
+ * earlier content probe if there was one, otherwise {@link #resolveType()}
+ * probes it later.
+ * Two entries are equal when they refer to the same path.
+ */
+public final class FileEntry {
+
+    /** Directories first, then case-insensitive name. */
+    public static final Comparator<FileEntry> BY_NAME = (e1, e2) -> {
+        int byType = compareDirectoriesFirst(e1, e2);
+        return byType != 0 ? byType : e1.sortKey.compareTo(e2.sortKey);
+    };
+
+    /** Directories first, then newest first. */
+    public static final Comparator<FileEntry> BY_DATE = (e1, e2) -> {
+        int byType = compareDirectoriesFirst(e1, e2);
+        return byType != 0 ? byType : Long.compare(e2.lastModified, e1.lastModified);
+    };
+
+    /** Directories first, then largest first. */
+    public static final Comparator<FileEntry> BY_SIZE = (e1, e2) -> {
+        int byType = compareDirectoriesFirst(e1, e2);
+        return byType != 0 ? byType : Long.compare(e2.size, e1.size);
+    };
+
+    private final File file;
+    private final String name;
+    private final String sortKey;
+    private final boolean isDirectory;
+    private final boolean isHidden;
+    private final long size;
+    private final long lastModified;
+    private final String infoText;
+    private final String dateText;
+    private final String shortDateText;
+    // Only refined once, by resolveType()
+    private volatile FileTypeRegistry.FileType type;
+    private volatile int iconRes;
+    private volatile boolean probed;
+
+    private FileEntry(File file, boolean isDirectory, long size, long lastModified) {
+        this.file = file;
+        this.name = file.getName();
+        this.sortKey = name.toLowerCase(Locale.ROOT);
+        this.isDirectory = isDirectory;
+        this.isHidden = name.startsWith(".");
+        this.size = isDirectory ? 0 : size;
+        this.lastModified = lastModified;
+        this.infoText = isDirectory ? "Folder" : FileDisplayFormatter.formatSize(size);
+        this.dateText = FileDisplayFormatter.formatFullDate(lastModified);
+        this.shortDateText = FileDisplayFormatter.formatShortDate(lastModified);
+        FileTypeRegistry.FileType type = isDirectory ? FileTypeRegistry.UNKNOWN : FileTypeRegistry.getType(name);
+        if (type == FileTypeRegistry.UNKNOWN && !isDirectory) {
+            FileTypeRegistry.FileType sniffed = FileSignatureDetector.getCachedType(file, this.size, lastModified);
+            if (sniffed != null) {
+                type = sniffed;
+                probed = true;
+            }
+        }
+        this.type = type;
+        this.iconRes = FileIconManager.getIconRes(type, isDirectory);
+    }
+
+    /**
+     * Stat the file once and capture its metadata. Entries that cannot be
+     * read (e.g. broken symlinks) are kept as empty regular files.
+     */
+    public static FileEntry from(File file) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            return new FileEntry(file, attrs.isDirectory(), attrs.size(), attrs.lastModifiedTime().toMillis());
+        } catch (IOException | SecurityException e) {
+            return new FileEntry(file, false, 0, 0);
+        }
+    }
+
+    /**
+     * Build an entry from attributes already read while enumerating its
+     * directory, without another stat call.
+     */
+    public static FileEntry from(DirectoryEnumerator.Entry entry) {
+        BasicFileAttributes attrs = entry.getAttributes();
+        if (attrs == null) {
+            return new FileEntry(entry.getFile(), false, 0, 0);
+        }
+        return new FileEntry(entry.getFile(), attrs.isDirectory(), attrs.size(), attrs.lastModifiedTime().toMillis());
+    }
+
+    private static int compareDirectoriesFirst(FileEntry e1, FileEntry e2) {
+        if (e1.isDirectory && !e2.isDirectory) return -1;
+        if (!e1.isDirectory && e2.isDirectory) return 1;
+        return 0;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public String getPath() {
+        return file.getPath();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSortKey() {
+        return sortKey;
+    }
+
+    public boolean isDirectory() {
+        return isDirectory;
+    }
+
+    public boolean isHidden() {
+        return isHidden;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /** "Folder" or the formatted size. */
+    public String getInfoText() {
+        return infoText;
+    }
+
+    /** Modification time formatted for list rows. */
+    public String getDateText() {
+        return dateText;
+    }
+
+    /** Modification time formatted for grid cells. */
+    public String getShortDateText() {
+        return shortDateText;
+    }
+
+    /**
+     * Registered or content-sniffed type; {@link FileTypeRegistry#UNKNOWN} for
+     * directories and for files whose content has not been probed yet.
+     */
+    public FileTypeRegistry.FileType getType() {
+        return type;
+    }
+
+    /** Whether the type is unknown only because the file's content has not been probed yet. */
+    public boolean needsContentProbe() {
+        return !probed && !isDirectory && size > 0 && type == FileTypeRegistry.UNKNOWN;
+    }
+
+    /**
+     * Probe the content if {@link #needsContentProbe()}, updating the type and
+     * icon. Reads the file, so call it off the main thread.
+     */
+    public FileTypeRegistry.FileType resolveType() {
+        if (needsContentProbe()) {
+            FileTypeRegistry.FileType sniffed = FileSignatureDetector.detect(file, size, lastModified);
+            iconRes = FileIconManager.getIconRes(sniffed, false);
+            type = sniffed;
+            probed = true;
+        }
+        return type;
+    }
+
+    public int getIconRes() {
+        return iconRes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FileEntry)) return false;
+        return file.equals(((FileEntry) o).file);
+    }
+
+    @Override
+    public int hashCode() {
+        return file.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return file.getPath();
+    }
+}
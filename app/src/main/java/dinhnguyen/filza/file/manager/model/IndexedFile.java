@@ -0,0 +1,61 @@
+package dinhnguyen.filza.file.manager.model;
+
+import java.io.File;
+
+import dinhnguyen.filza.file.manager.utils.FileTypeRegistry;
+
+/**
+ * A file as recorded in the file index, as of its last scan
+ */
+public final class IndexedFile {
+
+    private final String path;
+    private final String name;
+    private final long size;
+    private final long lastModified;
+    private final boolean isDirectory;
+    private final FileTypeRegistry.Category category;
+
+    public IndexedFile(String path, String name, long size, long lastModified,
+                       boolean isDirectory, FileTypeRegistry.Category category) {
+        this.path = path;
+        this.name = name;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.isDirectory = isDirectory;
+        this.category = category;
+    }
+
+    public File getFile() {
+        return new File(path);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public boolean isDirectory() {
+        return isDirectory;
+    }
+
+    public FileTypeRegistry.Category getCategory() {
+        return category;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
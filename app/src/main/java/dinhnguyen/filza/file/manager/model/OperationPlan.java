@@ -0,0 +1,271 @@
+package dinhnguyen.filza.file.manager.model;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Everything a bulk operation needs to know before it starts, gathered in a
+ * single walk of the selection: what goes where, how many files and bytes are
+ * involved, how much space each destination volume needs, which names were
+ * already taken and which items can simply be renamed into place.
+ * Plans are immutable, so executors can share them between threads.
+ */
+public final class OperationPlan {
+
+    public enum Type {
+        COPY, MOVE, DELETE, ZIP
+    }
+
+    /** One file to transfer, with its resolved target. */
+    public static final class PlannedFile {
+        private final File source;
+        private final File target;
+        private final long size;
+
+        public PlannedFile(File source, File target, long size) {
+            this.source = source;
+            this.target = target;
+            this.size = size;
+        }
+
+        public File getSource() {
+            return source;
+        }
+
+        public File getTarget() {
+            return target;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+
+    /** One selected file or folder. */
+    public static final class Item {
+        private final File source;
+        private final File target;
+        private final boolean directory;
+        private final boolean conflict;
+        private final boolean rename;
+        private final long sourceVolume;
+        private final int fileCount;
+        private final int directoryCount;
+        private final long bytes;
+        private final List<File> directories;
+        private final List<PlannedFile> files;
+        private final String error;
+
+        public Item(File source, File target, boolean directory, boolean conflict, boolean rename,
+                    long sourceVolume, int fileCount, int directoryCount, long bytes,
+                    List<File> directories, List<PlannedFile> files, String error) {
+            this.source = source;
+            this.target = target;
+            this.directory = directory;
+            this.conflict = conflict;
+            this.rename = rename;
+            this.sourceVolume = sourceVolume;
+            this.fileCount = fileCount;
+            this.directoryCount = directoryCount;
+            this.bytes = bytes;
+            this.directories = Collections.unmodifiableList(directories);
+            this.files = Collections.unmodifiableList(files);
+            this.error = error;
+        }
+
+        public File getSource() {
+            return source;
+        }
+
+        /** Where the item goes; null for deletes and zips. */
+        public File getTarget() {
+            return target;
+        }
+
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        /** The item's own name was already taken at the destination. */
+        public boolean hasConflict() {
+            return conflict;
+        }
+
+        /** A move that stays on one volume and can be done with a single rename. */
+        public boolean canRename() {
+            return rename;
+        }
+
+        public long getSourceVolume() {
+            return sourceVolume;
+        }
+
+        /**
+         * Files in the item's tree; 1 for a plain file. A rename is not
+         * walked, so it counts as one file of zero bytes whatever it holds.
+         */
+        public int getFileCount() {
+            return fileCount;
+        }
+
+        /** Folders in the item's tree, including the item itself; 0 for a rename. */
+        public int getDirectoryCount() {
+            return directoryCount;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        /** Target folders to create, parents first; only for copies and streamed moves. */
+        public List<File> getDirectories() {
+            return directories;
+        }
+
+        /** Files to transfer; only for copies and streamed moves. */
+        public List<PlannedFile> getFiles() {
+            return files;
+        }
+
+        /** Why the item cannot be carried out, or null. */
+        public String getError() {
+            return error;
+        }
+    }
+
+    /** Space a volume has to provide for the operation. */
+    public static final class VolumeNeed {
+        private final long volumeId;
+        private final File path;
+        private final long bytesNeeded;
+        private final long bytesAvailable;
+
+        public VolumeNeed(long volumeId, File path, long bytesNeeded, long bytesAvailable) {
+            this.volumeId = volumeId;
+            this.path = path;
+            this.bytesNeeded = bytesNeeded;
+            this.bytesAvailable = bytesAvailable;
+        }
+
+        public long getVolumeId() {
+            return volumeId;
+        }
+
+        /** A folder on the volume. */
+        public File getPath() {
+            return path;
+        }
+
+        public long getBytesNeeded() {
+            return bytesNeeded;
+        }
+
+        /** Free space when the plan was made. */
+        public long getBytesAvailable() {
+            return bytesAvailable;
+        }
+
+        public boolean isSatisfied() {
+            return bytesNeeded <= bytesAvailable;
+        }
+    }
+
+    private final Type type;
+    private final File destination;
+    private final long destinationVolume;
+    private final List<Item> items;
+    private final List<VolumeNeed> volumeNeeds;
+    private final List<File> conflicts;
+    private final boolean overwrite;
+    private final int fileCount;
+    private final int directoryCount;
+    private final long totalBytes;
+    private final int transferFileCount;
+
+    public OperationPlan(Type type, File destination, long destinationVolume, List<Item> items,
+                         List<VolumeNeed> volumeNeeds, List<File> conflicts, boolean overwrite) {
+        this.type = type;
+        this.destination = destination;
+        this.destinationVolume = destinationVolume;
+        this.items = Collections.unmodifiableList(items);
+        this.volumeNeeds = Collections.unmodifiableList(volumeNeeds);
+        this.conflicts = Collections.unmodifiableList(conflicts);
+        this.overwrite = overwrite;
+
+        int files = 0;
+        int directories = 0;
+        long bytes = 0;
+        int transferFiles = 0;
+        for (Item item : items) {
+            files += item.getFileCount();
+            directories += item.getDirectoryCount();
+            bytes += item.getBytes();
+            transferFiles += item.getFiles().size();
+        }
+        this.fileCount = files;
+        this.directoryCount = directories;
+        this.totalBytes = bytes;
+        this.transferFileCount = transferFiles;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /** Destination folder; null for deletes. */
+    public File getDestination() {
+        return destination;
+    }
+
+    public long getDestinationVolume() {
+        return destinationVolume;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public List<VolumeNeed> getVolumeNeeds() {
+        return volumeNeeds;
+    }
+
+    /**
+     * Destination names that were taken, before any renaming. Items skipped
+     * because of a conflict are listed here but not in {@link #getItems()}.
+     */
+    public List<File> getConflicts() {
+        return conflicts;
+    }
+
+    /** Existing files at the targets are replaced and folders merged into. */
+    public boolean isOverwrite() {
+        return overwrite;
+    }
+
+    /** Files across all items that can be carried out. */
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public int getDirectoryCount() {
+        return directoryCount;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /** Files listed for transfer, across all items. */
+    public int getTransferFileCount() {
+        return transferFileCount;
+    }
+
+    /** The first volume without enough free space, or null if all fit. */
+    public VolumeNeed getUnsatisfiedNeed() {
+        for (VolumeNeed need : volumeNeeds) {
+            if (!need.isSatisfied()) return need;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,71 @@
+package dinhnguyen.filza.file.manager.model;
+
+/**
+ * Snapshot of a running bulk operation. Byte totals are 0 for operations that
+ * do not move data, such as deletes; progress then follows the file counts.
+ */
+public final class OperationProgress {
+
+    /** Returned by {@link #getEtaMillis()} while no estimate is available. */
+    public static final long UNKNOWN = -1;
+
+    private final int filesDone;
+    private final int filesTotal;
+    private final long bytesDone;
+    private final long bytesTotal;
+    private final long bytesPerSecond;
+    private final long etaMillis;
+    private final String currentFile;
+
+    public OperationProgress(int filesDone, int filesTotal, long bytesDone, long bytesTotal,
+                             long bytesPerSecond, long etaMillis, String currentFile) {
+        this.filesDone = filesDone;
+        this.filesTotal = filesTotal;
+        this.bytesDone = bytesDone;
+        this.bytesTotal = bytesTotal;
+        this.bytesPerSecond = bytesPerSecond;
+        this.etaMillis = etaMillis;
+        this.currentFile = currentFile;
+    }
+
+    public int getFilesDone() {
+        return filesDone;
+    }
+
+    public int getFilesTotal() {
+        return filesTotal;
+    }
+
+    public long getBytesDone() {
+        return bytesDone;
+    }
+
+    public long getBytesTotal() {
+        return bytesTotal;
+    }
+
+    /** Smoothed recent throughput; 0 until enough time has passed. */
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public long getEtaMillis() {
+        return etaMillis;
+    }
+
+    /** Name of the entry being worked on, or null. */
+    public String getCurrentFile() {
+        return currentFile;
+    }
+
+    /** Done fraction in [0, 1], by bytes when they are known, else by files. */
+    public float getFraction() {
+        if (bytesTotal > 0) {
+            return Math.min(1f, (float) bytesDone / bytesTotal);
+        }
+        if (filesTotal > 0) {
+            return Math.min(1f, (float) filesDone / filesTotal);
+        }
+        return 0f;
+    }
+}
@@ -0,0 +1,63 @@
+package dinhnguyen.filza.file.manager.model;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One tile of the storage usage tree: a directory with its aggregate size,
+ * a single large file, or the remaining files of a directory lumped together.
+ * Directory children are sorted largest first.
+ */
+public final class UsageNode {
+
+    public enum Kind {
+        DIRECTORY, FILE, OTHER_FILES
+    }
+
+    private final Kind kind;
+    private final File file;
+    private final String name;
+    private final long bytes;
+    private final int fileCount;
+    private final List<UsageNode> children;
+
+    public UsageNode(Kind kind, File file, String name, long bytes, int fileCount, List<UsageNode> children) {
+        this.kind = kind;
+        this.file = file;
+        this.name = name;
+        this.bytes = bytes;
+        this.fileCount = fileCount;
+        this.children = children != null ? Collections.unmodifiableList(children) : Collections.emptyList();
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public boolean isDirectory() {
+        return kind == Kind.DIRECTORY;
+    }
+
+    /** The directory or file; for {@link Kind#OTHER_FILES} the directory holding them. */
+    public File getFile() {
+        return file;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /** Files in the subtree, or in the lumped group. */
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public List<UsageNode> getChildren() {
+        return children;
+    }
+}
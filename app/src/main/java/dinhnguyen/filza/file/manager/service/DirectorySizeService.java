@@ -0,0 +1,528 @@
+package dinhnguyen.filza.file.manager.service;
+
+import android.os.SystemClock;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dinhnguyen.filza.file.manager.model.UsageNode;
+import dinhnguyen.filza.file.manager.utils.DirectoryEnumerator;
+
+/**
+ * Shared recursive size calculator.
+ * Subtrees are walked in parallel on a fork/join pool, and every directory's
+ * own contents (bytes and file count of its direct children) are cached
+ * together with the directory's mtime. A directory whose mtime is unchanged
+ * is not listed again; only its subdirectories are revisited, so repeated
+ * queries over a mostly unchanged tree stat one entry per directory.
+ *
+ * Directory mtimes only change when entries are added, removed or renamed,
+ * not when a file is rewritten in place, so whoever learns of such a change
+ * should {@link #invalidate(File)} the parent directory; file operations and
+ * the file watcher do. Changes nobody reported are picked up by a rescan with
+ * {@link #analyze(File, int, boolean)}, which lists every directory again.
+ * The cache keeps the most recently used directories within a memory budget;
+ * only directories walked by an analysis keep their largest file names. It
+ * can be saved to and restored from a snapshot file, so an analysis after a
+ * restart only re-lists directories that changed meanwhile.
+ */
+public class DirectorySizeService {
+
+    /**
+     * Aggregate size of a file or directory tree
+     */
+    public static final class SizeInfo {
+        public static final SizeInfo EMPTY = new SizeInfo(0, 0, 0);
+
+        private final long bytes;
+        private final int fileCount;
+        private final int directoryCount;
+
+        public SizeInfo(long bytes, int fileCount, int directoryCount) {
+            this.bytes = bytes;
+            this.fileCount = fileCount;
+            this.directoryCount = directoryCount;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        /** Number of non-directory entries in the tree. */
+        public int getFileCount() {
+            return fileCount;
+        }
+
+        /** Number of directories in the tree, including the root. */
+        public int getDirectoryCount() {
+            return directoryCount;
+        }
+
+        SizeInfo plus(SizeInfo other) {
+            return new SizeInfo(bytes + other.bytes, fileCount + other.fileCount,
+                    directoryCount + other.directoryCount);
+        }
+    }
+
+    /**
+     * Result of {@link #analyze(File, int)}
+     */
+    public static final class UsageReport {
+        private final UsageNode root;
+        private final List<UsageNode> largestFiles;
+        private final int listedDirectories;
+        private final long elapsedMs;
+
+        UsageReport(UsageNode root, List<UsageNode> largestFiles, int listedDirectories, long elapsedMs) {
+            this.root = root;
+            this.largestFiles = Collections.unmodifiableList(largestFiles);
+            this.listedDirectories = listedDirectories;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public UsageNode getRoot() {
+            return root;
+        }
+
+        /** Largest files in the tree, largest first. */
+        public List<UsageNode> getLargestFiles() {
+            return largestFiles;
+        }
+
+        /** Directories that had to be listed because they were new or changed. */
+        public int getListedDirectories() {
+            return listedDirectories;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+    }
+
+    /**
+     * Largest files remembered per directory, which also caps how many
+     * largest files {@link #analyze(File, int)} can report.
+     */
+    public static final int LARGEST_FILES_PER_DIRECTORY = 20;
+
+    /** Estimated memory the cache may hold; the least recently used directories go first. */
+    public static final long MAX_CACHE_BYTES = 4L * 1024 * 1024;
+
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final DirectorySizeService INSTANCE = new DirectorySizeService();
+
+    private final ForkJoinPool pool = new ForkJoinPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+    // Access ordered, so iteration starts at the least recently used directory; guarded by itself
+    private final LinkedHashMap<String, DirectoryNode> cache = new LinkedHashMap<>(256, 0.75f, true);
+    private long cachedBytes;
+    private final AtomicInteger listings = new AtomicInteger();
+    private volatile boolean restored;
+    private volatile boolean dirty;
+
+    private DirectorySizeService() {
+    }
+
+    public static DirectorySizeService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Calculate the combined size of files and directory trees. Blocks until done.
+     */
+    public SizeInfo calculate(List<File> files) {
+        SizeInfo total = SizeInfo.EMPTY;
+        for (File file : files) {
+            total = total.plus(calculate(file));
+        }
+        return total;
+    }
+
+    /**
+     * Calculate the size of a single file or directory tree. Blocks until done.
+     */
+    public SizeInfo calculate(File file) {
+        if (!file.exists()) {
+            return SizeInfo.EMPTY;
+        }
+        if (!file.isDirectory()) {
+            return new SizeInfo(file.length(), 1, 0);
+        }
+        return pool.invoke(new SizeTask(file));
+    }
+
+    /**
+     * Build the usage tree below {@code root} on the fork/join pool, reusing
+     * every cached directory whose mtime is unchanged. Blocks until done.
+     * Besides subdirectories, each directory node holds its largest files as
+     * children and one node for the rest of its files.
+     */
+    public UsageReport analyze(File root, int largestFileCount) {
+        return analyze(root, largestFileCount, false);
+    }
+
+    /**
+     * Build the usage tree below {@code root}. With {@code rescan} every
+     * directory is listed again whatever its mtime, which picks up files that
+     * grew or shrank in place, and the cache is refreshed from the result.
+     */
+    public UsageReport analyze(File root, int largestFileCount, boolean rescan) {
+        long start = SystemClock.uptimeMillis();
+        int listingsBefore = listings.get();
+        LargestFiles largest = new LargestFiles(Math.min(largestFileCount, LARGEST_FILES_PER_DIRECTORY));
+        UsageNode tree = pool.invoke(new UsageTask(root, root.getAbsolutePath(), largest, rescan));
+        return new UsageReport(tree, largest.toSortedList(), listings.get() - listingsBefore,
+                SystemClock.uptimeMillis() - start);
+    }
+
+    /**
+     * Load a snapshot written by {@link #persist(File)}. Only the first call
+     * has an effect; entries already in the cache are kept. Files rewritten
+     * in place while the app was not running are only caught by a rescan.
+     */
+    public synchronized void restore(File snapshot) {
+        if (restored) return;
+        restored = true;
+        if (!snapshot.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshot)))) {
+            if (in.readInt() != SNAPSHOT_VERSION) return;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                long mtime = in.readLong();
+                long localBytes = in.readLong();
+                int localFiles = in.readInt();
+                File directory = new File(path);
+                File[] childDirectories = new File[in.readInt()];
+                for (int c = 0; c < childDirectories.length; c++) {
+                    childDirectories[c] = new File(directory, in.readUTF());
+                }
+                int largestCount = in.readInt();
+                String[] largestNames = largestCount >= 0 ? new String[largestCount] : null;
+                long[] largestSizes = largestCount >= 0 ? new long[largestCount] : null;
+                for (int l = 0; l < largestCount; l++) {
+                    largestNames[l] = in.readUTF();
+                    largestSizes[l] = in.readLong();
+                }
+                DirectoryNode node = new DirectoryNode(path, mtime, localBytes, localFiles, childDirectories,
+                        largestNames, largestSizes);
+                synchronized (cache) {
+                    if (!cache.containsKey(path)) putCached(path, node);
+                }
+            }
+        } catch (IOException e) {
+            // A damaged snapshot only costs a full re-scan
+        }
+    }
+
+    /**
+     * Write the cache to {@code snapshot} if it changed since it was last
+     * written or restored. The file is replaced atomically.
+     */
+    public synchronized void persist(File snapshot) {
+        if (!dirty) return;
+        dirty = false;
+        File temp = new File(snapshot.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            List<Map.Entry<String, DirectoryNode>> entries;
+            synchronized (cache) {
+                entries = new ArrayList<>(cache.entrySet());
+            }
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, DirectoryNode> entry : entries) {
+                DirectoryNode node = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(node.mtime);
+                out.writeLong(node.localBytes);
+                out.writeInt(node.localFiles);
+                out.writeInt(node.childDirectories.length);
+                for (File child : node.childDirectories) {
+                    out.writeUTF(child.getName());
+                }
+                if (node.largestNames == null) {
+                    out.writeInt(-1);
+                    continue;
+                }
+                out.writeInt(node.largestNames.length);
+                for (int i = 0; i < node.largestNames.length; i++) {
+                    out.writeUTF(node.largestNames[i]);
+                    out.writeLong(node.largestSizes[i]);
+                }
+            }
+        } catch (IOException e) {
+            dirty = true;
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(snapshot)) {
+            dirty = true;
+            temp.delete();
+        }
+    }
+
+    /**
+     * Forget the cached contents of a directory so its files are re-read
+     */
+    public void invalidate(File directory) {
+        synchronized (cache) {
+            DirectoryNode removed = cache.remove(directory.getAbsolutePath());
+            if (removed != null) {
+                cachedBytes -= removed.weight;
+                dirty = true;
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+            cachedBytes = 0;
+            dirty = true;
+        }
+    }
+
+    /** Caller holds the cache lock. */
+    private void putCached(String key, DirectoryNode node) {
+        DirectoryNode previous = cache.put(key, node);
+        cachedBytes += node.weight - (previous != null ? previous.weight : 0);
+        Iterator<DirectoryNode> eldest = cache.values().iterator();
+        while (cachedBytes > MAX_CACHE_BYTES && eldest.hasNext()) {
+            DirectoryNode evicted = eldest.next();
+            if (evicted == node) break;
+            cachedBytes -= evicted.weight;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Get the directory's own contents, listing it only if its mtime changed
+     * or {@code rescan} is set. With {@code withLargest} the largest file
+     * names are needed too, and are kept in the cache.
+     */
+    private DirectoryNode scan(File directory, boolean rescan, boolean withLargest) {
+        String key = directory.getAbsolutePath();
+        long mtime = directory.lastModified();
+        DirectoryNode cached = null;
+        if (!rescan) {
+            synchronized (cache) {
+                cached = cache.get(key);
+            }
+        }
+        if (cached != null && cached.mtime == mtime && (cached.largestNames != null || !withLargest)) {
+            return cached;
+        }
+
+        long[] bytes = {0};
+        int[] files = {0};
+        List<File> childDirectories = new ArrayList<>();
+        // Min-heap of the largest files seen so far; the smallest is evicted first
+        PriorityQueue<DirectoryEnumerator.Entry> largest = new PriorityQueue<>(
+                LARGEST_FILES_PER_DIRECTORY + 1, (a, b) -> Long.compare(a.getSize(), b.getSize()));
+        // Symlinks are not followed, so links to parents cannot loop
+        new DirectoryEnumerator(directory).setNoFollowLinks(true).enumerate(batch -> {
+            for (DirectoryEnumerator.Entry child : batch) {
+                if (child.getAttributes() == null) {
+                    continue; // Unreadable entries do not count
+                }
+                if (child.isDirectory()) {
+                    childDirectories.add(child.getFile());
+                } else {
+                    bytes[0] += child.getSize();
+                    files[0]++;
+                    if (!withLargest) {
+                        continue;
+                    }
+                    if (largest.size() < LARGEST_FILES_PER_DIRECTORY) {
+                        largest.add(child);
+                    } else if (child.getSize() > largest.peek().getSize()) {
+                        largest.poll();
+                        largest.add(child);
+                    }
+                }
+            }
+            return true;
+        });
+
+        String[] largestNames = null;
+        long[] largestSizes = null;
+        if (withLargest) {
+            largestNames = new String[largest.size()];
+            largestSizes = new long[largest.size()];
+            for (int i = largestNames.length - 1; i >= 0; i--) {
+                DirectoryEnumerator.Entry entry = largest.poll();
+                largestNames[i] = entry.getName();
+                largestSizes[i] = entry.getSize();
+            }
+        }
+        DirectoryNode node = new DirectoryNode(key, mtime, bytes[0], files[0], childDirectories.toArray(new File[0]),
+                largestNames, largestSizes);
+        synchronized (cache) {
+            putCached(key, node);
+        }
+        listings.incrementAndGet();
+        dirty = true;
+        return node;
+    }
+
+    private static class DirectoryNode {
+        final long mtime;
+        final long localBytes;
+        final int localFiles;
+        final File[] childDirectories;
+        // Largest direct child files, largest first; null unless an analysis listed the directory
+        final String[] largestNames;
+        final long[] largestSizes;
+        // Rough heap footprint, counting strings as two bytes per char plus headers
+        final long weight;
+
+        DirectoryNode(String path, long mtime, long localBytes, int localFiles, File[] childDirectories,
+                      String[] largestNames, long[] largestSizes) {
+            this.mtime = mtime;
+            this.localBytes = localBytes;
+            this.localFiles = localFiles;
+            this.childDirectories = childDirectories;
+            this.largestNames = largestNames;
+            this.largestSizes = largestSizes;
+
+            long estimate = 160 + 2L * path.length();
+            for (File child : childDirectories) {
+                estimate += 80 + 2L * child.getPath().length();
+            }
+            if (largestNames != null) {
+                for (String name : largestNames) {
+                    estimate += 56 + 2L * name.length();
+                }
+            }
+            this.weight = estimate;
+        }
+    }
+
+    /**
+     * Bounded min-heap of the largest files across a whole analysis. Most
+     * offers lose to the current minimum and are rejected without locking.
+     */
+    private static class LargestFiles {
+        private final int capacity;
+        private final PriorityQueue<UsageNode> heap;
+        private volatile long threshold = -1;
+
+        LargestFiles(int capacity) {
+            this.capacity = capacity;
+            this.heap = new PriorityQueue<>(capacity + 1, (a, b) -> Long.compare(a.getBytes(), b.getBytes()));
+        }
+
+        void offer(File directory, String name, long size) {
+            if (capacity <= 0 || size <= threshold) return;
+            synchronized (heap) {
+                heap.add(new UsageNode(UsageNode.Kind.FILE, new File(directory, name), name, size, 1, null));
+                if (heap.size() > capacity) {
+                    heap.poll();
+                }
+                if (heap.size() == capacity) {
+                    threshold = heap.peek().getBytes();
+                }
+            }
+        }
+
+        List<UsageNode> toSortedList() {
+            synchronized (heap) {
+                List<UsageNode> sorted = new ArrayList<>(heap);
+                Collections.sort(sorted, (a, b) -> Long.compare(b.getBytes(), a.getBytes()));
+                return sorted;
+            }
+        }
+    }
+
+    private class UsageTask extends RecursiveTask<UsageNode> {
+        private final File directory;
+        private final String name;
+        private final LargestFiles largest;
+        private final boolean rescan;
+
+        UsageTask(File directory, String name, LargestFiles largest, boolean rescan) {
+            this.directory = directory;
+            this.name = name;
+            this.largest = largest;
+            this.rescan = rescan;
+        }
+
+        @Override
+        protected UsageNode compute() {
+            DirectoryNode node = scan(directory, rescan, true);
+
+            List<UsageTask> subtasks = new ArrayList<>(node.childDirectories.length);
+            for (File child : node.childDirectories) {
+                UsageTask task = new UsageTask(child, child.getName(), largest, rescan);
+                task.fork();
+                subtasks.add(task);
+            }
+
+            List<UsageNode> children = new ArrayList<>(subtasks.size() + node.largestNames.length + 1);
+            long largestBytes = 0;
+            for (int i = 0; i < node.largestNames.length; i++) {
+                String fileName = node.largestNames[i];
+                long size = node.largestSizes[i];
+                largest.offer(directory, fileName, size);
+                children.add(new UsageNode(UsageNode.Kind.FILE, new File(directory, fileName), fileName, size, 1, null));
+                largestBytes += size;
+            }
+            int otherFiles = node.localFiles - node.largestNames.length;
+            if (otherFiles > 0) {
+                children.add(new UsageNode(UsageNode.Kind.OTHER_FILES, directory, otherFiles + " other files",
+                        node.localBytes - largestBytes, otherFiles, null));
+            }
+
+            long bytes = node.localBytes;
+            int files = node.localFiles;
+            for (UsageTask task : subtasks) {
+                UsageNode child = task.join();
+                children.add(child);
+                bytes += child.getBytes();
+                files += child.getFileCount();
+            }
+            Collections.sort(children, (a, b) -> Long.compare(b.getBytes(), a.getBytes()));
+            return new UsageNode(UsageNode.Kind.DIRECTORY, directory, name, bytes, files, children);
+        }
+    }
+
+    private class SizeTask extends RecursiveTask<SizeInfo> {
+        private final File directory;
+
+        SizeTask(File directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        protected SizeInfo compute() {
+            DirectoryNode node = scan(directory, false, false);
+            SizeInfo total = new SizeInfo(node.localBytes, node.localFiles, 1);
+
+            List<SizeTask> subtasks = new ArrayList<>(node.childDirectories.length);
+            for (File child : node.childDirectories) {
+                SizeTask task = new SizeTask(child);
+                task.fork();
+                subtasks.add(task);
+            }
+            for (SizeTask task : subtasks) {
+                total = total.plus(task.join());
+            }
+            return total;
+        }
+    }
+}
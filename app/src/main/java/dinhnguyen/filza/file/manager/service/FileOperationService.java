@@ -0,0 +1,246 @@
+package dinhnguyen.filza.file.manager.service;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.Observer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import dinhnguyen.filza.file.manager.R;
+import dinhnguyen.filza.file.manager.manager.JobHandle;
+import dinhnguyen.filza.file.manager.manager.JobManager;
+import dinhnguyen.filza.file.manager.model.OperationProgress;
+import dinhnguyen.filza.file.manager.ui.JobsActivity;
+import dinhnguyen.filza.file.manager.utils.FileDisplayFormatter;
+
+/**
+ * Foreground service that keeps file jobs running when the app leaves the
+ * screen, with an ongoing notification showing their progress, throughput
+ * and time left. {@link JobManager} starts it for every new job and it stops
+ * itself once nothing is queued or running. The jobs live in the JobManager
+ * singleton rather than in any Activity, so a recreated Activity simply
+ * reattaches to them.
+ */
+public class FileOperationService extends Service {
+
+    public static final String ACTION_CANCEL_JOB = "dinhnguyen.filza.file.manager.action.CANCEL_JOB";
+    public static final String EXTRA_JOB_ID = "job_id";
+
+    private static final String CHANNEL_ID = "file_operations";
+    private static final String DONE_CHANNEL_ID = "file_operations_done";
+    private static final int NOTIFICATION_ID = 1001;
+    private static final int DONE_NOTIFICATION_ID = 1002;
+    // The system drops notification updates posted faster than a few per second
+    private static final long UPDATE_INTERVAL_MS = 1000;
+    private static final int PROGRESS_MAX = 1000;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable updateRunnable = this::update;
+    private final Observer<List<JobHandle>> jobsObserver = jobs -> scheduleUpdate();
+    private final List<Integer> shownJobIds = new ArrayList<>();
+    private JobManager jobManager;
+    private NotificationManager notificationManager;
+    private long lastUpdateTime;
+    private int lastStartId;
+
+    /** Start (or keep) the service in the foreground; call while a job is queued. */
+    public static void start(Context context) {
+        ContextCompat.startForegroundService(context, new Intent(context, FileOperationService.class));
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        jobManager = JobManager.getInstance(this);
+        notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        createChannels();
+        jobManager.getJobs().observeForever(jobsObserver);
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        lastStartId = startId;
+        // Every start has to be answered with startForeground, even a repeated one
+        startForeground(NOTIFICATION_ID, buildProgressNotification(jobManager.getActiveJobs()),
+                ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC);
+
+        if (intent != null && ACTION_CANCEL_JOB.equals(intent.getAction())) {
+            JobHandle job = jobManager.getJob(intent.getIntExtra(EXTRA_JOB_ID, 0));
+            if (job != null) job.cancel();
+        }
+        scheduleUpdate();
+        // Jobs die with the process, so there is nothing to restart
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onTimeout(int startId, int fgsType) {
+        // Out of data sync time for today; jobs go on as long as the process lives
+        stopForeground(STOP_FOREGROUND_DETACH);
+        stopSelf();
+    }
+
+    @Override
+    public void onDestroy() {
+        handler.removeCallbacks(updateRunnable);
+        jobManager.getJobs().removeObserver(jobsObserver);
+        super.onDestroy();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    private void scheduleUpdate() {
+        handler.removeCallbacks(updateRunnable);
+        long wait = lastUpdateTime + UPDATE_INTERVAL_MS - SystemClock.elapsedRealtime();
+        List<JobHandle> active = jobManager.getActiveJobs();
+        // Start and finish show at once; progress in between is throttled
+        if (wait <= 0 || active.isEmpty()) {
+            update();
+        } else {
+            handler.postDelayed(updateRunnable, wait);
+        }
+    }
+
+    private void update() {
+        lastUpdateTime = SystemClock.elapsedRealtime();
+        List<JobHandle> active = jobManager.getActiveJobs();
+        if (active.isEmpty()) {
+            notifyFinished();
+            stopForeground(STOP_FOREGROUND_REMOVE);
+            stopSelf(lastStartId);
+            return;
+        }
+        for (JobHandle job : active) {
+            if (!shownJobIds.contains(job.getId())) shownJobIds.add(job.getId());
+        }
+        notificationManager.notify(NOTIFICATION_ID, buildProgressNotification(active));
+    }
+
+    private Notification buildProgressNotification(List<JobHandle> active) {
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_file)
+                .setContentIntent(jobsIntent())
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .setSilent(true)
+                .setForegroundServiceBehavior(NotificationCompat.FOREGROUND_SERVICE_IMMEDIATE);
+        if (active.isEmpty()) {
+            return builder.setContentTitle(getString(R.string.jobs)).setProgress(0, 0, true).build();
+        }
+
+        if (active.size() == 1) {
+            JobHandle job = active.get(0);
+            builder.setContentTitle(job.getTitle())
+                    .addAction(0, getString(R.string.cancel), cancelIntent(job));
+        } else {
+            builder.setContentTitle(active.size() + " file operations");
+        }
+
+        // Combined bytes and rate across jobs; the slowest estimate is the one to wait for
+        long bytesDone = 0;
+        long bytesTotal = 0;
+        long bytesPerSecond = 0;
+        long etaMillis = OperationProgress.UNKNOWN;
+        boolean known = true;
+        boolean paused = true;
+        for (JobHandle job : active) {
+            OperationProgress progress = job.getProgress();
+            paused &= job.getState() == JobHandle.State.PAUSED;
+            if (progress == null || progress.getBytesTotal() <= 0) {
+                known = false;
+                continue;
+            }
+            bytesDone += progress.getBytesDone();
+            bytesTotal += progress.getBytesTotal();
+            bytesPerSecond += progress.getBytesPerSecond();
+            etaMillis = Math.max(etaMillis, progress.getEtaMillis());
+        }
+
+        if (active.size() == 1 && active.get(0).getProgress() != null) {
+            OperationProgress progress = active.get(0).getProgress();
+            builder.setContentText(paused ? "Paused" : FileDisplayFormatter.formatProgressDetails(progress))
+                    .setSubText(FileDisplayFormatter.formatProgressCounts(progress))
+                    .setProgress(PROGRESS_MAX, Math.round(progress.getFraction() * PROGRESS_MAX), false);
+        } else if (known && bytesTotal > 0) {
+            OperationProgress combined = new OperationProgress(0, 0, bytesDone, bytesTotal,
+                    bytesPerSecond, etaMillis, null);
+            builder.setContentText(paused ? "Paused" : FileDisplayFormatter.formatProgressDetails(combined))
+                    .setProgress(PROGRESS_MAX, Math.round(combined.getFraction() * PROGRESS_MAX), false);
+        } else {
+            builder.setContentText(paused ? "Paused" : "Preparing…").setProgress(0, 0, true);
+        }
+        return builder.build();
+    }
+
+    /** Tell the user how the jobs shown in the ongoing notification ended. */
+    private void notifyFinished() {
+        if (shownJobIds.isEmpty()) return;
+        JobHandle last = null;
+        int failed = 0;
+        for (int id : shownJobIds) {
+            JobHandle job = jobManager.getJob(id);
+            if (job == null) continue;
+            last = job;
+            if (job.getState() == JobHandle.State.FAILED) failed++;
+        }
+        int count = shownJobIds.size();
+        shownJobIds.clear();
+        if (last == null) return;
+
+        String title = count == 1 ? last.getTitle()
+                : count + " file operations finished" + (failed > 0 ? ", " + failed + " with errors" : "");
+        String text = count == 1 ? last.getSummary() : last.getTitle() + ": " + last.getSummary();
+        notificationManager.notify(DONE_NOTIFICATION_ID, new NotificationCompat.Builder(this, DONE_CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_file)
+                .setContentTitle(title)
+                .setContentText(text)
+                .setContentIntent(jobsIntent())
+                .setAutoCancel(true)
+                .build());
+    }
+
+    private PendingIntent jobsIntent() {
+        Intent intent = new Intent(this, JobsActivity.class)
+                .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        return PendingIntent.getActivity(this, 0, intent,
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    private PendingIntent cancelIntent(JobHandle job) {
+        Intent intent = new Intent(this, FileOperationService.class)
+                .setAction(ACTION_CANCEL_JOB)
+                .putExtra(EXTRA_JOB_ID, job.getId());
+        return PendingIntent.getService(this, job.getId(), intent,
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    private void createChannels() {
+        NotificationChannel progressChannel = new NotificationChannel(CHANNEL_ID,
+                "File operations", NotificationManager.IMPORTANCE_LOW);
+        progressChannel.setDescription("Progress of copy, move, delete and compress jobs");
+        progressChannel.setShowBadge(false);
+        notificationManager.createNotificationChannel(progressChannel);
+
+        NotificationChannel doneChannel = new NotificationChannel(DONE_CHANNEL_ID,
+                "Finished file operations", NotificationManager.IMPORTANCE_DEFAULT);
+        doneChannel.setDescription("Shown when file jobs finish in the background");
+        notificationManager.createNotificationChannel(doneChannel);
+    }
+}
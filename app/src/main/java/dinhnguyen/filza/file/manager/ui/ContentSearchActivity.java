@@ -0,0 +1,115 @@
+package dinhnguyen.filza.file.manager.ui;
+
+import android.os.Bundle;
+import android.os.Environment;
+import android.view.View;
+import android.view.inputmethod.EditorInfo;
+import android.widget.CheckBox;
+import android.widget.EditText;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.material.button.MaterialButton;
+import com.google.android.material.progressindicator.LinearProgressIndicator;
+
+import java.io.File;
+
+import dinhnguyen.filza.file.manager.R;
+import dinhnguyen.filza.file.manager.constants.FileConstants;
+import dinhnguyen.filza.file.manager.manager.FileOpenManager;
+import dinhnguyen.filza.file.manager.model.ContentMatch;
+import dinhnguyen.filza.file.manager.ui.adapter.ContentMatchAdapter;
+import dinhnguyen.filza.file.manager.ui.viewmodel.ContentSearchViewModel;
+import dinhnguyen.filza.file.manager.viewmodel.ContentSearchViewModelFactory;
+
+/**
+ * Searches the contents of text files below a directory
+ */
+public class ContentSearchActivity extends AppCompatActivity {
+
+    private EditText patternEditText;
+    private CheckBox checkRegex;
+    private CheckBox checkMatchCase;
+    private MaterialButton buttonSearch;
+    private LinearProgressIndicator progressSearching;
+    private TextView textStatus;
+    private ContentMatchAdapter matchAdapter;
+
+    private ContentSearchViewModel viewModel;
+    private FileOpenManager fileOpenManager;
+    private File rootDirectory;
+
+    @Override
+    protected void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_content_search);
+
+        String rootPath = getIntent().getStringExtra(FileConstants.EXTRA_FILE_PATH);
+        rootDirectory = rootPath != null ? new File(rootPath) : Environment.getExternalStorageDirectory();
+
+        fileOpenManager = new FileOpenManager(this);
+        viewModel = new ViewModelProvider(this, new ContentSearchViewModelFactory())
+                .get(ContentSearchViewModel.class);
+
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        toolbar.setSubtitle(rootDirectory.getAbsolutePath());
+        toolbar.setNavigationOnClickListener(v -> finish());
+        patternEditText = findViewById(R.id.patternEditText);
+        checkRegex = findViewById(R.id.checkRegex);
+        checkMatchCase = findViewById(R.id.checkMatchCase);
+        buttonSearch = findViewById(R.id.buttonSearch);
+        progressSearching = findViewById(R.id.progressSearching);
+        textStatus = findViewById(R.id.textStatus);
+
+        RecyclerView recyclerView = findViewById(R.id.recyclerViewMatches);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        matchAdapter = new ContentMatchAdapter(this::onMatchClicked);
+        recyclerView.setAdapter(matchAdapter);
+
+        setupObservers();
+        buttonSearch.setOnClickListener(v -> {
+            if (Boolean.TRUE.equals(viewModel.getIsSearching().getValue())) {
+                viewModel.cancelSearch();
+            } else {
+                startSearch();
+            }
+        });
+        patternEditText.setOnEditorActionListener((v, actionId, event) -> {
+            if (actionId == EditorInfo.IME_ACTION_SEARCH) {
+                startSearch();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private void setupObservers() {
+        viewModel.getMatches().observe(this, matchAdapter::setMatches);
+        viewModel.getStatus().observe(this, textStatus::setText);
+        viewModel.getIsSearching().observe(this, searching -> {
+            progressSearching.setVisibility(searching ? View.VISIBLE : View.GONE);
+            buttonSearch.setText(searching ? R.string.stop : R.string.search);
+        });
+    }
+
+    private void startSearch() {
+        String pattern = patternEditText.getText() != null ? patternEditText.getText().toString() : "";
+        viewModel.startSearch(rootDirectory, pattern, checkRegex.isChecked(), checkMatchCase.isChecked());
+    }
+
+    private void onMatchClicked(ContentMatch match) {
+        File file = match.getFile();
+        if (!file.exists()) {
+            Toast.makeText(this, R.string.selected_file_not_exist, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        fileOpenManager.openFile(file);
+    }
+}
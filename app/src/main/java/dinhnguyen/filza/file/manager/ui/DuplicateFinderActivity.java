@@ -0,0 +1,161 @@
+package dinhnguyen.filza.file.manager.ui;
+
+import android.app.AlertDialog;
+import android.os.Bundle;
+import android.os.Environment;
+import android.view.View;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.material.button.MaterialButton;
+import com.google.android.material.progressindicator.LinearProgressIndicator;
+
+import java.io.File;
+import java.util.List;
+
+import dinhnguyen.filza.file.manager.R;
+import dinhnguyen.filza.file.manager.constants.FileConstants;
+import dinhnguyen.filza.file.manager.manager.JobHandle;
+import dinhnguyen.filza.file.manager.manager.JobManager;
+import dinhnguyen.filza.file.manager.model.DuplicateGroup;
+import dinhnguyen.filza.file.manager.model.OperationProgress;
+import dinhnguyen.filza.file.manager.ui.adapter.DuplicateGroupAdapter;
+import dinhnguyen.filza.file.manager.ui.viewmodel.DuplicateFinderViewModel;
+import dinhnguyen.filza.file.manager.utils.FileDisplayFormatter;
+import dinhnguyen.filza.file.manager.utils.FileUtils;
+import dinhnguyen.filza.file.manager.viewmodel.DuplicateFinderViewModelFactory;
+
+/**
+ * Scans a directory tree for duplicate files and deletes the copies the user marks
+ */
+public class DuplicateFinderActivity extends AppCompatActivity {
+
+    private MaterialButton buttonScan;
+    private MaterialButton buttonDelete;
+    private LinearProgressIndicator progressScanning;
+    private TextView textStatus;
+    private DuplicateGroupAdapter groupAdapter;
+
+    private DuplicateFinderViewModel viewModel;
+    private File rootDirectory;
+
+    @Override
+    protected void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_duplicate_finder);
+
+        String rootPath = getIntent().getStringExtra(FileConstants.EXTRA_FILE_PATH);
+        rootDirectory = rootPath != null ? new File(rootPath) : Environment.getExternalStorageDirectory();
+
+        viewModel = new ViewModelProvider(this, new DuplicateFinderViewModelFactory(this))
+                .get(DuplicateFinderViewModel.class);
+
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        toolbar.setSubtitle(rootDirectory.getAbsolutePath());
+        toolbar.setNavigationOnClickListener(v -> finish());
+        buttonScan = findViewById(R.id.buttonScan);
+        buttonDelete = findViewById(R.id.buttonDelete);
+        progressScanning = findViewById(R.id.progressScanning);
+        textStatus = findViewById(R.id.textStatus);
+
+        RecyclerView recyclerView = findViewById(R.id.recyclerViewDuplicates);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        groupAdapter = new DuplicateGroupAdapter(new DuplicateGroupAdapter.MarkController() {
+            @Override
+            public boolean isMarked(File file) {
+                return viewModel.isMarked(file);
+            }
+
+            @Override
+            public boolean toggleMarked(DuplicateGroup group, File file) {
+                return viewModel.toggleMarked(group, file);
+            }
+        }, () -> Toast.makeText(this, R.string.keep_one_copy, Toast.LENGTH_SHORT).show());
+        recyclerView.setAdapter(groupAdapter);
+
+        setupObservers();
+        int deleteJobId = viewModel.getDeleteJobId();
+        if (deleteJobId != 0) {
+            // A delete started before the Activity was recreated
+            JobHandle job = JobManager.getInstance(this).getJob(deleteJobId);
+            if (job != null) {
+                watchDelete(job);
+            } else {
+                viewModel.onFilesDeleted();
+            }
+        }
+        buttonScan.setOnClickListener(v -> {
+            if (Boolean.TRUE.equals(viewModel.getIsScanning().getValue())) {
+                viewModel.cancelScan();
+            } else {
+                viewModel.startScan(rootDirectory);
+            }
+        });
+        buttonDelete.setOnClickListener(v -> confirmDelete());
+
+        if (savedInstanceState == null) {
+            viewModel.startScan(rootDirectory);
+        }
+    }
+
+    private void setupObservers() {
+        viewModel.getGroups().observe(this, groupAdapter::setGroups);
+        viewModel.getStatus().observe(this, textStatus::setText);
+        viewModel.getIsScanning().observe(this, scanning -> {
+            progressScanning.setVisibility(scanning ? View.VISIBLE : View.GONE);
+            buttonScan.setText(scanning ? R.string.stop : R.string.scan);
+        });
+        viewModel.getMarkedCount().observe(this, count -> {
+            buttonDelete.setEnabled(count > 0 && viewModel.getDeleteJobId() == 0);
+            buttonDelete.setText(count > 0
+                    ? getString(R.string.delete_marked_count, count,
+                            FileDisplayFormatter.formatSize(viewModel.getMarkedBytes()))
+                    : getString(R.string.delete_marked));
+        });
+    }
+
+    private void confirmDelete() {
+        List<File> marked = viewModel.getMarkedFiles();
+        if (marked.isEmpty()) return;
+        new AlertDialog.Builder(this)
+                .setTitle("Confirm Delete")
+                .setMessage("Delete " + marked.size() + " duplicate file(s)? One copy of each file is kept."
+                        + "\n\nThis action cannot be undone.")
+                .setPositiveButton("Delete", (dialog, which) -> deleteFiles(marked))
+                .setNegativeButton("Cancel", null)
+                .setIcon(android.R.drawable.ic_dialog_alert)
+                .show();
+    }
+
+    private void deleteFiles(List<File> files) {
+        JobHandle job = FileUtils.deleteFiles(this, files, null);
+        viewModel.setDeleteJobId(job.getId());
+        watchDelete(job);
+    }
+
+    /**
+     * Show a delete job's progress and drop the deleted copies once it ends.
+     * Both observers are bound to this Activity, so the job never holds it.
+     */
+    private void watchDelete(JobHandle job) {
+        buttonDelete.setEnabled(false);
+        JobManager jobManager = JobManager.getInstance(this);
+        jobManager.getJobs().observe(this, jobs -> {
+            OperationProgress progress = job.getProgress();
+            if (!job.isFinished() && progress != null && progress.getCurrentFile() != null) {
+                textStatus.setText(progress.getCurrentFile());
+            }
+        });
+        jobManager.observeFinish(this, job, finished -> {
+            Toast.makeText(this, finished.getSummary(), Toast.LENGTH_SHORT).show();
+            viewModel.onFilesDeleted();
+        });
+    }
+}
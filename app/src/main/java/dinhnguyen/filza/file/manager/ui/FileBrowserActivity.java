@@ -12,6 +12,7 @@ import android.widget.Toast;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
@@ -22,12 +23,11 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.button.MaterialButton;
+import com.google.android.material.progressindicator.LinearProgressIndicator;
 
 import java.io.File;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
-import java.util.ArrayList;
 
 import dinhnguyen.filza.file.manager.R;
 import dinhnguyen.filza.file.manager.ui.adapter.FileAdapter;
@@ -37,7 +37,10 @@ import dinhnguyen.filza.file.manager.handlers.ImageFileHandler;
 import dinhnguyen.filza.file.manager.manager.BulkOperationsManager;
 import dinhnguyen.filza.file.manager.manager.DirectoryManager;
 import dinhnguyen.filza.file.manager.manager.FileImportManager;
+import dinhnguyen.filza.file.manager.manager.FileIndexManager;
 import dinhnguyen.filza.file.manager.manager.FileOpenManager;
+import dinhnguyen.filza.file.manager.manager.FileWatchManager;
+import dinhnguyen.filza.file.manager.model.FileEntry;
 import dinhnguyen.filza.file.manager.ui.manager.DialogManager;
 import dinhnguyen.filza.file.manager.ui.viewmodel.FileBrowserViewModel;
 import dinhnguyen.filza.file.manager.viewmodel.FileBrowserViewModelFactory;
@@ -46,12 +49,14 @@ import dinhnguyen.filza.file.manager.ui.dialog.ControlCenterBottomSheet;
 import android.app.AlertDialog;
 import android.widget.ArrayAdapter;
 import dinhnguyen.filza.file.manager.ui.dialog.FolderPickerDialog;
+import dinhnguyen.filza.file.manager.utils.FileUtils;
 
 public class FileBrowserActivity extends AppCompatActivity implements FileOperationHandler.Refreshable {
     
     private Toolbar toolbar;
     private ImageButton btnBack;
     private RecyclerView recyclerView;
+    private LinearProgressIndicator progressLoading;
     private FloatingActionButton fabImportFile;
     private FileAdapter fileAdapter;
     
@@ -64,7 +69,6 @@ public class FileBrowserActivity extends AppCompatActivity implements FileOperat
     private boolean isMultiSelectMode = false;
     private MaterialButton btnMenu;
     private MaterialButton btnLeft;
-    private Set<File> selectedFiles;
 
     private final ActivityResultLauncher<Intent> importFileLauncher = registerForActivityResult(
             new ActivityResultContracts.StartActivityForResult(),
@@ -92,11 +96,35 @@ public class FileBrowserActivity extends AppCompatActivity implements FileOperat
         setupClickListeners();
         
         loadInitialDirectory();
+        
+        if (savedInstanceState == null) {
+            // Resumes an interrupted pass, or rechecks directories whose mtime changed
+            FileIndexManager.getInstance(this).startIndexing();
+            bulkOperationsManager.offerInterruptedTransfers();
+        }
+        FileWatchManager fileWatchManager = FileWatchManager.getInstance(this);
+        FileUtils.setFileChangeListener(fileWatchManager);
+        fileWatchManager.start();
+        
+        // A bulk job started before the Activity was recreated keeps running; follow it again
+        bulkOperationsManager.restoreState(savedInstanceState);
+    }
+
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        bulkOperationsManager.saveState(outState);
+    }
+
+    @Override
+    protected void onDestroy() {
+        bulkOperationsManager.release();
+        super.onDestroy();
     }
 
     private void initializeManagers() {
         dialogManager = new DialogManager(this);
-        fileOperationHandler = new FileOperationHandler(this, this);
+        fileOperationHandler = new FileOperationHandler(this, this, this);
         bulkOperationsManager = new BulkOperationsManager(this, this);
         
         fileOperationHandler.setDestinationFolderPicker(new FileOperationHandler.DestinationFolderPicker() {
@@ -120,6 +148,7 @@ public class FileBrowserActivity extends AppCompatActivity implements FileOperat
     private void initializeViews() {
         toolbar = findViewById(R.id.toolbar);
         recyclerView = findViewById(R.id.recyclerViewFiles);
+        progressLoading = findViewById(R.id.progressLoading);
         fabImportFile = findViewById(R.id.fabImportFile);
     }
 
@@ -139,9 +168,8 @@ public class FileBrowserActivity extends AppCompatActivity implements FileOperat
 
     private void setupMenuButton(MaterialButton btnMenu) {
         btnMenu.setOnClickListener(v -> {
-            if (isMultiSelectMode && selectedFiles != null && !selectedFiles.isEmpty()) {
-                // Show bulk operations menu
-                showBulkOperationsMenu();
+            if (isMultiSelectMode) {
+                showMultiSelectMenu(btnMenu);
             } else {
                 // Show regular menu
                 PopupMenu popupMenu = new PopupMenu(this, btnMenu);
@@ -191,12 +219,22 @@ public class FileBrowserActivity extends AppCompatActivity implements FileOperat
 
     private void setupObservers() {
         viewModel.getFiles().observe(this, files -> {
-            fileAdapter.setFiles(files);
+            // A streamed listing can insert rows above the first one shown. Scrolled
+            // away, the layout manager keeps its anchor row in place; at the top,
+            // stay at the top instead of following the old first row down.
+            boolean atTop = !recyclerView.canScrollVertically(-1);
+            fileAdapter.setFiles(files, () -> {
+                if (atTop) recyclerView.scrollToPosition(0);
+            });
         });
         
         viewModel.getCurrentDirectory().observe(this, directory -> {
             updateToolbarTitle(directory);
         });
+        
+        viewModel.getIsLoading().observe(this, loading -> {
+            progressLoading.setVisibility(Boolean.TRUE.equals(loading) ? View.VISIBLE : View.GONE);
+        });
     }
 
     private void setupClickListeners() {
@@ -223,26 +261,21 @@ public class FileBrowserActivity extends AppCompatActivity implements FileOperat
         viewModel.loadDirectory(initialDirectory);
     }
 
-    private void onFileClicked(File file) {
+    private void onFileClicked(FileEntry entry) {
         if (isMultiSelectMode) {
             // In multi-select mode, clicking toggles selection
             return;
         }
         
-        if (file.isDirectory()) {
-            viewModel.loadDirectory(file);
+        if (entry.isDirectory()) {
+            viewModel.loadDirectory(entry.getFile());
         } else {
-            viewModel.openFile(file);
+            viewModel.openFile(entry.getFile());
         }
     }
     
     private void onMultiSelectChanged(int selectedCount) {
         updateMultiSelectUI(selectedCount);
-        
-        // Update selected files list
-        if (isMultiSelectMode) {
-            selectedFiles = fileAdapter.getSelectedFiles();
-        }
     }
 
     private void showCreateFolderDialog() {
@@ -274,13 +307,8 @@ public class FileBrowserActivity extends AppCompatActivity implements FileOperat
     private void updateMultiSelectUI(int selectedCount) {
         if (isMultiSelectMode) {
             btnLeft.setText("Cancel");
-            if (selectedCount > 0) {
-                btnMenu.setText("Actions (" + selectedCount + ")");
-                btnMenu.setEnabled(true);
-            } else {
-                btnMenu.setText("Actions");
-                btnMenu.setEnabled(false);
-            }
+            btnMenu.setText(selectedCount > 0 ? "Actions (" + selectedCount + ")" : "Actions");
+            btnMenu.setEnabled(true);
         } else {
             btnLeft.setText("Left");
             btnMenu.setText("Menu");
@@ -291,7 +319,6 @@ public class FileBrowserActivity extends AppCompatActivity implements FileOperat
     private void enterMultiSelectMode() {
         isMultiSelectMode = true;
         fileAdapter.setMultiSelectMode(true);
-        selectedFiles = null;
         updateMultiSelectUI(0);
         Toast.makeText(this, FileConstants.MULTI_SELECT_ENTERED, Toast.LENGTH_SHORT).show();
     }
@@ -299,15 +326,34 @@ public class FileBrowserActivity extends AppCompatActivity implements FileOperat
     private void exitMultiSelectMode() {
         isMultiSelectMode = false;
         fileAdapter.setMultiSelectMode(false);
-        selectedFiles = null;
         updateMultiSelectUI(0);
         Toast.makeText(this, FileConstants.MULTI_SELECT_EXITED, Toast.LENGTH_SHORT).show();
     }
 
+    private void showMultiSelectMenu(MaterialButton anchor) {
+        PopupMenu popupMenu = new PopupMenu(this, anchor);
+        popupMenu.getMenuInflater().inflate(R.menu.multi_select_menu, popupMenu.getMenu());
+        popupMenu.getMenu().findItem(R.id.action_bulk_operations).setEnabled(fileAdapter.getSelectedCount() > 0);
+        popupMenu.setOnMenuItemClickListener(item -> {
+            int id = item.getItemId();
+            if (id == R.id.action_bulk_operations) {
+                showBulkOperationsMenu();
+                return true;
+            } else if (id == R.id.action_select_all) {
+                fileAdapter.selectAll();
+                return true;
+            } else if (id == R.id.action_invert_selection) {
+                fileAdapter.invertSelection();
+                return true;
+            }
+            return false;
+        });
+        popupMenu.show();
+    }
+
     private void showBulkOperationsMenu() {
-        if (selectedFiles != null && !selectedFiles.isEmpty()) {
-            List<File> filesList = new ArrayList<>(selectedFiles);
-            bulkOperationsManager.showBulkOperationsMenu(filesList);
+        if (fileAdapter.getSelectedCount() > 0) {
+            bulkOperationsManager.showBulkOperationsMenu(fileAdapter.getSelectedFiles());
         } else {
             Toast.makeText(this, "No files selected", Toast.LENGTH_SHORT).show();
         }
@@ -315,7 +361,22 @@ public class FileBrowserActivity extends AppCompatActivity implements FileOperat
 
     private boolean onMenuItemClick(MenuItem item) {
         int id = item.getItemId();
-        if (id == R.id.action_select) {
+        if (id == R.id.action_search) {
+            startActivity(new Intent(this, SearchActivity.class));
+            return true;
+        } else if (id == R.id.action_find_in_files) {
+            openForCurrentDirectory(ContentSearchActivity.class);
+            return true;
+        } else if (id == R.id.action_find_duplicates) {
+            openForCurrentDirectory(DuplicateFinderActivity.class);
+            return true;
+        } else if (id == R.id.action_storage_analyzer) {
+            openForCurrentDirectory(StorageAnalyzerActivity.class);
+            return true;
+        } else if (id == R.id.action_jobs) {
+            startActivity(new Intent(this, JobsActivity.class));
+            return true;
+        } else if (id == R.id.action_select) {
             enterMultiSelectMode();
             return true;
         } else if (id == R.id.action_view_mode_grid) {
@@ -372,6 +433,17 @@ public class FileBrowserActivity extends AppCompatActivity implements FileOperat
         return Arrays.asList(new ImageFileHandler());
     }
 
+    private void openForCurrentDirectory(Class<?> activityClass) {
+        File currentDir = viewModel.getCurrentDirectory().getValue();
+        if (currentDir == null) {
+            Toast.makeText(this, "No current directory", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        Intent intent = new Intent(this, activityClass);
+        intent.putExtra(FileConstants.EXTRA_FILE_PATH, currentDir.getAbsolutePath());
+        startActivity(intent);
+    }
+
     private void showControlCenter() {
         ControlCenterBottomSheet bottomSheet = ControlCenterBottomSheet.newInstance();
         bottomSheet.show(getSupportFragmentManager(), ControlCenterBottomSheet.TAG);
@@ -392,10 +464,7 @@ public class FileBrowserActivity extends AppCompatActivity implements FileOperat
 
     @Override
     public void refresh() {
-        File currentDirectory = viewModel.getCurrentDirectory().getValue();
-        if (currentDirectory != null) {
-            viewModel.loadDirectory(currentDirectory);
-        }
+        viewModel.refresh();
         
         // Clear selection after refresh
         if (isMultiSelectMode) {
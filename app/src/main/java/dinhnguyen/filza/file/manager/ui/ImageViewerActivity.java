@@ -18,6 +18,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 
 import dinhnguyen.filza.file.manager.R;
+import dinhnguyen.filza.file.manager.utils.FileSignatureDetector;
+import dinhnguyen.filza.file.manager.utils.FileTypeRegistry;
 import dinhnguyen.filza.file.manager.ui.view.DrawingImageView;
 import dinhnguyen.filza.file.manager.ui.manager.ColorPickerDialog;
 import com.google.android.material.button.MaterialButton;
@@ -208,7 +210,7 @@ public class ImageViewerActivity extends AppCompatActivity implements ColorPicke
             return;
         }
 
-        if (!isImageFile(imageFile.getName())) {
+        if (!FileSignatureDetector.hasCategory(imageFile, FileTypeRegistry.Category.IMAGE)) {
             showToast("Tệp không phải là ảnh");
             return;
         }
@@ -216,18 +218,6 @@ public class ImageViewerActivity extends AppCompatActivity implements ColorPicke
         displayImage(filePath);
     }
 
-    private boolean isImageFile(String fileName) {
-        if (fileName == null) return false;
-        
-        String lowerFileName = fileName.toLowerCase();
-        return lowerFileName.endsWith(".jpg") || 
-               lowerFileName.endsWith(".jpeg") || 
-               lowerFileName.endsWith(".png") || 
-               lowerFileName.endsWith(".gif") || 
-               lowerFileName.endsWith(".bmp") || 
-               lowerFileName.endsWith(".webp");
-    }
-
     private void displayImage(String filePath) {
         try {
             // Get screen dimensions
@@ -0,0 +1,53 @@
+package dinhnguyen.filza.file.manager.ui;
+
+import android.os.Bundle;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import dinhnguyen.filza.file.manager.R;
+import dinhnguyen.filza.file.manager.ui.adapter.JobAdapter;
+import dinhnguyen.filza.file.manager.ui.viewmodel.JobsViewModel;
+import dinhnguyen.filza.file.manager.viewmodel.JobsViewModelFactory;
+
+/**
+ * Lists running and finished file operations, where they can be paused,
+ * resumed or cancelled
+ */
+public class JobsActivity extends AppCompatActivity {
+
+    private JobsViewModel viewModel;
+
+    @Override
+    protected void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_jobs);
+
+        viewModel = new ViewModelProvider(this, new JobsViewModelFactory(this))
+                .get(JobsViewModel.class);
+
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        toolbar.setNavigationOnClickListener(v -> finish());
+        TextView textEmpty = findViewById(R.id.textEmpty);
+
+        RecyclerView recyclerView = findViewById(R.id.recyclerViewJobs);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        // Rows are rebound on every progress frame; skip the change animation
+        recyclerView.setItemAnimator(null);
+        JobAdapter jobAdapter = new JobAdapter();
+        recyclerView.setAdapter(jobAdapter);
+
+        findViewById(R.id.buttonClearFinished).setOnClickListener(v -> viewModel.clearFinished());
+
+        viewModel.getJobs().observe(this, jobs -> {
+            jobAdapter.setJobs(jobs);
+            textEmpty.setVisibility(jobs.isEmpty() ? View.VISIBLE : View.GONE);
+        });
+    }
+}
@@ -0,0 +1,106 @@
+package dinhnguyen.filza.file.manager.ui;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.material.progressindicator.LinearProgressIndicator;
+
+import java.io.File;
+
+import dinhnguyen.filza.file.manager.R;
+import dinhnguyen.filza.file.manager.manager.FileOpenManager;
+import dinhnguyen.filza.file.manager.manager.FileSearchManager;
+import dinhnguyen.filza.file.manager.model.IndexedFile;
+import dinhnguyen.filza.file.manager.ui.adapter.SearchResultAdapter;
+import dinhnguyen.filza.file.manager.ui.viewmodel.SearchViewModel;
+import dinhnguyen.filza.file.manager.viewmodel.SearchViewModelFactory;
+
+/**
+ * Searches file names across all indexed storage as the user types
+ */
+public class SearchActivity extends AppCompatActivity {
+
+    private EditText searchEditText;
+    private LinearProgressIndicator progressSearching;
+    private TextView textEmpty;
+    private SearchResultAdapter resultAdapter;
+
+    private SearchViewModel viewModel;
+    private FileOpenManager fileOpenManager;
+
+    @Override
+    protected void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_search);
+
+        fileOpenManager = new FileOpenManager(this);
+        SearchViewModelFactory factory = new SearchViewModelFactory(FileSearchManager.getInstance(this));
+        viewModel = new ViewModelProvider(this, factory).get(SearchViewModel.class);
+
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        toolbar.setNavigationOnClickListener(v -> finish());
+        searchEditText = findViewById(R.id.searchEditText);
+        progressSearching = findViewById(R.id.progressSearching);
+        textEmpty = findViewById(R.id.textEmpty);
+
+        RecyclerView recyclerView = findViewById(R.id.recyclerViewResults);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        resultAdapter = new SearchResultAdapter(this::onResultClicked);
+        recyclerView.setAdapter(resultAdapter);
+
+        setupObservers();
+        searchEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                viewModel.setQuery(s.toString());
+            }
+        });
+    }
+
+    private void setupObservers() {
+        viewModel.getResults().observe(this, results -> {
+            resultAdapter.setResults(results);
+            boolean hasQuery = searchEditText.getText() != null
+                    && searchEditText.getText().toString().trim().length() > 0;
+            textEmpty.setVisibility(hasQuery && results.isEmpty() ? View.VISIBLE : View.GONE);
+        });
+        viewModel.getIsSearching().observe(this, searching ->
+                progressSearching.setVisibility(searching ? View.VISIBLE : View.GONE));
+    }
+
+    private void onResultClicked(IndexedFile result) {
+        File file = result.getFile();
+        if (!file.exists()) {
+            Toast.makeText(this, R.string.selected_file_not_exist, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (file.isDirectory()) {
+            Intent intent = new Intent(this, FileBrowserActivity.class);
+            intent.putExtra("initialPath", file.getAbsolutePath());
+            startActivity(intent);
+        } else {
+            fileOpenManager.openFile(file);
+        }
+    }
+}
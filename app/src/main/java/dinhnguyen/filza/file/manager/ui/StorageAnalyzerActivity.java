@@ -0,0 +1,114 @@
+package dinhnguyen.filza.file.manager.ui;
+
+import android.os.Bundle;
+import android.os.Environment;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.material.button.MaterialButton;
+import com.google.android.material.progressindicator.LinearProgressIndicator;
+
+import java.io.File;
+
+import dinhnguyen.filza.file.manager.R;
+import dinhnguyen.filza.file.manager.constants.FileConstants;
+import dinhnguyen.filza.file.manager.manager.FileOpenManager;
+import dinhnguyen.filza.file.manager.model.UsageNode;
+import dinhnguyen.filza.file.manager.ui.adapter.UsageFileAdapter;
+import dinhnguyen.filza.file.manager.ui.view.TreemapView;
+import dinhnguyen.filza.file.manager.ui.viewmodel.StorageAnalyzerViewModel;
+import dinhnguyen.filza.file.manager.utils.FileDisplayFormatter;
+import dinhnguyen.filza.file.manager.viewmodel.StorageAnalyzerViewModelFactory;
+
+/**
+ * Shows what takes up space below a directory as a treemap that can be
+ * drilled into, plus the largest files in the whole tree
+ */
+public class StorageAnalyzerActivity extends AppCompatActivity {
+
+    private TreemapView treemapView;
+    private TextView textCurrentPath;
+    private TextView textStatus;
+    private LinearProgressIndicator progressAnalyzing;
+    private MaterialButton buttonRefresh;
+    private MaterialButton buttonRescan;
+    private UsageFileAdapter fileAdapter;
+    private FileOpenManager fileOpenManager;
+
+    private StorageAnalyzerViewModel viewModel;
+    private File rootDirectory;
+
+    @Override
+    protected void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_storage_analyzer);
+
+        String rootPath = getIntent().getStringExtra(FileConstants.EXTRA_FILE_PATH);
+        rootDirectory = rootPath != null ? new File(rootPath) : Environment.getExternalStorageDirectory();
+
+        viewModel = new ViewModelProvider(this, new StorageAnalyzerViewModelFactory(this))
+                .get(StorageAnalyzerViewModel.class);
+        fileOpenManager = new FileOpenManager(this);
+
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        toolbar.setSubtitle(rootDirectory.getAbsolutePath());
+        toolbar.setNavigationOnClickListener(v -> onBackPressed());
+        treemapView = findViewById(R.id.treemapView);
+        textCurrentPath = findViewById(R.id.textCurrentPath);
+        textStatus = findViewById(R.id.textStatus);
+        progressAnalyzing = findViewById(R.id.progressAnalyzing);
+        buttonRefresh = findViewById(R.id.buttonRefresh);
+        buttonRescan = findViewById(R.id.buttonRescan);
+
+        RecyclerView recyclerView = findViewById(R.id.recyclerViewLargestFiles);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        fileAdapter = new UsageFileAdapter(node -> fileOpenManager.openFile(node.getFile()));
+        recyclerView.setAdapter(fileAdapter);
+
+        treemapView.setOnTileClickListener(this::onTileClick);
+        buttonRefresh.setOnClickListener(v -> viewModel.analyze(rootDirectory));
+        buttonRescan.setOnClickListener(v -> viewModel.rescan(rootDirectory));
+
+        setupObservers();
+        if (savedInstanceState == null) {
+            viewModel.analyze(rootDirectory);
+        }
+    }
+
+    private void setupObservers() {
+        viewModel.getCurrentNode().observe(this, node -> {
+            treemapView.setNode(node);
+            textCurrentPath.setText(node.getFile().getAbsolutePath() + " • "
+                    + FileDisplayFormatter.formatSize(node.getBytes()));
+        });
+        viewModel.getLargestFiles().observe(this, fileAdapter::setFiles);
+        viewModel.getStatus().observe(this, textStatus::setText);
+        viewModel.getIsAnalyzing().observe(this, analyzing -> {
+            progressAnalyzing.setVisibility(analyzing ? View.VISIBLE : View.GONE);
+            buttonRefresh.setEnabled(!analyzing);
+            buttonRescan.setEnabled(!analyzing);
+        });
+    }
+
+    private void onTileClick(UsageNode node) {
+        if (node.getKind() == UsageNode.Kind.FILE) {
+            fileOpenManager.openFile(node.getFile());
+        } else {
+            viewModel.open(node);
+        }
+    }
+
+    @Override
+    public void onBackPressed() {
+        if (!viewModel.navigateUp()) {
+            super.onBackPressed();
+        }
+    }
+}
@@ -32,6 +32,8 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import dinhnguyen.filza.file.manager.R;
+import dinhnguyen.filza.file.manager.utils.FileSignatureDetector;
+import dinhnguyen.filza.file.manager.utils.FileTypeRegistry;
 
 public class TxtViewerActivity extends AppCompatActivity {
 
@@ -130,7 +132,7 @@ public class TxtViewerActivity extends AppCompatActivity {
             return;
         }
 
-        if (!isTextFile(textFile.getName())) {
+        if (!FileSignatureDetector.hasCategory(textFile, FileTypeRegistry.Category.TEXT)) {
             showToast("File không phải là file text");
             return;
         }
@@ -143,18 +145,6 @@ public class TxtViewerActivity extends AppCompatActivity {
         loadTextFile(textFile);
     }
 
-    private boolean isTextFile(String fileName) {
-        if (fileName == null) return false;
-        
-        String lowerFileName = fileName.toLowerCase();
-        return lowerFileName.endsWith(".txt") || 
-               lowerFileName.endsWith(".log") || 
-               lowerFileName.endsWith(".md") || 
-               lowerFileName.endsWith(".json") || 
-               lowerFileName.endsWith(".xml") || 
-               lowerFileName.endsWith(".csv");
-    }
-
     private void loadTextFile(File textFile) {
         try {
             // Update toolbar title
@@ -24,6 +24,8 @@ import androidx.core.app.ActivityCompat;
 import java.io.File;
 
 import dinhnguyen.filza.file.manager.R;
+import dinhnguyen.filza.file.manager.utils.FileSignatureDetector;
+import dinhnguyen.filza.file.manager.utils.FileTypeRegistry;
 import com.google.android.material.button.MaterialButton;
 
 public class VideoPlayerActivity extends AppCompatActivity {
@@ -132,7 +134,7 @@ public class VideoPlayerActivity extends AppCompatActivity {
             return;
         }
 
-        if (!isVideoFile(videoFile.getName())) {
+        if (!FileSignatureDetector.hasCategory(videoFile, FileTypeRegistry.Category.VIDEO)) {
             showToast("File không phải là file video");
             return;
         }
@@ -140,20 +142,6 @@ public class VideoPlayerActivity extends AppCompatActivity {
         loadVideoFile(videoFile);
     }
 
-    private boolean isVideoFile(String fileName) {
-        if (fileName == null) return false;
-        
-        String lowerFileName = fileName.toLowerCase();
-        return lowerFileName.endsWith(".mp4") || 
-               lowerFileName.endsWith(".mkv") || 
-               lowerFileName.endsWith(".3gp") || 
-               lowerFileName.endsWith(".avi") || 
-               lowerFileName.endsWith(".mov") || 
-               lowerFileName.endsWith(".wmv") || 
-               lowerFileName.endsWith(".flv") || 
-               lowerFileName.endsWith(".webm");
-    }
-
     private void loadVideoFile(File videoFile) {
         try {
             // Update toolbar title
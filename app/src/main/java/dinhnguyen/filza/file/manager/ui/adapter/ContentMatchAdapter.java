@@ -0,0 +1,89 @@
+package dinhnguyen.filza.file.manager.ui.adapter;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import dinhnguyen.filza.file.manager.R;
+import dinhnguyen.filza.file.manager.model.ContentMatch;
+
+/**
+ * Shows content search hits; results only ever grow during a search, so new ones are inserted at the end
+ */
+public class ContentMatchAdapter extends RecyclerView.Adapter<ContentMatchAdapter.MatchViewHolder> {
+
+    public interface OnMatchClickListener {
+        void onClick(ContentMatch match);
+    }
+
+    private final List<ContentMatch> matches = new ArrayList<>();
+    private final OnMatchClickListener clickListener;
+
+    public ContentMatchAdapter(OnMatchClickListener clickListener) {
+        this.clickListener = clickListener;
+    }
+
+    public void setMatches(List<ContentMatch> newMatches) {
+        int oldSize = matches.size();
+        if (newMatches.size() < oldSize) {
+            matches.clear();
+            matches.addAll(newMatches);
+            notifyDataSetChanged();
+        } else if (newMatches.size() > oldSize) {
+            matches.addAll(newMatches.subList(oldSize, newMatches.size()));
+            notifyItemRangeInserted(oldSize, newMatches.size() - oldSize);
+        }
+    }
+
+    @NonNull
+    @Override
+    public MatchViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_content_match, parent, false);
+        return new MatchViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull MatchViewHolder holder, int position) {
+        holder.bind(matches.get(position));
+    }
+
+    @Override
+    public int getItemCount() {
+        return matches.size();
+    }
+
+    class MatchViewHolder extends RecyclerView.ViewHolder {
+        private final TextView textFileName;
+        private final TextView textLocation;
+        private final TextView textLine;
+
+        MatchViewHolder(@NonNull View itemView) {
+            super(itemView);
+            textFileName = itemView.findViewById(R.id.textFileName);
+            textLocation = itemView.findViewById(R.id.textLocation);
+            textLine = itemView.findViewById(R.id.textLine);
+
+            itemView.setOnClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                if (position != RecyclerView.NO_POSITION) {
+                    clickListener.onClick(matches.get(position));
+                }
+            });
+        }
+
+        void bind(ContentMatch match) {
+            textFileName.setText(match.getFile().getName());
+            textLocation.setText(String.format(Locale.getDefault(), "%d:%d",
+                    match.getLineNumber(), match.getColumn()));
+            textLine.setText(match.getLineText().trim());
+        }
+    }
+}
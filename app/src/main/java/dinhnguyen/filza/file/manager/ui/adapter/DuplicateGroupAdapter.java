@@ -0,0 +1,175 @@
+package dinhnguyen.filza.file.manager.ui.adapter;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.CheckBox;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import dinhnguyen.filza.file.manager.R;
+import dinhnguyen.filza.file.manager.model.DuplicateGroup;
+import dinhnguyen.filza.file.manager.utils.FileDisplayFormatter;
+import dinhnguyen.filza.file.manager.utils.FileIconManager;
+
+/**
+ * Shows each duplicate group as a header followed by one checkable row per copy
+ */
+public class DuplicateGroupAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+    private static final int TYPE_HEADER = 0;
+    private static final int TYPE_FILE = 1;
+
+    public interface MarkController {
+        boolean isMarked(File file);
+        /** Returns false if the change was refused. */
+        boolean toggleMarked(DuplicateGroup group, File file);
+    }
+
+    private static final class Row {
+        final DuplicateGroup group;
+        final File file;
+
+        Row(DuplicateGroup group, File file) {
+            this.group = group;
+            this.file = file;
+        }
+    }
+
+    private final List<DuplicateGroup> groups = new ArrayList<>();
+    private final List<Row> rows = new ArrayList<>();
+    private final MarkController markController;
+    private final Runnable onMarkRefused;
+
+    public DuplicateGroupAdapter(MarkController markController, Runnable onMarkRefused) {
+        this.markController = markController;
+        this.onMarkRefused = onMarkRefused;
+    }
+
+    /**
+     * Groups only get appended while a scan runs, so a grown list with the same
+     * prefix is inserted at the end; anything else rebinds everything.
+     */
+    public void setGroups(List<DuplicateGroup> newGroups) {
+        boolean appended = newGroups.size() >= groups.size();
+        for (int i = 0; appended && i < groups.size(); i++) {
+            appended = groups.get(i) == newGroups.get(i);
+        }
+        if (appended) {
+            int oldRowCount = rows.size();
+            for (int i = groups.size(); i < newGroups.size(); i++) {
+                addRows(newGroups.get(i));
+            }
+            groups.addAll(newGroups.subList(groups.size(), newGroups.size()));
+            notifyItemRangeInserted(oldRowCount, rows.size() - oldRowCount);
+        } else {
+            groups.clear();
+            rows.clear();
+            for (DuplicateGroup group : newGroups) {
+                addRows(group);
+            }
+            groups.addAll(newGroups);
+            notifyDataSetChanged();
+        }
+    }
+
+    /** Rebind the check boxes after the marks changed outside the adapter. */
+    public void refreshMarks() {
+        notifyItemRangeChanged(0, rows.size());
+    }
+
+    private void addRows(DuplicateGroup group) {
+        rows.add(new Row(group, null));
+        for (File file : group.getFiles()) {
+            rows.add(new Row(group, file));
+        }
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return rows.get(position).file == null ? TYPE_HEADER : TYPE_FILE;
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        if (viewType == TYPE_HEADER) {
+            return new HeaderViewHolder(inflater.inflate(R.layout.item_duplicate_header, parent, false));
+        }
+        return new FileViewHolder(inflater.inflate(R.layout.item_duplicate_file, parent, false));
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        Row row = rows.get(position);
+        if (holder instanceof HeaderViewHolder) {
+            ((HeaderViewHolder) holder).bind(row.group);
+        } else {
+            ((FileViewHolder) holder).bind(row.file);
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return rows.size();
+    }
+
+    static class HeaderViewHolder extends RecyclerView.ViewHolder {
+        private final TextView textGroupTitle;
+        private final TextView textGroupWasted;
+
+        HeaderViewHolder(@NonNull View itemView) {
+            super(itemView);
+            textGroupTitle = itemView.findViewById(R.id.textGroupTitle);
+            textGroupWasted = itemView.findViewById(R.id.textGroupWasted);
+        }
+
+        void bind(DuplicateGroup group) {
+            textGroupTitle.setText(String.format(Locale.getDefault(), "%d copies • %s each",
+                    group.getFiles().size(), FileDisplayFormatter.formatSize(group.getSize())));
+            textGroupWasted.setText(FileDisplayFormatter.formatSize(group.getWastedBytes()));
+        }
+    }
+
+    class FileViewHolder extends RecyclerView.ViewHolder {
+        private final CheckBox checkMarked;
+        private final ImageView imageFileIcon;
+        private final TextView textFileName;
+        private final TextView textFilePath;
+
+        FileViewHolder(@NonNull View itemView) {
+            super(itemView);
+            checkMarked = itemView.findViewById(R.id.checkMarked);
+            imageFileIcon = itemView.findViewById(R.id.imageFileIcon);
+            textFileName = itemView.findViewById(R.id.textFileName);
+            textFilePath = itemView.findViewById(R.id.textFilePath);
+
+            itemView.setOnClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                if (position == RecyclerView.NO_POSITION) return;
+                Row row = rows.get(position);
+                if (!markController.toggleMarked(row.group, row.file)) {
+                    onMarkRefused.run();
+                }
+                notifyItemChanged(position);
+            });
+        }
+
+        void bind(File file) {
+            textFileName.setText(file.getName());
+            textFilePath.setText(file.getParent());
+            int iconRes = FileIconManager.getIconRes(file.getName(), false);
+            imageFileIcon.setImageDrawable(FileIconManager.getDrawable(itemView.getContext(), iconRes));
+            checkMarked.setChecked(markController.isMarked(file));
+        }
+    }
+}
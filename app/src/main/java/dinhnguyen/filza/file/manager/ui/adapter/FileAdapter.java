@@ -1,13 +1,17 @@
 package dinhnguyen.filza.file.manager.ui.adapter;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.ImageView;
 import android.widget.PopupMenu;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.button.MaterialButton;
@@ -15,29 +19,52 @@ import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.imageview.ShapeableImageView;
 
 import java.io.File;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.Date;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
-import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import dinhnguyen.filza.file.manager.R;
 import dinhnguyen.filza.file.manager.listener.FileActionListener;
+import dinhnguyen.filza.file.manager.media.ThumbnailLoader;
+import dinhnguyen.filza.file.manager.model.FileEntry;
 import dinhnguyen.filza.file.manager.utils.FileIconManager;
 
 public class FileAdapter extends RecyclerView.Adapter<FileAdapter.FileViewHolder> {
-    private List<File> files;
+    private static final Object PAYLOAD_SELECTION = new Object();
+    
+    private static final DiffUtil.ItemCallback<FileEntry> DIFF_CALLBACK = new DiffUtil.ItemCallback<FileEntry>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull FileEntry oldItem, @NonNull FileEntry newItem) {
+            return oldItem.getPath().equals(newItem.getPath());
+        }
+        
+        @Override
+        public boolean areContentsTheSame(@NonNull FileEntry oldItem, @NonNull FileEntry newItem) {
+            return oldItem.getLastModified() == newItem.getLastModified()
+                    && oldItem.getSize() == newItem.getSize()
+                    && oldItem.isDirectory() == newItem.isDirectory();
+        }
+    };
+    
+    // Content probes for files with unknown extensions; each reads a few bytes
+    private static final ExecutorService typeProbeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TypeProbe");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final AsyncListDiffer<FileEntry> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
     private final FileActionListener actionListener;
     private final OnFileClickListener clickListener;
     private final Context context;
+    private final ThumbnailLoader thumbnailLoader;
     
     // Multi-select functionality
     private boolean isMultiSelectMode = false;
-    private final Set<File> selectedFiles = new HashSet<>();
+    private final SelectionModel<FileEntry> selection = new SelectionModel<>(FileEntry::getPath);
     private final OnMultiSelectListener multiSelectListener;
     
     // View mode
@@ -55,7 +82,7 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.FileViewHolder
     }
 
     public interface OnFileClickListener {
-        void onClick(File file);
+        void onClick(FileEntry entry);
     }
     
     public interface OnMultiSelectListener {
@@ -63,13 +90,15 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.FileViewHolder
         void onMultiSelectModeChanged(boolean isMultiSelectMode);
     }
 
-    public FileAdapter(Context context, List<File> files, FileActionListener actionListener, 
+    public FileAdapter(Context context, List<FileEntry> files, FileActionListener actionListener, 
                       OnFileClickListener clickListener, OnMultiSelectListener multiSelectListener) {
         this.context = context;
-        this.files = files != null ? files : new ArrayList<>();
+        this.thumbnailLoader = ThumbnailLoader.getInstance(context);
         this.actionListener = actionListener;
         this.clickListener = clickListener;
         this.multiSelectListener = multiSelectListener;
+        differ.addListListener((previousList, currentList) -> selection.setItems(currentList));
+        setFiles(files);
     }
 
     @Override
@@ -93,38 +122,65 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.FileViewHolder
 
     @Override
     public void onBindViewHolder(@NonNull FileViewHolder holder, int position) {
-        File file = files.get(position);
-        holder.bind(file);
+        FileEntry entry = differ.getCurrentList().get(position);
+        holder.bind(entry, position);
+    }
+    
+    @Override
+    public void onBindViewHolder(@NonNull FileViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_SELECTION)) {
+            holder.bindSelectionState(position);
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull FileViewHolder holder) {
+        holder.cancelThumbnail();
     }
 
     @Override
     public int getItemCount() {
-        return files.size();
+        return differ.getCurrentList().size();
     }
 
-    public void updateFiles(List<File> newFiles) {
-        this.files.clear();
-        this.files.addAll(newFiles);
-        sortFiles();
-        notifyDataSetChanged();
+    public void updateFiles(List<FileEntry> newFiles) {
+        setFiles(newFiles);
     }
 
-    public void setFiles(List<File> list) {
-        this.files = list != null ? list : new ArrayList<>();
-        sortFiles();
-        notifyDataSetChanged();
+    /**
+     * Sort the entries for the current sort mode and diff them against the
+     * displayed list on a background thread; only changed rows are rebound.
+     */
+    public void setFiles(List<FileEntry> list) {
+        setFiles(list, null);
+    }
+    
+    /**
+     * Like {@link #setFiles(List)}, running {@code commitCallback} once the
+     * new list is displayed
+     */
+    public void setFiles(List<FileEntry> list, Runnable commitCallback) {
+        List<FileEntry> sorted = list != null ? new ArrayList<>(list) : new ArrayList<>();
+        sortFiles(sorted);
+        differ.submitList(sorted, commitCallback);
+    }
+    
+    public List<FileEntry> getFiles() {
+        return differ.getCurrentList();
     }
     
     // Multi-select functionality
     public void setMultiSelectMode(boolean enabled) {
         this.isMultiSelectMode = enabled;
         if (!enabled) {
-            selectedFiles.clear();
+            selection.clear();
         }
-        notifyDataSetChanged();
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
         if (multiSelectListener != null) {
             multiSelectListener.onMultiSelectModeChanged(enabled);
-            multiSelectListener.onSelectionChanged(selectedFiles.size());
+            multiSelectListener.onSelectionChanged(selection.getSelectedCount());
         }
     }
     
@@ -132,22 +188,78 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.FileViewHolder
         return isMultiSelectMode;
     }
     
-    public Set<File> getSelectedFiles() {
-        return new HashSet<>(selectedFiles);
+    public int getSelectedCount() {
+        return selection.getSelectedCount();
+    }
+    
+    /**
+     * Selected files in display order, as a view over a snapshot of the
+     * selection; nothing is copied per file.
+     */
+    public List<File> getSelectedFiles() {
+        List<FileEntry> entries = selection.getSelection();
+        return new AbstractList<File>() {
+            @Override
+            public File get(int index) {
+                return entries.get(index).getFile();
+            }
+            
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
     }
     
     public void clearSelection() {
-        selectedFiles.clear();
-        notifyDataSetChanged();
+        for (int i = selection.nextSelected(0); i >= 0; i = selection.nextSelected(i + 1)) {
+            notifyItemChanged(i, PAYLOAD_SELECTION);
+        }
+        selection.clear();
+        notifySelectionChanged();
+    }
+    
+    public void selectAll() {
+        selection.selectAll();
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
+        notifySelectionChanged();
+    }
+    
+    public void invertSelection() {
+        selection.invert();
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
+        notifySelectionChanged();
+    }
+    
+    private void toggleSelection(int position) {
+        selection.toggle(position);
+        notifyItemChanged(position, PAYLOAD_SELECTION);
+        notifySelectionChanged();
+    }
+    
+    // Long-press selects everything between the last toggled row and this one
+    private void extendSelection(int position) {
+        int before = selection.getSelectedCount();
+        int low = selection.extendTo(position);
+        if (selection.getSelectedCount() != before) {
+            int high = Math.max(low, position);
+            notifyItemRangeChanged(low, high - low + 1, PAYLOAD_SELECTION);
+            notifySelectionChanged();
+        }
+    }
+    
+    private void notifySelectionChanged() {
         if (multiSelectListener != null) {
-            multiSelectListener.onSelectionChanged(0);
+            multiSelectListener.onSelectionChanged(selection.getSelectedCount());
         }
     }
     
     // View mode functionality
     public void setViewMode(ViewMode viewMode) {
+        if (this.currentViewMode == viewMode) return;
         this.currentViewMode = viewMode;
-        notifyDataSetChanged();
+        // Every row switches layout, so every row needs a new view holder
+        notifyItemRangeChanged(0, getItemCount());
     }
     
     public ViewMode getCurrentViewMode() {
@@ -157,38 +269,25 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.FileViewHolder
     // Sorting functionality
     public void setSortMode(SortMode sortMode) {
         this.currentSortMode = sortMode;
-        sortFiles();
-        notifyDataSetChanged();
+        setFiles(differ.getCurrentList());
     }
     
     public SortMode getCurrentSortMode() {
         return currentSortMode;
     }
     
-    private void sortFiles() {
-        if (files == null || files.isEmpty()) return;
+    private void sortFiles(List<FileEntry> files) {
+        if (files.isEmpty()) return;
         
         switch (currentSortMode) {
             case NAME:
-                Collections.sort(files, (f1, f2) -> {
-                    if (f1.isDirectory() && !f2.isDirectory()) return -1;
-                    if (!f1.isDirectory() && f2.isDirectory()) return 1;
-                    return f1.getName().compareToIgnoreCase(f2.getName());
-                });
+                Collections.sort(files, FileEntry.BY_NAME);
                 break;
             case DATE:
-                Collections.sort(files, (f1, f2) -> {
-                    if (f1.isDirectory() && !f2.isDirectory()) return -1;
-                    if (!f1.isDirectory() && f2.isDirectory()) return 1;
-                    return Long.compare(f2.lastModified(), f1.lastModified()); // Newest first
-                });
+                Collections.sort(files, FileEntry.BY_DATE); // Newest first
                 break;
             case SIZE:
-                Collections.sort(files, (f1, f2) -> {
-                    if (f1.isDirectory() && !f2.isDirectory()) return -1;
-                    if (!f1.isDirectory() && f2.isDirectory()) return 1;
-                    return Long.compare(f2.length(), f1.length()); // Largest first
-                });
+                Collections.sort(files, FileEntry.BY_SIZE); // Largest first
                 break;
         }
     }
@@ -201,6 +300,13 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.FileViewHolder
         private final MaterialButton buttonOptions;
         private final MaterialCardView cardView;
         private final int viewType;
+        private final int iconPaddingLeft;
+        private final int iconPaddingTop;
+        private final int iconPaddingRight;
+        private final int iconPaddingBottom;
+        private int boundIconRes;
+        private volatile FileEntry iconEntry;
+        private ThumbnailLoader.Request thumbnailRequest;
 
         public FileViewHolder(@NonNull View itemView, int viewType) {
             super(itemView);
@@ -211,61 +317,135 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.FileViewHolder
             textFileDate = itemView.findViewById(R.id.textFileDate);
             buttonOptions = itemView.findViewById(R.id.buttonOptions);
             cardView = (MaterialCardView) itemView;
+            iconPaddingLeft = imageFileIcon.getPaddingLeft();
+            iconPaddingTop = imageFileIcon.getPaddingTop();
+            iconPaddingRight = imageFileIcon.getPaddingRight();
+            iconPaddingBottom = imageFileIcon.getPaddingBottom();
+            
+            // Listeners are created once per holder and resolve the row at click time
+            itemView.setOnClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                if (position == RecyclerView.NO_POSITION) return;
+                if (isMultiSelectMode) {
+                    toggleSelection(position);
+                } else if (clickListener != null) {
+                    clickListener.onClick(differ.getCurrentList().get(position));
+                }
+            });
+            itemView.setOnLongClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                if (!isMultiSelectMode || position == RecyclerView.NO_POSITION) return false;
+                extendSelection(position);
+                return true;
+            });
+            buttonOptions.setOnClickListener(v -> {
+                FileEntry entry = getBoundEntry();
+                if (entry != null) {
+                    showOptionsMenu(v, entry.getFile());
+                }
+            });
         }
 
-        public void bind(File file) {
-            textFileName.setText(file.getName());
-            textFileInfo.setText(FileIconManager.getFileInfo(file));
+        public void bind(FileEntry entry, int position) {
+            textFileName.setText(entry.getName());
+            textFileInfo.setText(entry.getInfoText());
             // Set last modified date with different format for grid vs list
-            String formattedDate = formatDate(file.lastModified());
-            textFileDate.setText(formattedDate);
+            textFileDate.setText(viewType == 1 ? entry.getShortDateText() : entry.getDateText());
             
-            // Set appropriate icon for the file
-            imageFileIcon.setImageDrawable(FileIconManager.getFileIcon(context, file));
+            bindIcon(entry);
+            bindSelectionState(position);
+        }
+        
+        /**
+         * Grid cells show a thumbnail for images, videos and PDFs; the type icon
+         * is shown until the thumbnail arrives and in list mode.
+         */
+        private void bindIcon(FileEntry entry) {
+            cancelThumbnail();
+            iconEntry = entry;
+            if (entry.needsContentProbe()) {
+                showIcon(entry.getIconRes());
+                probeType(entry);
+                return;
+            }
+            if (viewType != 1 || !ThumbnailLoader.supports(entry)) {
+                showIcon(entry.getIconRes());
+                return;
+            }
             
-            // Handle multi-select mode
-            if (isMultiSelectMode) {
-                updateSelectionUI(file);
-                itemView.setOnClickListener(v -> toggleSelection(file));
-                buttonOptions.setVisibility(View.GONE);
-            } else {
-                // Normal mode
-                selectedFiles.remove(file);
-                cardView.setStrokeWidth(0);
-                cardView.setStrokeColor(context.getColor(android.R.color.transparent));
-                
-                itemView.setOnClickListener(v -> {
-                    if (clickListener != null) {
-                        clickListener.onClick(file);
-                    }
+            int sizePx = imageFileIcon.getLayoutParams().width;
+            Bitmap cached = thumbnailLoader.getCached(entry, sizePx);
+            if (cached != null) {
+                showThumbnail(cached);
+                return;
+            }
+            showIcon(entry.getIconRes());
+            thumbnailRequest = thumbnailLoader.load(entry, sizePx, bitmap -> {
+                thumbnailRequest = null;
+                showThumbnail(bitmap);
+            });
+        }
+        
+        /**
+         * Sniff the type of a file with an unknown extension off the main
+         * thread, then bind its icon again if the row still shows it
+         */
+        private void probeType(FileEntry entry) {
+            typeProbeExecutor.execute(() -> {
+                if (iconEntry != entry) return;
+                entry.resolveType();
+                itemView.post(() -> {
+                    if (iconEntry == entry) bindIcon(entry);
                 });
-                buttonOptions.setVisibility(View.VISIBLE);
-                buttonOptions.setOnClickListener(v -> showOptionsMenu(v, file));
+            });
+        }
+        
+        // Skip rows that already show the same icon
+        private void showIcon(int iconRes) {
+            if (boundIconRes == iconRes) return;
+            boundIconRes = iconRes;
+            imageFileIcon.setPadding(iconPaddingLeft, iconPaddingTop, iconPaddingRight, iconPaddingBottom);
+            imageFileIcon.setScaleType(ImageView.ScaleType.FIT_CENTER);
+            imageFileIcon.setImageDrawable(FileIconManager.getDrawable(context, iconRes));
+        }
+        
+        private void showThumbnail(Bitmap bitmap) {
+            boundIconRes = 0;
+            imageFileIcon.setPadding(0, 0, 0, 0);
+            imageFileIcon.setScaleType(ImageView.ScaleType.CENTER_CROP);
+            imageFileIcon.setImageBitmap(bitmap);
+        }
+        
+        void cancelThumbnail() {
+            if (thumbnailRequest != null) {
+                thumbnailRequest.cancel();
+                thumbnailRequest = null;
+            }
+        }
+        
+        private FileEntry getBoundEntry() {
+            int position = getBindingAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) {
+                return null;
             }
+            return differ.getCurrentList().get(position);
         }
         
-        private void updateSelectionUI(File file) {
-            if (selectedFiles.contains(file)) {
+        /**
+         * Partial bind used for selection payloads: only the stroke and the
+         * options button depend on multi-select state.
+         */
+        void bindSelectionState(int position) {
+            if (isMultiSelectMode && selection.isSelected(position)) {
                 cardView.setStrokeWidth(4);
                 cardView.setStrokeColor(context.getColor(R.color.purple_500));
             } else {
                 cardView.setStrokeWidth(0);
                 cardView.setStrokeColor(context.getColor(android.R.color.transparent));
             }
+            buttonOptions.setVisibility(isMultiSelectMode ? View.GONE : View.VISIBLE);
         }
         
-        private void toggleSelection(File file) {
-            if (selectedFiles.contains(file)) {
-                selectedFiles.remove(file);
-            } else {
-                selectedFiles.add(file);
-            }
-            updateSelectionUI(file);
-            if (multiSelectListener != null) {
-                multiSelectListener.onSelectionChanged(selectedFiles.size());
-            }
-        }
-
         private void showOptionsMenu(View view, File file) {
             PopupMenu popup = new PopupMenu(view.getContext(), view);
             popup.getMenuInflater().inflate(R.menu.file_item_menu, popup.getMenu());
@@ -299,15 +479,5 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.FileViewHolder
 
             popup.show();
         }
-
-        private String formatDate(long millis) {
-            SimpleDateFormat sdf;
-            if (viewType == 1) { // Grid view - shorter format
-                sdf = new SimpleDateFormat("MM-dd", Locale.getDefault());
-            } else { // List view - full format
-                sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
-            }
-            return sdf.format(new Date(millis));
-        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+package dinhnguyen.filza.file.manager.ui.adapter;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.material.button.MaterialButton;
+import com.google.android.material.progressindicator.LinearProgressIndicator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import dinhnguyen.filza.file.manager.R;
+import dinhnguyen.filza.file.manager.manager.JobHandle;
+import dinhnguyen.filza.file.manager.model.OperationProgress;
+import dinhnguyen.filza.file.manager.utils.FileDisplayFormatter;
+
+/**
+ * Lists file operation jobs, newest first, with pause/resume and cancel
+ * for the ones still running
+ */
+public class JobAdapter extends RecyclerView.Adapter<JobAdapter.JobViewHolder> {
+
+    private static final int PROGRESS_MAX = 1000;
+
+    private final List<JobHandle> jobs = new ArrayList<>();
+
+    public void setJobs(List<JobHandle> newJobs) {
+        jobs.clear();
+        for (int i = newJobs.size() - 1; i >= 0; i--) {
+            jobs.add(newJobs.get(i));
+        }
+        notifyDataSetChanged();
+    }
+
+    @NonNull
+    @Override
+    public JobViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_job, parent, false);
+        return new JobViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull JobViewHolder holder, int position) {
+        holder.bind(jobs.get(position));
+    }
+
+    @Override
+    public int getItemCount() {
+        return jobs.size();
+    }
+
+    class JobViewHolder extends RecyclerView.ViewHolder {
+        private final TextView textJobTitle;
+        private final TextView textJobState;
+        private final LinearProgressIndicator progressJob;
+        private final TextView textJobDetails;
+        private final View layoutJobActions;
+        private final MaterialButton buttonPauseResume;
+        private final MaterialButton buttonCancelJob;
+
+        JobViewHolder(@NonNull View itemView) {
+            super(itemView);
+            textJobTitle = itemView.findViewById(R.id.textJobTitle);
+            textJobState = itemView.findViewById(R.id.textJobState);
+            progressJob = itemView.findViewById(R.id.progressJob);
+            textJobDetails = itemView.findViewById(R.id.textJobDetails);
+            layoutJobActions = itemView.findViewById(R.id.layoutJobActions);
+            buttonPauseResume = itemView.findViewById(R.id.buttonPauseResume);
+            buttonCancelJob = itemView.findViewById(R.id.buttonCancelJob);
+
+            buttonPauseResume.setOnClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                if (position == RecyclerView.NO_POSITION) return;
+                JobHandle job = jobs.get(position);
+                if (job.getState() == JobHandle.State.PAUSED) {
+                    job.resume();
+                } else {
+                    job.pause();
+                }
+            });
+            buttonCancelJob.setOnClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                if (position != RecyclerView.NO_POSITION) {
+                    jobs.get(position).cancel();
+                }
+            });
+        }
+
+        void bind(JobHandle job) {
+            JobHandle.State state = job.getState();
+            OperationProgress progress = job.getProgress();
+            textJobTitle.setText(job.getTitle());
+
+            String stateText = stateLabel(state);
+            if (progress != null && !job.isFinished()) {
+                stateText += " • " + FileDisplayFormatter.formatProgressCounts(progress);
+            }
+            textJobState.setText(stateText);
+
+            progressJob.setVisibility(job.isFinished() ? View.GONE : View.VISIBLE);
+            progressJob.setIndeterminate(progress == null);
+            if (progress != null) {
+                progressJob.setProgress(Math.round(progress.getFraction() * PROGRESS_MAX));
+            }
+
+            textJobDetails.setText(details(job, progress));
+            layoutJobActions.setVisibility(job.isFinished() ? View.GONE : View.VISIBLE);
+            buttonPauseResume.setText(state == JobHandle.State.PAUSED ? R.string.resume : R.string.pause);
+            buttonPauseResume.setEnabled(!job.isCanceled());
+            buttonCancelJob.setEnabled(!job.isCanceled());
+        }
+
+        private String details(JobHandle job, OperationProgress progress) {
+            if (!job.isFinished()) {
+                if (progress == null) return "";
+                String details = FileDisplayFormatter.formatProgressDetails(progress);
+                return progress.getCurrentFile() != null ? details + "\n" + progress.getCurrentFile() : details;
+            }
+            return job.getSummary();
+        }
+
+        private String stateLabel(JobHandle.State state) {
+            switch (state) {
+                case QUEUED:
+                    return "Waiting";
+                case RUNNING:
+                    return "Running";
+                case PAUSED:
+                    return "Paused";
+                case COMPLETED:
+                    return "Done";
+                case FAILED:
+                    return "Failed";
+                default:
+                    return "Cancelled";
+            }
+        }
+    }
+}
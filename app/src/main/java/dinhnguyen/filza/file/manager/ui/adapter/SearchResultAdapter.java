@@ -0,0 +1,98 @@
+package dinhnguyen.filza.file.manager.ui.adapter;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.io.File;
+import java.util.List;
+
+import dinhnguyen.filza.file.manager.R;
+import dinhnguyen.filza.file.manager.model.IndexedFile;
+import dinhnguyen.filza.file.manager.utils.FileDisplayFormatter;
+import dinhnguyen.filza.file.manager.utils.FileIconManager;
+
+public class SearchResultAdapter extends RecyclerView.Adapter<SearchResultAdapter.ResultViewHolder> {
+
+    private static final DiffUtil.ItemCallback<IndexedFile> DIFF_CALLBACK = new DiffUtil.ItemCallback<IndexedFile>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull IndexedFile oldItem, @NonNull IndexedFile newItem) {
+            return oldItem.getPath().equals(newItem.getPath());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull IndexedFile oldItem, @NonNull IndexedFile newItem) {
+            return oldItem.getLastModified() == newItem.getLastModified()
+                    && oldItem.getSize() == newItem.getSize();
+        }
+    };
+
+    public interface OnResultClickListener {
+        void onClick(IndexedFile result);
+    }
+
+    private final AsyncListDiffer<IndexedFile> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    private final OnResultClickListener clickListener;
+
+    public SearchResultAdapter(OnResultClickListener clickListener) {
+        this.clickListener = clickListener;
+    }
+
+    public void setResults(List<IndexedFile> results) {
+        differ.submitList(results);
+    }
+
+    @NonNull
+    @Override
+    public ResultViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_search_result, parent, false);
+        return new ResultViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ResultViewHolder holder, int position) {
+        holder.bind(differ.getCurrentList().get(position));
+    }
+
+    @Override
+    public int getItemCount() {
+        return differ.getCurrentList().size();
+    }
+
+    class ResultViewHolder extends RecyclerView.ViewHolder {
+        private final ImageView imageFileIcon;
+        private final TextView textFileName;
+        private final TextView textFilePath;
+
+        ResultViewHolder(@NonNull View itemView) {
+            super(itemView);
+            imageFileIcon = itemView.findViewById(R.id.imageFileIcon);
+            textFileName = itemView.findViewById(R.id.textFileName);
+            textFilePath = itemView.findViewById(R.id.textFilePath);
+
+            itemView.setOnClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                if (position != RecyclerView.NO_POSITION) {
+                    clickListener.onClick(differ.getCurrentList().get(position));
+                }
+            });
+        }
+
+        void bind(IndexedFile result) {
+            textFileName.setText(result.getName());
+            String parent = new File(result.getPath()).getParent();
+            textFilePath.setText(result.isDirectory()
+                    ? parent
+                    : FileDisplayFormatter.formatSize(result.getSize()) + " • " + parent);
+            int iconRes = FileIconManager.getIconRes(result.getName(), result.isDirectory());
+            imageFileIcon.setImageDrawable(FileIconManager.getDrawable(itemView.getContext(), iconRes));
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package dinhnguyen.filza.file.manager.ui.adapter;
+
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Multi-select state stored as one bit per row of an adapter's current list.
+ * Toggle, select-all, invert and range selection are bit operations, so they
+ * stay cheap on very large directories. When the list is replaced, selected
+ * rows are carried over by key in a single pass.
+ * The item lists handed to {@link #setItems(List)} must not be modified
+ * afterwards; AsyncListDiffer lists already satisfy this.
+ */
+public class SelectionModel<T> {
+
+    public interface KeyFunction<T> {
+        Object keyOf(T item);
+    }
+
+    private final KeyFunction<T> keyFunction;
+    private List<T> items = Collections.emptyList();
+    private BitSet selected = new BitSet();
+    private int selectedCount;
+    private int anchor = -1;
+
+    public SelectionModel(KeyFunction<T> keyFunction) {
+        this.keyFunction = keyFunction;
+    }
+
+    /**
+     * Switch to a new item list, keeping the selection of items whose key is
+     * still present.
+     */
+    public void setItems(List<T> newItems) {
+        if (selectedCount > 0) {
+            Set<Object> keys = new HashSet<>(selectedCount * 2);
+            for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+                keys.add(keyFunction.keyOf(items.get(i)));
+            }
+            BitSet remapped = new BitSet(newItems.size());
+            int count = 0;
+            for (int i = 0; i < newItems.size() && count < keys.size(); i++) {
+                if (keys.contains(keyFunction.keyOf(newItems.get(i)))) {
+                    remapped.set(i);
+                    count++;
+                }
+            }
+            selected = remapped;
+            selectedCount = count;
+        }
+        items = newItems;
+        anchor = -1;
+    }
+
+    public int getItemCount() {
+        return items.size();
+    }
+
+    public int getSelectedCount() {
+        return selectedCount;
+    }
+
+    public boolean isSelected(int position) {
+        return selected.get(position);
+    }
+
+    /**
+     * Flip one row and make it the anchor for {@link #extendTo(int)}.
+     * Returns the new state of the row.
+     */
+    public boolean toggle(int position) {
+        boolean nowSelected = !selected.get(position);
+        selected.set(position, nowSelected);
+        selectedCount += nowSelected ? 1 : -1;
+        anchor = position;
+        return nowSelected;
+    }
+
+    /**
+     * Select every row between the anchor and {@code position}, inclusive.
+     * Without an anchor only {@code position} is selected.
+     * Returns the first row of the affected range.
+     */
+    public int extendTo(int position) {
+        int from = anchor >= 0 && anchor < items.size() ? anchor : position;
+        int low = Math.min(from, position);
+        int high = Math.max(from, position) + 1;
+        int alreadySelected = selected.get(low, high).cardinality();
+        selected.set(low, high);
+        selectedCount += (high - low) - alreadySelected;
+        anchor = position;
+        return low;
+    }
+
+    public void selectAll() {
+        selected.set(0, items.size());
+        selectedCount = items.size();
+    }
+
+    public void invert() {
+        selected.flip(0, items.size());
+        selectedCount = items.size() - selectedCount;
+    }
+
+    public void clear() {
+        selected.clear();
+        selectedCount = 0;
+        anchor = -1;
+    }
+
+    /** Index of the first selected row at or after {@code from}, or -1. */
+    public int nextSelected(int from) {
+        return selected.nextSetBit(from);
+    }
+
+    /**
+     * Selected items in list order. The returned list is a view over a copy of
+     * the selection bits and the current (immutable) item list, so later
+     * selection changes do not affect it and no items are copied.
+     */
+    public List<T> getSelection() {
+        return new SelectionView<>(items, (BitSet) selected.clone(), selectedCount);
+    }
+
+    private static final class SelectionView<T> extends AbstractList<T> {
+        private final List<T> items;
+        private final BitSet bits;
+        private final int size;
+        // Cursor so that sequential get(i) calls walk the bits only once; guarded by this
+        private int cursorIndex = -1;
+        private int cursorBit = -1;
+
+        SelectionView(List<T> items, BitSet bits, int size) {
+            this.items = items;
+            this.bits = bits;
+            this.size = size;
+        }
+
+        @Override
+        public synchronized T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            if (index < cursorIndex) {
+                cursorIndex = -1;
+                cursorBit = -1;
+            }
+            while (cursorIndex < index) {
+                cursorBit = bits.nextSetBit(cursorBit + 1);
+                cursorIndex++;
+            }
+            return items.get(cursorBit);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<T>() {
+                private int bit = bits.nextSetBit(0);
+
+                @Override
+                public boolean hasNext() {
+                    return bit >= 0;
+                }
+
+                @Override
+                public T next() {
+                    if (bit < 0) throw new NoSuchElementException();
+                    T item = items.get(bit);
+                    bit = bits.nextSetBit(bit + 1);
+                    return item;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package dinhnguyen.filza.file.manager.ui.adapter;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import dinhnguyen.filza.file.manager.R;
+import dinhnguyen.filza.file.manager.model.UsageNode;
+import dinhnguyen.filza.file.manager.utils.FileDisplayFormatter;
+
+/**
+ * Lists the largest files found by a storage analysis, largest first
+ */
+public class UsageFileAdapter extends RecyclerView.Adapter<UsageFileAdapter.UsageFileViewHolder> {
+
+    public interface OnFileClickListener {
+        void onClick(UsageNode node);
+    }
+
+    private final List<UsageNode> files = new ArrayList<>();
+    private final OnFileClickListener clickListener;
+
+    public UsageFileAdapter(OnFileClickListener clickListener) {
+        this.clickListener = clickListener;
+    }
+
+    public void setFiles(List<UsageNode> newFiles) {
+        files.clear();
+        files.addAll(newFiles);
+        notifyDataSetChanged();
+    }
+
+    @NonNull
+    @Override
+    public UsageFileViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_usage_file, parent, false);
+        return new UsageFileViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull UsageFileViewHolder holder, int position) {
+        holder.bind(files.get(position));
+    }
+
+    @Override
+    public int getItemCount() {
+        return files.size();
+    }
+
+    class UsageFileViewHolder extends RecyclerView.ViewHolder {
+        private final TextView textFileName;
+        private final TextView textFilePath;
+        private final TextView textFileSize;
+
+        UsageFileViewHolder(@NonNull View itemView) {
+            super(itemView);
+            textFileName = itemView.findViewById(R.id.textFileName);
+            textFilePath = itemView.findViewById(R.id.textFilePath);
+            textFileSize = itemView.findViewById(R.id.textFileSize);
+
+            itemView.setOnClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                if (position != RecyclerView.NO_POSITION) {
+                    clickListener.onClick(files.get(position));
+                }
+            });
+        }
+
+        void bind(UsageNode node) {
+            textFileName.setText(node.getName());
+            textFilePath.setText(node.getFile().getParent());
+            textFileSize.setText(FileDisplayFormatter.formatSize(node.getBytes()));
+        }
+    }
+}
@@ -3,6 +3,8 @@ package dinhnguyen.filza.file.manager.ui.dialog;
 import android.app.Dialog;
 import android.content.Context;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -22,10 +24,13 @@ import com.google.android.material.button.MaterialButton;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import dinhnguyen.filza.file.manager.R;
+import dinhnguyen.filza.file.manager.utils.DirectoryEnumerator;
 
 public class FolderPickerDialog extends DialogFragment {
     
@@ -45,6 +50,11 @@ public class FolderPickerDialog extends DialogFragment {
     private MaterialButton buttonSelectCurrent;
     private MaterialButton buttonCancel;
     
+    private static final int FIRST_PAGE_SIZE = 64;
+    private static final ExecutorService listingExecutor = Executors.newSingleThreadExecutor();
+    
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile int listingGeneration;
     private List<File> folderHistory = new ArrayList<>();
     private int currentHistoryIndex = -1;
 
@@ -87,6 +97,13 @@ public class FolderPickerDialog extends DialogFragment {
                 .create();
     }
 
+    @Override
+    public void onDestroy() {
+        // Stops an in-flight listing and drops its pending results
+        listingGeneration++;
+        super.onDestroy();
+    }
+
     private void initializeViews(View view) {
         textViewCurrentPath = view.findViewById(R.id.textViewCurrentPath);
         breadcrumbContainer = view.findViewById(R.id.breadcrumbContainer);
@@ -217,18 +234,48 @@ public class FolderPickerDialog extends DialogFragment {
             folderItems.add(new FolderItem(parent, ".. (Up)", true));
         }
         
-        // Add subfolders
-        File[] subDirs = currentFolder.listFiles(File::isDirectory);
-        if (subDirs != null) {
-            Arrays.sort(subDirs, (a, b) -> a.getName().compareToIgnoreCase(b.getName()));
-            for (File subDir : subDirs) {
-                if (subDir.canRead()) {
-                    folderItems.add(new FolderItem(subDir, subDir.getName(), false));
-                }
-            }
-        }
+        adapter.setFolderItems(new ArrayList<>(folderItems));
         
-        adapter.setFolderItems(folderItems);
+        // Subfolders are streamed off the main thread; the first page is shown as soon as it is read
+        File folder = currentFolder;
+        int generation = ++listingGeneration;
+        listingExecutor.execute(() -> {
+            List<File> subDirs = new ArrayList<>();
+            boolean[] firstPageShown = {false};
+            new DirectoryEnumerator(folder)
+                    .setEntryFilter(DirectoryEnumerator.DIRECTORIES)
+                    .setBatchSize(FIRST_PAGE_SIZE)
+                    .enumerate(batch -> {
+                        if (generation != listingGeneration) return false;
+                        for (DirectoryEnumerator.Entry entry : batch) {
+                            File subDir = entry.getFile();
+                            if (subDir.canRead()) {
+                                subDirs.add(subDir);
+                            }
+                        }
+                        if (!firstPageShown[0] && subDirs.size() >= FIRST_PAGE_SIZE) {
+                            firstPageShown[0] = true;
+                            postFolderItems(generation, folderItems, subDirs);
+                        }
+                        return true;
+                    });
+            postFolderItems(generation, folderItems, subDirs);
+        });
+    }
+    
+    private void postFolderItems(int generation, List<FolderItem> header, List<File> subDirs) {
+        List<File> sorted = new ArrayList<>(subDirs);
+        Collections.sort(sorted, (a, b) -> a.getName().compareToIgnoreCase(b.getName()));
+        List<FolderItem> items = new ArrayList<>(header.size() + sorted.size());
+        items.addAll(header);
+        for (File subDir : sorted) {
+            items.add(new FolderItem(subDir, subDir.getName(), false));
+        }
+        mainHandler.post(() -> {
+            if (generation == listingGeneration && adapter != null) {
+                adapter.setFolderItems(items);
+            }
+        });
     }
 
     private void navigateToFolder(File folder) {
@@ -0,0 +1,230 @@
+package dinhnguyen.filza.file.manager.ui.view;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import dinhnguyen.filza.file.manager.model.UsageNode;
+import dinhnguyen.filza.file.manager.utils.FileDisplayFormatter;
+
+/**
+ * Draws the children of one {@link UsageNode} as a squarified treemap: each
+ * tile's area is proportional to its size and tiles are kept close to square
+ * so small entries stay tappable. Only the largest {@link #MAX_TILES} children
+ * are laid out; the layout is redone when the node or the view size changes.
+ */
+public class TreemapView extends View {
+
+    public interface OnTileClickListener {
+        void onTileClick(UsageNode node);
+    }
+
+    private static final int MAX_TILES = 200;
+    private static final int[] PALETTE = {
+            Color.rgb(66, 133, 244), Color.rgb(219, 68, 55), Color.rgb(244, 180, 0),
+            Color.rgb(15, 157, 88), Color.rgb(171, 71, 188), Color.rgb(0, 172, 193),
+            Color.rgb(255, 112, 67), Color.rgb(124, 179, 66)
+    };
+    private static final int FILE_COLOR = Color.rgb(120, 144, 156);
+    private static final int OTHER_FILES_COLOR = Color.rgb(189, 189, 189);
+
+    private final Paint tilePaint = new Paint();
+    private final Paint borderPaint = new Paint();
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final List<UsageNode> tileNodes = new ArrayList<>();
+    private final List<RectF> tileRects = new ArrayList<>();
+    private float density = 1f;
+
+    private UsageNode node;
+    private OnTileClickListener tileClickListener;
+
+    public TreemapView(Context context) {
+        super(context);
+        init();
+    }
+
+    public TreemapView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    public TreemapView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init();
+    }
+
+    private void init() {
+        if (getResources() != null && getResources().getDisplayMetrics() != null) {
+            density = getResources().getDisplayMetrics().density;
+        }
+        tilePaint.setStyle(Paint.Style.FILL);
+        borderPaint.setStyle(Paint.Style.STROKE);
+        borderPaint.setStrokeWidth(density);
+        borderPaint.setColor(Color.WHITE);
+        textPaint.setColor(Color.WHITE);
+        textPaint.setTextSize(12 * density);
+    }
+
+    public void setNode(UsageNode node) {
+        this.node = node;
+        layoutTiles();
+        invalidate();
+    }
+
+    public void setOnTileClickListener(OnTileClickListener tileClickListener) {
+        this.tileClickListener = tileClickListener;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        layoutTiles();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        float textSize = textPaint.getTextSize();
+        for (int i = 0; i < tileRects.size(); i++) {
+            UsageNode tile = tileNodes.get(i);
+            RectF rect = tileRects.get(i);
+            tilePaint.setColor(colorFor(tile, i));
+            canvas.drawRect(rect, tilePaint);
+            canvas.drawRect(rect, borderPaint);
+
+            if (rect.width() > 48 * density && rect.height() > textSize * 2.5f) {
+                float x = rect.left + 4 * density;
+                canvas.drawText(ellipsize(tile.getName(), rect.width() - 8 * density), x,
+                        rect.top + textSize + 2 * density, textPaint);
+                canvas.drawText(FileDisplayFormatter.formatSize(tile.getBytes()), x,
+                        rect.top + textSize * 2 + 4 * density, textPaint);
+            }
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            return true;
+        }
+        if (event.getActionMasked() == MotionEvent.ACTION_UP) {
+            performClick();
+            for (int i = 0; i < tileRects.size(); i++) {
+                if (tileRects.get(i).contains(event.getX(), event.getY())) {
+                    if (tileClickListener != null) {
+                        tileClickListener.onTileClick(tileNodes.get(i));
+                    }
+                    break;
+                }
+            }
+            return true;
+        }
+        return super.onTouchEvent(event);
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    private int colorFor(UsageNode tile, int index) {
+        switch (tile.getKind()) {
+            case DIRECTORY:
+                return PALETTE[index % PALETTE.length];
+            case OTHER_FILES:
+                return OTHER_FILES_COLOR;
+            default:
+                return FILE_COLOR;
+        }
+    }
+
+    private String ellipsize(String text, float maxWidth) {
+        if (textPaint.measureText(text) <= maxWidth) return text;
+        int end = text.length();
+        while (end > 1 && textPaint.measureText(text.substring(0, end) + "…") > maxWidth) {
+            end--;
+        }
+        return text.substring(0, end) + "…";
+    }
+
+    /**
+     * Squarified layout (Bruls, Huizing, van Wijk): children, largest first,
+     * are added to a row along the shorter side of the free rectangle for as
+     * long as that improves the row's worst aspect ratio.
+     */
+    private void layoutTiles() {
+        tileNodes.clear();
+        tileRects.clear();
+        if (node == null || getWidth() == 0 || getHeight() == 0) return;
+
+        long totalBytes = 0;
+        for (UsageNode child : node.getChildren()) {
+            if (child.getBytes() <= 0 || tileNodes.size() == MAX_TILES) break;
+            tileNodes.add(child);
+            totalBytes += child.getBytes();
+        }
+        if (totalBytes == 0) return;
+
+        int count = tileNodes.size();
+        double[] areas = new double[count];
+        double scale = (double) getWidth() * getHeight() / totalBytes;
+        for (int i = 0; i < count; i++) {
+            areas[i] = tileNodes.get(i).getBytes() * scale;
+            tileRects.add(new RectF());
+        }
+
+        double left = 0, top = 0, width = getWidth(), height = getHeight();
+        int start = 0;
+        while (start < count) {
+            double side = Math.min(width, height);
+            double rowArea = areas[start];
+            int end = start + 1;
+            while (end < count && worstRatio(areas[start], areas[end], rowArea + areas[end], side)
+                    <= worstRatio(areas[start], areas[end - 1], rowArea, side)) {
+                rowArea += areas[end];
+                end++;
+            }
+
+            double thickness = rowArea / side;
+            double offset = 0;
+            for (int i = start; i < end; i++) {
+                double length = areas[i] / thickness;
+                RectF rect = tileRects.get(i);
+                if (width >= height) {
+                    // Row is a column on the left edge
+                    rect.set((float) left, (float) (top + offset), (float) (left + thickness),
+                            (float) (top + offset + length));
+                } else {
+                    // Row is a strip along the top edge
+                    rect.set((float) (left + offset), (float) top, (float) (left + offset + length),
+                            (float) (top + thickness));
+                }
+                offset += length;
+            }
+            if (width >= height) {
+                left += thickness;
+                width -= thickness;
+            } else {
+                top += thickness;
+                height -= thickness;
+            }
+            start = end;
+        }
+    }
+
+    private static double worstRatio(double largest, double smallest, double rowArea, double side) {
+        double sideSquared = side * side;
+        double rowSquared = rowArea * rowArea;
+        return Math.max(sideSquared * largest / rowSquared, rowSquared / (sideSquared * smallest));
+    }
+}
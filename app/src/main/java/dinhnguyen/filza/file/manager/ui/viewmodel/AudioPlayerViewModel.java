@@ -8,7 +8,8 @@ import java.io.File;
 
 import dinhnguyen.filza.file.manager.constants.AudioConstants;
 import dinhnguyen.filza.file.manager.media.AudioPlayerManager;
-import dinhnguyen.filza.file.manager.utils.AudioFileValidator;
+import dinhnguyen.filza.file.manager.utils.FileSignatureDetector;
+import dinhnguyen.filza.file.manager.utils.FileTypeRegistry;
 import dinhnguyen.filza.file.manager.utils.TimeFormatter;
 
 public class AudioPlayerViewModel extends ViewModel {
@@ -104,14 +105,14 @@ public class AudioPlayerViewModel extends ViewModel {
             return false;
         }
         
-        if (!AudioFileValidator.isValidAudioFile(audioFile)) {
+        if (!FileSignatureDetector.hasCategory(audioFile, FileTypeRegistry.Category.AUDIO)) {
             errorMessage.setValue(AudioConstants.ERROR_INVALID_AUDIO_FILE);
             return false;
         }
         
         boolean success = audioPlayerManager.loadAudioFile(filePath);
         if (success) {
-            songTitle.setValue(AudioFileValidator.getFileNameWithoutExtension(audioFile.getName()));
+            songTitle.setValue(FileTypeRegistry.getNameWithoutExtension(audioFile.getName()));
         }
         
         return success;
@@ -0,0 +1,107 @@
+package dinhnguyen.filza.file.manager.ui.viewmodel;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.PatternSyntaxException;
+
+import dinhnguyen.filza.file.manager.manager.ContentSearchManager;
+import dinhnguyen.filza.file.manager.model.ContentMatch;
+import dinhnguyen.filza.file.manager.utils.FileDisplayFormatter;
+
+public class ContentSearchViewModel extends ViewModel {
+
+    private static final int MAX_HITS = 1000;
+
+    private final ContentSearchManager searchManager;
+    // Appended to in place; observers get the same list back each time it grows
+    private final List<ContentMatch> matchList = new ArrayList<>();
+    private final MutableLiveData<List<ContentMatch>> matches = new MutableLiveData<>(matchList);
+    private final MutableLiveData<String> status = new MutableLiveData<>("");
+    private final MutableLiveData<Boolean> isSearching = new MutableLiveData<>(false);
+
+    private ContentSearchManager.SearchHandle currentSearch;
+
+    public ContentSearchViewModel(ContentSearchManager searchManager) {
+        this.searchManager = searchManager;
+    }
+
+    public LiveData<List<ContentMatch>> getMatches() {
+        return matches;
+    }
+
+    public LiveData<String> getStatus() {
+        return status;
+    }
+
+    public LiveData<Boolean> getIsSearching() {
+        return isSearching;
+    }
+
+    public void startSearch(File root, String pattern, boolean regex, boolean caseSensitive) {
+        cancelSearch();
+        matchList.clear();
+        matches.setValue(matchList);
+        if (pattern.isEmpty()) return;
+
+        ContentSearchManager.Options options = new ContentSearchManager.Options(regex, caseSensitive, MAX_HITS);
+        try {
+            currentSearch = searchManager.search(root, pattern, options, new SearchListener());
+        } catch (PatternSyntaxException e) {
+            status.setValue("Invalid regular expression: " + e.getDescription());
+            return;
+        }
+        status.setValue("Searching...");
+        isSearching.setValue(true);
+    }
+
+    public void cancelSearch() {
+        if (currentSearch != null) {
+            currentSearch.cancel();
+            currentSearch = null;
+            isSearching.setValue(false);
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        cancelSearch();
+        searchManager.shutdown();
+    }
+
+    /**
+     * Forwards results of the current search only; a replaced search stays silent
+     */
+    private class SearchListener implements ContentSearchManager.SearchCallback {
+
+        @Override
+        public void onMatches(List<ContentMatch> found) {
+            matchList.addAll(found);
+            matches.setValue(matchList);
+        }
+
+        @Override
+        public void onProgress(int filesScanned, long bytesScanned, double megabytesPerSecond) {
+            status.setValue(String.format(Locale.getDefault(), "%d files • %s • %.1f MB/s",
+                    filesScanned, FileDisplayFormatter.formatSize(bytesScanned), megabytesPerSecond));
+        }
+
+        @Override
+        public void onComplete(ContentSearchManager.Summary summary) {
+            if (summary.isCancelled()) return;
+            currentSearch = null;
+            isSearching.setValue(false);
+            String suffix = summary.isTruncated() ? " (limit reached)" : "";
+            status.setValue(String.format(Locale.getDefault(), "%d matches%s in %d files • %s in %.1f s • %.1f MB/s",
+                    summary.getHitCount(), suffix, summary.getFilesScanned(),
+                    FileDisplayFormatter.formatSize(summary.getBytesScanned()),
+                    summary.getElapsedMs() / 1000.0, summary.getMegabytesPerSecond()));
+        }
+    }
+}
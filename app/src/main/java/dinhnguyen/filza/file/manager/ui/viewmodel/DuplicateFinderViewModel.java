@@ -0,0 +1,190 @@
+package dinhnguyen.filza.file.manager.ui.viewmodel;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import dinhnguyen.filza.file.manager.manager.DuplicateFinder;
+import dinhnguyen.filza.file.manager.model.DuplicateGroup;
+import dinhnguyen.filza.file.manager.utils.FileDisplayFormatter;
+
+public class DuplicateFinderViewModel extends ViewModel {
+
+    private final DuplicateFinder duplicateFinder;
+    // Appended to in place while scanning; observers get the same list back each time it grows
+    private final List<DuplicateGroup> groupList = new ArrayList<>();
+    private final MutableLiveData<List<DuplicateGroup>> groups = new MutableLiveData<>(groupList);
+    private final MutableLiveData<String> status = new MutableLiveData<>("");
+    private final MutableLiveData<Boolean> isScanning = new MutableLiveData<>(false);
+    private final MutableLiveData<Integer> markedCount = new MutableLiveData<>(0);
+
+    private final Set<File> markedFiles = new HashSet<>();
+    private long markedBytes;
+    private DuplicateFinder.FinderHandle currentScan;
+    private int deleteJobId;
+
+    public DuplicateFinderViewModel(DuplicateFinder duplicateFinder) {
+        this.duplicateFinder = duplicateFinder;
+    }
+
+    public LiveData<List<DuplicateGroup>> getGroups() {
+        return groups;
+    }
+
+    public LiveData<String> getStatus() {
+        return status;
+    }
+
+    public LiveData<Boolean> getIsScanning() {
+        return isScanning;
+    }
+
+    public LiveData<Integer> getMarkedCount() {
+        return markedCount;
+    }
+
+    public long getMarkedBytes() {
+        return markedBytes;
+    }
+
+    public boolean isMarked(File file) {
+        return markedFiles.contains(file);
+    }
+
+    public List<File> getMarkedFiles() {
+        List<File> files = new ArrayList<>(markedFiles);
+        Collections.sort(files);
+        return files;
+    }
+
+    public void startScan(File root) {
+        cancelScan();
+        groupList.clear();
+        groups.setValue(groupList);
+        markedFiles.clear();
+        markedBytes = 0;
+        markedCount.setValue(0);
+        status.setValue("Scanning...");
+        isScanning.setValue(true);
+        currentScan = duplicateFinder.find(Collections.singletonList(root), 1, new ScanListener());
+    }
+
+    public void cancelScan() {
+        if (currentScan != null) {
+            currentScan.cancel();
+            currentScan = null;
+            isScanning.setValue(false);
+            status.setValue("Scan stopped");
+        }
+    }
+
+    /**
+     * Mark or unmark a copy for deletion. Refuses to mark the last unmarked
+     * copy in a group, so a review can never delete every copy.
+     */
+    public boolean toggleMarked(DuplicateGroup group, File file) {
+        if (markedFiles.remove(file)) {
+            markedBytes -= group.getSize();
+        } else {
+            int unmarked = 0;
+            for (File copy : group.getFiles()) {
+                if (!markedFiles.contains(copy)) unmarked++;
+            }
+            if (unmarked <= 1) return false;
+            markedFiles.add(file);
+            markedBytes += group.getSize();
+        }
+        markedCount.setValue(markedFiles.size());
+        return true;
+    }
+
+    /**
+     * Remember the job deleting marked copies, so an Activity recreated while
+     * it runs can still pick up its end; 0 when none is running
+     */
+    public void setDeleteJobId(int deleteJobId) {
+        this.deleteJobId = deleteJobId;
+    }
+
+    public int getDeleteJobId() {
+        return deleteJobId;
+    }
+
+    /**
+     * Drop deleted copies from the results, along with groups that no
+     * longer have a duplicate.
+     */
+    public void onFilesDeleted() {
+        deleteJobId = 0;
+        List<DuplicateGroup> remaining = new ArrayList<>();
+        for (DuplicateGroup group : groupList) {
+            List<File> existing = new ArrayList<>();
+            for (File file : group.getFiles()) {
+                if (file.exists()) existing.add(file);
+            }
+            if (existing.size() > 1) {
+                remaining.add(existing.size() == group.getFiles().size()
+                        ? group
+                        : new DuplicateGroup(group.getSize(), group.getHash(), existing));
+            }
+        }
+        groupList.clear();
+        groupList.addAll(remaining);
+        groups.setValue(groupList);
+        markedFiles.clear();
+        markedBytes = 0;
+        markedCount.setValue(0);
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        cancelScan();
+        duplicateFinder.shutdown();
+    }
+
+    /**
+     * Forwards results of the current scan only; a stopped scan stays silent
+     */
+    private class ScanListener implements DuplicateFinder.DuplicateCallback {
+
+        @Override
+        public void onGroupFound(DuplicateGroup group) {
+            groupList.add(group);
+            // Keep the oldest copy, mark the rest
+            List<File> files = group.getFiles();
+            for (int i = 1; i < files.size(); i++) {
+                markedFiles.add(files.get(i));
+            }
+            markedBytes += group.getWastedBytes();
+            groups.setValue(groupList);
+            markedCount.setValue(markedFiles.size());
+        }
+
+        @Override
+        public void onProgress(int filesHashed, int filesToHash) {
+            status.setValue(String.format(Locale.getDefault(), "Comparing %d of %d files • %d groups",
+                    filesHashed, filesToHash, groupList.size()));
+        }
+
+        @Override
+        public void onComplete(DuplicateFinder.Summary summary) {
+            if (summary.isCancelled()) return;
+            currentScan = null;
+            isScanning.setValue(false);
+            status.setValue(String.format(Locale.getDefault(),
+                    "%d groups • %s reclaimable • %d files in %.1f s, %s read",
+                    summary.getGroupCount(), FileDisplayFormatter.formatSize(summary.getWastedBytes()),
+                    summary.getFilesScanned(), summary.getElapsedMs() / 1000.0,
+                    FileDisplayFormatter.formatSize(summary.getBytesRead())));
+        }
+    }
+}
@@ -1,15 +1,22 @@
 package dinhnguyen.filza.file.manager.ui.viewmodel;
 
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
 import java.io.File;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import dinhnguyen.filza.file.manager.manager.DirectoryManager;
 import dinhnguyen.filza.file.manager.manager.FileOpenManager;
 import dinhnguyen.filza.file.manager.manager.FileImportManager;
+import dinhnguyen.filza.file.manager.model.FileEntry;
 import dinhnguyen.filza.file.manager.handlers.FileHandler;
 
 public class FileBrowserViewModel extends ViewModel {
@@ -18,8 +25,14 @@ public class FileBrowserViewModel extends ViewModel {
     private final FileOpenManager fileOpenManager;
     private final FileImportManager fileImportManager;
     
-    private final MutableLiveData<List<File>> files = new MutableLiveData<>();
+    private final MutableLiveData<List<FileEntry>> files = new MutableLiveData<>();
     private final MutableLiveData<File> currentDirectory = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> isLoading = new MutableLiveData<>(false);
+    
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private CancellationSignal currentLoadSignal;
+    private int loadGeneration;
     
     public FileBrowserViewModel(DirectoryManager directoryManager, 
                               FileOpenManager fileOpenManager,
@@ -29,7 +42,7 @@ public class FileBrowserViewModel extends ViewModel {
         this.fileImportManager = fileImportManager;
     }
     
-    public LiveData<List<File>> getFiles() {
+    public LiveData<List<FileEntry>> getFiles() {
         return files;
     }
     
@@ -37,11 +50,53 @@ public class FileBrowserViewModel extends ViewModel {
         return currentDirectory;
     }
     
+    public LiveData<Boolean> getIsLoading() {
+        return isLoading;
+    }
+    
+    /**
+     * Lists the directory on a background thread. Partial, sorted snapshots are
+     * published as they arrive; any load still running for a previous directory
+     * is cancelled and its results are dropped.
+     */
     public void loadDirectory(File directory) {
+        cancelCurrentLoad();
         currentDirectory.setValue(directory);
+        isLoading.setValue(true);
+        
+        CancellationSignal signal = new CancellationSignal();
+        int generation = ++loadGeneration;
+        currentLoadSignal = signal;
         
-        List<File> fileList = directoryManager.getFilesInDirectory(directory);
-        files.setValue(fileList);
+        loadExecutor.execute(() -> directoryManager.loadFilesInDirectory(directory, signal,
+                (snapshot, complete) -> mainHandler.post(() -> {
+                    if (generation != loadGeneration || signal.isCanceled()) {
+                        return;
+                    }
+                    files.setValue(snapshot);
+                    if (complete) {
+                        isLoading.setValue(false);
+                        currentLoadSignal = null;
+                    }
+                })));
+    }
+    
+    /**
+     * Reload the current directory, bypassing the cached listing.
+     */
+    public void refresh() {
+        File current = currentDirectory.getValue();
+        if (current != null) {
+            directoryManager.invalidate(current);
+            loadDirectory(current);
+        }
+    }
+    
+    private void cancelCurrentLoad() {
+        if (currentLoadSignal != null) {
+            currentLoadSignal.cancel();
+            currentLoadSignal = null;
+        }
     }
     
     public void navigateToParent() {
@@ -68,7 +123,7 @@ public class FileBrowserViewModel extends ViewModel {
         if (current != null) {
             boolean success = directoryManager.createFolder(current, folderName);
             if (success) {
-                loadDirectory(current);
+                refresh();
             }
         }
     }
@@ -76,7 +131,18 @@ public class FileBrowserViewModel extends ViewModel {
     public void importFile(android.net.Uri uri) {
         File current = currentDirectory.getValue();
         if (current != null) {
-            fileImportManager.importFile(uri, current, () -> loadDirectory(current));
+            fileImportManager.importFile(uri, current, () -> {
+                directoryManager.invalidate(current);
+                loadDirectory(current);
+            });
         }
     }
+    
+    @Override
+    protected void onCleared() {
+        cancelCurrentLoad();
+        loadExecutor.shutdownNow();
+        directoryManager.clearCache();
+        super.onCleared();
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,30 @@
+package dinhnguyen.filza.file.manager.ui.viewmodel;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.ViewModel;
+
+import java.util.List;
+
+import dinhnguyen.filza.file.manager.manager.JobHandle;
+import dinhnguyen.filza.file.manager.manager.JobManager;
+
+/**
+ * Exposes the jobs of the shared {@link JobManager}; jobs outlive this
+ * ViewModel, so there is nothing to stop in onCleared
+ */
+public class JobsViewModel extends ViewModel {
+
+    private final JobManager jobManager;
+
+    public JobsViewModel(JobManager jobManager) {
+        this.jobManager = jobManager;
+    }
+
+    public LiveData<List<JobHandle>> getJobs() {
+        return jobManager.getJobs();
+    }
+
+    public void clearFinished() {
+        jobManager.clearFinished();
+    }
+}
@@ -11,7 +11,8 @@ import dinhnguyen.filza.file.manager.constants.PdfConstants;
 import dinhnguyen.filza.file.manager.handlers.PdfExportHandler;
 import dinhnguyen.filza.file.manager.manager.PdfManager;
 import dinhnguyen.filza.file.manager.ui.model.PdfPage;
-import dinhnguyen.filza.file.manager.utils.FileTypeUtils;
+import dinhnguyen.filza.file.manager.utils.FileSignatureDetector;
+import dinhnguyen.filza.file.manager.utils.FileTypeRegistry;
 
 public class PdfViewerViewModel extends ViewModel {
     
@@ -73,7 +74,7 @@ public class PdfViewerViewModel extends ViewModel {
                 return false;
             }
             
-            if (!FileTypeUtils.isPdfFile(pdfFile)) {
+            if (!FileSignatureDetector.hasCategory(pdfFile, FileTypeRegistry.Category.PDF)) {
                 errorMessage.setValue(PdfConstants.ERROR_INVALID_PDF_FILE);
                 return false;
             }
@@ -99,7 +100,7 @@ public class PdfViewerViewModel extends ViewModel {
         int pages = pdfManager.getTotalPages();
         totalPages.setValue(pages);
         
-        String title = FileTypeUtils.getFileNameWithoutExtension(pdfFile.getName()) + 
+        String title = FileTypeRegistry.getNameWithoutExtension(pdfFile.getName()) + 
                       " (" + pages + " trang)";
         pdfTitle.setValue(title);
         
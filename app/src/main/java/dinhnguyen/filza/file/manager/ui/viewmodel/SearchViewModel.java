@@ -0,0 +1,109 @@
+package dinhnguyen.filza.file.manager.ui.viewmodel;
+
+import android.database.sqlite.SQLiteException;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import dinhnguyen.filza.file.manager.manager.FileSearchManager;
+import dinhnguyen.filza.file.manager.model.IndexedFile;
+
+public class SearchViewModel extends ViewModel {
+
+    private static final long DEBOUNCE_MS = 150;
+    private static final int MAX_RESULTS = 200;
+
+    private final FileSearchManager searchManager;
+    private final MutableLiveData<List<IndexedFile>> results = new MutableLiveData<>(Collections.emptyList());
+    private final MutableLiveData<Boolean> isSearching = new MutableLiveData<>(false);
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable searchRunnable = this::runSearch;
+
+    private String query = "";
+    private CancellationSignal currentSearchSignal;
+
+    public SearchViewModel(FileSearchManager searchManager) {
+        this.searchManager = searchManager;
+    }
+
+    public LiveData<List<IndexedFile>> getResults() {
+        return results;
+    }
+
+    public LiveData<Boolean> getIsSearching() {
+        return isSearching;
+    }
+
+    /**
+     * Update the query as the user types. The search starts once typing pauses,
+     * and any search still running for an older query is cancelled.
+     */
+    public void setQuery(String query) {
+        String trimmed = query.trim();
+        if (trimmed.equals(this.query)) return;
+        this.query = trimmed;
+
+        mainHandler.removeCallbacks(searchRunnable);
+        cancelCurrentSearch();
+        if (trimmed.isEmpty()) {
+            results.setValue(Collections.emptyList());
+            isSearching.setValue(false);
+        } else {
+            mainHandler.postDelayed(searchRunnable, DEBOUNCE_MS);
+        }
+    }
+
+    private void runSearch() {
+        CancellationSignal signal = new CancellationSignal();
+        currentSearchSignal = signal;
+        String searchQuery = query;
+        isSearching.setValue(true);
+
+        searchExecutor.execute(() -> {
+            if (signal.isCanceled()) return;
+            try {
+                List<IndexedFile> found = searchManager.search(searchQuery, MAX_RESULTS, signal);
+                mainHandler.post(() -> {
+                    if (signal.isCanceled()) return;
+                    results.setValue(found);
+                    isSearching.setValue(false);
+                });
+            } catch (OperationCanceledException e) {
+                // A newer query replaced this one
+            } catch (SQLiteException e) {
+                // The index could not be read; end this search with no results
+                mainHandler.post(() -> {
+                    if (signal.isCanceled()) return;
+                    results.setValue(Collections.emptyList());
+                    isSearching.setValue(false);
+                });
+            }
+        });
+    }
+
+    private void cancelCurrentSearch() {
+        if (currentSearchSignal != null) {
+            currentSearchSignal.cancel();
+            currentSearchSignal = null;
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        mainHandler.removeCallbacks(searchRunnable);
+        cancelCurrentSearch();
+        searchExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,156 @@
+package dinhnguyen.filza.file.manager.ui.viewmodel;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import dinhnguyen.filza.file.manager.model.UsageNode;
+import dinhnguyen.filza.file.manager.service.DirectorySizeService;
+import dinhnguyen.filza.file.manager.utils.FileDisplayFormatter;
+import dinhnguyen.filza.file.manager.utils.StorageUtils;
+
+/**
+ * Holds one analyzed usage tree and the path the user drilled into. Drilling
+ * in and out only moves along the tree; {@link #analyze(File)} re-walks the
+ * disk, which re-lists only directories that changed since the last walk,
+ * and {@link #rescan(File)} re-lists all of them.
+ */
+public class StorageAnalyzerViewModel extends ViewModel {
+
+    private static final int LARGEST_FILE_COUNT = DirectorySizeService.LARGEST_FILES_PER_DIRECTORY;
+
+    private final DirectorySizeService sizeService;
+    private final File snapshotFile;
+    private final ExecutorService analyzeExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final MutableLiveData<UsageNode> currentNode = new MutableLiveData<>();
+    private final MutableLiveData<List<UsageNode>> largestFiles = new MutableLiveData<>(Collections.emptyList());
+    private final MutableLiveData<String> status = new MutableLiveData<>("");
+    private final MutableLiveData<Boolean> isAnalyzing = new MutableLiveData<>(false);
+
+    // Root first, current node last
+    private final List<UsageNode> path = new ArrayList<>();
+    private int generation;
+
+    public StorageAnalyzerViewModel(DirectorySizeService sizeService, File snapshotFile) {
+        this.sizeService = sizeService;
+        this.snapshotFile = snapshotFile;
+    }
+
+    public LiveData<UsageNode> getCurrentNode() {
+        return currentNode;
+    }
+
+    public LiveData<List<UsageNode>> getLargestFiles() {
+        return largestFiles;
+    }
+
+    public LiveData<String> getStatus() {
+        return status;
+    }
+
+    public LiveData<Boolean> getIsAnalyzing() {
+        return isAnalyzing;
+    }
+
+    public void analyze(File root) {
+        analyze(root, false);
+    }
+
+    /**
+     * Analyze again, listing every directory whatever its mtime. Picks up
+     * files that changed size in place without anything reporting it.
+     */
+    public void rescan(File root) {
+        analyze(root, true);
+    }
+
+    private void analyze(File root, boolean rescan) {
+        int analysis = ++generation;
+        isAnalyzing.setValue(true);
+        status.setValue(rescan ? "Rescanning..." : "Analyzing...");
+        analyzeExecutor.execute(() -> {
+            sizeService.restore(snapshotFile);
+            DirectorySizeService.UsageReport report = sizeService.analyze(root, LARGEST_FILE_COUNT, rescan);
+            sizeService.persist(snapshotFile);
+            long total = StorageUtils.getTotalSpace(root);
+            long free = StorageUtils.getAvailableSpace(root);
+            mainHandler.post(() -> {
+                if (analysis != generation) return;
+                showReport(report, total, free);
+            });
+        });
+    }
+
+    /**
+     * Drill into a directory tile. Returns false for files, which have
+     * nothing to drill into.
+     */
+    public boolean open(UsageNode node) {
+        if (!node.isDirectory() || path.isEmpty()) return false;
+        path.add(node);
+        currentNode.setValue(node);
+        return true;
+    }
+
+    /**
+     * Go back to the parent directory. Returns false when already at the root.
+     */
+    public boolean navigateUp() {
+        if (path.size() <= 1) return false;
+        path.remove(path.size() - 1);
+        currentNode.setValue(path.get(path.size() - 1));
+        return true;
+    }
+
+    private void showReport(DirectorySizeService.UsageReport report, long total, long free) {
+        isAnalyzing.setValue(false);
+        UsageNode root = report.getRoot();
+
+        // Keep the user where they were if that directory still exists
+        List<File> previousPath = new ArrayList<>();
+        for (int i = 1; i < path.size(); i++) {
+            previousPath.add(path.get(i).getFile());
+        }
+        path.clear();
+        path.add(root);
+        for (File file : previousPath) {
+            UsageNode next = findChild(path.get(path.size() - 1), file);
+            if (next == null) break;
+            path.add(next);
+        }
+
+        currentNode.setValue(path.get(path.size() - 1));
+        largestFiles.setValue(report.getLargestFiles());
+        status.setValue(String.format(Locale.getDefault(), "%s in %d files • %s free of %s • %d folders read in %.1f s",
+                FileDisplayFormatter.formatSize(root.getBytes()), root.getFileCount(),
+                FileDisplayFormatter.formatSize(free), FileDisplayFormatter.formatSize(total),
+                report.getListedDirectories(), report.getElapsedMs() / 1000.0));
+    }
+
+    private static UsageNode findChild(UsageNode parent, File file) {
+        for (UsageNode child : parent.getChildren()) {
+            if (child.isDirectory() && child.getFile().equals(file)) return child;
+        }
+        return null;
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        generation++;
+        analyzeExecutor.shutdown();
+    }
+}
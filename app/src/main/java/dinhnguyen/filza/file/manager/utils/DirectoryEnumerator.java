@@ -0,0 +1,201 @@
+package dinhnguyen.filza.file.manager.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams a directory's entries through {@link DirectoryStream} instead of
+ * building a {@code File[]} up front. Each entry's basic attributes are read
+ * in the same pass, entries are delivered in batches, and enumeration stops
+ * as soon as the listener declines more entries or the limit is reached.
+ * Name filters run before the entry is stat-ed, so skipped names cost nothing
+ * beyond the directory read.
+ */
+public class DirectoryEnumerator {
+
+    public static final int DEFAULT_BATCH_SIZE = 128;
+
+    /** Accepts entries by name only, before their attributes are read. */
+    public interface NameFilter {
+        boolean accept(String name);
+    }
+
+    /** Accepts entries once their attributes are known. */
+    public interface EntryFilter {
+        boolean accept(Entry entry);
+    }
+
+    /**
+     * Receives entries in directory order. Batches are reused between calls,
+     * so copy out what must be kept. Return false to stop enumerating.
+     */
+    public interface BatchListener {
+        boolean onBatch(List<Entry> batch);
+    }
+
+    public static final NameFilter VISIBLE = name -> !name.startsWith(".");
+    public static final EntryFilter DIRECTORIES = Entry::isDirectory;
+
+    /**
+     * One directory entry with the attributes read while enumerating. Entries
+     * whose attributes cannot be read (e.g. broken symlinks) report a regular
+     * file of size 0.
+     */
+    public static final class Entry {
+        private final Path path;
+        private final String name;
+        private final BasicFileAttributes attributes;
+
+        Entry(Path path, String name, BasicFileAttributes attributes) {
+            this.path = path;
+            this.name = name;
+            this.attributes = attributes;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public File getFile() {
+            return path.toFile();
+        }
+
+        /** Null when the attributes could not be read. */
+        public BasicFileAttributes getAttributes() {
+            return attributes;
+        }
+
+        public boolean isDirectory() {
+            return attributes != null && attributes.isDirectory();
+        }
+
+        public boolean isSymbolicLink() {
+            return attributes != null && attributes.isSymbolicLink();
+        }
+
+        public long getSize() {
+            return attributes != null && !attributes.isDirectory() ? attributes.size() : 0;
+        }
+
+        public long getLastModified() {
+            return attributes != null ? attributes.lastModifiedTime().toMillis() : 0;
+        }
+    }
+
+    private final Path directory;
+    private NameFilter nameFilter;
+    private EntryFilter entryFilter;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int limit = Integer.MAX_VALUE;
+    private LinkOption[] linkOptions = new LinkOption[0];
+
+    public DirectoryEnumerator(File directory) {
+        this.directory = directory.toPath();
+    }
+
+    public DirectoryEnumerator setNameFilter(NameFilter nameFilter) {
+        this.nameFilter = nameFilter;
+        return this;
+    }
+
+    public DirectoryEnumerator setEntryFilter(EntryFilter entryFilter) {
+        this.entryFilter = entryFilter;
+        return this;
+    }
+
+    public DirectoryEnumerator setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+        return this;
+    }
+
+    /** Stop after this many accepted entries. */
+    public DirectoryEnumerator setLimit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Report symlinks themselves rather than their targets. Walkers that
+     * recurse or delete should use this so they never leave the tree.
+     */
+    public DirectoryEnumerator setNoFollowLinks(boolean noFollowLinks) {
+        this.linkOptions = noFollowLinks ? new LinkOption[]{LinkOption.NOFOLLOW_LINKS} : new LinkOption[0];
+        return this;
+    }
+
+    /**
+     * Enumerate on the calling thread. Returns false if the directory could
+     * not be opened; entries delivered before a read error mid-way are kept
+     * and enumeration simply ends there.
+     */
+    public boolean enumerate(BatchListener listener) {
+        DirectoryStream.Filter<Path> streamFilter = nameFilter == null
+                ? path -> true
+                : path -> nameFilter.accept(path.getFileName().toString());
+        List<Entry> batch = new ArrayList<>(Math.min(batchSize, DEFAULT_BATCH_SIZE));
+        DirectoryStream<Path> opened;
+        try {
+            opened = Files.newDirectoryStream(directory, streamFilter);
+        } catch (IOException | SecurityException e) {
+            return false;
+        }
+        int accepted = 0;
+        try (DirectoryStream<Path> stream = opened) {
+            for (Path path : stream) {
+                Entry entry = new Entry(path, path.getFileName().toString(), readAttributes(path));
+                if (entryFilter != null && !entryFilter.accept(entry)) {
+                    continue;
+                }
+                batch.add(entry);
+                accepted++;
+                boolean limitReached = accepted >= limit;
+                if (batch.size() >= batchSize || limitReached) {
+                    boolean more = listener.onBatch(batch);
+                    batch.clear();
+                    if (!more || limitReached) {
+                        return true;
+                    }
+                }
+            }
+        } catch (IOException | DirectoryIteratorException | SecurityException e) {
+            // Keep what was read; the listener gets the partial last batch below
+        }
+        if (!batch.isEmpty()) {
+            listener.onBatch(batch);
+        }
+        return true;
+    }
+
+    /**
+     * Collect every accepted entry. Returns null if the directory could not
+     * be opened, mirroring {@link File#listFiles()}.
+     */
+    public List<Entry> list() {
+        List<Entry> entries = new ArrayList<>();
+        boolean opened = enumerate(batch -> {
+            entries.addAll(batch);
+            return true;
+        });
+        return opened ? entries : null;
+    }
+
+    private BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class, linkOptions);
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package dinhnguyen.filza.file.manager.utils;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import dinhnguyen.filza.file.manager.model.OperationProgress;
+
+/**
+ * Formats sizes, dates and progress for file rows without per-call formatter allocation.
+ * Date formatters are confined to the calling thread, so this is safe to use
+ * from background loaders as well as from the main thread.
+ */
+public class FileDisplayFormatter {
+
+    private static final long KB = 1024;
+    private static final long MB = KB * 1024;
+    private static final long GB = MB * 1024;
+
+    private static final ThreadLocal<SimpleDateFormat> FULL_DATE_FORMAT = ThreadLocal.withInitial(
+            () -> new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault()));
+    private static final ThreadLocal<SimpleDateFormat> SHORT_DATE_FORMAT = ThreadLocal.withInitial(
+            () -> new SimpleDateFormat("MM-dd", Locale.getDefault()));
+    private static final ThreadLocal<Date> DATE = ThreadLocal.withInitial(Date::new);
+
+    /**
+     * Format a byte count as "123 B", "1.5 KB", "20.0 MB" or "3.2 GB"
+     */
+    public static String formatSize(long size) {
+        if (size < KB) {
+            return size + " B";
+        } else if (size < MB) {
+            return formatTenths(size, KB, " KB");
+        } else if (size < GB) {
+            return formatTenths(size, MB, " MB");
+        } else {
+            return formatTenths(size, GB, " GB");
+        }
+    }
+
+    /**
+     * Format a duration as "m:ss", or "h:mm:ss" from an hour up
+     */
+    public static String formatDuration(long millis) {
+        long seconds = (millis + 500) / 1000;
+        long hours = seconds / 3600;
+        long minutes = seconds / 60 % 60;
+        StringBuilder builder = new StringBuilder(10);
+        if (hours > 0) {
+            builder.append(hours).append(':');
+            if (minutes < 10) builder.append('0');
+        }
+        builder.append(minutes).append(':');
+        if (seconds % 60 < 10) builder.append('0');
+        return builder.append(seconds % 60).toString();
+    }
+
+    /**
+     * Format progress counts as "3/10" or "3/10 • 1.2 MB of 5.0 MB"
+     */
+    public static String formatProgressCounts(OperationProgress progress) {
+        StringBuilder builder = new StringBuilder(40)
+                .append(progress.getFilesDone()).append('/').append(progress.getFilesTotal());
+        if (progress.getBytesTotal() > 0) {
+            builder.append(" • ").append(formatSize(progress.getBytesDone()))
+                    .append(" of ").append(formatSize(progress.getBytesTotal()));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Format progress as "42%", followed by the throughput and time left once known
+     */
+    public static String formatProgressDetails(OperationProgress progress) {
+        StringBuilder builder = new StringBuilder(40)
+                .append(Math.round(progress.getFraction() * 100)).append('%');
+        if (progress.getBytesPerSecond() > 0) {
+            builder.append(" • ").append(formatSize(progress.getBytesPerSecond())).append("/s");
+        }
+        if (progress.getEtaMillis() != OperationProgress.UNKNOWN) {
+            builder.append(" • ").append(formatDuration(progress.getEtaMillis())).append(" left");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Format a timestamp as "yyyy-MM-dd HH:mm" for list rows
+     */
+    public static String formatFullDate(long millis) {
+        return format(FULL_DATE_FORMAT.get(), millis);
+    }
+
+    /**
+     * Format a timestamp as "MM-dd" for grid cells
+     */
+    public static String formatShortDate(long millis) {
+        return format(SHORT_DATE_FORMAT.get(), millis);
+    }
+
+    private static String format(SimpleDateFormat format, long millis) {
+        Date date = DATE.get();
+        date.setTime(millis);
+        return format.format(date);
+    }
+
+    private static String formatTenths(long size, long unit, String suffix) {
+        long tenths = (size * 10 + unit / 2) / unit;
+        return new StringBuilder(12)
+                .append(tenths / 10)
+                .append('.')
+                .append(tenths % 10)
+                .append(suffix)
+                .toString();
+    }
+}
@@ -2,71 +2,87 @@ package dinhnguyen.filza.file.manager.utils;
 
 import android.content.Context;
 import android.graphics.drawable.Drawable;
+import android.util.SparseArray;
 import androidx.core.content.ContextCompat;
 
 import dinhnguyen.filza.file.manager.R;
 
 import java.io.File;
 
+import dinhnguyen.filza.file.manager.model.FileEntry;
+
 public class FileIconManager {
     
+    private static final SparseArray<Drawable.ConstantState> ICON_STATES = new SparseArray<>();
+    // Icons tint with night-mode colors, so cached states are only valid for one ui mode
+    private static int iconStatesUiMode = -1;
+    
     public static Drawable getFileIcon(Context context, File file) {
-        if (file.isDirectory()) {
-            return ContextCompat.getDrawable(context, R.drawable.ic_folder);
+        return getFileIcon(context, file.getName(), file.isDirectory());
+    }
+    
+    public static Drawable getFileIcon(Context context, FileEntry entry) {
+        return getDrawable(context, entry.getIconRes());
+    }
+    
+    private static Drawable getFileIcon(Context context, String name, boolean isDirectory) {
+        return getDrawable(context, getIconRes(name, isDirectory));
+    }
+    
+    /**
+     * Resolve the icon resource for a file name without touching the filesystem
+     */
+    public static int getIconRes(String name, boolean isDirectory) {
+        if (isDirectory) {
+            return R.drawable.ic_folder;
         }
-        
-        String fileName = file.getName().toLowerCase();
-        
-        // Document files
-        if (FileTypeDetector.isPdfFile(fileName)) {
-            return ContextCompat.getDrawable(context, R.drawable.ic_pdf);
-        } else if (fileName.endsWith(".doc") || fileName.endsWith(".docx")) {
-            return ContextCompat.getDrawable(context, R.drawable.ic_word);
-        } else if (fileName.endsWith(".xls") || fileName.endsWith(".xlsx")) {
-            return ContextCompat.getDrawable(context, R.drawable.ic_excel);
-        } else if (fileName.endsWith(".ppt") || fileName.endsWith(".pptx")) {
-            return ContextCompat.getDrawable(context, R.drawable.ic_powerpoint);
-        } else if (FileTypeDetector.isTextFile(fileName)) {
-            return ContextCompat.getDrawable(context, R.drawable.ic_text);
+        return FileTypeRegistry.getType(name).getIconRes();
+    }
+    
+    /**
+     * Resolve the icon resource for an already resolved file type
+     */
+    public static int getIconRes(FileTypeRegistry.FileType type, boolean isDirectory) {
+        return isDirectory ? R.drawable.ic_folder : type.getIconRes();
+    }
+    
+    /**
+     * Get a drawable for an icon resource, sharing one decoded constant state per resource
+     */
+    public static Drawable getDrawable(Context context, int iconRes) {
+        int uiMode = context.getResources().getConfiguration().uiMode;
+        Drawable.ConstantState state;
+        synchronized (ICON_STATES) {
+            if (uiMode != iconStatesUiMode) {
+                ICON_STATES.clear();
+                iconStatesUiMode = uiMode;
+            }
+            state = ICON_STATES.get(iconRes);
         }
-        
-        // Media files
-        if (FileTypeDetector.isImageFile(fileName)) {
-            return ContextCompat.getDrawable(context, R.drawable.ic_image);
-        } else if (FileTypeDetector.isVideoFile(fileName)) {
-            return ContextCompat.getDrawable(context, R.drawable.ic_video);
-        } else if (FileTypeDetector.isAudioFile(fileName)) {
-            return ContextCompat.getDrawable(context, R.drawable.ic_audio);
+        if (state != null) {
+            return state.newDrawable(context.getResources());
         }
         
-        // Archive files
-        if (fileName.endsWith(".zip") || fileName.endsWith(".rar") || 
-            fileName.endsWith(".7z") || fileName.endsWith(".tar") ||
-            fileName.endsWith(".gz")) {
-            return ContextCompat.getDrawable(context, R.drawable.ic_archive);
+        Drawable drawable = ContextCompat.getDrawable(context, iconRes);
+        if (drawable != null && drawable.getConstantState() != null) {
+            synchronized (ICON_STATES) {
+                ICON_STATES.put(iconRes, drawable.getConstantState());
+            }
         }
-        
-        // Default file icon
-        return ContextCompat.getDrawable(context, R.drawable.ic_file);
+        return drawable;
     }
     
     public static String getFileInfo(File file) {
         if (file.isDirectory()) {
             return "Folder";
         }
-        
-        long size = file.length();
-        if (size < 1024) {
-            return size + " B";
-        } else if (size < 1024 * 1024) {
-            return String.format("%.1f KB", size / 1024.0);
-        } else if (size < 1024 * 1024 * 1024) {
-            return String.format("%.1f MB", size / (1024.0 * 1024.0));
-        } else {
-            return String.format("%.1f GB", size / (1024.0 * 1024.0 * 1024.0));
-        }
+        return FileDisplayFormatter.formatSize(file.length());
     }
-
+    
+    public static String getFileInfo(FileEntry entry) {
+        return entry.getInfoText();
+    }
+    
     public static int getIconResForMimeType(String mimeType) {
         if (mimeType == null) return R.drawable.ic_file;
         if (mimeType.equals("application/pdf")) return R.drawable.ic_pdf;
@@ -0,0 +1,150 @@
+package dinhnguyen.filza.file.manager.utils;
+
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Detects file types from their leading "magic" bytes, for files whose
+ * extension is missing or unknown. Probe results are cached by
+ * (path, size, mtime), so each file is read at most once until it changes.
+ */
+public class FileSignatureDetector {
+
+    private static final int PROBE_SIZE = 16;
+    private static final int CACHE_SIZE = 1024;
+
+    private static final ThreadLocal<byte[]> PROBE_BUFFER = ThreadLocal.withInitial(() -> new byte[PROBE_SIZE]);
+    private static final LruCache<String, ProbeResult> PROBE_CACHE = new LruCache<>(CACHE_SIZE);
+
+    /**
+     * Resolve a file's type from its extension, falling back to a content
+     * probe when the extension is missing or not registered
+     */
+    public static FileTypeRegistry.FileType resolveType(File file) {
+        return resolveType(file, file.length(), file.lastModified());
+    }
+
+    /**
+     * Same as {@link #resolveType(File)} for callers that already know the
+     * file's size and modification time
+     */
+    public static FileTypeRegistry.FileType resolveType(File file, long size, long lastModified) {
+        FileTypeRegistry.FileType type = FileTypeRegistry.getType(file.getName());
+        if (type != FileTypeRegistry.UNKNOWN) {
+            return type;
+        }
+        return detect(file, size, lastModified);
+    }
+
+    /**
+     * Whether the file resolves to {@code category}, by extension or content.
+     * Viewers check this so a file opened by its sniffed type is accepted.
+     */
+    public static boolean hasCategory(File file, FileTypeRegistry.Category category) {
+        return resolveType(file).getCategory() == category;
+    }
+
+    /**
+     * The type an earlier probe found for this version of the file, or null
+     * if it has not been probed. Never touches the disk.
+     */
+    public static FileTypeRegistry.FileType getCachedType(File file, long size, long lastModified) {
+        ProbeResult cached = PROBE_CACHE.get(file.getPath());
+        if (cached != null && cached.size == size && cached.lastModified == lastModified) {
+            return cached.type;
+        }
+        return null;
+    }
+
+    /**
+     * Identify a file by its content, or return {@link FileTypeRegistry#UNKNOWN}
+     */
+    public static FileTypeRegistry.FileType detect(File file, long size, long lastModified) {
+        if (size <= 0) {
+            return FileTypeRegistry.UNKNOWN;
+        }
+
+        String path = file.getPath();
+        ProbeResult cached = PROBE_CACHE.get(path);
+        if (cached != null && cached.size == size && cached.lastModified == lastModified) {
+            return cached.type;
+        }
+
+        FileTypeRegistry.FileType type = probe(file);
+        PROBE_CACHE.put(path, new ProbeResult(size, lastModified, type));
+        return type;
+    }
+
+    private static FileTypeRegistry.FileType probe(File file) {
+        byte[] header = PROBE_BUFFER.get();
+        int length;
+        try (FileInputStream in = new FileInputStream(file)) {
+            length = readFully(in, header);
+        } catch (IOException | SecurityException e) {
+            return FileTypeRegistry.UNKNOWN;
+        }
+
+        String extension = matchSignature(header, length);
+        return extension != null
+                ? FileTypeRegistry.getTypeForExtension(extension)
+                : FileTypeRegistry.UNKNOWN;
+    }
+
+    private static int readFully(FileInputStream in, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int read = in.read(buffer, total, buffer.length - total);
+            if (read < 0) break;
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Map a file header to the extension of the matching registered type
+     */
+    private static String matchSignature(byte[] h, int length) {
+        if (startsWith(h, length, 0, '%', 'P', 'D', 'F')) return "pdf";
+        if (startsWith(h, length, 0, 'P', 'K', 0x03, 0x04)
+                || startsWith(h, length, 0, 'P', 'K', 0x05, 0x06)) return "zip";
+        if (startsWith(h, length, 0, 0x89, 'P', 'N', 'G')) return "png";
+        if (startsWith(h, length, 0, 0xFF, 0xD8, 0xFF)) return "jpg";
+        if (startsWith(h, length, 0, 'G', 'I', 'F', '8')) return "gif";
+        if (startsWith(h, length, 0, 'R', 'I', 'F', 'F')
+                && startsWith(h, length, 8, 'W', 'E', 'B', 'P')) return "webp";
+        if (startsWith(h, length, 4, 'f', 't', 'y', 'p')) {
+            // ISO base media: the major brand tells audio-only files apart
+            return startsWith(h, length, 8, 'M', '4', 'A', ' ') ? "m4a" : "mp4";
+        }
+        if (startsWith(h, length, 0, 'O', 'g', 'g', 'S')) return "ogg";
+        if (startsWith(h, length, 0, 'f', 'L', 'a', 'C')) return "flac";
+        if (startsWith(h, length, 0, 0x1F, 0x8B)) return "gz";
+        if (startsWith(h, length, 0, 'I', 'D', '3')) return "mp3";
+        // Bare MPEG audio frame: 11-bit frame sync followed by layer III
+        if (length >= 2 && (h[0] & 0xFF) == 0xFF && (h[1] & 0xE6) == 0xE2) return "mp3";
+        return null;
+    }
+
+    private static boolean startsWith(byte[] header, int length, int offset, int... signature) {
+        if (length < offset + signature.length) return false;
+        for (int i = 0; i < signature.length; i++) {
+            if ((header[offset + i] & 0xFF) != signature[i]) return false;
+        }
+        return true;
+    }
+
+    private static class ProbeResult {
+        final long size;
+        final long lastModified;
+        final FileTypeRegistry.FileType type;
+
+        ProbeResult(long size, long lastModified, FileTypeRegistry.FileType type) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.type = type;
+        }
+    }
+}
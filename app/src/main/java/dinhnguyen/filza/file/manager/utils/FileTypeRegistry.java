@@ -0,0 +1,211 @@
+package dinhnguyen.filza.file.manager.utils;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import dinhnguyen.filza.file.manager.R;
+
+/**
+ * Single source of truth for file types.
+ * Maps a lowercase extension (without the dot) to a {@link FileType} descriptor,
+ * so every lookup is one hash lookup on the extension.
+ */
+public class FileTypeRegistry {
+
+    public enum Category {
+        IMAGE, AUDIO, VIDEO, TEXT, PDF, DOCUMENT, SPREADSHEET, PRESENTATION, ARCHIVE, OTHER
+    }
+
+    /**
+     * Describes a file type: its category, MIME type and browser icon
+     */
+    public static final class FileType {
+        private final Category category;
+        private final String mimeType;
+        private final int iconRes;
+
+        public FileType(Category category, String mimeType, int iconRes) {
+            this.category = category;
+            this.mimeType = mimeType;
+            this.iconRes = iconRes;
+        }
+
+        public Category getCategory() {
+            return category;
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+
+        public int getIconRes() {
+            return iconRes;
+        }
+    }
+
+    public static final FileType UNKNOWN = new FileType(Category.OTHER, "*/*", R.drawable.ic_file);
+
+    private static final Map<String, FileType> TYPES = new ConcurrentHashMap<>();
+
+    static {
+        // Images
+        register("jpg", Category.IMAGE, "image/jpeg");
+        register("jpeg", Category.IMAGE, "image/jpeg");
+        register("png", Category.IMAGE, "image/png");
+        register("gif", Category.IMAGE, "image/gif");
+        register("bmp", Category.IMAGE, "image/bmp");
+        register("webp", Category.IMAGE, "image/webp");
+
+        // Audio
+        register("mp3", Category.AUDIO, "audio/mpeg");
+        register("wav", Category.AUDIO, "audio/wav");
+        register("ogg", Category.AUDIO, "audio/ogg");
+        register("m4a", Category.AUDIO, "audio/mp4");
+        register("flac", Category.AUDIO, "audio/flac");
+        register("aac", Category.AUDIO, "audio/aac");
+        register("wma", Category.AUDIO, "audio/x-ms-wma");
+        register("aiff", Category.AUDIO, "audio/aiff");
+
+        // Video
+        register("mp4", Category.VIDEO, "video/mp4");
+        register("mkv", Category.VIDEO, "video/x-matroska");
+        register("3gp", Category.VIDEO, "video/3gpp");
+        register("avi", Category.VIDEO, "video/x-msvideo");
+        register("mov", Category.VIDEO, "video/quicktime");
+        register("wmv", Category.VIDEO, "video/x-ms-wmv");
+        register("flv", Category.VIDEO, "video/x-flv");
+        register("webm", Category.VIDEO, "video/webm");
+
+        // Text
+        register("txt", Category.TEXT, "text/plain");
+        register("log", Category.TEXT, "text/plain");
+        register("md", Category.TEXT, "text/markdown");
+        register("json", Category.TEXT, "application/json");
+        register("xml", Category.TEXT, "text/xml");
+        register("csv", Category.TEXT, "text/csv");
+
+        // Documents
+        register("pdf", Category.PDF, "application/pdf");
+        register("doc", Category.DOCUMENT, "application/msword");
+        register("docx", Category.DOCUMENT, "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+        register("xls", Category.SPREADSHEET, "application/vnd.ms-excel");
+        register("xlsx", Category.SPREADSHEET, "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        register("ppt", Category.PRESENTATION, "application/vnd.ms-powerpoint");
+        register("pptx", Category.PRESENTATION, "application/vnd.openxmlformats-officedocument.presentationml.presentation");
+
+        // Archives
+        register("zip", Category.ARCHIVE, "application/zip");
+        register("rar", Category.ARCHIVE, "application/x-rar-compressed");
+        register("7z", Category.ARCHIVE, "application/x-7z-compressed");
+        register("tar", Category.ARCHIVE, "application/x-tar");
+        register("gz", Category.ARCHIVE, "application/gzip");
+        register("bz2", Category.ARCHIVE, "application/x-bzip2");
+    }
+
+    /**
+     * Register a file type with the default icon for its category
+     */
+    public static void register(String extension, Category category, String mimeType) {
+        register(extension, new FileType(category, mimeType, getDefaultIconRes(category)));
+    }
+
+    /**
+     * Register or replace the descriptor for an extension (with or without the leading dot)
+     */
+    public static void register(String extension, FileType type) {
+        String key = extension.startsWith(".") ? extension.substring(1) : extension;
+        TYPES.put(key.toLowerCase(Locale.ROOT), type);
+    }
+
+    /**
+     * Get the descriptor for a file name, or {@link #UNKNOWN}
+     */
+    public static FileType getType(String fileName) {
+        String extension = getExtension(fileName);
+        if (extension.isEmpty()) {
+            return UNKNOWN;
+        }
+        FileType type = TYPES.get(extension);
+        return type != null ? type : UNKNOWN;
+    }
+
+    public static FileType getType(File file) {
+        return getType(file.getName());
+    }
+
+    /**
+     * Get the descriptor for a bare extension such as "png", or {@link #UNKNOWN}
+     */
+    public static FileType getTypeForExtension(String extension) {
+        FileType type = TYPES.get(extension.toLowerCase(Locale.ROOT));
+        return type != null ? type : UNKNOWN;
+    }
+
+    public static Category getCategory(String fileName) {
+        return getType(fileName).getCategory();
+    }
+
+    public static String getMimeType(String fileName) {
+        return getType(fileName).getMimeType();
+    }
+
+    public static boolean isImage(String fileName) {
+        return getCategory(fileName) == Category.IMAGE;
+    }
+
+    public static boolean isAudio(String fileName) {
+        return getCategory(fileName) == Category.AUDIO;
+    }
+
+    public static boolean isVideo(String fileName) {
+        return getCategory(fileName) == Category.VIDEO;
+    }
+
+    public static boolean isText(String fileName) {
+        return getCategory(fileName) == Category.TEXT;
+    }
+
+    public static boolean isPdf(String fileName) {
+        return getCategory(fileName) == Category.PDF;
+    }
+
+    public static boolean isArchive(String fileName) {
+        return getCategory(fileName) == Category.ARCHIVE;
+    }
+
+    /**
+     * Get the lowercase extension without the dot, or "" if there is none
+     */
+    public static String getExtension(String fileName) {
+        if (fileName == null) return "";
+        int lastDotIndex = fileName.lastIndexOf('.');
+        if (lastDotIndex < 0 || lastDotIndex == fileName.length() - 1) return "";
+        return fileName.substring(lastDotIndex + 1).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Get the file name without its extension
+     */
+    public static String getNameWithoutExtension(String fileName) {
+        if (fileName == null) return "";
+        int lastDotIndex = fileName.lastIndexOf('.');
+        return lastDotIndex > 0 ? fileName.substring(0, lastDotIndex) : fileName;
+    }
+
+    private static int getDefaultIconRes(Category category) {
+        switch (category) {
+            case IMAGE: return R.drawable.ic_image;
+            case AUDIO: return R.drawable.ic_audio;
+            case VIDEO: return R.drawable.ic_video;
+            case TEXT: return R.drawable.ic_text;
+            case PDF: return R.drawable.ic_pdf;
+            case DOCUMENT: return R.drawable.ic_word;
+            case SPREADSHEET: return R.drawable.ic_excel;
+            case PRESENTATION: return R.drawable.ic_powerpoint;
+            case ARCHIVE: return R.drawable.ic_archive;
+            default: return R.drawable.ic_file;
+        }
+    }
+}
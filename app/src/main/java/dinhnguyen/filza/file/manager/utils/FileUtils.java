@@ -4,76 +4,106 @@ import android.content.Context;
 import android.os.AsyncTask;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.OperationCanceledException;
 import android.widget.Toast;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
+import dinhnguyen.filza.file.manager.listener.FileChangeListener;
+import dinhnguyen.filza.file.manager.manager.CopyScheduler;
+import dinhnguyen.filza.file.manager.manager.JobControl;
+import dinhnguyen.filza.file.manager.manager.JobHandle;
+import dinhnguyen.filza.file.manager.manager.JobManager;
+import dinhnguyen.filza.file.manager.manager.MoveEngine;
+import dinhnguyen.filza.file.manager.manager.OperationPlanner;
+import dinhnguyen.filza.file.manager.manager.TransferEngine;
+import dinhnguyen.filza.file.manager.manager.TransferJournal;
+import dinhnguyen.filza.file.manager.model.OperationPlan;
+import dinhnguyen.filza.file.manager.model.OperationProgress;
+import dinhnguyen.filza.file.manager.service.DirectorySizeService;
+
 /**
  * Utility class for bulk file operations
- * Handles copy, move, delete, and zip operations asynchronously
+ * Handles copy, move, delete, and zip operations as {@link JobManager} jobs,
+ * whose handles can cancel, pause and resume them
+ * All copying goes through {@link TransferEngine}
  */
 public class FileUtils {
     
-    private static final ExecutorService executor = Executors.newFixedThreadPool(4);
     private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static volatile FileChangeListener fileChangeListener;
     
     public interface OperationCallback {
-        void onProgress(int current, int total, String currentFile);
+        void onProgress(OperationProgress progress);
         void onSuccess(String message);
         void onError(String error);
         void onComplete();
     }
     
     public interface ZipCallback {
-        void onProgress(int current, int total, String currentFile);
+        void onProgress(OperationProgress progress);
         void onSuccess(File zipFile);
         void onError(String error);
         void onComplete();
     }
     
+    /**
+     * Receive every change made by these operations, e.g. to keep the file index current
+     */
+    public static void setFileChangeListener(FileChangeListener listener) {
+        fileChangeListener = listener;
+    }
+    
     /**
      * Copy multiple files to a destination folder
+     * The plan is journaled first, so the copy can be resumed if the app dies
      */
-    public static void copyFiles(Context context, List<File> files, File destinationFolder, OperationCallback callback) {
-        executor.execute(() -> {
+    public static JobHandle copyFiles(Context context, List<File> files, File destinationFolder,
+                                      OperationCallback callback) {
+        String title = "Copy " + describe(files) + " to " + destinationFolder.getName();
+        return JobManager.getInstance(context).submit(OperationPlan.Type.COPY, title, progressListener(callback), job -> {
             try {
-                int totalFiles = calculateTotalFileCount(files);
-                int currentFile = 0;
-                int successCount = 0;
-                
-                for (File sourceFile : files) {
-                    try {
-                        currentFile++;
-                        notifyProgress(callback, currentFile, totalFiles, "Copying " + sourceFile.getName());
-                        
-                        File destFile = getUniqueDestinationFile(sourceFile, destinationFolder);
-                        
-                        if (sourceFile.isDirectory()) {
-                            copyDirectoryRecursively(sourceFile, destFile);
-                        } else {
-                            copyFile(sourceFile, destFile);
-                        }
-                        successCount++;
-                        
-                    } catch (IOException e) {
-                        notifyError(callback, "Failed to copy " + sourceFile.getName() + ": " + e.getMessage());
-                    }
-                }
+                OperationPlan plan = OperationPlanner.planCopy(files, destinationFolder,
+                        TransferEngine.ConflictPolicy.RENAME);
+                if (!checkSpace(job, plan, callback)) return;
+                TransferJournal.Session journal = TransferJournal.getInstance(context).begin(plan, title);
+                runCopy(job, plan, journal, files.size(), callback);
                 
-                String message = "Copied " + successCount + " of " + files.size() + " items successfully";
-                notifySuccess(callback, message);
+            } catch (OperationCanceledException e) {
+                notifySuccess(job, callback, "Copy cancelled");
+            } catch (Exception e) {
+                notifyError(job, callback, "Copy operation failed: " + e.getMessage());
+            } finally {
+                notifyComplete(callback);
+            }
+        });
+    }
+    
+    /**
+     * Copy one file or folder to an exact target, which must not exist yet
+     * Planned and journaled like {@link #copyFiles}
+     */
+    public static JobHandle copyTo(Context context, File source, File target, OperationCallback callback) {
+        String title = "Copy " + source.getName() + " to " + target.getName();
+        return JobManager.getInstance(context).submit(OperationPlan.Type.COPY, title, progressListener(callback), job -> {
+            try {
+                OperationPlan plan = OperationPlanner.planCopyTo(source, target);
+                if (!checkSpace(job, plan, callback)) return;
+                TransferJournal.Session journal = TransferJournal.getInstance(context).begin(plan, title);
+                runCopy(job, plan, journal, 1, callback);
                 
+            } catch (OperationCanceledException e) {
+                notifySuccess(job, callback, "Copy cancelled");
             } catch (Exception e) {
-                notifyError(callback, "Copy operation failed: " + e.getMessage());
+                notifyError(job, callback, "Copy operation failed: " + e.getMessage());
             } finally {
                 notifyComplete(callback);
             }
@@ -82,83 +112,194 @@ public class FileUtils {
     
     /**
      * Move multiple files to a destination folder
+     * The plan is journaled first, so the move can be resumed if the app dies
      */
-    public static void moveFiles(Context context, List<File> files, File destinationFolder, OperationCallback callback) {
-        executor.execute(() -> {
+    public static JobHandle moveFiles(Context context, List<File> files, File destinationFolder,
+                                      OperationCallback callback) {
+        String title = "Move " + describe(files) + " to " + destinationFolder.getName();
+        return JobManager.getInstance(context).submit(OperationPlan.Type.MOVE, title, progressListener(callback), job -> {
             try {
-                int totalFiles = calculateTotalFileCount(files);
-                int currentFile = 0;
-                int successCount = 0;
+                OperationPlan plan = OperationPlanner.planMove(files, destinationFolder);
+                if (!checkSpace(job, plan, callback)) return;
+                TransferJournal.Session journal = TransferJournal.getInstance(context).begin(plan, title);
+                runMove(job, plan, journal, files.size(), false, callback);
                 
-                for (File sourceFile : files) {
-                    try {
-                        currentFile++;
-                        notifyProgress(callback, currentFile, totalFiles, "Moving " + sourceFile.getName());
-                        
-                        File destFile = getUniqueDestinationFile(sourceFile, destinationFolder);
-                        
-                        // Try to move first, fallback to copy+delete
-                        if (sourceFile.renameTo(destFile)) {
-                            successCount++;
-                        } else {
-                            // Fallback: copy then delete
-                            if (sourceFile.isDirectory()) {
-                                copyDirectoryRecursively(sourceFile, destFile);
-                                deleteRecursively(sourceFile);
-                            } else {
-                                copyFile(sourceFile, destFile);
-                                sourceFile.delete();
-                            }
-                            successCount++;
-                        }
-                        
-                    } catch (IOException e) {
-                        notifyError(callback, "Failed to move " + sourceFile.getName() + ": " + e.getMessage());
-                    }
+            } catch (OperationCanceledException e) {
+                notifySuccess(job, callback, "Move cancelled");
+            } catch (Exception e) {
+                notifyError(job, callback, "Move operation failed: " + e.getMessage());
+            } finally {
+                notifyComplete(callback);
+            }
+        });
+    }
+    
+    /**
+     * Resume a copy or move that was interrupted when the app died
+     * Files found complete at their targets are skipped
+     */
+    public static JobHandle resumeTransfer(Context context, TransferJournal.Entry entry,
+                                           OperationCallback callback) {
+        boolean move = entry.getType() == OperationPlan.Type.MOVE;
+        String operation = move ? "Move" : "Copy";
+        return JobManager.getInstance(context).submit(entry.getType(), entry.getTitle(), progressListener(callback), job -> {
+            TransferJournal journal = TransferJournal.getInstance(context);
+            TransferJournal.Session session = journal.reopen(entry.getId());
+            boolean started = false;
+            try {
+                OperationPlan plan = journal.recover(entry.getId());
+                if (plan == null) {
+                    notifySuccess(job, callback, "Nothing left to resume");
+                    return;
+                }
+                if (!checkSpace(job, plan, callback)) return;
+                started = true;
+                if (move) {
+                    runMove(job, plan, session, plan.getItems().size(), true, callback);
+                } else {
+                    runCopy(job, plan, session, plan.getItems().size(), callback);
                 }
                 
-                String message = "Moved " + successCount + " of " + files.size() + " items successfully";
-                notifySuccess(callback, message);
-                
+            } catch (OperationCanceledException e) {
+                notifySuccess(job, callback, operation + " cancelled");
             } catch (Exception e) {
-                notifyError(callback, "Move operation failed: " + e.getMessage());
+                notifyError(job, callback, operation + " operation failed: " + e.getMessage());
             } finally {
+                if (!started) {
+                    // Still offered for resuming next time
+                    session.close();
+                }
                 notifyComplete(callback);
             }
         });
     }
     
+    /**
+     * Carry out a journaled copy plan; the journal is closed however it ends
+     */
+    private static void runCopy(JobHandle job, OperationPlan plan, TransferJournal.Session journal,
+                                int itemCount, OperationCallback callback) {
+        ProgressTracker tracker = job.getTracker();
+        CopyScheduler copyScheduler = new CopyScheduler(
+                CopyScheduler.DEFAULT_THREAD_COUNT, CopyScheduler.DEFAULT_PER_VOLUME_LIMIT);
+        try {
+            tracker.start(plan.getTransferFileCount(), plan.getTotalBytes());
+            
+            CopyScheduler.Result result = copyScheduler.copy(plan, true, job.getControl(),
+                    new CopyScheduler.CopyListener() {
+                        @Override
+                        public void onFileCopied(int filesDone, int filesTotal, File source) {
+                            tracker.fileDone(source.getName());
+                        }
+                        
+                        @Override
+                        public void onBytesTransferred(long bytes) {
+                            tracker.addBytes(bytes);
+                        }
+                        
+                        @Override
+                        public void onEntryCreated(File destination) {
+                            journal.markDone(destination);
+                            reportChange(destination);
+                        }
+                    });
+            tracker.finish();
+            
+            for (String error : result.getErrors()) {
+                notifyError(job, callback, error);
+            }
+            String message = result.isCancelled() ? "Copy cancelled"
+                    : "Copied " + result.getCopiedCount() + " of " + itemCount + " items successfully";
+            notifySuccess(job, callback, message);
+        } finally {
+            copyScheduler.shutdown();
+            journal.finish();
+        }
+    }
+    
+    /**
+     * Carry out a journaled move plan; the journal is closed however it ends
+     */
+    private static void runMove(JobHandle job, OperationPlan plan, TransferJournal.Session journal,
+                                int itemCount, boolean resumed, OperationCallback callback) {
+        ProgressTracker tracker = job.getTracker();
+        try {
+            tracker.start(plan.getFileCount(), plan.getTotalBytes());
+            int successCount = 0;
+            MoveEngine engine = new MoveEngine(true)
+                    .setJobControl(job.getControl())
+                    .setMoveListener(new TrackingListener(tracker, journal));
+            
+            for (OperationPlan.Item item : plan.getItems()) {
+                File sourceFile = item.getSource();
+                try {
+                    tracker.setCurrentFile(sourceFile.getName());
+                    if (resumed) {
+                        engine.resume(item);
+                    } else {
+                        engine.move(item);
+                    }
+                    successCount++;
+                } catch (IOException e) {
+                    notifyError(job, callback, "Failed to move " + sourceFile.getName() + ": " + e.getMessage());
+                } finally {
+                    // Whatever is left of a partly streamed source has to be re-read
+                    reportChanges(Collections.singletonList(sourceFile), true);
+                }
+            }
+            tracker.finish();
+            
+            String message = "Moved " + successCount + " of " + itemCount + " items successfully";
+            notifySuccess(job, callback, message);
+        } finally {
+            journal.finish();
+        }
+    }
+    
     /**
      * Delete multiple files
+     * Progress counts entries, since deleting does not move any data
      */
-    public static void deleteFiles(Context context, List<File> files, OperationCallback callback) {
-        executor.execute(() -> {
+    public static JobHandle deleteFiles(Context context, List<File> files, OperationCallback callback) {
+        String title = "Delete " + describe(files);
+        return JobManager.getInstance(context).submit(OperationPlan.Type.DELETE, title, progressListener(callback), job -> {
+            ProgressTracker tracker = job.getTracker();
             try {
-                int totalFiles = calculateTotalFileCount(files);
-                int currentFile = 0;
+                OperationPlan plan = OperationPlanner.planDelete(files);
+                tracker.start(plan.getFileCount() + plan.getDirectoryCount(), 0);
                 int successCount = 0;
                 
-                for (File file : files) {
+                for (OperationPlan.Item item : plan.getItems()) {
+                    File file = item.getSource();
                     try {
-                        currentFile++;
-                        notifyProgress(callback, currentFile, totalFiles, "Deleting " + file.getName());
+                        tracker.setCurrentFile(file.getName());
                         
-                        if (deleteRecursively(file)) {
+                        boolean deleted = deleteRecursively(file, job.getControl());
+                        tracker.addCompleted(item.getFileCount() + item.getDirectoryCount(), 0, file.getName());
+                        if (deleted) {
                             successCount++;
                         } else {
-                            notifyError(callback, "Failed to delete " + file.getName());
+                            notifyError(job, callback, "Failed to delete " + file.getName());
                         }
                         
+                    } catch (OperationCanceledException e) {
+                        throw e;
                     } catch (Exception e) {
-                        notifyError(callback, "Failed to delete " + file.getName() + ": " + e.getMessage());
+                        notifyError(job, callback, "Failed to delete " + file.getName() + ": " + e.getMessage());
+                    } finally {
+                        // Whatever survived a partial delete has to be re-read
+                        reportChanges(Collections.singletonList(file), true);
                     }
                 }
+                tracker.finish();
                 
                 String message = "Deleted " + successCount + " of " + files.size() + " items successfully";
-                notifySuccess(callback, message);
+                notifySuccess(job, callback, message);
                 
+            } catch (OperationCanceledException e) {
+                notifySuccess(job, callback, "Delete cancelled");
             } catch (Exception e) {
-                notifyError(callback, "Delete operation failed: " + e.getMessage());
+                notifyError(job, callback, "Delete operation failed: " + e.getMessage());
             } finally {
                 notifyComplete(callback);
             }
@@ -167,9 +308,16 @@ public class FileUtils {
     
     /**
      * Create a ZIP file containing all selected files
+     * A failed or cancelled ZIP file is removed rather than left truncated
      */
-    public static void createZipFile(Context context, List<File> files, File destinationFolder, String zipFileName, ZipCallback callback) {
-        executor.execute(() -> {
+    public static JobHandle createZipFile(Context context, List<File> files, File destinationFolder,
+                                          String zipFileName, ZipCallback callback) {
+        String title = "Compress " + describe(files) + " to " + zipFileName;
+        ProgressTracker.Listener progressListener = callback != null ? callback::onProgress : null;
+        return JobManager.getInstance(context).submit(OperationPlan.Type.ZIP, title, progressListener, job -> {
+            ProgressTracker tracker = job.getTracker();
+            File zipFile = null;
+            boolean complete = false;
             try {
                 // Ensure zip file has .zip extension
                 final String finalZipFileName;
@@ -179,7 +327,7 @@ public class FileUtils {
                     finalZipFileName = zipFileName;
                 }
                 
-                File zipFile = new File(destinationFolder, finalZipFileName);
+                zipFile = new File(destinationFolder, finalZipFileName);
                 
                 // Handle duplicate zip file names
                 int counter = 1;
@@ -189,246 +337,205 @@ public class FileUtils {
                     counter++;
                 }
                 
-                int totalFiles = calculateTotalFileCount(files);
-                int currentFile = 0;
+                // One walk gives the space check, the totals and every entry to write
+                OperationPlan plan = OperationPlanner.planZip(files, destinationFolder);
+                OperationPlan.VolumeNeed need = plan.getUnsatisfiedNeed();
+                if (need != null) {
+                    String error = describeShortage(need);
+                    job.addError(error);
+                    notifyZipError(callback, error);
+                    return;
+                }
+                tracker.start(plan.getFileCount(), plan.getTotalBytes());
                 
                 try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zipFile))) {
                     zos.setLevel(6); // Good compression level
                     
-                    for (File file : files) {
-                        currentFile++;
-                        notifyZipProgress(callback, currentFile, totalFiles, "Adding " + file.getName());
-                        
-                        if (file.isDirectory()) {
-                            addDirectoryToZip(file, file.getName(), zos);
-                        } else {
-                            addFileToZip(file, file.getName(), zos);
+                    for (OperationPlan.Item item : plan.getItems()) {
+                        if (item.getError() != null) {
+                            job.addError("Skipped " + item.getSource().getName() + ": " + item.getError());
+                            continue;
+                        }
+                        for (File directory : item.getDirectories()) {
+                            zos.putNextEntry(new ZipEntry(directory.getPath() + "/"));
+                            zos.closeEntry();
+                        }
+                        for (OperationPlan.PlannedFile file : item.getFiles()) {
+                            addFileToZip(file.getSource(), file.getTarget().getPath(), zos, job);
                         }
                     }
                 }
+                complete = true;
+                reportChange(zipFile);
+                tracker.finish();
                 
+                job.setMessage("Created " + zipFile.getName());
                 notifyZipSuccess(callback, zipFile);
                 
+            } catch (OperationCanceledException e) {
+                job.setMessage("Compression cancelled");
+                notifyZipError(callback, "Compression cancelled");
             } catch (Exception e) {
+                job.addError("Failed to create ZIP file: " + e.getMessage());
                 notifyZipError(callback, "Failed to create ZIP file: " + e.getMessage());
             } finally {
+                if (!complete && zipFile != null) {
+                    zipFile.delete();
+                }
                 notifyZipComplete(callback);
             }
         });
     }
     
     /**
-     * Calculate total number of files (including files in subdirectories)
+     * Report the first volume the plan does not fit on. Free space is read
+     * when planning, on the worker, so large selections never stall the UI.
      */
-    private static int calculateTotalFileCount(List<File> files) {
-        int count = 0;
-        for (File file : files) {
-            if (file.isDirectory()) {
-                count += countFilesInDirectory(file);
-            } else {
-                count++;
-            }
+    private static boolean checkSpace(JobHandle job, OperationPlan plan, OperationCallback callback) {
+        OperationPlan.VolumeNeed need = plan.getUnsatisfiedNeed();
+        if (need == null) {
+            return true;
         }
-        return count;
+        notifyError(job, callback, describeShortage(need));
+        return false;
     }
     
-    /**
-     * Count files in a directory recursively
-     */
-    private static int countFilesInDirectory(File directory) {
-        int count = 1; // Count the directory itself
-        File[] files = directory.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    count += countFilesInDirectory(file);
-                } else {
-                    count++;
-                }
-            }
-        }
-        return count;
+    private static String describeShortage(OperationPlan.VolumeNeed need) {
+        return "Not enough space: " + FileDisplayFormatter.formatSize(need.getBytesNeeded())
+                + " needed, " + FileDisplayFormatter.formatSize(need.getBytesAvailable()) + " available";
+    }
+    
+    private static ProgressTracker.Listener progressListener(OperationCallback callback) {
+        return callback != null ? callback::onProgress : null;
+    }
+    
+    private static String describe(List<File> files) {
+        return files.size() == 1 ? files.get(0).getName() : files.size() + " items";
     }
     
     /**
-     * Get a unique destination file name
+     * Feeds transfers into a progress tracker and reports every created entry,
+     * marking it done in the job's journal if it has one
      */
-    private static File getUniqueDestinationFile(File sourceFile, File destinationFolder) {
-        File destFile = new File(destinationFolder, sourceFile.getName());
+    private static class TrackingListener implements MoveEngine.MoveListener {
+        private final ProgressTracker tracker;
+        private final TransferJournal.Session journal;
         
-        if (!destFile.exists()) {
-            return destFile;
+        TrackingListener(ProgressTracker tracker, TransferJournal.Session journal) {
+            this.tracker = tracker;
+            this.journal = journal;
         }
         
-        // Handle duplicate names
-        String name = sourceFile.getName();
-        String baseName = name;
-        String extension = "";
-        
-        int dotIndex = name.lastIndexOf('.');
-        if (dotIndex > 0) {
-            baseName = name.substring(0, dotIndex);
-            extension = name.substring(dotIndex);
-        }
-        
-        int counter = 1;
-        while (destFile.exists()) {
-            destFile = new File(destinationFolder, baseName + " (" + counter + ")" + extension);
-            counter++;
+        @Override
+        public void onBytesTransferred(long bytes) {
+            tracker.addBytes(bytes);
         }
         
-        return destFile;
-    }
-    
-    /**
-     * Copy a single file
-     */
-    private static void copyFile(File source, File dest) throws IOException {
-        if (!dest.exists()) {
-            dest.createNewFile();
+        @Override
+        public void onEntryCreated(File destination) {
+            if (destination.isFile()) {
+                tracker.fileDone(destination.getName());
+            }
+            if (journal != null) {
+                journal.markDone(destination);
+            }
+            reportChange(destination);
         }
         
-        try (FileChannel sourceChannel = new FileInputStream(source).getChannel();
-             FileChannel destChannel = new FileOutputStream(dest).getChannel()) {
-            destChannel.transferFrom(sourceChannel, 0, sourceChannel.size());
+        @Override
+        public void onRenamed(OperationPlan.Item item) {
+            tracker.addCompleted(item.getFileCount(), item.getBytes(), item.getSource().getName());
+            // A renamed directory's contents were never reported one by one
+            reportChanges(Collections.singletonList(item.getTarget()), true);
         }
     }
     
     /**
-     * Copy a directory recursively
+     * Delete a file or directory recursively. Symlinks are deleted, never followed.
      */
-    private static void copyDirectoryRecursively(File source, File dest) throws IOException {
-        if (!dest.exists()) {
-            dest.mkdirs();
-        }
-        
-        File[] files = source.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                File destFile = new File(dest, file.getName());
-                if (file.isDirectory()) {
-                    copyDirectoryRecursively(file, destFile);
-                } else {
-                    copyFile(file, destFile);
-                }
-            }
+    private static boolean deleteRecursively(File fileOrDirectory, JobControl control) {
+        if (fileOrDirectory.isDirectory() && !Files.isSymbolicLink(fileOrDirectory.toPath())) {
+            deleteChildren(fileOrDirectory, control);
         }
+        return fileOrDirectory.delete();
     }
     
-    /**
-     * Delete a file or directory recursively
-     */
-    private static boolean deleteRecursively(File fileOrDirectory) {
-        if (fileOrDirectory.isDirectory()) {
-            File[] files = fileOrDirectory.listFiles();
-            if (files != null) {
-                for (File file : files) {
-                    deleteRecursively(file);
+    private static void deleteChildren(File directory, JobControl control) {
+        new DirectoryEnumerator(directory).setNoFollowLinks(true).enumerate(batch -> {
+            for (DirectoryEnumerator.Entry entry : batch) {
+                control.checkpoint();
+                if (entry.isDirectory()) {
+                    deleteChildren(entry.getFile(), control);
                 }
+                entry.getFile().delete();
             }
-        }
-        return fileOrDirectory.delete();
+            return true;
+        });
     }
     
     /**
      * Add a file to ZIP
      */
-    private static void addFileToZip(File file, String entryName, ZipOutputStream zos) throws IOException {
+    private static void addFileToZip(File file, String entryName, ZipOutputStream zos,
+                                     JobHandle job) throws IOException {
+        ProgressTracker tracker = job.getTracker();
         ZipEntry zipEntry = new ZipEntry(entryName);
         zos.putNextEntry(zipEntry);
+        tracker.setCurrentFile(file.getName());
         
         try (FileInputStream fis = new FileInputStream(file)) {
             byte[] buffer = new byte[8192];
             int length;
             while ((length = fis.read(buffer)) > 0) {
+                job.getControl().checkpoint();
                 zos.write(buffer, 0, length);
+                tracker.addBytes(length);
             }
         }
         
         zos.closeEntry();
+        tracker.fileDone(file.getName());
     }
     
     /**
-     * Add a directory to ZIP recursively
+     * Calculate total size of files
      */
-    private static void addDirectoryToZip(File directory, String entryName, ZipOutputStream zos) throws IOException {
-        // Add the directory entry
-        ZipEntry zipEntry = new ZipEntry(entryName + "/");
-        zos.putNextEntry(zipEntry);
-        zos.closeEntry();
-        
-        // Add all files in the directory
-        File[] files = directory.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                String newEntryName = entryName + "/" + file.getName();
-                if (file.isDirectory()) {
-                    addDirectoryToZip(file, newEntryName, zos);
-                } else {
-                    addFileToZip(file, newEntryName, zos);
-                }
-            }
-        }
+    public static long calculateTotalSize(List<File> files) {
+        return DirectorySizeService.getInstance().calculate(files).getBytes();
     }
     
-    /**
-     * Check if there's enough space for the operation
-     */
-    public static boolean hasEnoughSpace(List<File> files, File destination) {
-        long requiredSpace = calculateTotalSize(files);
-        long availableSpace = StorageUtils.getAvailableSpace(destination);
-        return requiredSpace <= availableSpace;
+    private static void reportChange(File file) {
+        reportChanges(Collections.singletonList(file), false);
     }
     
-    /**
-     * Calculate total size of files
-     */
-    public static long calculateTotalSize(List<File> files) {
-        long totalSize = 0;
+    private static void reportChanges(List<File> files, boolean includeContents) {
+        // Cached folder sizes may miss a file replaced under the same name
+        DirectorySizeService sizeService = DirectorySizeService.getInstance();
         for (File file : files) {
-            if (file.exists()) {
-                if (file.isDirectory()) {
-                    totalSize += calculateDirectorySize(file);
-                } else {
-                    totalSize += file.length();
-                }
+            File parent = file.getParentFile();
+            if (parent != null) {
+                sizeService.invalidate(parent);
             }
-        }
-        return totalSize;
-    }
-    
-    /**
-     * Calculate directory size recursively
-     */
-    private static long calculateDirectorySize(File directory) {
-        long size = 0;
-        File[] files = directory.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    size += calculateDirectorySize(file);
-                } else {
-                    size += file.length();
-                }
+            if (includeContents) {
+                sizeService.invalidate(file);
             }
         }
-        return size;
-    }
-    
-    // Helper methods for callbacks
-    private static void notifyProgress(OperationCallback callback, int current, int total, String currentFile) {
-        if (callback != null) {
-            mainHandler.post(() -> callback.onProgress(current, total, currentFile));
+        FileChangeListener listener = fileChangeListener;
+        if (listener != null) {
+            listener.onFilesChanged(files, includeContents);
         }
     }
     
-    private static void notifySuccess(OperationCallback callback, String message) {
+    // Helper methods for callbacks; the job keeps the outcome for the job list
+    private static void notifySuccess(JobHandle job, OperationCallback callback, String message) {
+        job.setMessage(message);
         if (callback != null) {
             mainHandler.post(() -> callback.onSuccess(message));
         }
     }
     
-    private static void notifyError(OperationCallback callback, String error) {
+    private static void notifyError(JobHandle job, OperationCallback callback, String error) {
+        job.addError(error);
         if (callback != null) {
             mainHandler.post(() -> callback.onError(error));
         }
@@ -440,12 +547,6 @@ public class FileUtils {
         }
     }
     
-    private static void notifyZipProgress(ZipCallback callback, int current, int total, String currentFile) {
-        if (callback != null) {
-            mainHandler.post(() -> callback.onProgress(current, total, currentFile));
-        }
-    }
-    
     private static void notifyZipSuccess(ZipCallback callback, File zipFile) {
         if (callback != null) {
             mainHandler.post(() -> callback.onSuccess(zipFile));
@@ -0,0 +1,130 @@
+package dinhnguyen.filza.file.manager.utils;
+
+/**
+ * fzf-style fuzzy matching.
+ * A pattern matches when its characters appear in order in the text. The
+ * shortest such window is scored: every matched character earns points,
+ * matches at word boundaries and runs of consecutive matches earn bonuses,
+ * and gaps inside the window cost points.
+ */
+public class FuzzyMatcher {
+
+    public static final int NO_MATCH = Integer.MIN_VALUE;
+
+    private static final int SCORE_MATCH = 16;
+    private static final int SCORE_GAP_START = -3;
+    private static final int SCORE_GAP_EXTENSION = -1;
+    private static final int BONUS_BOUNDARY = SCORE_MATCH / 2;
+    private static final int BONUS_NON_WORD = SCORE_MATCH / 2;
+    private static final int BONUS_CAMEL_123 = BONUS_BOUNDARY - 1;
+    private static final int BONUS_CONSECUTIVE = -(SCORE_GAP_START + SCORE_GAP_EXTENSION);
+    private static final int BONUS_FIRST_CHAR_MULTIPLIER = 2;
+
+    private static final int CLASS_NON_WORD = 0;
+    private static final int CLASS_LOWER = 1;
+    private static final int CLASS_UPPER = 2;
+    private static final int CLASS_NUMBER = 3;
+
+    /**
+     * Score a pattern against a text, both already normalized.
+     * @return the score, higher is better, or {@link #NO_MATCH}
+     */
+    public static int score(String pattern, String text) {
+        return score(pattern, text, text);
+    }
+
+    /**
+     * Like {@link #score(String, String)}, taking word boundaries from
+     * {@code original}, the text before normalization. Normalizing lowercases
+     * it, so only the original shows where a camelCase word starts. Ignored
+     * when normalizing changed its length.
+     */
+    public static int score(String pattern, String text, String original) {
+        String classes = original.length() == text.length() ? original : text;
+        int patternLength = pattern.length();
+        if (patternLength == 0) return 0;
+
+        // Forward scan finds where the earliest complete match ends
+        int start = -1;
+        int end = -1;
+        int p = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == pattern.charAt(p)) {
+                if (start < 0) start = i;
+                if (++p == patternLength) {
+                    end = i + 1;
+                    break;
+                }
+            }
+        }
+        if (end < 0) return NO_MATCH;
+
+        // Backward scan from there tightens the start of the window
+        p = patternLength - 1;
+        for (int i = end - 1; i >= start; i--) {
+            if (text.charAt(i) == pattern.charAt(p)) {
+                if (--p < 0) {
+                    start = i;
+                    break;
+                }
+            }
+        }
+
+        int score = 0;
+        int consecutive = 0;
+        int firstBonus = 0;
+        boolean inGap = false;
+        int previousClass = start > 0 ? charClass(classes.charAt(start - 1)) : CLASS_NON_WORD;
+        p = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            int currentClass = charClass(classes.charAt(i));
+            if (p < patternLength && c == pattern.charAt(p)) {
+                score += SCORE_MATCH;
+                int bonus = bonus(previousClass, currentClass);
+                if (consecutive == 0) {
+                    firstBonus = bonus;
+                } else {
+                    // A run keeps the bonus of the boundary it started at
+                    if (bonus >= BONUS_BOUNDARY && bonus > firstBonus) {
+                        firstBonus = bonus;
+                    }
+                    bonus = Math.max(Math.max(bonus, firstBonus), BONUS_CONSECUTIVE);
+                }
+                score += p == 0 ? bonus * BONUS_FIRST_CHAR_MULTIPLIER : bonus;
+                inGap = false;
+                consecutive++;
+                p++;
+            } else {
+                score += inGap ? SCORE_GAP_EXTENSION : SCORE_GAP_START;
+                inGap = true;
+                consecutive = 0;
+                firstBonus = 0;
+            }
+            previousClass = currentClass;
+        }
+        return score;
+    }
+
+    private static int bonus(int previousClass, int currentClass) {
+        if (previousClass == CLASS_NON_WORD && currentClass != CLASS_NON_WORD) {
+            return BONUS_BOUNDARY;
+        }
+        if ((previousClass == CLASS_LOWER && currentClass == CLASS_UPPER)
+                || (previousClass != CLASS_NUMBER && currentClass == CLASS_NUMBER)) {
+            return BONUS_CAMEL_123;
+        }
+        if (currentClass == CLASS_NON_WORD) {
+            return BONUS_NON_WORD;
+        }
+        return 0;
+    }
+
+    private static int charClass(char c) {
+        if (Character.isLowerCase(c)) return CLASS_LOWER;
+        if (Character.isUpperCase(c)) return CLASS_UPPER;
+        if (Character.isDigit(c)) return CLASS_NUMBER;
+        if (Character.isLetter(c)) return CLASS_LOWER;
+        return CLASS_NON_WORD;
+    }
+}
@@ -0,0 +1,134 @@
+package dinhnguyen.filza.file.manager.utils;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import dinhnguyen.filza.file.manager.model.OperationProgress;
+
+/**
+ * Collects progress from any number of worker threads and hands the listener
+ * an {@link OperationProgress} on the main thread, at most once per frame.
+ * Workers only bump counters; a dispatch is scheduled by whichever update
+ * finds none pending, so a copy of many small files costs a handful of main
+ * thread messages per second instead of one per file. Throughput and ETA are
+ * computed at dispatch time from an exponentially smoothed byte rate.
+ */
+public class ProgressTracker {
+
+    public interface Listener {
+        void onProgress(OperationProgress progress);
+    }
+
+    private static final long FRAME_INTERVAL_MS = 16;
+    // Time constant of the throughput average; larger is steadier but slower to react
+    private static final double RATE_SMOOTHING_MS = 2000;
+    private static final long MIN_ESTIMATE_ELAPSED_MS = 1000;
+
+    private final Handler mainHandler;
+    private final Listener listener;
+    private final AtomicInteger filesDone = new AtomicInteger();
+    private final AtomicLong bytesDone = new AtomicLong();
+    private final AtomicBoolean dispatchPending = new AtomicBoolean();
+    private final Runnable dispatchRunnable = this::dispatch;
+    private volatile int filesTotal;
+    private volatile long bytesTotal;
+    private volatile String currentFile;
+    private volatile long lastDispatchTime;
+
+    // Main thread only
+    private long startTime;
+    private long lastSampleTime;
+    private long lastSampleBytes;
+    private double bytesPerSecond;
+    private boolean hasRate;
+
+    /**
+     * @param listener may be null, in which case nothing is dispatched
+     */
+    public ProgressTracker(Handler mainHandler, Listener listener) {
+        this.mainHandler = mainHandler;
+        this.listener = listener;
+    }
+
+    /** Set the totals once they are known; counts start at zero. */
+    public void start(int filesTotal, long bytesTotal) {
+        this.filesTotal = filesTotal;
+        this.bytesTotal = bytesTotal;
+        schedule();
+    }
+
+    public void setCurrentFile(String name) {
+        currentFile = name;
+        schedule();
+    }
+
+    public void addBytes(long bytes) {
+        bytesDone.addAndGet(bytes);
+        schedule();
+    }
+
+    public void fileDone(String name) {
+        currentFile = name;
+        filesDone.incrementAndGet();
+        schedule();
+    }
+
+    /**
+     * Count work that finished without passing through {@link #addBytes},
+     * e.g. a folder moved by a single rename
+     */
+    public void addCompleted(int files, long bytes, String name) {
+        currentFile = name;
+        filesDone.addAndGet(files);
+        bytesDone.addAndGet(bytes);
+        schedule();
+    }
+
+    /** Dispatch the final state now instead of waiting for the next frame. */
+    public void finish() {
+        if (listener == null) return;
+        mainHandler.removeCallbacks(dispatchRunnable);
+        dispatchPending.set(true);
+        mainHandler.post(dispatchRunnable);
+    }
+
+    private void schedule() {
+        if (listener == null || !dispatchPending.compareAndSet(false, true)) return;
+        long delay = lastDispatchTime + FRAME_INTERVAL_MS - SystemClock.uptimeMillis();
+        mainHandler.postDelayed(dispatchRunnable, Math.max(0, delay));
+    }
+
+    private void dispatch() {
+        dispatchPending.set(false);
+        long now = SystemClock.uptimeMillis();
+        lastDispatchTime = now;
+        long bytes = bytesDone.get();
+        long total = bytesTotal;
+
+        if (startTime == 0) {
+            startTime = now;
+            lastSampleTime = now;
+            lastSampleBytes = bytes;
+        } else if (now > lastSampleTime) {
+            long elapsed = now - lastSampleTime;
+            double sample = (bytes - lastSampleBytes) * 1000.0 / elapsed;
+            double weight = 1 - Math.exp(-elapsed / RATE_SMOOTHING_MS);
+            bytesPerSecond = hasRate ? bytesPerSecond + weight * (sample - bytesPerSecond) : sample;
+            hasRate = true;
+            lastSampleTime = now;
+            lastSampleBytes = bytes;
+        }
+
+        long rate = Math.round(bytesPerSecond);
+        long eta = OperationProgress.UNKNOWN;
+        if (total > 0 && rate > 0 && now - startTime >= MIN_ESTIMATE_ELAPSED_MS) {
+            eta = Math.max(0, total - bytes) * 1000 / rate;
+        }
+        listener.onProgress(new OperationProgress(filesDone.get(), filesTotal, bytes, total,
+                rate, eta, currentFile));
+    }
+}
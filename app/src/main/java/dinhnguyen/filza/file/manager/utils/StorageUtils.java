@@ -3,6 +3,8 @@ package dinhnguyen.filza.file.manager.utils;
 import android.content.Context;
 import android.os.Environment;
 import android.os.StatFs;
+import android.system.ErrnoException;
+import android.system.Os;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -116,6 +118,23 @@ public class StorageUtils {
         }
     }
     
+    /**
+     * Id of the filesystem holding a file (its st_dev), so callers can tell
+     * whether two paths share a volume. Paths that do not exist yet resolve
+     * through their nearest existing parent. Returns -1 if nothing can be
+     * stat-ed.
+     */
+    public static long getVolumeId(File file) {
+        for (File current = file.getAbsoluteFile(); current != null; current = current.getParentFile()) {
+            try {
+                return Os.stat(current.getPath()).st_dev;
+            } catch (ErrnoException e) {
+                // Not there (yet); try the parent
+            }
+        }
+        return -1;
+    }
+    
     /**
      * Format file size in human readable format
      */
@@ -0,0 +1,19 @@
+package dinhnguyen.filza.file.manager.viewmodel;
+
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
+
+import dinhnguyen.filza.file.manager.manager.ContentSearchManager;
+import dinhnguyen.filza.file.manager.ui.viewmodel.ContentSearchViewModel;
+
+public class ContentSearchViewModelFactory implements ViewModelProvider.Factory {
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T extends ViewModel> T create(Class<T> modelClass) {
+        if (modelClass.isAssignableFrom(ContentSearchViewModel.class)) {
+            return (T) new ContentSearchViewModel(new ContentSearchManager());
+        }
+        throw new IllegalArgumentException("Unknown ViewModel class");
+    }
+}
@@ -0,0 +1,27 @@
+package dinhnguyen.filza.file.manager.viewmodel;
+
+import android.content.Context;
+
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
+
+import dinhnguyen.filza.file.manager.manager.DuplicateFinder;
+import dinhnguyen.filza.file.manager.ui.viewmodel.DuplicateFinderViewModel;
+
+public class DuplicateFinderViewModelFactory implements ViewModelProvider.Factory {
+
+    private final Context context;
+
+    public DuplicateFinderViewModelFactory(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T extends ViewModel> T create(Class<T> modelClass) {
+        if (modelClass.isAssignableFrom(DuplicateFinderViewModel.class)) {
+            return (T) new DuplicateFinderViewModel(new DuplicateFinder(context));
+        }
+        throw new IllegalArgumentException("Unknown ViewModel class");
+    }
+}
@@ -0,0 +1,27 @@
+package dinhnguyen.filza.file.manager.viewmodel;
+
+import android.content.Context;
+
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
+
+import dinhnguyen.filza.file.manager.manager.JobManager;
+import dinhnguyen.filza.file.manager.ui.viewmodel.JobsViewModel;
+
+public class JobsViewModelFactory implements ViewModelProvider.Factory {
+
+    private final Context context;
+
+    public JobsViewModelFactory(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T extends ViewModel> T create(Class<T> modelClass) {
+        if (modelClass.isAssignableFrom(JobsViewModel.class)) {
+            return (T) new JobsViewModel(JobManager.getInstance(context));
+        }
+        throw new IllegalArgumentException("Unknown ViewModel class");
+    }
+}
@@ -0,0 +1,25 @@
+package dinhnguyen.filza.file.manager.viewmodel;
+
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
+
+import dinhnguyen.filza.file.manager.manager.FileSearchManager;
+import dinhnguyen.filza.file.manager.ui.viewmodel.SearchViewModel;
+
+public class SearchViewModelFactory implements ViewModelProvider.Factory {
+
+    private final FileSearchManager searchManager;
+
+    public SearchViewModelFactory(FileSearchManager searchManager) {
+        this.searchManager = searchManager;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T extends ViewModel> T create(Class<T> modelClass) {
+        if (modelClass.isAssignableFrom(SearchViewModel.class)) {
+            return (T) new SearchViewModel(searchManager);
+        }
+        throw new IllegalArgumentException("Unknown ViewModel class");
+    }
+}
@@ -0,0 +1,32 @@
+package dinhnguyen.filza.file.manager.viewmodel;
+
+import android.content.Context;
+
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
+
+import java.io.File;
+
+import dinhnguyen.filza.file.manager.service.DirectorySizeService;
+import dinhnguyen.filza.file.manager.ui.viewmodel.StorageAnalyzerViewModel;
+
+public class StorageAnalyzerViewModelFactory implements ViewModelProvider.Factory {
+
+    private static final String SNAPSHOT_FILE_NAME = "dir_sizes.bin";
+
+    private final Context context;
+
+    public StorageAnalyzerViewModelFactory(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T extends ViewModel> T create(Class<T> modelClass) {
+        if (modelClass.isAssignableFrom(StorageAnalyzerViewModel.class)) {
+            return (T) new StorageAnalyzerViewModel(DirectorySizeService.getInstance(),
+                    new File(context.getFilesDir(), SNAPSHOT_FILE_NAME));
+        }
+        throw new IllegalArgumentException("Unknown ViewModel class");
+    }
+}
@@ -0,0 +1,135 @@
+package dinhnguyen.filza.file.manager.manager;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import dinhnguyen.filza.file.manager.model.ContentMatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Line and column reporting of {@link ContentSearchManager}, which scans
+ * files in 64 KB chunks of raw UTF-8.
+ */
+public class ContentSearchManagerTest {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ContentSearchManager manager = new ContentSearchManager(Runnable::run);
+
+    @After
+    public void tearDown() {
+        manager.shutdown();
+    }
+
+    @Test
+    public void literalMatchSplitAcrossBuffersInOneLongLine() throws Exception {
+        String prefix = "a".repeat(BUFFER_SIZE - 3);
+        write("long.txt", prefix + "needle\n");
+
+        List<ContentMatch> matches = search("needle", false);
+
+        assertEquals(1, matches.size());
+        assertEquals(1, matches.get(0).getLineNumber());
+        assertEquals(prefix.length() + 1, matches.get(0).getColumn());
+    }
+
+    @Test
+    public void literalMatchSplitAcrossBuffersAfterManyLines() throws Exception {
+        String filler = "filler line\n";
+        int lines = BUFFER_SIZE / filler.length() - 1;
+        StringBuilder text = new StringBuilder(filler.repeat(lines));
+        String padding = "b".repeat(BUFFER_SIZE - 3 - text.length());
+        text.append(padding).append("needle and more\n");
+        write("lines.txt", text.toString());
+
+        List<ContentMatch> matches = search("needle", false);
+
+        assertEquals(1, matches.size());
+        assertEquals(lines + 1, matches.get(0).getLineNumber());
+        assertEquals(padding.length() + 1, matches.get(0).getColumn());
+    }
+
+    @Test
+    public void columnsCountCharactersNotBytes() throws Exception {
+        write("utf8.txt", "héllo wörld needle\n日本語 needle\n🙂 needle\n");
+
+        List<ContentMatch> matches = sortByLine(search("needle", false));
+
+        assertEquals(3, matches.size());
+        assertEquals(13, matches.get(0).getColumn());
+        assertEquals(5, matches.get(1).getColumn());
+        assertEquals(3, matches.get(2).getColumn());
+        assertEquals("日本語 needle", matches.get(1).getLineText());
+    }
+
+    @Test
+    public void columnsCountCharactersSplitAcrossBuffers() throws Exception {
+        // Two-byte characters, so some chunk ends in the middle of one
+        String prefix = "é".repeat(BUFFER_SIZE * 3 / 4 + 1);
+        write("wide.txt", prefix + "needle\n");
+
+        List<ContentMatch> matches = search("needle", false);
+
+        assertEquals(1, matches.size());
+        assertEquals(prefix.length() + 1, matches.get(0).getColumn());
+    }
+
+    @Test
+    public void regexColumnsCountCharacters() throws Exception {
+        write("regex.txt", "日本語 neeedle\n");
+
+        List<ContentMatch> matches = search("ne+dle", true);
+
+        assertEquals(1, matches.size());
+        assertEquals(5, matches.get(0).getColumn());
+    }
+
+    private List<ContentMatch> search(String pattern, boolean regex) throws InterruptedException {
+        List<ContentMatch> matches = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+        manager.search(folder.getRoot(), pattern, new ContentSearchManager.Options(regex, true, 100),
+                new ContentSearchManager.SearchCallback() {
+                    @Override
+                    public void onMatches(List<ContentMatch> batch) {
+                        matches.addAll(batch);
+                    }
+
+                    @Override
+                    public void onProgress(int filesScanned, long bytesScanned, double megabytesPerSecond) {
+                    }
+
+                    @Override
+                    public void onComplete(ContentSearchManager.Summary summary) {
+                        done.countDown();
+                    }
+                });
+        assertTrue("Search did not finish", done.await(10, TimeUnit.SECONDS));
+        return new ArrayList<>(matches);
+    }
+
+    private void write(String name, String text) throws IOException {
+        Files.write(new File(folder.getRoot(), name).toPath(), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<ContentMatch> sortByLine(List<ContentMatch> matches) {
+        matches.sort((a, b) -> Integer.compare(a.getLineNumber(), b.getLineNumber()));
+        return matches;
+    }
+}
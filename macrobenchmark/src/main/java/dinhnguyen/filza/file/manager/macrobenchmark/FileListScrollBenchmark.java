@@ -0,0 +1,101 @@
+package dinhnguyen.filza.file.manager.macrobenchmark;
+
+import android.content.Context;
+import android.content.Intent;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Collections;
+
+import kotlin.Unit;
+
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Measures frame timing while flinging through a folder of 10k files.
+ * Run with {@code ./gradlew :macrobenchmark:connectedBenchmarkAndroidTest}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FileListScrollBenchmark {
+
+    private static final String PACKAGE_NAME = "dinhnguyen.filza.file.manager";
+    private static final String ACTIVITY_NAME = PACKAGE_NAME + ".ui.FileBrowserActivity";
+    private static final String LARGE_FOLDER =
+            "/sdcard/Android/data/" + PACKAGE_NAME + "/files/benchmark_10k";
+    private static final int FILE_COUNT = 10_000;
+    private static final int FLING_COUNT = 10;
+    private static final long TIMEOUT_MS = 10_000;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    @Before
+    public void createLargeFolder() throws IOException {
+        // The app's external files dir is only writable by the app and the shell,
+        // so generate the files with a shell script
+        Context context = InstrumentationRegistry.getInstrumentation().getContext();
+        File script = new File(context.getExternalCacheDir(), "create_benchmark_files.sh");
+        try (FileWriter writer = new FileWriter(script)) {
+            writer.write("[ -f " + LARGE_FOLDER + "/.complete ] && exit 0\n");
+            writer.write("mkdir -p " + LARGE_FOLDER + "\n");
+            writer.write("cd " + LARGE_FOLDER + " || exit 1\n");
+            writer.write("i=0\n");
+            writer.write("while [ $i -lt " + FILE_COUNT + " ]; do\n");
+            writer.write("  echo $i > file_$i.txt\n");
+            writer.write("  i=$((i + 1))\n");
+            writer.write("done\n");
+            writer.write("touch .complete\n");
+        }
+        UiDevice device = UiDevice.getInstance(InstrumentationRegistry.getInstrumentation());
+        device.executeShellCommand("sh " + script.getAbsolutePath());
+    }
+
+    @Test
+    public void scrollLargeFolder() {
+        benchmarkRule.measureRepeated(
+                PACKAGE_NAME,
+                Collections.singletonList(new FrameTimingMetric()),
+                CompilationMode.DEFAULT,
+                null,
+                5,
+                scope -> {
+                    scope.pressHome();
+                    Intent intent = new Intent();
+                    intent.setClassName(PACKAGE_NAME, ACTIVITY_NAME);
+                    intent.putExtra("initialPath", LARGE_FOLDER);
+                    scope.startActivityAndWait(intent);
+                    // Wait until the listing has finished loading
+                    scope.getDevice().wait(Until.hasObject(By.text("file_0.txt")), TIMEOUT_MS);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    UiDevice device = scope.getDevice();
+                    UiObject2 list = device.findObject(By.res(PACKAGE_NAME, "recyclerViewFiles"));
+                    assertNotNull("File list not found", list);
+                    // Keep flings away from the edges to avoid system gestures
+                    list.setGestureMargin(device.getDisplayWidth() / 5);
+                    for (int i = 0; i < FLING_COUNT; i++) {
+                        list.fling(Direction.DOWN);
+                        device.waitForIdle();
+                    }
+                    return Unit.INSTANCE;
+                });
+    }
+}
@@ -22,3 +22,4 @@ dependencyResolutionManagement {
 
 rootProject.name = "FilzaFileManager"
 include(":app")
+include(":macrobenchmark")